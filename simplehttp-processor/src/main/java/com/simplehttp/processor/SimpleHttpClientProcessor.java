@@ -0,0 +1,518 @@
+package com.simplehttp.processor;
+
+import com.simplehttp.core.Constants;
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.*;
+import com.simplehttp.core.client.http.UrlTemplate;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Compile time annotation processor for interfaces annotated with {@link SimpleHttpClient}.
+ *
+ * For every client interface <code>Foo</code> the processor generates a class <code>SimpleHttp_Foo</code> in the same
+ * package which implements {@link com.simplehttp.core.client.GeneratedClient}. The generated class carries the
+ * prebuilt client metadata and a plain Java implementation of the interface, and is registered as a
+ * {@link java.util.ServiceLoader} provider so that {@link com.simplehttp.core.client.ClientBuilder} can build the
+ * client without scanning annotations or creating a proxy at runtime.
+ *
+ * The same validations as the runtime annotation processor are applied, but reported as compilation errors.
+ */
+@SupportedAnnotationTypes("com.simplehttp.core.annotation.client.SimpleHttpClient")
+public class SimpleHttpClientProcessor extends AbstractProcessor {
+
+    static final String GENERATED_CLASS_PREFIX = "SimpleHttp_";
+
+    private static final String GENERATED_CLIENT = "com.simplehttp.core.client.GeneratedClient";
+    private static final String SERVICE_FILE = "META-INF/services/" + GENERATED_CLIENT;
+    private static final String REFLECT_CONFIG_FILE = "META-INF/native-image/com.simplehttp/generated-clients/" +
+            "reflect-config.json";
+
+    private final Set<String> generatedClients = new LinkedHashSet<>();
+    private final Set<String> clientInterfaces = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(SimpleHttpClient.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@SimpleHttpClient can only be applied to interfaces");
+                continue;
+            }
+            final TypeElement client = (TypeElement) element;
+            if (!isAccessibleFromPackage(client)) {
+                warning(client, "Client implementation not generated for private interface %s",
+                        client.getQualifiedName());
+                continue;
+            }
+            try {
+                generateClient(client);
+            } catch (IOException e) {
+                error(client, "Unable to generate client implementation: %s", e.getMessage());
+            }
+        }
+        if (roundEnv.processingOver() && !generatedClients.isEmpty()) {
+            writeResources();
+        }
+        return false;
+    }
+
+    private void generateClient(TypeElement client) throws IOException {
+        final SimpleHttpClient clientAnnotation = client.getAnnotation(SimpleHttpClient.class);
+        final String packageName = processingEnv.getElementUtils().getPackageOf(client).getQualifiedName().toString();
+        final String generatedName = GENERATED_CLASS_PREFIX + getFlatName(client);
+        final String clientType = processingEnv.getTypeUtils().erasure(client.asType()).toString();
+
+        final List<ExecutableElement> requestMethods = new ArrayList<>();
+        final List<ExecutableElement> otherMethods = new ArrayList<>();
+        for (ExecutableElement method : getAbstractMethods(client)) {
+            if (method.getAnnotation(RequestAttribute.class) != null) {
+                requestMethods.add(method);
+            } else {
+                otherMethods.add(method);
+            }
+        }
+
+        final SourceWriter source = new SourceWriter();
+        if (!packageName.isEmpty()) {
+            source.line("package %s;", packageName).line();
+        }
+        source.line("@javax.annotation.processing.Generated(\"%s\")", getClass().getName())
+                .line("public final class %s implements %s<%s> {", generatedName, GENERATED_CLIENT, clientType)
+                .line();
+
+        // methods are resolved once and shared between the metadata and the implementation
+        source.indent().line("private static final java.lang.reflect.Method[] METHODS = new java.lang.reflect.Method[%d];",
+                requestMethods.size()).line();
+        if (!requestMethods.isEmpty()) {
+            source.line("static {").indent().line("try {").indent();
+            for (int i = 0; i < requestMethods.size(); i++) {
+                final ExecutableElement method = requestMethods.get(i);
+                final String parameterTypes = method.getParameters().stream()
+                        .map(parameter -> ", " + processingEnv.getTypeUtils().erasure(parameter.asType()) + ".class")
+                        .collect(Collectors.joining());
+                source.line("METHODS[%d] = %s.class.getMethod(%s%s);", i, clientType,
+                        literal(method.getSimpleName().toString()), parameterTypes);
+            }
+            source.outdent().line("} catch (NoSuchMethodException e) {").indent()
+                    .line("throw new ExceptionInInitializerError(e);")
+                    .outdent().line("}").outdent().line("}").line();
+        }
+
+        source.line("@Override")
+                .line("public Class<%s> getClientType() {", clientType).indent()
+                .line("return %s.class;", clientType).outdent().line("}").line();
+
+        writeClientMetadata(source, clientAnnotation, client, requestMethods);
+        for (int i = 0; i < requestMethods.size(); i++) {
+            writeMethodMetadata(source, requestMethods.get(i), i);
+        }
+
+        source.line("@Override")
+                .line("public %s newClient(com.simplehttp.core.client.ClientInvocationHandler handler) {", clientType)
+                .indent().line("return new Client(handler);").outdent().line("}").line();
+
+        writeClientImplementation(source, clientType, requestMethods, otherMethods);
+        source.outdent().line("}");
+
+        final String qualifiedName = packageName.isEmpty() ? generatedName : packageName + "." + generatedName;
+        final JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(qualifiedName, client);
+        try (Writer writer = sourceFile.openWriter()) {
+            writer.write(source.toString());
+        }
+        generatedClients.add(qualifiedName);
+        clientInterfaces.add(processingEnv.getElementUtils().getBinaryName(client).toString());
+    }
+
+    private void writeClientMetadata(SourceWriter source, SimpleHttpClient clientAnnotation, TypeElement client,
+                                     List<ExecutableElement> requestMethods) {
+        final String name = Constants.DEFAULT_STRING_VALUE.equals(clientAnnotation.name()) ?
+                processingEnv.getElementUtils().getBinaryName(client).toString() : clientAnnotation.name();
+        source.line("@Override")
+                .line("public com.simplehttp.core.client.model.ClientMetadata getClientMetadata() {").indent()
+                .line("final java.util.Map<java.lang.reflect.Method, com.simplehttp.core.client.model.ClientMethodMetaData> " +
+                        "methodToRequestTemplate = new java.util.LinkedHashMap<>();")
+                .line("final java.util.Map<String, com.simplehttp.core.client.model.ClientMethodMetaData> " +
+                        "methodNameToRequestTemplate = new java.util.LinkedHashMap<>();");
+        for (int i = 0; i < requestMethods.size(); i++) {
+            source.line("methodToRequestTemplate.put(METHODS[%d], method%d());", i, i)
+                    .line("methodNameToRequestTemplate.putIfAbsent(%s, methodToRequestTemplate.get(METHODS[%d]));",
+                            literal(requestMethods.get(i).getSimpleName().toString()), i);
+        }
+        source.line("return com.simplehttp.core.client.model.ClientMetadata.builder()").indent().indent()
+                .line(".name(%s)", literal(name))
+                .line(".host(%s)", literal(clientAnnotation.host()));
+        if (clientAnnotation.hosts().length > 0) {
+            source.line(".hosts(java.util.List.of(%s))", Arrays.stream(clientAnnotation.hosts())
+                    .map(SimpleHttpClientProcessor::literal).collect(Collectors.joining(", ")));
+        }
+        source.line(".methodToRequestTemplate(methodToRequestTemplate)")
+                .line(".methodNameToRequestTemplate(methodNameToRequestTemplate)")
+                .line(".build();").outdent().outdent()
+                .outdent().line("}").line();
+    }
+
+    private void writeMethodMetadata(SourceWriter source, ExecutableElement method, int index) {
+        final RequestAttribute requestAttribute = method.getAnnotation(RequestAttribute.class);
+        // value and url are aliases - give preference to URL if defined
+        final String url = !Constants.DEFAULT_STRING_VALUE.equals(requestAttribute.url()) ? requestAttribute.url() :
+                requestAttribute.value();
+
+        source.line("private static com.simplehttp.core.client.model.ClientMethodMetaData method%d() {", index)
+                .indent()
+                .line("final java.lang.reflect.Method method = METHODS[%d];", index)
+                .line("final com.simplehttp.core.client.http.HttpMultiValueMap headers = " +
+                        "com.simplehttp.core.client.http.HttpMultiValueMap.caseInsensitive();");
+        writeNameValuePairs(source, method, "headers", requestAttribute.headers());
+        source.line("final com.simplehttp.core.client.http.HttpMultiValueMap queryParams = " +
+                "new com.simplehttp.core.client.http.HttpMultiValueMap();");
+        writeNameValuePairs(source, method, "queryParams", requestAttribute.queryParams());
+
+        final List<String> parameterMetaData = new ArrayList<>();
+        final Set<String> pathParams = new HashSet<>();
+        final List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            parameterMetaData.add(getParameterMetaData(method, parameters.get(i), i, pathParams));
+        }
+        validatePathParams(method, url, pathParams);
+
+        source.line("return com.simplehttp.core.client.model.ClientMethodMetaData.builder()").indent().indent()
+                .line(".method(method)")
+                .line(".httpMethod(com.simplehttp.core.client.http.HttpMethod.%s)", requestAttribute.httpMethod().name())
+                .line(".url(%s)", literal(url))
+                .line(".urlTemplate(com.simplehttp.core.client.http.UrlTemplate.parse(%s))", literal(url))
+                .line(".headers(headers)")
+                .line(".queryParams(queryParams)")
+                .line(".parameterMetaDataList(java.util.List.of(%s))", String.join(", ", parameterMetaData))
+                .line(".responseType(method.getGenericReturnType())")
+                .line(".compressionThreshold(%d)", requestAttribute.compressionThreshold())
+                .line(".build();").outdent().outdent()
+                .outdent().line("}").line();
+    }
+
+    private void writeNameValuePairs(SourceWriter source, ExecutableElement method, String variable,
+                                     String[] nameValuePairs) {
+        for (String pair : nameValuePairs) {
+            final String[] splitPair = pair.split("=", 2);
+            if (splitPair.length != 2) {
+                error(method, "Invalid name-value pair at method %s: '%s'", method.getSimpleName(), pair);
+                continue;
+            }
+            source.line("%s.add(%s, %s);", variable, literal(splitPair[0]), literal(splitPair[1]));
+        }
+    }
+
+    /**
+     * Mirrors the parameter classification of the runtime annotation processor and returns the expression creating
+     * the parameter's metadata.
+     */
+    private String getParameterMetaData(ExecutableElement method, VariableElement parameter, int index,
+                                        Set<String> pathParams) {
+        final String type = "com.simplehttp.core.client.model.ParameterMetaData.Type.";
+        final HttpHeader header = parameter.getAnnotation(HttpHeader.class);
+        final QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+        if (header != null || queryParam != null) {
+            final boolean isHeader = header != null;
+            if (isMap(parameter.asType())) {
+                return unnamedParameter(index, type + (isHeader ? "HTTP_HEADER_MAP" : "QUERY_PARAM_MAP"));
+            }
+            final String name = isHeader ? header.value() : queryParam.value();
+            if (Constants.DEFAULT_STRING_VALUE.equals(name)) {
+                error(parameter, "Unnamed %s at parameter %s#%s", isHeader ? "header" : "query parameter",
+                        method.getSimpleName(), parameter.getSimpleName());
+            }
+            return namedParameter(index, type + (isHeader ? "HTTP_HEADER" : "QUERY_PARAM"), name);
+        } else if (parameter.getAnnotation(PathParam.class) != null) {
+            final String name = parameter.getAnnotation(PathParam.class).value();
+            pathParams.add(name);
+            return namedParameter(index, type + "PATH_PARAM", name);
+        } else if (parameter.getAnnotation(RequestBody.class) != null) {
+            return unnamedParameter(index, type + "REQUEST_BODY");
+        } else if (parameter.getAnnotation(Url.class) != null) {
+            return unnamedParameter(index, type + "URL");
+        } else if (parameter.getAnnotation(DownloadTo.class) != null) {
+            if (!isPath(parameter.asType())) {
+                error(parameter, "@DownloadTo parameter %s#%s must be a Path", method.getSimpleName(),
+                        parameter.getSimpleName());
+            }
+            return unnamedParameter(index, type + "DOWNLOAD_TO");
+        } else if (parameter.getAnnotation(RoutingKey.class) != null) {
+            return unnamedParameter(index, type + "ROUTING_KEY");
+        }
+        return unnamedParameter(index, type + "NONE");
+    }
+
+    private void validatePathParams(ExecutableElement method, String url, Set<String> pathParams) {
+        try {
+            for (String placeholder : UrlTemplate.parse(url).getPlaceholderNames()) {
+                if (!pathParams.contains(placeholder)) {
+                    error(method, "No @PathParam found for placeholder '%s' at method %s", placeholder,
+                            method.getSimpleName());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            error(method, e.getMessage());
+        }
+    }
+
+    private void writeClientImplementation(SourceWriter source, String clientType,
+                                           List<ExecutableElement> requestMethods,
+                                           List<ExecutableElement> otherMethods) {
+        source.line("private static final class Client implements %s {", clientType).indent()
+                .line("private final com.simplehttp.core.client.ClientInvocationHandler handler;")
+                .line("private final com.simplehttp.core.client.RequestPlan[] plans;")
+                .line()
+                .line("Client(com.simplehttp.core.client.ClientInvocationHandler handler) {").indent()
+                .line("this.handler = handler;")
+                .line("this.plans = new com.simplehttp.core.client.RequestPlan[METHODS.length];")
+                .line("for (int i = 0; i < METHODS.length; i++) {").indent()
+                .line("plans[i] = handler.getRequestPlan(METHODS[i]);")
+                .outdent().line("}")
+                .outdent().line("}");
+
+        for (int i = 0; i < requestMethods.size(); i++) {
+            final ExecutableElement method = requestMethods.get(i);
+            source.line();
+            writeMethodSignature(source, method);
+            final String arguments = method.getParameters().isEmpty() ? "null" : "new Object[]{" +
+                    method.getParameters().stream().map(parameter -> parameter.getSimpleName().toString())
+                            .collect(Collectors.joining(", ")) + "}";
+            final String invocation = String.format("handler.invoke(plans[%d], %s)", i, arguments);
+            source.line("try {").indent();
+            final TypeMirror returnType = method.getReturnType();
+            if (returnType.getKind() == TypeKind.VOID) {
+                source.line("%s;", invocation);
+            } else if (returnType.getKind().isPrimitive()) {
+                source.line("return (%s) %s;", processingEnv.getTypeUtils()
+                        .boxedClass((javax.lang.model.type.PrimitiveType) returnType).getQualifiedName(), invocation);
+            } else {
+                source.line("return (%s) %s;", returnType, invocation);
+            }
+            source.outdent();
+            writeRethrow(source, method);
+            source.line("}").outdent().line("}");
+        }
+
+        for (ExecutableElement method : otherMethods) {
+            source.line();
+            writeMethodSignature(source, method);
+            source.line("throw new UnsupportedOperationException(%s);", literal(String.format(
+                    "The method '%s' is not decorated for Simple HTTP client request", method.getSimpleName())))
+                    .outdent().line("}");
+        }
+        source.outdent().line("}");
+    }
+
+    private void writeMethodSignature(SourceWriter source, ExecutableElement method) {
+        final String typeParameters = method.getTypeParameters().isEmpty() ? "" : "<" +
+                method.getTypeParameters().stream()
+                        .map(typeParameter -> typeParameter.getSimpleName() + " extends " +
+                                typeParameter.getBounds().stream().map(TypeMirror::toString)
+                                        .collect(Collectors.joining(" & ")))
+                        .collect(Collectors.joining(", ")) + "> ";
+        final String parameters = method.getParameters().stream()
+                .map(parameter -> parameter.asType() + " " + parameter.getSimpleName())
+                .collect(Collectors.joining(", "));
+        final String thrownTypes = method.getThrownTypes().isEmpty() ? "" : " throws " +
+                method.getThrownTypes().stream().map(TypeMirror::toString).collect(Collectors.joining(", "));
+        source.line("@Override")
+                .line("@SuppressWarnings(\"unchecked\")")
+                .line("public %s%s %s(%s)%s {", typeParameters, method.getReturnType(), method.getSimpleName(),
+                        parameters, thrownTypes)
+                .indent();
+    }
+
+    /**
+     * Unchecked and declared exceptions are rethrown as is, any other checked exception is wrapped the same way a
+     * {@link java.lang.reflect.Proxy} would.
+     */
+    private void writeRethrow(SourceWriter source, ExecutableElement method) {
+        final List<TypeMirror> candidates = new ArrayList<>();
+        for (TypeMirror type : method.getThrownTypes()) {
+            addIfAbsent(candidates, type);
+        }
+        addIfAbsent(candidates, processingEnv.getElementUtils().getTypeElement(RuntimeException.class.getName()).asType());
+        addIfAbsent(candidates, processingEnv.getElementUtils().getTypeElement(Error.class.getName()).asType());
+        // a multi-catch cannot contain types related by subclassing - keep the most general ones
+        final List<TypeMirror> rethrown = candidates.stream()
+                .filter(candidate -> candidates.stream().noneMatch(other -> other != candidate &&
+                        processingEnv.getTypeUtils().isSubtype(candidate, other)))
+                .collect(Collectors.toList());
+        source.line("} catch (%s e) {", rethrown.stream().map(TypeMirror::toString).collect(Collectors.joining(" | ")))
+                .indent().line("throw e;").outdent();
+        final boolean catchesThrowable = rethrown.stream().anyMatch(type -> type.toString().equals("java.lang.Throwable"));
+        if (!catchesThrowable) {
+            source.line("} catch (Throwable e) {").indent()
+                    .line("throw new java.lang.reflect.UndeclaredThrowableException(e);").outdent();
+        }
+    }
+
+    private void writeResources() {
+        try {
+            final FileObject serviceFile = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = serviceFile.openWriter()) {
+                for (String generatedClient : generatedClients) {
+                    writer.write(generatedClient);
+                    writer.write('\n');
+                }
+            }
+            // generated clients resolve their methods reflectively, native images need to know about them
+            final FileObject reflectConfig = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", REFLECT_CONFIG_FILE);
+            try (Writer writer = reflectConfig.openWriter()) {
+                writer.write(clientInterfaces.stream()
+                        .map(name -> String.format("  {\"name\": \"%s\", \"allPublicMethods\": true}", name))
+                        .collect(Collectors.joining(",\n", "[\n", "\n]\n")));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to register generated clients: " + e.getMessage());
+        }
+    }
+
+    /**
+     * All abstract, non-static methods of the interface including inherited ones.
+     */
+    private List<ExecutableElement> getAbstractMethods(TypeElement client) {
+        final Map<String, ExecutableElement> signatureToMethod = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(client))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT) ||
+                    method.getEnclosingElement().toString().equals(Object.class.getName())) {
+                continue;
+            }
+            final String signature = method.getSimpleName() + method.getParameters().stream()
+                    .map(parameter -> processingEnv.getTypeUtils().erasure(parameter.asType()).toString())
+                    .collect(Collectors.joining(",", "(", ")"));
+            signatureToMethod.putIfAbsent(signature, method);
+        }
+        return new ArrayList<>(signatureToMethod.values());
+    }
+
+    private void addIfAbsent(List<TypeMirror> types, TypeMirror type) {
+        if (types.stream().noneMatch(existing -> processingEnv.getTypeUtils().isSameType(existing, type))) {
+            types.add(type);
+        }
+    }
+
+    private boolean isMap(TypeMirror type) {
+        final TypeMirror map = processingEnv.getTypeUtils().erasure(
+                processingEnv.getElementUtils().getTypeElement(Map.class.getName()).asType());
+        return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type), map);
+    }
+
+    private boolean isPath(TypeMirror type) {
+        final TypeMirror path = processingEnv.getElementUtils().getTypeElement(Path.class.getName()).asType();
+        return processingEnv.getTypeUtils().isAssignable(type, path);
+    }
+
+    private boolean isAccessibleFromPackage(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Nested interfaces are flattened, e.g. <code>Outer.Client</code> becomes <code>Outer_Client</code>.
+     */
+    private String getFlatName(TypeElement type) {
+        final Deque<String> names = new ArrayDeque<>();
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            names.addFirst(element.getSimpleName().toString());
+        }
+        return String.join("_", names);
+    }
+
+    private static String unnamedParameter(int index, String type) {
+        return String.format("%s.parameter(method, %d, %s)", GENERATED_CLIENT, index, type);
+    }
+
+    private static String namedParameter(int index, String type, String name) {
+        return String.format("%s.namedParameter(method, %d, %s, %s)", GENERATED_CLIENT, index, type, literal(name));
+    }
+
+    private static String literal(String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7E) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+
+    private void warning(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format(format, args), element);
+    }
+
+    /**
+     * Minimal indenting writer for generated sources.
+     */
+    private static final class SourceWriter {
+        private final StringBuilder source = new StringBuilder();
+        private int indentation;
+
+        SourceWriter line(String format, Object... args) {
+            source.append("    ".repeat(indentation))
+                    .append(args.length == 0 ? format : String.format(format, args))
+                    .append('\n');
+            return this;
+        }
+
+        SourceWriter line() {
+            source.append('\n');
+            return this;
+        }
+
+        SourceWriter indent() {
+            indentation++;
+            return this;
+        }
+
+        SourceWriter outdent() {
+            indentation--;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+}
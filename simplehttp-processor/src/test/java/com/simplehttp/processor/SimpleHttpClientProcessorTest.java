@@ -0,0 +1,163 @@
+package com.simplehttp.processor;
+
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SimpleHttpClientProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String PEOPLE_CLIENT = "" +
+            "package test;\n" +
+            "import com.simplehttp.core.annotation.client.SimpleHttpClient;\n" +
+            "import com.simplehttp.core.annotation.http.*;\n" +
+            "import com.simplehttp.core.client.http.HttpMethod;\n" +
+            "import java.util.List;\n" +
+            "import java.util.Map;\n" +
+            "@SimpleHttpClient(name = \"people\", host = \"https://person-api.com\")\n" +
+            "public interface PeopleClient {\n" +
+            "    @RequestAttribute(httpMethod = HttpMethod.PUT, value = \"/{id}\", headers = {\"Content-Type=application/json\"})\n" +
+            "    Map<String, Object> update(@PathParam(\"id\") long id, @RequestBody Map<String, Object> person,\n" +
+            "                               @HttpHeader(\"Authorization\") String token, @QueryParam Map<String, String> query);\n" +
+            "    @RequestAttribute(\"/{id}\")\n" +
+            "    int count(@PathParam(\"id\") String id) throws java.io.IOException;\n" +
+            "    @RequestAttribute\n" +
+            "    List<String> list();\n" +
+            "    void notAnnotated();\n" +
+            "}\n";
+
+    @Test
+    public void generatesClientImplementation() throws Exception {
+        final ClassLoader classLoader = compile("test.PeopleClient", PEOPLE_CLIENT);
+        final Class<?> clientType = classLoader.loadClass("test.PeopleClient");
+        assertThat(classLoader.loadClass("test.SimpleHttp_PeopleClient")).isNotNull();
+
+        final AtomicReference<Request> executed = new AtomicReference<>();
+        final HttpClient httpClient = request -> {
+            executed.set(request);
+            return Response.builder().parsedResponse(request.getMethod().getName().equals("count") ? 3 : null).build();
+        };
+        final Object client = new ClientBuilder().withHttpClient(httpClient).buildClient(clientType);
+        assertThat(Proxy.isProxyClass(client.getClass())).isFalse();
+
+        final Method update = clientType.getMethod("update", long.class, Map.class, String.class, Map.class);
+        update.invoke(client, 12L, Map.of("name", "Anton"), "Bearer token", Map.of("dryRun", "true"));
+        final Request request = executed.get();
+        assertThat(request.getUrl()).isEqualTo("https://person-api.com/12");
+        assertThat(request.getHttpMethod()).isEqualTo(HttpMethod.PUT);
+        assertThat(request.getBody()).isEqualTo(Map.of("name", "Anton"));
+        final HttpMultiValueMap expectedHeaders = new HttpMultiValueMap();
+        expectedHeaders.put("Content-Type", List.of("application/json"));
+        expectedHeaders.put("Authorization", List.of("Bearer token"));
+        assertThat(request.getHeaders()).isEqualTo(expectedHeaders);
+        assertThat(request.getQueryParams().getValues("dryRun")).containsExactly("true");
+        assertThat(request.getResponseType()).isEqualTo(update.getGenericReturnType());
+
+        assertThat(clientType.getMethod("count", String.class).invoke(client, "abc")).isEqualTo(3);
+        assertThat(executed.get().getUrl()).isEqualTo("https://person-api.com/abc");
+    }
+
+    @Test
+    public void generatesHostsOfReplicas() throws Exception {
+        final String source = "" +
+                "package test;\n" +
+                "import com.simplehttp.core.annotation.client.SimpleHttpClient;\n" +
+                "import com.simplehttp.core.annotation.http.*;\n" +
+                "@SimpleHttpClient(hosts = {\"https://person-api-1.com\", \"https://person-api-2.com\"})\n" +
+                "public interface ReplicatedClient {\n" +
+                "    @RequestAttribute(\"/people\")\n" +
+                "    String list();\n" +
+                "}\n";
+        final ClassLoader classLoader = compile("test.ReplicatedClient", source);
+        final Class<?> clientType = classLoader.loadClass("test.ReplicatedClient");
+
+        final Set<String> urls = ConcurrentHashMap.newKeySet();
+        final HttpClient httpClient = request -> {
+            urls.add(request.getUrl());
+            return Response.builder().build();
+        };
+        final Object client = new ClientBuilder().withHttpClient(httpClient).buildClient(clientType);
+        final Method list = clientType.getMethod("list");
+        for (int i = 0; i < 50; i++) {
+            list.invoke(client);
+        }
+        assertThat(urls)
+                .containsExactlyInAnyOrder("https://person-api-1.com/people", "https://person-api-2.com/people");
+    }
+
+    @Test
+    public void reportsInvalidClientsAsCompilationErrors() throws Exception {
+        final String source = "" +
+                "package test;\n" +
+                "import com.simplehttp.core.annotation.client.SimpleHttpClient;\n" +
+                "import com.simplehttp.core.annotation.http.*;\n" +
+                "@SimpleHttpClient(host = \"https://person-api.com\")\n" +
+                "public interface BrokenClient {\n" +
+                "    @RequestAttribute(value = \"/{id}\", headers = {\"Authorization\"})\n" +
+                "    String get(@HttpHeader String token);\n" +
+                "}\n";
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertThat(runCompiler("test.BrokenClient", source, diagnostics)).isFalse();
+        assertThat(diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(Locale.ROOT))
+                .collect(Collectors.toList()))
+                .containsExactlyInAnyOrder(
+                        "Invalid name-value pair at method get: 'Authorization'",
+                        "Unnamed header at parameter get#token",
+                        "No @PathParam found for placeholder 'id' at method get");
+    }
+
+    private ClassLoader compile(String className, String source) throws IOException {
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertThat(runCompiler(className, source, diagnostics)).as(diagnostics.getDiagnostics().toString()).isTrue();
+        return new URLClassLoader(new URL[]{temporaryFolder.getRoot().toPath().resolve("classes").toUri().toURL()},
+                getClass().getClassLoader());
+    }
+
+    private boolean runCompiler(String className, String source, DiagnosticCollector<JavaFileObject> diagnostics)
+            throws IOException {
+        final Path sourceFile = temporaryFolder.getRoot().toPath().resolve("src")
+                .resolve(className.replace('.', File.separatorChar) + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, source);
+        final Path classes = Files.createDirectories(temporaryFolder.getRoot().toPath().resolve("classes"));
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null)) {
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-parameters", "-classpath", System.getProperty("java.class.path"),
+                            "-d", classes.toString()),
+                    null, fileManager.getJavaFileObjects(sourceFile.toFile()));
+            task.setProcessors(List.of(new SimpleHttpClientProcessor()));
+            return task.call();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.simplehttp.core.client;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.PathParam;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.utils.VirtualThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of synchronous calls through a client made from a pool of platform threads and from virtual
+ * threads, and of asynchronous calls with and without {@link ClientBuilder#withAsyncVirtualThreads(boolean)}. The HTTP
+ * client simulates a remote call with a fixed latency, so throughput is bound by the number of concurrent calls.
+ *
+ * Run with <code>./gradlew benchmark</code>, which runs it on a Java 21 toolchain; the number of calls can be passed
+ * with <code>--args=20000</code>. On runtimes without virtual threads only the platform thread results are printed.
+ */
+public final class VirtualThreadBenchmark {
+
+    private static final int DEFAULT_CALLS = 20_000;
+    private static final int WARM_UP_CALLS = 1_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final long LATENCY_MILLIS = 50;
+
+    @SimpleHttpClient(host = "https://www.example.com")
+    interface BenchmarkClient {
+        @RequestAttribute("/entities/{id}")
+        String getEntity(@PathParam("id") int id);
+
+        @RequestAttribute("/entities/{id}")
+        CompletableFuture<String> getEntityAsync(@PathParam("id") int id);
+    }
+
+    private static final HttpClient SLOW_HTTP_CLIENT = request -> {
+        Thread.sleep(LATENCY_MILLIS);
+        return Response.builder().parsedResponse(request.getUrl()).build();
+    };
+
+    private VirtualThreadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int calls = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CALLS;
+        System.out.printf("%s %s, %d calls of %d ms%n", System.getProperty("java.vm.name"),
+                System.getProperty("java.version"), calls, LATENCY_MILLIS);
+        blockingCalls(calls);
+        asyncCalls(calls);
+    }
+
+    private static void blockingCalls(int calls) throws Exception {
+        final BenchmarkClient client = new ClientBuilder().withHttpClient(SLOW_HTTP_CLIENT)
+                .buildClient(BenchmarkClient.class);
+        run(client, Executors.newFixedThreadPool(PLATFORM_THREADS), WARM_UP_CALLS);
+
+        final double platform = run(client, Executors.newFixedThreadPool(PLATFORM_THREADS), calls);
+        System.out.printf("Synchronous calls  - %d platform threads: %8.0f calls/s%n", PLATFORM_THREADS, platform);
+        if (VirtualThreads.isSupported()) {
+            final double virtual = run(client, VirtualThreads.newExecutor(), calls);
+            System.out.printf("Synchronous calls  - virtual threads:     %8.0f calls/s%n", virtual);
+        }
+    }
+
+    private static void asyncCalls(int calls) {
+        final BenchmarkClient blockingClient = new ClientBuilder().withHttpClient(SLOW_HTTP_CLIENT)
+                .buildClient(BenchmarkClient.class);
+        // without virtual threads the blocking HTTP client runs on the calling thread, so fewer calls are made
+        final double callingThread = runAsync(blockingClient, Math.max(1, calls / 100));
+        System.out.printf("Asynchronous calls - calling thread:      %8.0f calls/s%n", callingThread);
+        if (VirtualThreads.isSupported()) {
+            final BenchmarkClient virtualThreadClient = new ClientBuilder().withHttpClient(SLOW_HTTP_CLIENT)
+                    .withAsyncVirtualThreads(true)
+                    .buildClient(BenchmarkClient.class);
+            final double virtual = runAsync(virtualThreadClient, calls);
+            System.out.printf("Asynchronous calls - virtual threads:     %8.0f calls/s%n", virtual);
+        }
+    }
+
+    private static double run(BenchmarkClient client, ExecutorService executor, int calls) throws Exception {
+        final long start = System.nanoTime();
+        final List<Future<String>> results = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            final int id = i;
+            results.add(executor.submit(() -> client.getEntity(id)));
+        }
+        for (Future<String> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Calls did not complete within a minute");
+        }
+        return calls / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double runAsync(BenchmarkClient client, int calls) {
+        final long start = System.nanoTime();
+        final List<CompletableFuture<String>> results = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            results.add(client.getEntityAsync(i));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        return calls / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -2,6 +2,10 @@ package com.simplehttp.core.annotation;
 
 import com.simplehttp.core.annotation.client.SimpleHttpClient;
 import com.simplehttp.core.client.model.ClientMetadata;
+import com.simplehttp.core.client.model.ClientMethodMetaData;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
 
 /**
  * Annotation processor for {@link SimpleHttpClient} client.
@@ -15,4 +19,45 @@ public interface AnnotationProcessor {
      * @return {@link ClientMetadata} object containing extracted metadata for the target
      */
     ClientMetadata extractClientMetadata(final Class<?> target);
+
+    /**
+     * Generates the client level metadata(name, host, etc) of a target client class without processing its methods.
+     * Used when method metadata is extracted lazily on first invocation. Processors which cannot process methods
+     * individually may return the complete metadata.
+     *
+     * @param target annotated class to process
+     * @return {@link ClientMetadata} object which may have no method metadata
+     */
+    default ClientMetadata extractClientLevelMetadata(final Class<?> target) {
+        return extractClientMetadata(target);
+    }
+
+    /**
+     * Generates the metadata of a single method of a target client class.
+     *
+     * @param target annotated class the method belongs to
+     * @param method method to process
+     * @return metadata of the method; empty if the method is not annotated for HTTP calls
+     */
+    default Optional<ClientMethodMetaData> extractClientMethodMetadata(final Class<?> target, final Method method) {
+        final ClientMetadata clientMetadata = extractClientMetadata(target);
+        // processors which only key the request templates by method name are resolved by name
+        return Optional.ofNullable(clientMetadata.getMethodToRequestTemplate())
+                .filter(methodToRequestTemplate -> !methodToRequestTemplate.isEmpty())
+                .map(methodToRequestTemplate -> methodToRequestTemplate.get(method))
+                .or(() -> Optional.ofNullable(clientMetadata.getMethodNameToRequestTemplate())
+                        .map(methodNameToRequestTemplate -> methodNameToRequestTemplate.get(method.getName())));
+    }
+
+    /**
+     * Whether the metadata extracted by this processor depends only on the target class and the processor type. The
+     * metadata of cacheable processors is extracted once per target and processor type and is shared process-wide by
+     * all clients built for the target, so it must not be modified. Processors whose output depends on instance
+     * configuration must not be cacheable.
+     *
+     * @return true if the extracted metadata may be cached; defaults to false
+     */
+    default boolean isCacheable() {
+        return false;
+    }
 }
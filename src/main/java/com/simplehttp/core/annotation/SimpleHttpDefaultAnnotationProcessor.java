@@ -2,6 +2,7 @@ package com.simplehttp.core.annotation;
 
 import com.simplehttp.core.Constants;
 import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.http.UrlTemplate;
 import com.simplehttp.core.annotation.client.SimpleHttpClient;
 import com.simplehttp.core.annotation.http.*;
 import com.simplehttp.core.client.model.ClientMetadata;
@@ -11,6 +12,7 @@ import com.simplehttp.core.client.model.NamedParameterMetaData;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.nio.file.Path;
 import java.security.InvalidParameterException;
 import java.util.*;
 import java.util.function.Function;
@@ -25,6 +27,60 @@ public class SimpleHttpDefaultAnnotationProcessor implements AnnotationProcessor
      * {@inheritDoc}
      */
     public ClientMetadata extractClientMetadata(final Class<?> target) {
+        final ClientMetadata.ClientMetadataBuilder clientMetadataBuilder = extractRootMetadata(target);
+
+        // handle individual methods - keyed by the method itself so that overloads do not collide
+        final Map<Method, ClientMethodMetaData> methodToRequestMetadata = Arrays.stream(target.getMethods())
+                .map(this::extractRequestMetadataFromMethod)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toMap(ClientMethodMetaData::getMethod, Function.identity(),
+                        (first, second) -> first, LinkedHashMap::new));
+        clientMetadataBuilder.methodToRequestTemplate(methodToRequestMetadata);
+        final Map<String, ClientMethodMetaData> methodNameToRequestMetadata = methodToRequestMetadata.values().stream()
+                .collect(Collectors.toMap(methodMetaData -> methodMetaData.getMethod().getName(), Function.identity(),
+                        (first, second) -> first, LinkedHashMap::new));
+        clientMetadataBuilder.methodNameToRequestTemplate(methodNameToRequestMetadata);
+
+        // run validations
+        ClientMetadata clientMetadata = clientMetadataBuilder.build();
+        validateClientMetadata(clientMetadata);
+
+        return clientMetadata;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClientMetadata extractClientLevelMetadata(final Class<?> target) {
+        return extractRootMetadata(target)
+                .methodToRequestTemplate(Map.of())
+                .methodNameToRequestTemplate(Map.of())
+                .build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<ClientMethodMetaData> extractClientMethodMetadata(final Class<?> target, final Method method) {
+        final Optional<ClientMethodMetaData> methodMetaData = extractRequestMetadataFromMethod(method);
+        methodMetaData.ifPresent(this::validatePathParams);
+        return methodMetaData;
+    }
+
+    /**
+     * The default processor has no configuration, so its metadata is cached unless a subclass opts out.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    private ClientMetadata.ClientMetadataBuilder extractRootMetadata(final Class<?> target) {
         final ClientMetadata.ClientMetadataBuilder clientMetadataBuilder = ClientMetadata.builder();
         // any simple http client must have SimpleHttpClient.class annotation
         if (!target.isAnnotationPresent(SimpleHttpClient.class)) {
@@ -37,20 +93,8 @@ public class SimpleHttpDefaultAnnotationProcessor implements AnnotationProcessor
         final String host = simpleHttpClientAnnotation.host();
         clientMetadataBuilder.name(name);
         clientMetadataBuilder.host(host);
-
-        // handle individual methods
-        final Map<String, ClientMethodMetaData> methodNameToRequestMetadata = Arrays.stream(target.getMethods())
-                .map(this::extractRequestMetadataFromMethod)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toMap(methodMetaData -> methodMetaData.getMethod().getName(), Function.identity()));
-        clientMetadataBuilder.methodNameToRequestTemplate(methodNameToRequestMetadata);
-
-        // run validations
-        ClientMetadata clientMetadata = clientMetadataBuilder.build();
-        validateClientMetadata(clientMetadata);
-
-        return clientMetadata;
+        clientMetadataBuilder.hosts(List.of(simpleHttpClientAnnotation.hosts()));
+        return clientMetadataBuilder;
     }
 
     /**
@@ -74,12 +118,16 @@ public class SimpleHttpDefaultAnnotationProcessor implements AnnotationProcessor
         builder.method(method);
         builder.httpMethod(requestAttributes.httpMethod());
         // value and url are aliases - give preference to URL if defined
-        builder.url(!Constants.DEFAULT_STRING_VALUE.equals(requestAttributes.url()) ? requestAttributes.url() :
-                requestAttributes.value());
+        final String url = !Constants.DEFAULT_STRING_VALUE.equals(requestAttributes.url()) ? requestAttributes.url() :
+                requestAttributes.value();
+        builder.url(url);
+        // parse the path parameter placeholders once so that requests only need to expand the template
+        builder.urlTemplate(UrlTemplate.parse(url));
         // get the headers
-        builder.headers(extractNameValuePairs(method, requestAttributes.headers()));
+        builder.headers(extractNameValuePairs(method, requestAttributes.headers(), HttpMultiValueMap.caseInsensitive()));
         // get the query parameter pairs
-        builder.queryParams(extractNameValuePairs(method, requestAttributes.queryParams()));
+        builder.queryParams(extractNameValuePairs(method, requestAttributes.queryParams(), new HttpMultiValueMap()));
+        builder.compressionThreshold(requestAttributes.compressionThreshold());
 
         // parameters of the method can have additional metadata including headers, query params, request body, etc
         // go through all parameters of the method and extract any relevant metadata
@@ -145,6 +193,14 @@ public class SimpleHttpDefaultAnnotationProcessor implements AnnotationProcessor
             methodParamMetaData.setType(ParameterMetaData.Type.REQUEST_BODY);
         } else if (parameter.isAnnotationPresent(Url.class)) {
             methodParamMetaData.setType(ParameterMetaData.Type.URL);
+        } else if (parameter.isAnnotationPresent(DownloadTo.class)) {
+            if (!Path.class.isAssignableFrom(paramDataType)) {
+                throw new IllegalArgumentException(String.format("@DownloadTo parameter %s#%s must be a Path",
+                        method.getName(), parameter.getName()));
+            }
+            methodParamMetaData.setType(ParameterMetaData.Type.DOWNLOAD_TO);
+        } else if (parameter.isAnnotationPresent(RoutingKey.class)) {
+            methodParamMetaData.setType(ParameterMetaData.Type.ROUTING_KEY);
         } else {
             // anything else should just be ignored
             methodParamMetaData.setType(ParameterMetaData.Type.NONE);
@@ -152,8 +208,8 @@ public class SimpleHttpDefaultAnnotationProcessor implements AnnotationProcessor
         return methodParamMetaData;
     }
 
-    private HttpMultiValueMap extractNameValuePairs(final Method method, final String[] nameValuePairs) {
-        final HttpMultiValueMap nameToValuesMap = new HttpMultiValueMap();
+    private HttpMultiValueMap extractNameValuePairs(final Method method, final String[] nameValuePairs,
+                                                    final HttpMultiValueMap nameToValuesMap) {
         if (nameValuePairs != null) {
             for (String pair : nameValuePairs) {
                 String[] splitPair = pair.split("=", 2);
@@ -168,6 +224,22 @@ public class SimpleHttpDefaultAnnotationProcessor implements AnnotationProcessor
     }
 
     private void validateClientMetadata(ClientMetadata clientMetadata) {
-        // TODO: implement any necessary validations here
+        clientMetadata.getMethodToRequestTemplate().values().forEach(this::validatePathParams);
+    }
+
+    /**
+     * Every placeholder in the URL of a request must be backed by a <code>@PathParam</code> parameter.
+     */
+    private void validatePathParams(ClientMethodMetaData methodMetaData) {
+        final Set<String> pathParamNames = methodMetaData.getParameterMetaDataList().stream()
+                .filter(parameterMetaData -> parameterMetaData.getType() == ParameterMetaData.Type.PATH_PARAM)
+                .map(parameterMetaData -> ((NamedParameterMetaData) parameterMetaData).getName())
+                .collect(Collectors.toSet());
+        for (String placeholder : methodMetaData.getUrlTemplate().getPlaceholderNames()) {
+            if (!pathParamNames.contains(placeholder)) {
+                throw new IllegalArgumentException(String.format("No @PathParam found for placeholder '%s' at method %s",
+                        placeholder, methodMetaData.getMethod().getName()));
+            }
+        }
     }
 }
@@ -23,4 +23,11 @@ public @interface SimpleHttpClient {
      * which are annotated with path fragments.
      */
     String host() default Constants.DEFAULT_STRING_VALUE;
+
+    /**
+     * Hosts of the replicas of a service, e.g. <code>{"http://10.0.0.1:8080/people", "http://10.0.0.2:8080/people"}
+     * </code>. Each request is sent to one of them, chosen by the replica with fewer requests in flight out of two
+     * random ones. Takes precedence over {@link #host()} if not empty.
+     */
+    String[] hosts() default {};
 }
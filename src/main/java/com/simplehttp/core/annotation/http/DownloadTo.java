@@ -0,0 +1,15 @@
+package com.simplehttp.core.annotation.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Parameter level annotation to mark a {@link java.nio.file.Path} the response body is written to. The body is
+ * streamed to the file without being held in memory, and the method returns the path(or void).
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DownloadTo {
+}
@@ -0,0 +1,34 @@
+package com.simplehttp.core.annotation.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Method level annotation marking a request as hedgeable for a
+ * {@link com.simplehttp.core.client.executor.HedgingRequestExecutor}: a duplicate request is sent when the first one
+ * takes longer than a percentile of the observed latencies of the method. GET methods are hedgeable without the
+ * annotation, other methods should only be marked if they are idempotent.
+ *
+ * Example:
+ * <pre>
+ *     @Hedge(percentile = 99)
+ *     @RequestAttribute(httpMethod = HttpMethod.PUT, value = "/people/{id}")
+ *     Person update(@PathParam("id") String id, @RequestBody Person person);
+ * </pre>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Hedge {
+
+    /**
+     * Whether requests of the method are hedged; false to never hedge a GET method. Defaults to true.
+     */
+    boolean value() default true;
+
+    /**
+     * Percentile of the observed latencies of the method after which the duplicate request is sent. Defaults to 95.
+     */
+    double percentile() default 95;
+}
@@ -48,4 +48,16 @@ public @interface RequestAttribute {
      * </pre>
      */
     String[] queryParams() default {};
+
+    /**
+     * Minimum size in bytes from which the request body is sent gzip-compressed with a
+     * <code>Content-Encoding: gzip</code> header. Streamed bodies of unknown length are always compressed. Defaults to
+     * -1, which sends the body uncompressed.
+     *
+     * Example:
+     * <pre>
+     *     @RequestAttribute(httpMethod = HttpMethod.POST, value = "/events", compressionThreshold = 1024)
+     * </pre>
+     */
+    int compressionThreshold() default -1;
 }
@@ -0,0 +1,49 @@
+package com.simplehttp.core.annotation.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Method level annotation declaring the retry policy of a request executed by a
+ * {@link com.simplehttp.core.client.executor.RetryingRequestExecutor}. Methods without the annotation use the default
+ * policy of the executor.
+ *
+ * Example:
+ * <pre>
+ *     @Retry(maxAttempts = 5, initialBackoffMillis = 50, retryStatusCodes = {503})
+ *     @RequestAttribute("/people")
+ *     List&lt;Person&gt; list();
+ * </pre>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Retry {
+
+    /**
+     * Maximum number of attempts including the first one; 1 disables retries. Defaults to 3.
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * Upper bound of the delay before the first retry, doubled for every further retry. Defaults to 100ms.
+     */
+    long initialBackoffMillis() default 100;
+
+    /**
+     * Upper bound of the delay before any retry. Defaults to 5s.
+     */
+    long maxBackoffMillis() default 5000;
+
+    /**
+     * Error status codes which are retried. Defaults to 429, 502, 503 and 504.
+     */
+    int[] retryStatusCodes() default {429, 502, 503, 504};
+
+    /**
+     * Whether POST and PATCH requests are retried after they may have reached the server. They are always retried if
+     * the connection could not be established. Defaults to false.
+     */
+    boolean retryNonIdempotent() default false;
+}
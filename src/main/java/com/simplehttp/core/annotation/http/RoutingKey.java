@@ -0,0 +1,17 @@
+package com.simplehttp.core.annotation.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Parameter level annotation to mark the key a request is routed by when its client has several endpoints: requests
+ * with the same key are sent to the same endpoint as long as it is not overloaded, so that a per-key cache of the
+ * server keeps being hit. The parameter is not part of the request, and requests with a null key are balanced like
+ * requests without one.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RoutingKey {
+}
@@ -3,34 +3,54 @@ package com.simplehttp.core.client;
 import com.simplehttp.core.annotation.AnnotationProcessor;
 import com.simplehttp.core.annotation.SimpleHttpDefaultAnnotationProcessor;
 import com.simplehttp.core.client.executor.*;
+import com.simplehttp.core.client.loadbalancer.EndpointProvider;
+import com.simplehttp.core.client.loadbalancer.LoadBalancer;
 import com.simplehttp.core.client.model.ClientMetadata;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.httpclient.nio.NioHttpClient;
+import com.simplehttp.httpclient.spring.ConnectionPoolConfig;
 import com.simplehttp.httpclient.spring.RestTemplateHttpClient;
+import com.simplehttp.utils.Utils;
+import com.simplehttp.utils.VirtualThreads;
 
 import java.lang.reflect.Proxy;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class ClientBuilder {
 
     private HttpClient httpClient;
+    private boolean defaultHttpClient;
     private AnnotationProcessor annotationProcessor;
     private RequestExecutor executionHandler;
     private final List<RequestInterceptor> requestInterceptors;
     private final List<ResponseInterceptor> responseInterceptors;
     private final List<ErrorHandler> errorHandlers;
+    private boolean generateClientClass;
+    private boolean lazyMetadata;
+    private final Set<String> prewarmedMethods;
+    private boolean asyncVirtualThreads;
+    private Codec codec;
+    private Executor eventStreamExecutor;
+    private EndpointProvider endpointProvider;
 
     public ClientBuilder() {
         this.httpClient = new RestTemplateHttpClient();
+        this.defaultHttpClient = true;
         this.annotationProcessor = new SimpleHttpDefaultAnnotationProcessor();
-        this.executionHandler = new DefaultRequestExecutor();
         this.requestInterceptors = new ArrayList<>();
         this.responseInterceptors = new ArrayList<>();
         this.errorHandlers = new ArrayList<>();
+        this.prewarmedMethods = new LinkedHashSet<>();
     }
 
     /**
-     * The HTTP client used to execute Requests.
+     * The HTTP client used to execute Requests. By default requests are executed with a {@link RestTemplateHttpClient},
+     * except for clients whose host, or one of whose endpoints, is a unix domain socket(<code>unix://</code>), which use
+     * a shared {@link NioHttpClient}.
      *
      * @param httpClient implementation of {@link HttpClient}
      * @return ClientBuilder
@@ -38,11 +58,28 @@ public class ClientBuilder {
     public ClientBuilder withHttpClient(HttpClient httpClient) {
         this.httpClient = Optional.ofNullable(httpClient)
                 .orElseThrow(() -> new IllegalArgumentException("HTTP client cannot be null!"));
+        this.defaultHttpClient = false;
         return this;
     }
 
     /**
-     * The ExecutionHandler used to orchestrate HTTP requests.
+     * Execute requests with a {@link RestTemplateHttpClient} that keeps connections alive in a pool, instead of
+     * opening a connection per request. Replaces any previously configured HTTP client. Share one pooled client
+     * between builders with {@link #withHttpClient(HttpClient)} to share its pool.
+     *
+     * @param connectionPoolConfig configuration of the connection pool
+     * @return ClientBuilder
+     */
+    public ClientBuilder withConnectionPool(ConnectionPoolConfig connectionPoolConfig) {
+        this.httpClient = new RestTemplateHttpClient(connectionPoolConfig);
+        this.defaultHttpClient = false;
+        return this;
+    }
+
+    /**
+     * The ExecutionHandler used to orchestrate HTTP requests. The resilience executors combine by wrapping one another,
+     * e.g. <code>ConcurrencyLimitingRequestExecutor.builder().withNext(circuitBreaker)</code>, and the outermost one is
+     * set here.
      *
      * @param executionHandler implementation of {@link RequestExecutor}
      * @return ClientBuilder
@@ -146,6 +183,130 @@ public class ClientBuilder {
         return this;
     }
 
+    /**
+     * Generate a dedicated class implementing the target interface instead of using a
+     * {@link java.lang.reflect.Proxy}. Generated clients call the compiled request of each method directly, avoiding
+     * reflective proxy dispatch on every call. If a class cannot be generated for the target(e.g. the interface is
+     * not accessible to this library), a warning with the cause is logged once and the client falls back to a proxy.
+     *
+     * @param generateClientClass true to generate client classes; defaults to false
+     * @return ClientBuilder
+     */
+    public ClientBuilder withClientClassGeneration(boolean generateClientClass) {
+        this.generateClientClass = generateClientClass;
+        return this;
+    }
+
+    /**
+     * Extract the metadata of each client method on its first invocation instead of when the client is built. Only
+     * the client level metadata is extracted eagerly, which reduces startup time and memory for large client
+     * interfaces of which only a few methods are used. Validation errors of a method are raised on its first
+     * invocation. Lazy clients are always proxies, since a generated client class needs all methods up front.
+     *
+     * @param lazyMetadata true to extract method metadata lazily; defaults to false
+     * @return ClientBuilder
+     */
+    public ClientBuilder withLazyMetadata(boolean lazyMetadata) {
+        this.lazyMetadata = lazyMetadata;
+        return this;
+    }
+
+    /**
+     * Names of methods whose metadata is extracted in the background as soon as a client with lazy metadata is
+     * built, so that their first invocation does not pay for it. All overloads of a name are pre-warmed.
+     *
+     * @param methodNames names of client methods
+     * @return ClientBuilder
+     */
+    public ClientBuilder withPrewarmedMethods(String... methodNames) {
+        if (methodNames != null) {
+            this.prewarmedMethods.addAll(Arrays.asList(methodNames));
+        }
+        return this;
+    }
+
+    /**
+     * Run the blocking HTTP calls of asynchronous client methods on virtual threads, one per call, when the HTTP client
+     * does not implement non-blocking execution. Only applies to <code>CompletableFuture</code> methods and to the
+     * default request executor: synchronous methods always run on the calling thread. To make many concurrent
+     * synchronous calls without a large thread pool, call the client from virtual threads instead, e.g. from
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code>. The request executors and HTTP clients of this library
+     * do not hold monitors while they wait; the HTTP libraries underneath them are not audited for pinning.
+     *
+     * @param asyncVirtualThreads true to use virtual threads for asynchronous methods; defaults to false
+     * @return ClientBuilder
+     * @throws IllegalStateException if the Java runtime does not support virtual threads(Java 21+ is required)
+     */
+    public ClientBuilder withAsyncVirtualThreads(boolean asyncVirtualThreads) {
+        if (asyncVirtualThreads && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by this Java runtime");
+        }
+        this.asyncVirtualThreads = asyncVirtualThreads;
+        return this;
+    }
+
+    /**
+     * The codec which serializes request bodies and deserializes response bodies. Its readers and writers are
+     * resolved once per client method when the client is built, so requests skip any type resolution or message
+     * converter lookup. By default the codec of the HTTP client is used.
+     *
+     * @param codec implementation of {@link Codec}, e.g. a {@link com.simplehttp.core.codec.JacksonCodec} with a
+     *              custom object mapper
+     * @return ClientBuilder
+     */
+    public ClientBuilder withCodec(Codec codec) {
+        this.codec = Optional.ofNullable(codec)
+                .orElseThrow(() -> new IllegalArgumentException("Codec cannot be null!"));
+        return this;
+    }
+
+    /**
+     * The executor reading the responses of client methods returning a <code>Flow.Publisher</code>. Bodies are read
+     * with blocking reads: a stream occupies a thread while its subscriber has outstanding demand, including while it
+     * waits for the next event. Defaults to virtual threads if {@link #withAsyncVirtualThreads(boolean) enabled} or
+     * supported by the runtime, otherwise to a shared pool of up to 64 daemon threads; streams beyond it wait for a
+     * thread, so size a custom executor for the number of streams read at the same time.
+     *
+     * @param eventStreamExecutor executor running the blocking reads of event streams
+     * @return ClientBuilder
+     */
+    public ClientBuilder withEventStreamExecutor(Executor eventStreamExecutor) {
+        this.eventStreamExecutor = Optional.ofNullable(eventStreamExecutor)
+                .orElseThrow(() -> new IllegalArgumentException("Event stream executor cannot be null!"));
+        return this;
+    }
+
+    /**
+     * Spread the requests of clients across the endpoints of a service, e.g. its replicas, instead of sending them to
+     * the host of {@link com.simplehttp.core.annotation.client.SimpleHttpClient}. Each request is sent to the
+     * endpoint with fewer requests in flight out of two random ones.
+     *
+     * @param endpoints base URLs of the endpoints, each replacing the client host
+     * @return ClientBuilder
+     */
+    public ClientBuilder withEndpoints(String... endpoints) {
+        return withEndpointProvider(EndpointProvider.of(Arrays.asList(Optional.ofNullable(endpoints)
+                .orElseThrow(() -> new IllegalArgumentException("Endpoints cannot be null!")))));
+    }
+
+    /**
+     * Spread the requests of clients across the endpoints of a provider, like {@link #withEndpoints(String...)}. The
+     * provider is asked for every request, so that its endpoints can change without rebuilding the clients, e.g.
+     * with a {@link com.simplehttp.core.client.loadbalancer.RefreshableEndpointProvider}.
+     *
+     * Only a {@link NioHttpClient} reaches endpoints on unix domain sockets. The default HTTP client is chosen from
+     * the endpoints the provider has when a client is built; requests fail with an {@link IllegalStateException}
+     * once the provider returns a unix domain socket endpoint which the HTTP client of the client cannot reach.
+     *
+     * @param endpointProvider provider of the base URLs of the endpoints
+     * @return ClientBuilder
+     */
+    public ClientBuilder withEndpointProvider(EndpointProvider endpointProvider) {
+        this.endpointProvider = Optional.ofNullable(endpointProvider)
+                .orElseThrow(() -> new IllegalArgumentException("Endpoint provider cannot be null!"));
+        return this;
+    }
+
     /**
      * Builds client for the specified target class.
      *
@@ -154,18 +315,79 @@ public class ClientBuilder {
      * @param <T>
      * @return client for the target class
      */
+    @SuppressWarnings("unchecked")
     public <T> T buildClient(Class<T> target) {
-        // use the target to generate a cache of request templates
-        ClientMetadata clientMetadata = annotationProcessor.extractClientMetadata(target);
+        // use the target to generate a cache of request templates - shared by all clients of the target when the
+        // annotation processor allows it
+        final CompiledClient compiledClient = CompiledClient.get(target, annotationProcessor, lazyMetadata);
+        final GeneratedClient<T> generatedClient = (GeneratedClient<T>) compiledClient.getGeneratedClient()
+                .orElse(null);
+        final boolean extractLazily = compiledClient.getMethodMetadataResolver() != null;
 
         // get the request executor
         RequestExecutor executor = Optional.ofNullable(this.executionHandler)
-                .orElse(new DefaultRequestExecutor());
+                .orElseGet(() -> new DefaultRequestExecutor(asyncVirtualThreads ? VirtualThreadExecutorHolder.EXECUTOR
+                        : null));
+
+        // endpoints of the builder take precedence over the hosts of the client annotation
+        final ClientMetadata clientMetadata = compiledClient.getClientMetadata();
+        final EndpointProvider endpoints = this.endpointProvider != null ? this.endpointProvider
+                : Utils.isEmpty(clientMetadata.getHosts()) ? null : EndpointProvider.of(clientMetadata.getHosts());
+
+        // sidecars on unix domain sockets are not reachable with the default HTTP client
+        final HttpClient httpClient = defaultHttpClient && hasUnixSocketHost(clientMetadata, endpoints) ?
+                UnixSocketHttpClientHolder.HTTP_CLIENT : this.httpClient;
 
         // build client invocation handler
-        ClientInvocationHandler clientInvocationHandler = new ClientInvocationHandler(httpClient, executor, clientMetadata,
-                requestInterceptors, responseInterceptors, errorHandlers);
+        ClientInvocationHandler clientInvocationHandler = new ClientInvocationHandler(httpClient, executor,
+                clientMetadata, compiledClient.getRequestPlans(),
+                compiledClient.getMethodMetadataResolver(), requestInterceptors, responseInterceptors, errorHandlers,
+                Optional.ofNullable(codec).orElseGet(httpClient::getCodec),
+                eventStreamExecutor != null || !asyncVirtualThreads ? eventStreamExecutor
+                        : VirtualThreadExecutorHolder.EXECUTOR,
+                endpoints == null ? null : new LoadBalancer(endpoints, httpClient instanceof NioHttpClient));
+        if (generatedClient != null) {
+            return generatedClient.newClient(clientInvocationHandler);
+        }
+        if (extractLazily) {
+            if (!prewarmedMethods.isEmpty()) {
+                clientInvocationHandler.prewarm(Arrays.stream(target.getMethods())
+                        .filter(method -> prewarmedMethods.contains(method.getName()))
+                        .collect(Collectors.toList()), ForkJoinPool.commonPool());
+            }
+        } else if (generateClientClass) {
+            final Optional<Function<ClientInvocationHandler, ?>> clientClassFactory =
+                    compiledClient.getClientClassFactory();
+            if (clientClassFactory.isPresent()) {
+                return target.cast(clientClassFactory.get().apply(clientInvocationHandler));
+            }
+            // the proxy below works for any interface
+        }
         return (T) Proxy.newProxyInstance(ClientInvocationHandler.class.getClassLoader(),
-                new Class[]{target}, clientInvocationHandler);
+                new Class<?>[]{target}, clientInvocationHandler);
+    }
+
+    /**
+     * @param endpoints endpoints of the client; null if it has a single host
+     * @return true if the host, or any endpoint the client has when it is built, is a unix domain socket
+     */
+    private static boolean hasUnixSocketHost(ClientMetadata clientMetadata, EndpointProvider endpoints) {
+        if (endpoints == null) {
+            return NioHttpClient.isUnixSocketUrl(clientMetadata.getHost());
+        }
+        final List<String> urls = endpoints.getEndpoints();
+        return urls != null && urls.stream().anyMatch(NioHttpClient::isUnixSocketUrl);
+    }
+
+    /**
+     * Virtual threads are cheap and not pooled, so one executor is shared by all clients. Created on first use, as
+     * it is only available on Java 21+.
+     */
+    private static final class VirtualThreadExecutorHolder {
+        private static final Executor EXECUTOR = VirtualThreads.newExecutor();
+    }
+
+    private static final class UnixSocketHttpClientHolder {
+        private static final HttpClient HTTP_CLIENT = new NioHttpClient();
     }
 }
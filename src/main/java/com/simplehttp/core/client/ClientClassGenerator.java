@@ -0,0 +1,265 @@
+package com.simplehttp.core.client;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Generates a hidden class implementing a Simple HTTP client interface. Each generated method loads the compiled
+ * {@link RequestPlan} of that method from a field and calls {@link ClientInvocationHandler#invoke(RequestPlan, Object[])}
+ * directly, avoiding the reflective, megamorphic dispatch of a {@link java.lang.reflect.Proxy}.
+ *
+ * The generated class is defined in the package of the target interface, so generation fails for interfaces that are
+ * not accessible to this library(e.g. in a module that does not open its package). Callers are expected to fall back to
+ * a proxy in that case.
+ */
+final class ClientClassGenerator {
+
+    private static final String CLASS_NAME_SUFFIX = "$$SimpleHttpClient";
+    private static final String HANDLER_FIELD = "handler";
+    private static final String PLANS_FIELD = "plans";
+
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String HANDLER = Type.getInternalName(ClientInvocationHandler.class);
+    private static final String HANDLER_DESCRIPTOR = Type.getDescriptor(ClientInvocationHandler.class);
+    private static final String PLANS_DESCRIPTOR = Type.getDescriptor(RequestPlan[].class);
+    private static final String INVOKE_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(Object.class),
+            Type.getType(RequestPlan.class), Type.getType(Object[].class));
+    private static final String UNSUPPORTED_OPERATION = Type.getInternalName(UnsupportedOperationException.class);
+    private static final String UNDECLARED_THROWABLE = Type.getInternalName(UndeclaredThrowableException.class);
+
+    private ClientClassGenerator() {}
+
+    /**
+     * Defines a hidden class implementing the target. The class is bound to the given plans, so that it can be
+     * instantiated for any handler built from the same compiled client.
+     *
+     * @param target client interface
+     * @param requestPlans compiled request plans of the target
+     * @param <T> client type
+     * @return factory creating client instances from a handler
+     * @throws ReflectiveOperationException if the class cannot be defined
+     */
+    static <T> Function<ClientInvocationHandler, T> define(Class<T> target, Map<Method, RequestPlan> requestPlans)
+            throws ReflectiveOperationException {
+        if (!target.isInterface()) {
+            throw new IllegalArgumentException(String.format("Cannot generate client for %s - not an interface",
+                    target.getName()));
+        }
+        final MethodHandles.Lookup targetLookup = MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+        final String className = Type.getInternalName(target) + CLASS_NAME_SUFFIX;
+
+        final List<Method> methods = getAbstractMethods(target);
+        final RequestPlan[] plans = new RequestPlan[methods.size()];
+        // every exception handler catches a single type, so computing frames never loads classes to merge types
+        final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        classWriter.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+                OBJECT, new String[]{Type.getInternalName(target)});
+        classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, HANDLER_FIELD, HANDLER_DESCRIPTOR, null, null)
+                .visitEnd();
+        classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, PLANS_FIELD, PLANS_DESCRIPTOR, null, null)
+                .visitEnd();
+        writeConstructor(classWriter, className);
+        for (int i = 0; i < methods.size(); i++) {
+            final Method method = methods.get(i);
+            plans[i] = requestPlans.get(method);
+            if (plans[i] == null) {
+                writeUnsupportedMethod(classWriter, method);
+            } else {
+                writeClientMethod(classWriter, className, method, i);
+            }
+        }
+        classWriter.visitEnd();
+
+        final Class<?> clientClass = targetLookup.defineHiddenClass(classWriter.toByteArray(), true).lookupClass();
+        final MethodHandle constructor = targetLookup.findConstructor(clientClass, MethodType.methodType(void.class,
+                ClientInvocationHandler.class, RequestPlan[].class));
+        // the plans are never written by generated classes, so all instances share one array
+        return handler -> {
+            try {
+                return target.cast(constructor.invoke(handler, plans));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to instantiate generated client for " + target.getName(), e);
+            }
+        };
+    }
+
+    /**
+     * All abstract methods of the target including inherited ones. Methods overridden in a sub-interface with a
+     * more specific return type are only implemented once.
+     */
+    private static List<Method> getAbstractMethods(Class<?> target) {
+        final Map<String, Method> signatureToMethod = new LinkedHashMap<>();
+        for (Method method : target.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers())) {
+                continue;
+            }
+            final String signature = method.getName() + Arrays.toString(method.getParameterTypes());
+            signatureToMethod.merge(signature, method, (existing, other) ->
+                    existing.getReturnType().isAssignableFrom(other.getReturnType()) ? other : existing);
+        }
+        return new ArrayList<>(signatureToMethod.values());
+    }
+
+    private static void writeConstructor(ClassWriter classWriter, String className) {
+        final MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+                Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(ClientInvocationHandler.class),
+                        Type.getType(RequestPlan[].class)), null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitVarInsn(Opcodes.ALOAD, 1);
+        constructor.visitFieldInsn(Opcodes.PUTFIELD, className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitVarInsn(Opcodes.ALOAD, 2);
+        constructor.visitFieldInsn(Opcodes.PUTFIELD, className, PLANS_FIELD, PLANS_DESCRIPTOR);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+    }
+
+    /**
+     * Errors are thrown like they are by a {@link java.lang.reflect.Proxy}: checked exceptions the method does not
+     * declare are wrapped in an {@link UndeclaredThrowableException}.
+     * <pre>
+     *     try {
+     *         return (R) handler.invoke(plans[planIndex], new Object[]{arg0, arg1, ...});
+     *     } catch (RuntimeException | Error | DeclaredException e) {
+     *         throw e;
+     *     } catch (Throwable e) {
+     *         throw new UndeclaredThrowableException(e);
+     *     }
+     * </pre>
+     */
+    private static void writeClientMethod(ClassWriter classWriter, String className, Method method, int planIndex) {
+        final MethodVisitor visitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, method.getName(),
+                Type.getMethodDescriptor(method), null, getInternalNames(method.getExceptionTypes()));
+        final Label start = new Label();
+        final Label end = new Label();
+        final List<Class<?>> rethrown = new ArrayList<>(List.of(RuntimeException.class, Error.class));
+        rethrown.addAll(Arrays.asList(method.getExceptionTypes()));
+        final Label[] rethrow = new Label[rethrown.size()];
+        for (int i = 0; i < rethrow.length; i++) {
+            rethrow[i] = new Label();
+            visitor.visitTryCatchBlock(start, end, rethrow[i], Type.getInternalName(rethrown.get(i)));
+        }
+        final Label wrap = new Label();
+        visitor.visitTryCatchBlock(start, end, wrap, Type.getInternalName(Throwable.class));
+        visitor.visitCode();
+        visitor.visitLabel(start);
+        visitor.visitVarInsn(Opcodes.ALOAD, 0);
+        visitor.visitFieldInsn(Opcodes.GETFIELD, className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        visitor.visitVarInsn(Opcodes.ALOAD, 0);
+        visitor.visitFieldInsn(Opcodes.GETFIELD, className, PLANS_FIELD, PLANS_DESCRIPTOR);
+        visitor.visitLdcInsn(planIndex);
+        visitor.visitInsn(Opcodes.AALOAD);
+
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 0) {
+            visitor.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            visitor.visitLdcInsn(parameterTypes.length);
+            visitor.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT);
+            int slot = 1;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                final Type parameterType = Type.getType(parameterTypes[i]);
+                visitor.visitInsn(Opcodes.DUP);
+                visitor.visitLdcInsn(i);
+                visitor.visitVarInsn(parameterType.getOpcode(Opcodes.ILOAD), slot);
+                box(visitor, parameterType);
+                visitor.visitInsn(Opcodes.AASTORE);
+                slot += parameterType.getSize();
+            }
+        }
+        visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER, "invoke", INVOKE_DESCRIPTOR, false);
+
+        final Type returnType = Type.getType(method.getReturnType());
+        if (returnType.getSort() == Type.VOID) {
+            visitor.visitInsn(Opcodes.POP);
+        } else {
+            unbox(visitor, returnType);
+        }
+        visitor.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        visitor.visitLabel(end);
+
+        for (Label handler : rethrow) {
+            visitor.visitLabel(handler);
+            visitor.visitInsn(Opcodes.ATHROW);
+        }
+        visitor.visitLabel(wrap);
+        // [e] -> [wrapper, wrapper, e]
+        visitor.visitTypeInsn(Opcodes.NEW, UNDECLARED_THROWABLE);
+        visitor.visitInsn(Opcodes.DUP_X1);
+        visitor.visitInsn(Opcodes.SWAP);
+        visitor.visitMethodInsn(Opcodes.INVOKESPECIAL, UNDECLARED_THROWABLE, "<init>", "(Ljava/lang/Throwable;)V",
+                false);
+        visitor.visitInsn(Opcodes.ATHROW);
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    private static String[] getInternalNames(Class<?>[] types) {
+        return types.length == 0 ? null : Arrays.stream(types).map(Type::getInternalName).toArray(String[]::new);
+    }
+
+    private static void writeUnsupportedMethod(ClassWriter classWriter, Method method) {
+        final MethodVisitor visitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, method.getName(),
+                Type.getMethodDescriptor(method), null, null);
+        visitor.visitCode();
+        visitor.visitTypeInsn(Opcodes.NEW, UNSUPPORTED_OPERATION);
+        visitor.visitInsn(Opcodes.DUP);
+        visitor.visitLdcInsn(String.format("The method '%s' is not decorated for Simple HTTP client request",
+                method.getName()));
+        visitor.visitMethodInsn(Opcodes.INVOKESPECIAL, UNSUPPORTED_OPERATION, "<init>", "(Ljava/lang/String;)V", false);
+        visitor.visitInsn(Opcodes.ATHROW);
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    private static void box(MethodVisitor visitor, Type type) {
+        final Type boxedType = getBoxedType(type);
+        if (boxedType != null) {
+            visitor.visitMethodInsn(Opcodes.INVOKESTATIC, boxedType.getInternalName(), "valueOf",
+                    Type.getMethodDescriptor(boxedType, type), false);
+        }
+    }
+
+    private static void unbox(MethodVisitor visitor, Type type) {
+        final Type boxedType = getBoxedType(type);
+        if (boxedType == null) {
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+        } else {
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, boxedType.getInternalName());
+            visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, boxedType.getInternalName(), type.getClassName() + "Value",
+                    Type.getMethodDescriptor(type), false);
+        }
+    }
+
+    private static Type getBoxedType(Type type) {
+        return switch (type.getSort()) {
+            case Type.BOOLEAN -> Type.getType(Boolean.class);
+            case Type.CHAR -> Type.getType(Character.class);
+            case Type.BYTE -> Type.getType(Byte.class);
+            case Type.SHORT -> Type.getType(Short.class);
+            case Type.INT -> Type.getType(Integer.class);
+            case Type.FLOAT -> Type.getType(Float.class);
+            case Type.LONG -> Type.getType(Long.class);
+            case Type.DOUBLE -> Type.getType(Double.class);
+            default -> null;
+        };
+    }
+}
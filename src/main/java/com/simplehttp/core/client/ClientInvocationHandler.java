@@ -1,30 +1,53 @@
 package com.simplehttp.core.client;
 
 import com.simplehttp.core.client.executor.*;
-import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.loadbalancer.Endpoint;
+import com.simplehttp.core.client.loadbalancer.LoadBalancer;
 import com.simplehttp.core.client.model.*;
-import com.simplehttp.utils.Utils;
+import com.simplehttp.core.codec.BodyReader;
+import com.simplehttp.core.codec.BodyWriter;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.core.codec.JacksonCodec;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
 
 public class ClientInvocationHandler implements InvocationHandler {
 
     private final HttpClient httpClient;
     private final ClientMetadata clientMetadata;
+    private final Map<Method, RequestPlan> requestPlans;
+    private final Function<Method, Optional<ClientMethodMetaData>> methodMetadataResolver;
     private final List<RequestInterceptor> requestInterceptors;
     private final List<ResponseInterceptor> responseInterceptors;
     private final List<ErrorHandler> errorHandlers;
+    private final Codec codec;
+    /**
+     * Readers and writers of the codec resolved per method; the plans are shared by clients with other codecs.
+     */
+    private final Map<RequestPlan, MethodCodec> methodCodecs;
+    /**
+     * Runs the reads of event streams; null for the {@link EventStreamPublisher#defaultExecutor() default executor}.
+     */
+    private final Executor eventStreamExecutor;
+    /**
+     * Chooses the host of every request among the endpoints of the client; null to use the client host.
+     */
+    private final LoadBalancer loadBalancer;
 
     private final RequestExecutor requestHandler;
 
     /**
      *
      * @param httpClient client that will be used to execute request
-     * @param clientMetadata request meta data map which has info to build request objects
+     * @param clientMetadata request meta data map which has info to build request objects. Each method's
+     *                       metadata is compiled into an invocation plan up front.
      */
     public ClientInvocationHandler(HttpClient httpClient,
                                    RequestExecutor requestHandler,
@@ -32,187 +55,262 @@ public class ClientInvocationHandler implements InvocationHandler {
                                    List<RequestInterceptor> requestInterceptorList,
                                    List<ResponseInterceptor> postRequestExecutorList,
                                    List<ErrorHandler> errorHandlers) {
+        // templates keyed by method name only are compiled once each method is invoked, since the client interface
+        // is not known here
+        this(httpClient, requestHandler, clientMetadata, RequestPlan.isKeyedByMethodName(clientMetadata)
+                        ? new ConcurrentHashMap<>() : RequestPlan.compileAll(clientMetadata),
+                RequestPlan.isKeyedByMethodName(clientMetadata)
+                        ? method -> RequestPlan.findByMethodName(clientMetadata, method) : null,
+                requestInterceptorList, postRequestExecutorList, errorHandlers, httpClient.getCodec(), null, null);
+    }
+
+    /**
+     * @param requestPlans compiled plans of the client methods; must be thread-safe if a resolver is given
+     * @param methodMetadataResolver extracts the metadata of a method that is not part of the request plans on
+     *                               its first invocation; null if all methods are part of the request plans
+     * @param codec codec whose readers and writers are resolved for each method up front; null to leave reading and
+     *              writing bodies to the HTTP client
+     * @param eventStreamExecutor executor reading the responses of methods returning a <code>Flow.Publisher</code>;
+     *                            null for a shared pool of daemon threads
+     * @param loadBalancer chooses the host of every request among the endpoints of the client; null to send all
+     *                     requests to the client host
+     */
+    ClientInvocationHandler(HttpClient httpClient,
+                            RequestExecutor requestHandler,
+                            ClientMetadata clientMetadata,
+                            Map<Method, RequestPlan> requestPlans,
+                            Function<Method, Optional<ClientMethodMetaData>> methodMetadataResolver,
+                            List<RequestInterceptor> requestInterceptorList,
+                            List<ResponseInterceptor> postRequestExecutorList,
+                            List<ErrorHandler> errorHandlers,
+                            Codec codec,
+                            Executor eventStreamExecutor,
+                            LoadBalancer loadBalancer) {
         this.httpClient = httpClient;
         this.clientMetadata = clientMetadata;
+        this.methodMetadataResolver = methodMetadataResolver;
+        this.requestPlans = requestPlans;
         this.requestHandler = requestHandler;
         this.requestInterceptors = requestInterceptorList;
         this.responseInterceptors = postRequestExecutorList;
         this.errorHandlers = errorHandlers;
+        this.codec = codec;
+        this.methodCodecs = new ConcurrentHashMap<>();
+        this.eventStreamExecutor = eventStreamExecutor;
+        this.loadBalancer = loadBalancer;
+        if (codec != null) {
+            requestPlans.values().forEach(this::getMethodCodec);
+        }
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        final String methodName = method.getName();
-        final ClientMethodMetaData requestTemplate = Optional.ofNullable(
-                clientMetadata.getMethodNameToRequestTemplate().get(methodName)).orElseThrow(
-                        () -> new UnsupportedOperationException(String.format(
-                                "The method '%s' is not decorated for Simple HTTP client request", methodName)));
-
-        // combine the parameter metadata with the actual arguments
-        final List<ParameterInfo> parameters = IntStream.range(0, requestTemplate.getParameterMetaDataList().size())
-                .mapToObj(i -> ParameterInfo.builder()
-                        .value(args[i])
-                        .parameterMetaData(requestTemplate.getParameterMetaDataList().get(i))
-                        .build())
-                .collect(Collectors.toList());
-
-        // build the request
-        final Request request = buildRequest(requestTemplate, method, parameters);
-
-        return requestHandler.execute(request, httpClient, requestInterceptors, responseInterceptors, errorHandlers);
+        return invoke(getRequestPlan(method), args);
     }
 
-    private Request buildRequest(ClientMethodMetaData requestMetaData,
-                                 Method method,
-                                 List<ParameterInfo> parameters) {
+    /**
+     * Executes a single invocation of a client method. Used directly by generated client classes, which hold on to
+     * the plan of every method and so skip the method lookup of proxy dispatch.
+     *
+     * @param requestPlan compiled plan of the invoked method
+     * @param args invocation arguments; may be null for methods without parameters
+     * @return response of the request
+     * @throws Throwable any error raised while executing the request
+     */
+    public Object invoke(RequestPlan requestPlan, Object[] args) throws Throwable {
+        if (requestPlan.isAsync()) {
+            return invokeAsync(requestPlan, args);
+        }
+        if (requestPlan.isEventStream()) {
+            return publishEvents(requestPlan, args);
+        }
+        final Endpoint endpoint = chooseEndpoint(requestPlan, args);
+        final Object response;
+        try {
+            // build the request
+            final Request request = buildRequest(requestPlan, args, endpoint);
 
-        // group the parameter info list based on parameter type(e.g. HTTP_HEADER -> param_1, param_2)
-        final Map<ParameterMetaData.Type, List<ParameterInfo>> parameterInfo = parameters.stream()
-                .collect(Collectors.groupingBy(paramInfo ->
-                        paramInfo.getParameterMetaData().getType()));
+            response = requestHandler.execute(request, httpClient, requestInterceptors, responseInterceptors,
+                    errorHandlers);
+        } catch (Throwable e) {
+            release(endpoint);
+            throw e;
+        }
+        return releaseWhenReceived(response, endpoint);
+    }
 
-        final Request.RequestBuilder requestBuilder = Request.builder()
-                .method(method)
-                .parameters(parameters);
+    /**
+     * Executes an invocation of a method returning a {@link CompletableFuture}. Any error, including an invalid
+     * request, completes the returned future instead of being thrown.
+     */
+    private CompletableFuture<Object> invokeAsync(RequestPlan requestPlan, Object[] args) {
+        Endpoint endpoint = null;
+        final Request request;
+        try {
+            endpoint = chooseEndpoint(requestPlan, args);
+            request = buildRequest(requestPlan, args, endpoint);
+        } catch (RuntimeException e) {
+            release(endpoint);
+            return CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<Object> response = requestHandler.executeAsync(request, httpClient,
+                requestInterceptors, responseInterceptors, errorHandlers);
+        if (endpoint == null) {
+            return response;
+        }
+        final Endpoint chosen = endpoint;
+        return response
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        release(chosen);
+                    }
+                })
+                .thenApply(result -> releaseWhenReceived(result, chosen));
+    }
 
-        final String url = getUrl(requestMetaData, parameterInfo);
-        requestBuilder.url(url);
-        requestBuilder.httpMethod(requestMetaData.getHttpMethod());
-        // http headers
-        final HttpMultiValueMap headers = getNamedParams(requestMetaData, parameterInfo,
-                ParameterMetaData.Type.HTTP_HEADER);
-        requestBuilder.headers(headers);
-        // query parameters
-        final HttpMultiValueMap queryParams = getNamedParams(requestMetaData, parameterInfo,
-                ParameterMetaData.Type.QUERY_PARAM);
-        requestBuilder.queryParams(queryParams);
+    /**
+     * Releases the endpoint of a response once it was received. A streamed body is still being received when it is
+     * returned, its endpoint is released once the caller closes it or read its last element.
+     *
+     * @return response, or the streamed body releasing the endpoint
+     */
+    private Object releaseWhenReceived(Object response, Endpoint endpoint) {
+        if (endpoint == null) {
+            return response;
+        }
+        if (StreamedBodies.isStreamed(response)) {
+            return StreamedBodies.onClose(response, () -> release(endpoint));
+        }
+        release(endpoint);
+        return response;
+    }
 
-        // request body
-        final Object requestBody = getRequestBody(requestMetaData, parameterInfo);
-        requestBuilder.body(requestBody);
+    /**
+     * Creates the publisher of a method returning a <code>Flow.Publisher</code>. The request is only executed once a
+     * subscriber subscribes, and again whenever a Server-Sent Events stream reconnects.
+     */
+    private Flow.Publisher<Object> publishEvents(RequestPlan requestPlan, Object[] args) {
+        final BodyReader<?> dataReader = codec != null ? getMethodCodec(requestPlan).reader
+                : DefaultCodecHolder.CODEC.reader(requestPlan.getResponseType());
+        return new EventStreamPublisher(() -> buildEventStreamRequest(requestPlan, args),
+                request -> requestHandler.execute(request, httpClient, requestInterceptors, responseInterceptors,
+                        errorHandlers),
+                dataReader, requestPlan.isServerSentEvents(),
+                Optional.ofNullable(eventStreamExecutor).orElseGet(EventStreamPublisher::defaultExecutor));
+    }
 
-        requestBuilder.responseType(requestMetaData.getResponseType());
+    /**
+     * Builds the request opening an event stream. An open stream does not count as an outstanding request of its
+     * endpoint, it would keep the endpoint busy for as long as it is open.
+     */
+    private Request buildEventStreamRequest(RequestPlan requestPlan, Object[] args) {
+        final Endpoint endpoint = chooseEndpoint(requestPlan, args);
+        try {
+            return buildRequest(requestPlan, args, endpoint);
+        } finally {
+            release(endpoint);
+        }
+    }
 
-        return requestBuilder.build();
+    private Request buildRequest(RequestPlan requestPlan, Object[] args, Endpoint endpoint) {
+        final Request request = requestPlan.buildRequest(endpoint == null ? clientMetadata.getHost()
+                : endpoint.getUrl(), args);
+        if (codec != null) {
+            final MethodCodec methodCodec = getMethodCodec(requestPlan);
+            request.setBodyReader(methodCodec.reader);
+            request.setBodyWriter(methodCodec.writer);
+        }
+        return request;
     }
 
     /**
-     * Extracts the URL from the request metadata. Following sequence is used to determine the final URL of the
-     * request:
-     * <ol>
-     *  <li>If there is a URL specified as a method parameter, use that</li>
-     *  <li>If there is a URL specified as part of the @RequestAttribute annotation, use that</li>
-     *  <li>If none of the above, use the client's path from @SimpleHttpClient</li>
-     *</ol>
-     * For 1 & 2, if the specified value is a path fragment, then append to the client's path. Also replaces path
-     * parameters with actual values.
+     * @return endpoint of the next request, chosen by its routing key if it has one; null if the client has a single
+     *         host
      */
-    private String getUrl(ClientMethodMetaData requestMetaData,
-                          Map<ParameterMetaData.Type, List<ParameterInfo>> typeToParam) {
-        // build the URL - we can get the URL in 3 ways
-        String fullUrl = clientMetadata.getHost();
-
-        // check for any parameter annotated with @Url - there can only be one
-        List<ParameterInfo> paramsWithUrl = typeToParam.get(ParameterMetaData.Type.URL);
-        if (Utils.isNotEmpty(paramsWithUrl) && paramsWithUrl.get(0).getValue() != null) {
-            final Object rawUrlArgument = paramsWithUrl.get(0).getValue();
-            fullUrl = joinUrl(fullUrl, Utils.stringify(rawUrlArgument));
-        } else if (Utils.isNotEmpty(requestMetaData.getUrl())) {
-            fullUrl = joinUrl(fullUrl, requestMetaData.getUrl());
+    private Endpoint chooseEndpoint(RequestPlan requestPlan, Object[] args) {
+        if (loadBalancer == null) {
+            return null;
         }
+        final Object routingKey = requestPlan.getRoutingKey(args);
+        return routingKey == null ? loadBalancer.choose() : loadBalancer.choose(routingKey);
+    }
 
-        // now we need to get the path variables and replace the placeholders in the URL
-        List<ParameterInfo> pathVariableParams = Optional.ofNullable(typeToParam.get(ParameterMetaData.Type.PATH_PARAM))
-                .orElse(List.of());
-        for (ParameterInfo parameterInfo: pathVariableParams) {
-            NamedParameterMetaData pathVariable = (NamedParameterMetaData) parameterInfo.getParameterMetaData();
-            String pathVariableName = pathVariable.getName();
-            String value = Utils.stringify(parameterInfo.getValue());
-            if (Utils.isEmpty(value)) {
-                throw new IllegalArgumentException(String.format("The value for path parameter '%s' is empty",
-                        pathVariableName));
-            }
-            fullUrl = fullUrl.replaceAll("\\{\\s*" + pathVariableName + "\\s*\\}", value);
+    private void release(Endpoint endpoint) {
+        if (endpoint != null) {
+            loadBalancer.release(endpoint);
         }
-        // TODO: Add some URL validation on this
-        return fullUrl;
+    }
+
+    private MethodCodec getMethodCodec(RequestPlan requestPlan) {
+        final MethodCodec methodCodec = methodCodecs.get(requestPlan);
+        return methodCodec != null ? methodCodec : methodCodecs.computeIfAbsent(requestPlan, plan -> new MethodCodec(
+                codec.reader(plan.getResponseType()),
+                plan.getRequestBodyType() == null ? null : codec.writer(plan.getRequestBodyType())));
     }
 
     /**
-     * Extracts the named parameters(headers or query params) from a request.
+     * Get the compiled plan of a client method. Used by generated client implementations to resolve the plan of
+     * each method once when the client is created.
+     *
+     * @param method client method
+     * @return compiled plan of the method
+     * @throws UnsupportedOperationException if the method is not decorated for a request
      */
-    private HttpMultiValueMap getNamedParams(ClientMethodMetaData requestMetaData, Map<ParameterMetaData.Type,
-            List<ParameterInfo>> typeToParam, ParameterMetaData.Type paramType) {
-        // Named params(headers/query params) can come from two locations:
-        final boolean isHeaders = paramType == ParameterMetaData.Type.HTTP_HEADER;
-        final HttpMultiValueMap namedParams = new HttpMultiValueMap();
-
-        // 1. @RequestAttribute annotation where a static list of namedParams is supplied
-        HttpMultiValueMap valuesFromMethodAnnotation = isHeaders ? requestMetaData.getHeaders() :
-                requestMetaData.getQueryParams();
-        namedParams.addAll(valuesFromMethodAnnotation);
-
-        // 2. Method arguments which can be either a single named value[e.g. getValue(@Header("Authorization") String token)]
-        // or multiple namedParams as a map [e.g. getValue(@Header Map<String, String> headers)]
-
-        // handle single nameParam values
-        List<ParameterInfo> singleValues  = typeToParam.get(paramType);
-        if (Utils.isNotEmpty(singleValues)) {
-            singleValues.forEach(parameterInfo -> {
-                final NamedParameterMetaData header = (NamedParameterMetaData) parameterInfo.getParameterMetaData();
-                final Object rawValue = parameterInfo.getValue();
-                if (rawValue != null) { // we will only add the named param if a value is provided
-                    namedParams.add(header.getName(), rawValue.toString());
-                }
-            });
+    public RequestPlan getRequestPlan(Method method) {
+        return Optional.ofNullable(resolveRequestPlan(method)).orElseThrow(() -> new UnsupportedOperationException(
+                String.format("The method '%s' is not decorated for Simple HTTP client request", method.getName())));
+    }
+
+    /**
+     * Extracts and compiles the metadata of the given methods in the background. Only applies to handlers which
+     * resolve method metadata lazily; errors are raised again when the method is invoked.
+     *
+     * @param methods methods to resolve
+     * @param executor executor to resolve the methods on
+     * @return future completed once all methods are resolved
+     */
+    CompletableFuture<Void> prewarm(Collection<Method> methods, Executor executor) {
+        if (methodMetadataResolver == null || methods.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
+        return CompletableFuture.runAsync(() -> methods.forEach(method -> {
+            final RequestPlan requestPlan = resolveRequestPlan(method);
+            if (requestPlan != null && codec != null) {
+                getMethodCodec(requestPlan);
+            }
+        }), executor);
+    }
 
-        // handle get bulk namedParams as a map
-        // note that the map can be <String, String> OR <String, Collection<?>>
-        final ParameterMetaData.Type mapType = isHeaders ? ParameterMetaData.Type.HTTP_HEADER_MAP :
-                ParameterMetaData.Type.QUERY_PARAM_MAP;
-        final List<ParameterInfo> multipleHeaderMaps = typeToParam.get(mapType);
-        if (Utils.isNotEmpty(multipleHeaderMaps)) {
-            multipleHeaderMaps.forEach(parameterInfo -> {
-                final Map<?, ?> map = (Map<?, ?>) parameterInfo.getValue();
-                if (map != null) {
-                    map.forEach((key, value) -> {
-                        if (key != null && value != null) { // we will only add header if a name and value is present
-                            final String headerName = key.toString();
-                            if (value instanceof Collection<?> headerValueCollection) {
-                                // header name is mapped to a collection so we have multiple header values
-                                headerValueCollection.stream()
-                                        .filter(Objects::nonNull)
-                                        .forEach(headerValue -> namedParams.add(headerName, headerValue.toString()));
-                            } else {
-                                namedParams.add(headerName, value.toString());
-                            }
-                        }
-                    });
-                }
-            });
+    private RequestPlan resolveRequestPlan(Method method) {
+        final RequestPlan requestPlan = requestPlans.get(method);
+        if (requestPlan != null || methodMetadataResolver == null) {
+            return requestPlan;
         }
-        return namedParams;
+        // thread-safe, each method is extracted once; methods without a request are not cached
+        return requestPlans.computeIfAbsent(method, unresolved -> methodMetadataResolver.apply(unresolved)
+                .map(requestMetaData -> RequestPlan.compile(unresolved, requestMetaData))
+                .orElse(null));
     }
 
-    private Object getRequestBody(ClientMethodMetaData requestMetaData, Map<ParameterMetaData.Type, List<ParameterInfo>> typeToParam) {
-        final List<ParameterInfo> requestBodyArgList = typeToParam.get(ParameterMetaData.Type.REQUEST_BODY);
-        return Optional.ofNullable(requestBodyArgList)
-                .filter(Utils::isNotEmpty)
-                .map(argList -> argList.get(0).getValue())
-                .orElse(null);
+    Map<Method, RequestPlan> getRequestPlans() {
+        return requestPlans;
+    }
+
+    private static final class MethodCodec {
+
+        private final BodyReader<?> reader;
+        private final BodyWriter writer;
+
+        MethodCodec(BodyReader<?> reader, BodyWriter writer) {
+            this.reader = reader;
+            this.writer = writer;
+        }
     }
 
     /**
-     * If the supplied path is a path fragment, concatenate with rootUrl. Otherwise,
-     * return the path as the full url
+     * Reads the events of HTTP clients without a codec, which only read whole response bodies themselves.
      */
-    private String joinUrl(String rootUrl, String pathFragmentOrFullUrl) {
-        String fullUrl = Utils.isEmpty(pathFragmentOrFullUrl) ? rootUrl : pathFragmentOrFullUrl;
-        if (Utils.isPathFragment(pathFragmentOrFullUrl)) {
-            fullUrl = rootUrl + (pathFragmentOrFullUrl.startsWith("/") ? pathFragmentOrFullUrl :
-                    "/" + pathFragmentOrFullUrl);
-        }
-        return fullUrl;
+    private static final class DefaultCodecHolder {
+        private static final Codec CODEC = new JacksonCodec();
     }
 }
@@ -0,0 +1,192 @@
+package com.simplehttp.core.client;
+
+import com.simplehttp.core.annotation.AnnotationProcessor;
+import com.simplehttp.core.annotation.SimpleHttpDefaultAnnotationProcessor;
+import com.simplehttp.core.client.model.ClientMetadata;
+import com.simplehttp.core.client.model.ClientMethodMetaData;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Everything {@link ClientBuilder} derives from a client interface that does not depend on the builder's
+ * configuration: the {@link ClientMetadata}, the compiled {@link RequestPlan}s, the compile time generated client and
+ * the runtime generated client class. All of it is immutable(lazily resolved plans are added at most once per method)
+ * and is shared by every client built for the interface.
+ *
+ * Compiled clients of processors that are {@link AnnotationProcessor#isCacheable() cacheable} are cached process-wide in
+ * a {@link ClassValue} of the client interface, so that repeat builds skip the annotation scan and the cache does not
+ * keep the class loader of the interface alive.
+ */
+@Slf4j
+final class CompiledClient {
+
+    private static final ClassValue<ConcurrentMap<CacheKey, CompiledClient>> CACHE = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<CacheKey, CompiledClient> computeValue(Class<?> target) {
+            return new ConcurrentHashMap<>(4);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private static final Class<GeneratedClient<?>> GENERATED_CLIENT =
+            (Class<GeneratedClient<?>>) (Class<?>) GeneratedClient.class;
+
+    private final Class<?> target;
+    private final ClientMetadata clientMetadata;
+    private final Map<Method, RequestPlan> requestPlans;
+    private final Function<Method, Optional<ClientMethodMetaData>> methodMetadataResolver;
+    private final GeneratedClient<?> generatedClient;
+    private volatile Optional<Function<ClientInvocationHandler, ?>> clientClassFactory;
+
+    private CompiledClient(Class<?> target,
+                           ClientMetadata clientMetadata,
+                           Map<Method, RequestPlan> requestPlans,
+                           Function<Method, Optional<ClientMethodMetaData>> methodMetadataResolver,
+                           GeneratedClient<?> generatedClient) {
+        this.target = target;
+        this.clientMetadata = clientMetadata;
+        this.requestPlans = requestPlans;
+        this.methodMetadataResolver = methodMetadataResolver;
+        this.generatedClient = generatedClient;
+    }
+
+    /**
+     * Get the compiled client of a target, from the cache if the annotation processor is cacheable.
+     *
+     * @param target client interface
+     * @param annotationProcessor processor used to extract the metadata of the target
+     * @param lazyMetadata true to extract method metadata on first invocation
+     * @return compiled client
+     */
+    static CompiledClient get(Class<?> target, AnnotationProcessor annotationProcessor, boolean lazyMetadata) {
+        if (!annotationProcessor.isCacheable()) {
+            return compile(target, annotationProcessor, lazyMetadata);
+        }
+        // failed extractions are not cached, so that invalid clients fail on every build
+        return CACHE.get(target).computeIfAbsent(new CacheKey(annotationProcessor.getClass(), lazyMetadata),
+                key -> compile(target, annotationProcessor, lazyMetadata));
+    }
+
+    private static CompiledClient compile(Class<?> target, AnnotationProcessor annotationProcessor,
+                                          boolean lazyMetadata) {
+        // prefer a client generated at compile time - its metadata is prebuilt, so no annotation scan is needed
+        final GeneratedClient<?> generatedClient = findGeneratedClient(target, annotationProcessor).orElse(null);
+        if (generatedClient != null) {
+            final ClientMetadata clientMetadata = generatedClient.getClientMetadata();
+            return new CompiledClient(target, clientMetadata, RequestPlan.compileAll(clientMetadata, target), null,
+                    generatedClient);
+        }
+        if (lazyMetadata) {
+            final ClientMetadata clientMetadata = annotationProcessor.extractClientLevelMetadata(target);
+            return new CompiledClient(target, clientMetadata,
+                    new ConcurrentHashMap<>(RequestPlan.compileAll(clientMetadata, target)),
+                    method -> annotationProcessor.extractClientMethodMetadata(target, method), null);
+        }
+        final ClientMetadata clientMetadata = annotationProcessor.extractClientMetadata(target);
+        return new CompiledClient(target, clientMetadata, RequestPlan.compileAll(clientMetadata, target), null, null);
+    }
+
+    /**
+     * Looks up a client implementation generated by the SimpleHttp compile time annotation processor. Generated
+     * clients are only used with the default annotation processor, since a custom processor may extract different
+     * metadata than the generated one.
+     */
+    private static Optional<GeneratedClient<?>> findGeneratedClient(Class<?> target,
+                                                                    AnnotationProcessor annotationProcessor) {
+        if (annotationProcessor.getClass() != SimpleHttpDefaultAnnotationProcessor.class) {
+            return Optional.empty();
+        }
+        // generated classes are named SimpleHttp_<interface> with nested interfaces flattened(Outer$Client -> Outer_Client)
+        final String packagePrefix = target.getPackageName().isEmpty() ? "" : target.getPackageName() + ".";
+        final String generatedClassName = packagePrefix + "SimpleHttp_" +
+                target.getName().substring(packagePrefix.length()).replace('$', '_');
+        return ServiceLoader.load(GENERATED_CLIENT, target.getClassLoader()).stream()
+                .filter(provider -> provider.type().getName().equals(generatedClassName))
+                .map(ServiceLoader.Provider::get)
+                .filter(generatedClient -> generatedClient.getClientType() == target)
+                .findFirst();
+    }
+
+    ClientMetadata getClientMetadata() {
+        return clientMetadata;
+    }
+
+    Map<Method, RequestPlan> getRequestPlans() {
+        return requestPlans;
+    }
+
+    /**
+     * @return resolver of the metadata of methods that are not compiled yet; null if all methods are compiled
+     */
+    Function<Method, Optional<ClientMethodMetaData>> getMethodMetadataResolver() {
+        return methodMetadataResolver;
+    }
+
+    Optional<GeneratedClient<?>> getGeneratedClient() {
+        return Optional.ofNullable(generatedClient);
+    }
+
+    /**
+     * Get the factory of a runtime generated client class for the target, defining the class on first use. The
+     * outcome is remembered, so a target that cannot be generated is only attempted once.
+     *
+     * @return factory creating client instances from a handler; empty if no class can be generated for the target
+     */
+    Optional<Function<ClientInvocationHandler, ?>> getClientClassFactory() {
+        Optional<Function<ClientInvocationHandler, ?>> factory = clientClassFactory;
+        if (factory == null) {
+            synchronized (this) {
+                factory = clientClassFactory;
+                if (factory == null) {
+                    factory = defineClientClass();
+                    clientClassFactory = factory;
+                }
+            }
+        }
+        return factory;
+    }
+
+    private Optional<Function<ClientInvocationHandler, ?>> defineClientClass() {
+        try {
+            return Optional.of(ClientClassGenerator.define(target, requestPlans));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // callers fall back to a proxy, which works for any interface
+            log.warn("Cannot generate a client class for {}, using a proxy instead", target.getName(), e);
+            return Optional.empty();
+        }
+    }
+
+    private static final class CacheKey {
+        private final Class<?> annotationProcessorType;
+        private final boolean lazyMetadata;
+
+        private CacheKey(Class<?> annotationProcessorType, boolean lazyMetadata) {
+            this.annotationProcessorType = annotationProcessorType;
+            this.lazyMetadata = lazyMetadata;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey cacheKey = (CacheKey) other;
+            return lazyMetadata == cacheKey.lazyMetadata && annotationProcessorType == cacheKey.annotationProcessorType;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * annotationProcessorType.hashCode() + Boolean.hashCode(lazyMetadata);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.simplehttp.core.client;
+
+import com.simplehttp.core.client.model.ServerSentEvent;
+import com.simplehttp.core.codec.BodyReader;
+import com.simplehttp.httpclient.HttpCompression;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the events of a streamed response body one line at a time, either as Server-Sent Events or as NDJSON. The
+ * format is detected from the first line: an SSE field(<code>data</code>, <code>event</code>, <code>id</code> or
+ * <code>retry</code>) or comment is never valid JSON. The data of each event is deserialized with the reader of the
+ * client method, so only a single event is buffered.
+ */
+final class EventStreamDecoder implements Closeable {
+
+    static final String DEFAULT_EVENT_TYPE = "message";
+
+    private final InputStream body;
+    private final BufferedReader lines;
+    private final BodyReader<?> dataReader;
+
+    private Boolean serverSentEvents;
+    private String lastEventId;
+    private long retryMillis = -1;
+
+    /**
+     * @param body streamed response body; closed with the decoder
+     * @param dataReader reader of the data of an event
+     * @param lastEventId id of the last event received before the stream reconnected; null if there was none
+     */
+    EventStreamDecoder(InputStream body, BodyReader<?> dataReader, String lastEventId) {
+        this.body = body;
+        // event streams are always UTF-8
+        this.lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        this.dataReader = dataReader;
+        this.lastEventId = lastEventId;
+    }
+
+    /**
+     * Reads the next event, blocking until it was received completely.
+     *
+     * @return next event; null at the end of the body
+     * @throws IOException if the body cannot be read
+     * @throws UncheckedIOException if the data of an event cannot be deserialized, which is not retried by
+     *                              reconnecting
+     */
+    ServerSentEvent<Object> next() throws IOException {
+        StringBuilder data = null;
+        String eventType = null;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (serverSentEvents == null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                serverSentEvents = isServerSentEventLine(line);
+            }
+            if (!serverSentEvents) {
+                if (!line.isBlank()) {
+                    return ServerSentEvent.builder().data(readData(line)).build();
+                }
+                continue;
+            }
+            if (line.isEmpty()) {
+                // a blank line dispatches the event, events without data are discarded
+                if (data != null) {
+                    return ServerSentEvent.builder()
+                            .id(lastEventId)
+                            .event(eventType == null ? DEFAULT_EVENT_TYPE : eventType)
+                            .data(readData(data.toString()))
+                            .build();
+                }
+                eventType = null;
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                continue;
+            }
+            final int colon = line.indexOf(':');
+            final String field = colon == -1 ? line : line.substring(0, colon);
+            final String value = colon == -1 ? ""
+                    : line.substring(line.startsWith(" ", colon + 1) ? colon + 2 : colon + 1);
+            switch (field) {
+                case "data" -> data = data == null ? new StringBuilder(value) : data.append('\n').append(value);
+                case "event" -> eventType = value;
+                case "id" -> {
+                    if (value.indexOf('\0') == -1) {
+                        lastEventId = value.isEmpty() ? null : value;
+                    }
+                }
+                case "retry" -> {
+                    if (!value.isEmpty() && value.length() < 19 && value.chars().allMatch(Character::isDigit)) {
+                        retryMillis = Long.parseLong(value);
+                    }
+                }
+                default -> { } // unknown fields are ignored
+            }
+        }
+        // an event which was not terminated by a blank line is incomplete
+        return null;
+    }
+
+    /**
+     * @return true if the body is a Server-Sent Events stream, false if it is NDJSON; null until the first line
+     */
+    Boolean isServerSentEvents() {
+        return serverSentEvents;
+    }
+
+    /**
+     * @return id of the last event, sent when the stream reconnects; null if no event had an id
+     */
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * @return reconnection delay requested by the server; -1 if the stream had no <code>retry</code> field
+     */
+    long getRetryMillis() {
+        return retryMillis;
+    }
+
+    /**
+     * Aborts the body from another thread, which makes a read blocked on the network fail. Only the stream of the
+     * transport is closed, the decoder must still be {@link #close() closed} by the thread reading it.
+     */
+    void abort() {
+        try {
+            HttpCompression.getSource(body).close();
+        } catch (IOException ignored) {
+            // the connection is discarded anyway
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+    private Object readData(String data) {
+        try {
+            return dataReader.read(data.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to deserialize the data of an event: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isServerSentEventLine(String line) {
+        if (line.charAt(0) == ':') {
+            return true;
+        }
+        final int colon = line.indexOf(':');
+        final String field = colon == -1 ? line : line.substring(0, colon);
+        return field.equals("data") || field.equals("event") || field.equals("id") || field.equals("retry");
+    }
+}
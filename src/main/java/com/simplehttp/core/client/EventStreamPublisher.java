@@ -0,0 +1,305 @@
+package com.simplehttp.core.client;
+
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.ServerSentEvent;
+import com.simplehttp.core.codec.BodyReader;
+import com.simplehttp.core.exception.HttpStatusException;
+import com.simplehttp.core.exception.SimpleHttpException;
+import com.simplehttp.utils.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The publisher returned by client methods with a <code>Flow.Publisher</code> return type. Every subscription executes
+ * the request of the invocation and decodes the NDJSON lines or Server-Sent Events of its streamed response body with
+ * an {@link EventStreamDecoder}.
+ *
+ * Backpressure is honoured by reading the body only while the subscriber has outstanding demand. Without demand the
+ * body is not read, so the HTTP client stops reading from the connection once its buffers are full. The body is read
+ * with blocking reads though: while there is demand, a stream holds a thread of its executor, also while it waits
+ * for the server to send the next event. Streams hand their thread back after a batch of events, so that busy
+ * streams take turns, but a stream waiting for a quiet server keeps it. Streams without a thread per stream would need
+ * the HTTP clients to deliver bodies with callbacks, which they do not; on runtimes without virtual threads an active
+ * stream therefore still costs a pooled thread.
+ *
+ * A Server-Sent Events stream which ends or fails with an I/O error reconnects after the <code>retry</code> delay of
+ * the stream, sending the id of the last event as <code>Last-Event-ID</code>. An NDJSON stream completes at the end of
+ * its body. Error responses fail the subscription.
+ */
+final class EventStreamPublisher implements Flow.Publisher<Object> {
+
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final String ACCEPT = "Accept";
+    private static final String ACCEPTED_TYPES = "text/event-stream, application/x-ndjson";
+    private static final long DEFAULT_RETRY_MILLIS = 3000;
+    /**
+     * Events a stream publishes before it hands its thread to the other streams of the executor.
+     */
+    private static final int EVENTS_PER_TURN = 64;
+    /**
+     * Threads of the default executor on runtimes without virtual threads. Streams beyond it wait until a thread is
+     * handed back, instead of growing the pool without a limit.
+     */
+    static final int MAX_DEFAULT_THREADS = 64;
+
+    private final Supplier<Request> requests;
+    private final Function<Request, Object> execution;
+    private final BodyReader<?> dataReader;
+    private final boolean serverSentEvents;
+    private final Executor executor;
+
+    /**
+     * @param requests builds the request of the invocation, once per connection
+     * @param execution executes a request with the request executor of the client
+     * @param dataReader reader of the data of an event
+     * @param serverSentEvents true to publish {@link ServerSentEvent}s instead of their data
+     * @param executor runs the blocking reads of the body while there is demand
+     */
+    EventStreamPublisher(Supplier<Request> requests, Function<Request, Object> execution, BodyReader<?> dataReader,
+                         boolean serverSentEvents, Executor executor) {
+        this.requests = requests;
+        this.execution = execution;
+        this.dataReader = dataReader;
+        this.serverSentEvents = serverSentEvents;
+        this.executor = executor;
+    }
+
+    /**
+     * @return executor shared by the event streams of clients without a configured executor: virtual threads if the
+     *         runtime supports them, which are cheap to park in a read; otherwise up to
+     *         {@value #MAX_DEFAULT_THREADS} daemon threads, which are only kept while streams are being read
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null!");
+        subscriber.onSubscribe(new EventSubscription(subscriber));
+    }
+
+    /**
+     * A subscription reading a single event stream. All signals to the subscriber are sent by the drain loop, which
+     * runs on one thread at a time.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super Object> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile boolean awaitingReconnect;
+        private volatile EventStreamDecoder decoder;
+        private volatile Throwable invalidRequest;
+        private boolean done;
+        private boolean reconnects = serverSentEvents;
+        private String lastEventId;
+        private long retryMillis = DEFAULT_RETRY_MILLIS;
+
+        EventSubscription(Flow.Subscriber<? super Object> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested events must be positive, was " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            // unblocks a read waiting for the next event, the draining thread closes the body once the read ended
+            final EventStreamDecoder current = decoder;
+            if (current != null) {
+                current.abort();
+            }
+            drain();
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            int events = 0;
+            do {
+                while (!cancelled && !done && !awaitingReconnect
+                        && (invalidRequest != null || demand.get() > 0)) {
+                    if (++events > EVENTS_PER_TURN) {
+                        // the drain stays pending and continues on another turn of the executor
+                        executor.execute(this);
+                        return;
+                    }
+                    if (invalidRequest != null) {
+                        fail(invalidRequest);
+                    } else if (decoder == null) {
+                        connect();
+                    } else {
+                        readEvent();
+                    }
+                }
+                if (cancelled || done) {
+                    closeBody();
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void connect() {
+            final Object body;
+            try {
+                final Request request = requests.get();
+                // the body is handed out as a stream, its events are read with the reader resolved for the method
+                request.setResponseType(InputStream.class);
+                request.setBodyReader(null);
+                if (request.getHeaders() == null) {
+                    request.setHeaders(HttpMultiValueMap.caseInsensitive());
+                }
+                if (request.getHeaders().getFirst(ACCEPT) == null) {
+                    request.getHeaders().add(ACCEPT, ACCEPTED_TYPES);
+                }
+                if (lastEventId != null) {
+                    request.getHeaders().put(LAST_EVENT_ID, List.of(lastEventId));
+                }
+                body = execution.apply(request);
+            } catch (RuntimeException e) {
+                if (reconnects && isNetworkError(e)) {
+                    reconnectLater();
+                } else {
+                    fail(e);
+                }
+                return;
+            }
+            if (!(body instanceof InputStream stream)) {
+                fail(new IllegalStateException("The response of an event stream was not streamed: " + body));
+                return;
+            }
+            decoder = new EventStreamDecoder(stream, dataReader, lastEventId);
+            if (cancelled) {
+                closeBody();
+            }
+        }
+
+        private void readEvent() {
+            final EventStreamDecoder current = decoder;
+            final ServerSentEvent<Object> event;
+            try {
+                event = current.next();
+            } catch (IOException e) {
+                endOfStream(current, e);
+                return;
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            if (event == null) {
+                endOfStream(current, null);
+                return;
+            }
+            lastEventId = current.getLastEventId();
+            demand.getAndUpdate(requested -> requested == Long.MAX_VALUE ? requested : requested - 1);
+            try {
+                subscriber.onNext(serverSentEvents ? event : event.getData());
+            } catch (Throwable e) {
+                // a failing subscriber is considered to have cancelled its subscription
+                cancel();
+            }
+        }
+
+        private void endOfStream(EventStreamDecoder current, IOException error) {
+            closeBody();
+            lastEventId = current.getLastEventId();
+            if (current.getRetryMillis() >= 0) {
+                retryMillis = current.getRetryMillis();
+            }
+            reconnects = reconnects || Boolean.TRUE.equals(current.isServerSentEvents());
+            if (cancelled) {
+                return;
+            }
+            if (reconnects) {
+                reconnectLater();
+            } else if (error != null) {
+                fail(error);
+            } else {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+
+        private void reconnectLater() {
+            awaitingReconnect = true;
+            CompletableFuture.delayedExecutor(retryMillis, TimeUnit.MILLISECONDS, executor).execute(() -> {
+                awaitingReconnect = false;
+                drain();
+            });
+        }
+
+        private void fail(Throwable error) {
+            done = true;
+            closeBody();
+            subscriber.onError(error);
+        }
+
+        private void closeBody() {
+            final EventStreamDecoder current = decoder;
+            if (current != null) {
+                decoder = null;
+                try {
+                    current.close();
+                } catch (IOException | RuntimeException ignored) {
+                    // the connection is discarded anyway
+                }
+            }
+        }
+
+        /**
+         * @return true if a request failed to connect or was interrupted, as opposed to an error response
+         */
+        private boolean isNetworkError(RuntimeException e) {
+            return e instanceof SimpleHttpException && !(e instanceof HttpStatusException)
+                    && e.getCause() instanceof IOException;
+        }
+    }
+
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = VirtualThreads.isSupported() ? VirtualThreads.newExecutor()
+                : newBoundedExecutor();
+
+        private static ExecutorService newBoundedExecutor() {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_DEFAULT_THREADS, MAX_DEFAULT_THREADS,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        final Thread thread = new Thread(runnable, "simplehttp-event-stream");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
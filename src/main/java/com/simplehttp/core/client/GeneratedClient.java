@@ -0,0 +1,62 @@
+package com.simplehttp.core.client;
+
+import com.simplehttp.core.client.model.ClientMetadata;
+import com.simplehttp.core.client.model.NamedParameterMetaData;
+import com.simplehttp.core.client.model.ParameterMetaData;
+
+import java.lang.reflect.Method;
+
+/**
+ * Implemented by classes generated at compile time by the SimpleHttp annotation processor for an interface annotated
+ * with {@link com.simplehttp.core.annotation.client.SimpleHttpClient}. A generated client provides the prebuilt
+ * {@link ClientMetadata} of the interface and a plain Java implementation of it, so that {@link ClientBuilder} does
+ * not need to scan annotations or create a proxy at runtime.
+ *
+ * Generated clients are registered as {@link java.util.ServiceLoader} providers of this interface.
+ *
+ * @param <T> the client interface
+ */
+public interface GeneratedClient<T> {
+
+    /**
+     * @return the client interface this class was generated for
+     */
+    Class<T> getClientType();
+
+    /**
+     * @return metadata of the client interface, equivalent to the metadata extracted by
+     * {@link com.simplehttp.core.annotation.SimpleHttpDefaultAnnotationProcessor}
+     */
+    ClientMetadata getClientMetadata();
+
+    /**
+     * Creates an instance of the generated client implementation.
+     *
+     * @param handler invocation handler built from {@link #getClientMetadata()}
+     * @return client instance
+     */
+    T newClient(ClientInvocationHandler handler);
+
+    /**
+     * Creates the metadata of an unnamed method parameter. Used by generated code.
+     */
+    static ParameterMetaData parameter(Method method, int index, ParameterMetaData.Type type) {
+        final ParameterMetaData parameterMetaData = new ParameterMetaData();
+        parameterMetaData.setMethod(method);
+        parameterMetaData.setParameter(method.getParameters()[index]);
+        parameterMetaData.setType(type);
+        return parameterMetaData;
+    }
+
+    /**
+     * Creates the metadata of a named method parameter(header, query or path parameter). Used by generated code.
+     */
+    static ParameterMetaData namedParameter(Method method, int index, ParameterMetaData.Type type, String name) {
+        final NamedParameterMetaData parameterMetaData = new NamedParameterMetaData();
+        parameterMetaData.setMethod(method);
+        parameterMetaData.setParameter(method.getParameters()[index]);
+        parameterMetaData.setType(type);
+        parameterMetaData.setName(name);
+        return parameterMetaData;
+    }
+}
@@ -2,6 +2,9 @@ package com.simplehttp.core.client;
 
 import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.codec.Codec;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implemented by a HTTP client.
@@ -16,4 +19,31 @@ public interface HttpClient {
      * @throws Exception errors thrown during Request execution
      */
     Response execute(Request request) throws Exception;
+
+    /**
+     * Executes the provided Request without blocking the calling thread while waiting on the network. Used for client
+     * methods returning a {@link CompletableFuture}. Clients with non-blocking I/O should override this method; the
+     * default executes the request on the calling thread.
+     *
+     * @param request Request to execute
+     * @return future of the Response, completed exceptionally with any error thrown during Request execution
+     */
+    default CompletableFuture<Response> executeAsync(Request request) {
+        try {
+            return CompletableFuture.completedFuture(execute(request));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * The codec whose readers and writers are resolved for each client method, unless the client builder has a
+     * codec. Clients using the resolved {@link Request#getBodyReader() reader} and
+     * {@link Request#getBodyWriter() writer} of a request should return their codec.
+     *
+     * @return codec of the client; null if the client resolves how to read and write bodies itself
+     */
+    default Codec getCodec() {
+        return null;
+    }
 }
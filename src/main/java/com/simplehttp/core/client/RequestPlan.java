@@ -0,0 +1,406 @@
+package com.simplehttp.core.client;
+
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.http.UrlTemplate;
+import com.simplehttp.core.client.model.*;
+import com.simplehttp.utils.Utils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * An immutable, pre-compiled invocation plan for a single client method.
+ *
+ * The plan is built once from the method's {@link ClientMethodMetaData} and resolves ahead of time which argument
+ * indexes feed the URL, path parameters, headers, query parameters and body of the request. Building a
+ * {@link Request} for an invocation is then a straight fill from the argument array without any grouping or
+ * intermediate collections.
+ *
+ * Plans are only created by the client machinery, the type is public so that generated client classes in the target
+ * interface's package can hold on to them.
+ */
+public final class RequestPlan {
+
+    private static final int NO_INDEX = -1;
+    private static final int[] NO_INDEXES = new int[0];
+    private static final String[] NO_NAMES = new String[0];
+
+    private final Method method;
+    private final ClientMethodMetaData requestMetaData;
+    private final List<ParameterMetaData> parameterMetaDataList;
+
+    private final boolean async;
+    private final boolean eventStream;
+    private final boolean serverSentEvents;
+    private final Type responseType;
+    private final int urlIndex;
+    private final int requestBodyIndex;
+    private final int downloadToIndex;
+    private final int routingKeyIndex;
+    private final UrlTemplate urlTemplate;
+    private final Map<String, Integer> pathParamNameToIndex;
+    private final int[] urlTemplateIndexes;
+    private final HttpMultiValueMap staticHeaders;
+    private final HttpMultiValueMap staticQueryParams;
+    private final int[] headerIndexes;
+    private final String[] headerNames;
+    private final int[] headerMapIndexes;
+    private final int[] queryParamIndexes;
+    private final String[] queryParamNames;
+    private final int[] queryParamMapIndexes;
+
+    private RequestPlan(ClientMethodMetaData requestMetaData) {
+        this.method = requestMetaData.getMethod();
+        this.requestMetaData = requestMetaData;
+        this.parameterMetaDataList = Optional.ofNullable(requestMetaData.getParameterMetaDataList()).orElse(List.of());
+
+        int url = NO_INDEX;
+        int body = NO_INDEX;
+        int downloadTo = NO_INDEX;
+        int routingKey = NO_INDEX;
+        final List<Integer> pathParams = new ArrayList<>();
+        final List<Integer> headers = new ArrayList<>();
+        final List<Integer> headerMaps = new ArrayList<>();
+        final List<Integer> queryParams = new ArrayList<>();
+        final List<Integer> queryParamMaps = new ArrayList<>();
+        for (int i = 0; i < parameterMetaDataList.size(); i++) {
+            switch (parameterMetaDataList.get(i).getType()) {
+                // there can only be one URL, request body, download target and routing key - the first one wins
+                case URL -> url = url == NO_INDEX ? i : url;
+                case REQUEST_BODY -> body = body == NO_INDEX ? i : body;
+                case DOWNLOAD_TO -> downloadTo = downloadTo == NO_INDEX ? i : downloadTo;
+                case ROUTING_KEY -> routingKey = routingKey == NO_INDEX ? i : routingKey;
+                case PATH_PARAM -> pathParams.add(i);
+                case HTTP_HEADER -> headers.add(i);
+                case HTTP_HEADER_MAP -> headerMaps.add(i);
+                case QUERY_PARAM -> queryParams.add(i);
+                case QUERY_PARAM_MAP -> queryParamMaps.add(i);
+                default -> { } // parameters without SimpleHttp annotations are not part of the request
+            }
+        }
+        this.async = isAsync(method);
+        this.eventStream = method != null && method.getReturnType() == Flow.Publisher.class;
+        final Type eventType = eventStream ? getTypeArgument(requestMetaData.getResponseType()) : null;
+        this.serverSentEvents = eventType != null && getRawType(eventType) == ServerSentEvent.class;
+        if (eventStream) {
+            // the reader of an event stream reads the data of a single event
+            this.responseType = serverSentEvents ? getTypeArgument(eventType) : eventType;
+        } else {
+            this.responseType = async ? getAsyncResponseType(requestMetaData.getResponseType()) :
+                    requestMetaData.getResponseType();
+        }
+        this.urlIndex = url;
+        this.requestBodyIndex = body;
+        this.downloadToIndex = downloadTo;
+        this.routingKeyIndex = routingKey;
+        this.urlTemplate = Optional.ofNullable(requestMetaData.getUrlTemplate())
+                .orElseGet(() -> UrlTemplate.parse(requestMetaData.getUrl()));
+        final Map<String, Integer> pathParamNameToIndex = new HashMap<>();
+        for (int pathParam : pathParams) {
+            pathParamNameToIndex.putIfAbsent(((NamedParameterMetaData) parameterMetaDataList.get(pathParam)).getName(),
+                    pathParam);
+        }
+        this.pathParamNameToIndex = Collections.unmodifiableMap(pathParamNameToIndex);
+        this.urlTemplateIndexes = urlTemplate.resolveIndexes(pathParamNameToIndex);
+        // the static values are shared by the requests of all invocations, which only add their own values on top
+        this.staticHeaders = Optional.ofNullable(requestMetaData.getHeaders())
+                .orElseGet(HttpMultiValueMap::caseInsensitive).toImmutable();
+        this.staticQueryParams = Optional.ofNullable(requestMetaData.getQueryParams())
+                .orElseGet(HttpMultiValueMap::new).toImmutable();
+        this.headerIndexes = toIndexArray(headers);
+        this.headerNames = toNameArray(headers);
+        this.headerMapIndexes = toIndexArray(headerMaps);
+        this.queryParamIndexes = toIndexArray(queryParams);
+        this.queryParamNames = toNameArray(queryParams);
+        this.queryParamMapIndexes = toIndexArray(queryParamMaps);
+    }
+
+    /**
+     * Compiles the request metadata of a single method into an invocation plan.
+     *
+     * @param requestMetaData metadata extracted from a method annotated with
+     *                        {@link com.simplehttp.core.annotation.http.RequestAttribute}
+     * @return compiled plan
+     */
+    static RequestPlan compile(ClientMethodMetaData requestMetaData) {
+        return new RequestPlan(Objects.requireNonNull(requestMetaData, "Request metadata cannot be null!"));
+    }
+
+    /**
+     * Compiles the request metadata of a method, which may have been extracted without the method it belongs to.
+     *
+     * @param method client method the metadata was extracted from
+     * @param requestMetaData metadata of the method
+     * @return compiled plan
+     */
+    static RequestPlan compile(Method method, ClientMethodMetaData requestMetaData) {
+        Objects.requireNonNull(requestMetaData, "Request metadata cannot be null!");
+        return new RequestPlan(requestMetaData.getMethod() != null ? requestMetaData
+                : requestMetaData.toBuilder().method(method).build());
+    }
+
+    /**
+     * Compiles the request metadata of all methods of a client.
+     *
+     * @param clientMetadata client metadata
+     * @return plans keyed by the client method they were compiled for
+     */
+    static Map<Method, RequestPlan> compileAll(ClientMetadata clientMetadata) {
+        final Map<Method, ClientMethodMetaData> requestTemplates = Optional.ofNullable(
+                clientMetadata.getMethodToRequestTemplate()).orElse(Map.of());
+        final Map<Method, RequestPlan> plans = new HashMap<>(Math.max(16, requestTemplates.size() * 2));
+        requestTemplates.forEach((method, requestMetaData) -> plans.put(method, compile(requestMetaData)));
+        return Collections.unmodifiableMap(plans);
+    }
+
+    /**
+     * Compiles the request metadata of all methods of a client interface. Metadata which is only keyed by method name,
+     * as extracted by annotation processors which do not fill {@link ClientMetadata#getMethodToRequestTemplate()}, is
+     * resolved against the methods of the interface by name.
+     *
+     * @param clientMetadata client metadata
+     * @param target client interface
+     * @return plans keyed by the client method they were compiled for
+     */
+    static Map<Method, RequestPlan> compileAll(ClientMetadata clientMetadata, Class<?> target) {
+        if (!isKeyedByMethodName(clientMetadata)) {
+            return compileAll(clientMetadata);
+        }
+        final Map<Method, RequestPlan> plans = new HashMap<>();
+        for (Method method : target.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers())) {
+                findByMethodName(clientMetadata, method)
+                        .ifPresent(requestMetaData -> plans.put(method, compile(method, requestMetaData)));
+            }
+        }
+        return Collections.unmodifiableMap(plans);
+    }
+
+    /**
+     * @param clientMetadata client metadata
+     * @return true if the request templates are only keyed by method name
+     */
+    static boolean isKeyedByMethodName(ClientMetadata clientMetadata) {
+        return Optional.ofNullable(clientMetadata.getMethodToRequestTemplate()).map(Map::isEmpty).orElse(true)
+                && Optional.ofNullable(clientMetadata.getMethodNameToRequestTemplate()).map(map -> !map.isEmpty())
+                .orElse(false);
+    }
+
+    /**
+     * @param clientMetadata client metadata
+     * @param method client method
+     * @return request template of the method name; empty if the method is not decorated for a request
+     */
+    static Optional<ClientMethodMetaData> findByMethodName(ClientMetadata clientMetadata, Method method) {
+        return Optional.ofNullable(clientMetadata.getMethodNameToRequestTemplate())
+                .map(methodNameToRequestTemplate -> methodNameToRequestTemplate.get(method.getName()));
+    }
+
+    /**
+     * @return true if the method returns a {@link CompletableFuture} and is executed asynchronously
+     */
+    boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return true if the method returns a <code>Flow.Publisher</code> of the events of a streamed response
+     */
+    boolean isEventStream() {
+        return eventStream;
+    }
+
+    /**
+     * @return true if the method publishes {@link ServerSentEvent}s instead of only their data
+     */
+    boolean isServerSentEvents() {
+        return serverSentEvents;
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    ClientMethodMetaData getRequestMetaData() {
+        return requestMetaData;
+    }
+
+    /**
+     * @return type the response is parsed into; for asynchronous methods the type argument of the future, for event
+     *         streams the type of the data of an event
+     */
+    Type getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * @return declared type of the request body parameter, or the element type of a <code>Stream</code> or
+     *         <code>Iterator</code> body, which is written one element at a time; null if there is no body
+     */
+    Type getRequestBodyType() {
+        if (requestBodyIndex == NO_INDEX || method == null) {
+            return null;
+        }
+        final Type bodyType = method.getGenericParameterTypes()[requestBodyIndex];
+        final Class<?> rawType = method.getParameterTypes()[requestBodyIndex];
+        if (rawType == Stream.class || rawType == Iterator.class) {
+            return getTypeArgument(bodyType);
+        }
+        return bodyType;
+    }
+
+    /**
+     * @param args invocation arguments; may be null for methods without parameters
+     * @return argument of the {@link com.simplehttp.core.annotation.http.RoutingKey} parameter; null if the method
+     *         has none
+     */
+    Object getRoutingKey(Object[] args) {
+        return routingKeyIndex == NO_INDEX ? null : args[routingKeyIndex];
+    }
+
+    /**
+     * Builds the request for a single invocation of the planned method.
+     *
+     * @param host client host from {@link com.simplehttp.core.annotation.client.SimpleHttpClient}
+     * @param args invocation arguments; may be null for methods without parameters
+     * @return request to execute
+     */
+    Request buildRequest(String host, Object[] args) {
+        return Request.builder()
+                .method(method)
+                .parameters(getParameters(args))
+                .url(getUrl(host, args))
+                .httpMethod(requestMetaData.getHttpMethod())
+                .headers(getNamedParams(staticHeaders, headerIndexes, headerNames, headerMapIndexes,
+                        args))
+                .queryParams(getNamedParams(staticQueryParams, queryParamIndexes, queryParamNames,
+                        queryParamMapIndexes, args))
+                .body(requestBodyIndex == NO_INDEX ? null : args[requestBodyIndex])
+                .responseType(responseType)
+                .downloadTo(downloadToIndex == NO_INDEX ? null : (Path) args[downloadToIndex])
+                .compressionThreshold(requestMetaData.getCompressionThreshold())
+                .build();
+    }
+
+    private List<ParameterInfo> getParameters(Object[] args) {
+        final int size = parameterMetaDataList.size();
+        final ParameterInfo[] parameters = new ParameterInfo[size];
+        for (int i = 0; i < size; i++) {
+            parameters[i] = ParameterInfo.builder()
+                    .value(args[i])
+                    .parameterMetaData(parameterMetaDataList.get(i))
+                    .build();
+        }
+        return Arrays.asList(parameters);
+    }
+
+    /**
+     * Extracts the URL from the request metadata. Following sequence is used to determine the final URL of the
+     * request:
+     * <ol>
+     *  <li>If there is a URL specified as a method parameter, use that</li>
+     *  <li>If there is a URL specified as part of the @RequestAttribute annotation, use that</li>
+     *  <li>If none of the above, use the client's path from @SimpleHttpClient</li>
+     *</ol>
+     * For 1 & 2, if the specified value is a path fragment, then append to the client's path. Also replaces path
+     * parameters with actual values. The annotation URL is parsed once when the plan is compiled, only a URL
+     * argument needs to be parsed per request.
+     */
+    private String getUrl(String host, Object[] args) {
+        final Object rawUrlArgument = urlIndex == NO_INDEX ? null : args[urlIndex];
+        if (rawUrlArgument != null) {
+            final UrlTemplate argumentTemplate = UrlTemplate.parse(Utils.stringify(rawUrlArgument));
+            return argumentTemplate.expand(host, args, argumentTemplate.resolveIndexes(pathParamNameToIndex));
+        }
+        return urlTemplate.expand(host, args, urlTemplateIndexes);
+    }
+
+    /**
+     * Builds the named parameters(headers or query params) of a request from the static values of the
+     * <code>@RequestAttribute</code> annotation and the single-value and map arguments of the invocation. The
+     * static values are not copied, the request map is an overlay of them.
+     */
+    private HttpMultiValueMap getNamedParams(HttpMultiValueMap staticValues, int[] singleValueIndexes,
+                                             String[] singleValueNames, int[] mapIndexes, Object[] args) {
+        final HttpMultiValueMap namedParams = new HttpMultiValueMap(staticValues);
+
+        // we will only add the named param if a value is provided
+        for (int i = 0; i < singleValueIndexes.length; i++) {
+            final Object rawValue = args[singleValueIndexes[i]];
+            if (rawValue != null) {
+                namedParams.add(singleValueNames[i], rawValue.toString());
+            }
+        }
+
+        // note that the map can be <String, String> OR <String, Collection<?>>
+        for (int mapIndex : mapIndexes) {
+            final Map<?, ?> map = (Map<?, ?>) args[mapIndex];
+            if (map == null) {
+                continue;
+            }
+            map.forEach((key, value) -> {
+                if (key != null && value != null) { // we will only add the param if a name and value is present
+                    final String name = key.toString();
+                    if (value instanceof Collection<?> valueCollection) {
+                        // name is mapped to a collection so we have multiple values
+                        for (Object singleValue : valueCollection) {
+                            if (singleValue != null) {
+                                namedParams.add(name, singleValue.toString());
+                            }
+                        }
+                    } else {
+                        namedParams.add(name, value.toString());
+                    }
+                }
+            });
+        }
+        return namedParams;
+    }
+
+    private static boolean isAsync(Method method) {
+        // CompletableFuture or any of its super types except Object, e.g. CompletionStage or Future
+        final Class<?> returnType = method == null ? Object.class : method.getReturnType();
+        return returnType != Object.class && returnType.isAssignableFrom(CompletableFuture.class);
+    }
+
+    /**
+     * The response of an asynchronous method is parsed into the type argument of its future, e.g.
+     * <code>CompletableFuture&lt;List&lt;Person&gt;&gt;</code> is parsed into <code>List&lt;Person&gt;</code>.
+     */
+    private static Type getAsyncResponseType(Type futureType) {
+        return getTypeArgument(futureType);
+    }
+
+    private static Type getTypeArgument(Type genericType) {
+        if (genericType instanceof ParameterizedType parameterizedType) {
+            final Type typeArgument = parameterizedType.getActualTypeArguments()[0];
+            if (typeArgument instanceof WildcardType wildcardType) {
+                return wildcardType.getUpperBounds()[0];
+            }
+            return typeArgument;
+        }
+        return Object.class;
+    }
+
+    private static Type getRawType(Type type) {
+        return type instanceof ParameterizedType parameterizedType ? parameterizedType.getRawType() : type;
+    }
+
+    private int[] toIndexArray(List<Integer> indexes) {
+        return indexes.isEmpty() ? NO_INDEXES : indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private String[] toNameArray(List<Integer> indexes) {
+        return indexes.isEmpty() ? NO_NAMES : indexes.stream()
+                .map(i -> ((NamedParameterMetaData) parameterMetaDataList.get(i)).getName())
+                .toArray(String[]::new);
+    }
+}
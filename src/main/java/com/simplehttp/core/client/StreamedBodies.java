@@ -0,0 +1,149 @@
+package com.simplehttp.core.client;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streamed response bodies(<code>InputStream</code>, <code>ReadableByteChannel</code>, <code>Stream</code> and
+ * <code>Iterator</code>), which are still being received when they are returned to the caller.
+ */
+final class StreamedBodies {
+
+    private StreamedBodies() {
+    }
+
+    /**
+     * @param response response returned by a client method
+     * @return true if the response is a body which is still being received
+     */
+    static boolean isStreamed(Object response) {
+        return response instanceof InputStream || response instanceof ReadableByteChannel
+                || response instanceof Stream || response instanceof Iterator;
+    }
+
+    /**
+     * Runs an action once a streamed body is closed. <code>Stream</code> and <code>Iterator</code> bodies also run it
+     * once their last element was read, which releases their body as well.
+     *
+     * @param body {@link #isStreamed(Object) streamed} body
+     * @param action action run once
+     * @return body running the action
+     */
+    static Object onClose(Object body, Runnable action) {
+        final Runnable once = runOnce(action);
+        if (body instanceof InputStream stream) {
+            return new FilterInputStream(stream) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        once.run();
+                    }
+                }
+            };
+        }
+        if (body instanceof ReadableByteChannel channel) {
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    return channel.read(dst);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        channel.close();
+                    } finally {
+                        once.run();
+                    }
+                }
+            };
+        }
+        if (body instanceof Stream<?> stream) {
+            final ClosingIterator elements = new ClosingIterator(stream.iterator(), stream, once);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+                    .onClose(elements::close);
+        }
+        final Iterator<?> iterator = (Iterator<?>) body;
+        return new ClosingIterator(iterator, iterator instanceof AutoCloseable closeable ? closeable : null, once);
+    }
+
+    private static Runnable runOnce(Runnable action) {
+        final AtomicBoolean ran = new AtomicBoolean();
+        return () -> {
+            if (ran.compareAndSet(false, true)) {
+                action.run();
+            }
+        };
+    }
+
+    /**
+     * Iterates the elements of a body and runs an action once they were read or the iterator is closed.
+     */
+    private static final class ClosingIterator implements Iterator<Object>, Closeable {
+
+        private final Iterator<?> elements;
+        private final AutoCloseable source;
+        private final Runnable action;
+
+        ClosingIterator(Iterator<?> elements, AutoCloseable source, Runnable action) {
+            this.elements = elements;
+            this.source = source;
+            this.action = action;
+        }
+
+        @Override
+        public boolean hasNext() {
+            final boolean hasNext;
+            try {
+                hasNext = elements.hasNext();
+            } catch (RuntimeException e) {
+                action.run();
+                throw e;
+            }
+            if (!hasNext) {
+                action.run();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Object next() {
+            return elements.next();
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (source != null) {
+                    source.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to close the response body", e);
+            } finally {
+                action.run();
+            }
+        }
+    }
+}
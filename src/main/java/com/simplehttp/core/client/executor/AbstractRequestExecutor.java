@@ -4,15 +4,23 @@ import com.simplehttp.core.client.HttpClient;
 import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
 import com.simplehttp.core.exception.ErrorHandlingException;
+import com.simplehttp.core.exception.HttpStatusException;
 import com.simplehttp.core.exception.ResponseInterceptorException;
 import com.simplehttp.core.exception.RequestInterceptorException;
 import com.simplehttp.core.exception.SimpleHttpException;
+import com.simplehttp.utils.Utils;
 import org.springframework.lang.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
 
 /**
  * Abstract RequestExecutor implementation that provides the core functionalities for orchestrating
@@ -20,6 +28,13 @@ import java.util.function.BinaryOperator;
  */
 public abstract class AbstractRequestExecutor implements RequestExecutor {
 
+    /**
+     * Error handlers of an executor which is a stage of another executor, see
+     * {@link #send(Request, HttpClient, AbstractRequestExecutor)}: errors are raised to the outer stage as they are,
+     * the error handlers only run once, in the outermost stage. Told apart by identity.
+     */
+    private static final List<ErrorHandler> RAISE_ERRORS = Collections.unmodifiableList(new ArrayList<>(0));
+
     /**
      * Executes a request. Subclasses may implement to provide request execution logic such as error handling,
      * retries, client-side load-balancing etc.
@@ -31,6 +46,20 @@ public abstract class AbstractRequestExecutor implements RequestExecutor {
      */
     public abstract Response executeRequest(Request request, HttpClient httpClient, List<ErrorHandler> errorHandlers);
 
+    /**
+     * Executes a request without blocking the calling thread. Subclasses may override to provide asynchronous request
+     * execution logic; the default runs {@link #executeRequest(Request, HttpClient, List)} on the calling thread.
+     *
+     * @param request request to execute
+     * @param httpClient client used to execute request
+     * @param errorHandlers list of error handlers
+     * @return future of the response
+     */
+    public CompletableFuture<Response> executeRequestAsync(Request request, HttpClient httpClient,
+                                                           List<ErrorHandler> errorHandlers) {
+        return callAsync(() -> CompletableFuture.completedFuture(executeRequest(request, httpClient, errorHandlers)));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -47,6 +76,23 @@ public abstract class AbstractRequestExecutor implements RequestExecutor {
         return processedResponse.getParsedResponse();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Object> executeAsync(Request request,
+                                                  HttpClient httpClient,
+                                                  List<RequestInterceptor> requestInterceptors,
+                                                  List<ResponseInterceptor> responseInterceptors,
+                                                  List<ErrorHandler> errorHandlers) {
+        return generateRequestAsync(request, httpClient, requestInterceptors)
+                .thenCompose(requestToExecute -> callAsync(() ->
+                                executeRequestAsync(requestToExecute, httpClient, errorHandlers))
+                        .thenCompose(response -> processResponseAsync(requestToExecute, response, httpClient,
+                                responseInterceptors)))
+                .thenApply(Response::getParsedResponse);
+    }
+
     protected Request generateRequest(Request originalRequest,
                                       HttpClient httpClient,
                                       List<RequestInterceptor> requestInterceptors) {
@@ -104,6 +150,208 @@ public abstract class AbstractRequestExecutor implements RequestExecutor {
                         response));
     }
 
+    /**
+     * Handles the error of a request which failed without a response: the error handlers produce the response, or
+     * the error is raised as a {@link SimpleHttpException} if there are none.
+     *
+     * @param request failed request
+     * @param error error of the request
+     * @param errorHandlers list of error handlers
+     * @return response of the error handlers
+     */
+    protected Response fail(Request request, Exception error, List<ErrorHandler> errorHandlers) {
+        if (errorHandlers == RAISE_ERRORS) {
+            throw new StageException(error);
+        }
+        if (Utils.isEmpty(errorHandlers)) {
+            throw new SimpleHttpException(String.format("Error while executing request [%s] %s",
+                    request.getHttpMethod(), request.getUrl()), request, error);
+        }
+        return handleErrors(request, null, error, errorHandlers);
+    }
+
+    /**
+     * Asynchronous variant of {@link #fail(Request, Exception, List)}.
+     *
+     * @param request failed request
+     * @param error error of the request
+     * @param errorHandlers list of error handlers
+     * @return future of the response of the error handlers, failed with a {@link SimpleHttpException} if there are
+     *         none
+     */
+    protected CompletableFuture<Response> failAsync(Request request, Exception error,
+                                                    List<ErrorHandler> errorHandlers) {
+        if (errorHandlers == RAISE_ERRORS) {
+            return CompletableFuture.failedFuture(error);
+        }
+        if (Utils.isEmpty(errorHandlers)) {
+            return CompletableFuture.failedFuture(new SimpleHttpException(String.format(
+                    "Error while executing request [%s] %s", request.getHttpMethod(), request.getUrl()),
+                    request, error));
+        }
+        return handleErrorsAsync(request, null, error, errorHandlers);
+    }
+
+    /**
+     * Sends a request with the HTTP client, or through the next stage if the executor wraps another one, e.g. a
+     * concurrency limiter wrapping a circuit breaker wrapping retries. The next stage does not run the interceptors
+     * and error handlers, its errors are thrown as they are.
+     *
+     * @param request request to send
+     * @param httpClient client used to execute request
+     * @param next executor wrapped by the calling executor; null to send the request with the HTTP client
+     * @return response
+     * @throws Exception error of the request
+     */
+    protected static Response send(Request request, HttpClient httpClient, @Nullable AbstractRequestExecutor next)
+            throws Exception {
+        if (next == null) {
+            return httpClient.execute(request);
+        }
+        try {
+            return next.executeRequest(request, httpClient, RAISE_ERRORS);
+        } catch (StageException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #send(Request, HttpClient, AbstractRequestExecutor)}.
+     *
+     * @param request request to send
+     * @param httpClient client used to execute request
+     * @param next executor wrapped by the calling executor; null to send the request with the HTTP client
+     * @return future of the response, failed with the error of the request
+     */
+    protected static CompletableFuture<Response> sendAsync(Request request, HttpClient httpClient,
+                                                           @Nullable AbstractRequestExecutor next) {
+        return next == null ? callAsync(() -> httpClient.executeAsync(request))
+                : callAsync(() -> next.executeRequestAsync(request, httpClient, RAISE_ERRORS));
+    }
+
+    protected CompletableFuture<Request> generateRequestAsync(Request originalRequest,
+                                                              HttpClient httpClient,
+                                                              List<RequestInterceptor> requestInterceptors) {
+
+        final BiFunction<Request, RequestInterceptor, CompletableFuture<Request>> requestProcessor =
+                (currentRequest, executor) -> callAsync(() -> executor.processAsync(currentRequest, httpClient))
+                        .handle((processedRequest, error) -> {
+                            if (error != null) {
+                                final Exception cause = toException(error);
+                                throw new RequestInterceptorException(String.format(
+                                        "Unexpected error while executing request processor: %s. Error: %s",
+                                        executor.getClass(), cause.getLocalizedMessage()), originalRequest, executor,
+                                        cause);
+                            }
+                            return processedRequest;
+                        });
+        return chainHandlersAsync(originalRequest, requestProcessor, requestInterceptors)
+                .thenApply(processedRequest -> Optional.ofNullable(processedRequest)
+                        .orElseThrow(() -> new RequestInterceptorException("No request was provided", originalRequest)));
+    }
+
+    protected CompletableFuture<Response> processResponseAsync(final Request executedRequest,
+                                                               Response originalResponse,
+                                                               final HttpClient httpClient,
+                                                               final List<ResponseInterceptor> responseInterceptors) {
+
+        final BiFunction<Response, ResponseInterceptor, CompletableFuture<Response>> responseProcessor =
+                (currentResponse, executor) -> callAsync(() ->
+                        executor.processAsync(currentResponse, executedRequest, httpClient))
+                        .handle((processedResponse, error) -> {
+                            if (error != null) {
+                                final Exception cause = toException(error);
+                                throw new ResponseInterceptorException(String.format(
+                                        "Unexpected error while executing response processor %s. Error: %s",
+                                        executor.getClass(), cause.getLocalizedMessage()), executedRequest,
+                                        currentResponse, executor, cause);
+                            }
+                            return processedResponse;
+                        });
+        return chainHandlersAsync(originalResponse, responseProcessor, responseInterceptors)
+                .thenApply(processedResponse -> Optional.ofNullable(processedResponse)
+                        .orElseThrow(() -> new ResponseInterceptorException("No response was returned",
+                                executedRequest, originalResponse)));
+    }
+
+    protected CompletableFuture<Response> handleErrorsAsync(final Request request, @Nullable Response response,
+                                                            Exception error, List<ErrorHandler> errorHandlers) {
+        final BiFunction<Response, ErrorHandler, CompletableFuture<Response>> responseProcessor =
+                (currentResponse, executor) -> callAsync(() -> executor.handleErrorAsync(request, currentResponse, error))
+                        .handle((handledResponse, handlerError) -> {
+                            if (handlerError != null) {
+                                final Exception cause = toException(handlerError);
+                                throw new ErrorHandlingException(String.format(
+                                        "Unexpected error while invoking error handler %s. Error: %s",
+                                        executor.getClass(), cause.getLocalizedMessage()), request, error, response,
+                                        executor, cause);
+                            }
+                            return handledResponse;
+                        });
+        return chainHandlersAsync(response, responseProcessor, errorHandlers)
+                .thenApply(processedResponse -> Optional.ofNullable(processedResponse)
+                        .orElseThrow(() -> new ResponseInterceptorException("No response was returned", request,
+                                response)));
+    }
+
+    /**
+     * Calls an asynchronous operation, turning errors thrown before a future is returned into a failed future.
+     *
+     * @param call asynchronous operation
+     * @param <T> result type
+     * @return future returned by the call or a failed future
+     */
+    protected static <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        try {
+            return Optional.ofNullable(call.get())
+                    .orElseGet(() -> CompletableFuture.failedFuture(new IllegalStateException("No future was returned")));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Unwraps the error a future completed with from the {@link CompletionException} wrapping it.
+     *
+     * @param error error of a future
+     * @return the error as an exception; errors are rethrown
+     */
+    protected static Exception toException(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || cause instanceof StageException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Error fatalError) {
+            throw fatalError;
+        }
+        return (Exception) cause;
+    }
+
+    /**
+     * Finds the status code of an error response, e.g. to tell server errors from network errors.
+     *
+     * @param error error of a request
+     * @return status code of the error response; null if the request failed without a response
+     */
+    protected static Integer getStatusCode(Exception error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusException statusException) {
+                return statusException.getStatusCode();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Carries the error of a stage to the stage wrapping it through methods which cannot throw checked exceptions.
+     */
+    private static final class StageException extends RuntimeException {
+        private StageException(Exception cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+    }
+
     private <T, R> T chainHandlers(T start, BiFunction<T, R, T> processor, List<R> executors) {
         // request/response/error handler directly mutate the passed in object, so we just take the latest value
         // without actual logic to combine the previous and the new value
@@ -114,4 +362,14 @@ public abstract class AbstractRequestExecutor implements RequestExecutor {
                 .stream()
                 .reduce(start, processor, lazyCombiner);
     }
+
+    private <T, R> CompletableFuture<T> chainHandlersAsync(T start, BiFunction<T, R, CompletableFuture<T>> processor,
+                                                           List<R> executors) {
+        // each handler starts once the previous one completed, without blocking a thread in between
+        CompletableFuture<T> result = CompletableFuture.completedFuture(start);
+        for (R executor : Optional.ofNullable(executors).orElse(List.of())) {
+            result = result.thenCompose(current -> processor.apply(current, executor));
+        }
+        return result;
+    }
 }
@@ -0,0 +1,40 @@
+package com.simplehttp.core.client.executor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Additive increase, multiplicative decrease {@link ConcurrencyLimit}, see
+ * {@link ConcurrencyLimit#aimd(int, int, java.time.Duration)}.
+ */
+final class AimdLimit implements ConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int maxLimit;
+    private final long timeoutNanos;
+    private final AtomicInteger limit;
+
+    AimdLimit(int initialLimit, int maxLimit, long timeoutNanos) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Initial limit must be at least 1 and at most the maximum limit!");
+        }
+        this.maxLimit = maxLimit;
+        this.timeoutNanos = timeoutNanos;
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    @Override
+    public int getLimit() {
+        return limit.get();
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > timeoutNanos) {
+            limit.updateAndGet(current -> Math.max(1, (int) (current * BACKOFF_RATIO)));
+        } else {
+            // a limit which is not used up says nothing about whether a higher one would be
+            limit.updateAndGet(current -> inFlight * 2 >= current ? Math.min(maxLimit, current + 1) : current);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.simplehttp.core.client.executor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A circuit of a {@link CircuitBreakerRequestExecutor} without locks: the outcomes of requests are counted in a ring of
+ * time buckets, which are replaced by compare-and-set once they fall out of the window, and state changes replace an
+ * immutable state by compare-and-set. Requests of a closed circuit only increment counters, the window is summed up
+ * when a request failed or was slow.
+ */
+final class Circuit {
+
+    private static final int BUCKETS = 10;
+
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final CircuitBreakerListener listener;
+    private final long bucketNanos;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKETS);
+    private final AtomicReference<State> state = new AtomicReference<>(new State(CircuitState.CLOSED, 0, 0));
+
+    Circuit(String name, CircuitBreakerConfig config, CircuitBreakerListener listener) {
+        this.name = name;
+        this.config = config;
+        this.listener = listener;
+        this.bucketNanos = Math.max(1, config.getWindow().toNanos() / BUCKETS);
+        this.slowCallNanos = config.getSlowCallDuration().toNanos();
+        this.openNanos = config.getOpenDuration().toNanos();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    CircuitState getState() {
+        return state.get().circuitState;
+    }
+
+    /**
+     * Acquires a permission to send a request. An open circuit turns half-open once its open duration passed, a
+     * half-open circuit permits its probe requests.
+     *
+     * @param now current time in nanoseconds
+     * @return state the request was permitted in, to be passed to {@link #onResult(State, long, boolean, long)};
+     *         null if the request is rejected
+     */
+    State tryAcquire(long now) {
+        while (true) {
+            final State current = state.get();
+            if (current.circuitState == CircuitState.CLOSED) {
+                return current;
+            }
+            if (current.circuitState == CircuitState.HALF_OPEN
+                    && current.permits.getAndUpdate(permits -> Math.max(0, permits - 1)) > 0) {
+                return current;
+            }
+            // probes which did not complete within another open duration are given up on
+            if (now - current.since < openNanos) {
+                return null;
+            }
+            transition(current, new State(CircuitState.HALF_OPEN, now, config.getHalfOpenCalls()));
+        }
+    }
+
+    /**
+     * Records the outcome of a permitted request.
+     *
+     * @param permitted state returned by {@link #tryAcquire(long)}
+     * @param durationNanos duration of the request
+     * @param failed whether the request failed
+     * @param now current time in nanoseconds
+     */
+    void onResult(State permitted, long durationNanos, boolean failed, long now) {
+        final boolean slow = durationNanos >= slowCallNanos;
+        if (permitted.circuitState == CircuitState.HALF_OPEN) {
+            if (failed || slow) {
+                transition(permitted, new State(CircuitState.OPEN, now, 0));
+            } else if (permitted.successes.incrementAndGet() >= config.getHalfOpenCalls()
+                    && transition(permitted, new State(CircuitState.CLOSED, now, 0))) {
+                // the failures which opened the circuit do not count against it once it closed
+                reset();
+            }
+            return;
+        }
+        final long epoch = Math.floorDiv(now, bucketNanos);
+        final Bucket bucket = getBucket(epoch);
+        bucket.calls.incrementAndGet();
+        if (failed) {
+            bucket.failures.incrementAndGet();
+        }
+        if (slow) {
+            bucket.slowCalls.incrementAndGet();
+        }
+        if ((failed || slow) && state.get() == permitted && isOverThreshold(epoch)) {
+            transition(permitted, new State(CircuitState.OPEN, now, 0));
+        }
+    }
+
+    /**
+     * Returns the permission of a request whose outcome says nothing about the server, e.g. a cancelled request.
+     *
+     * @param permitted state returned by {@link #tryAcquire(long)}
+     */
+    void onIgnored(State permitted) {
+        if (permitted.circuitState == CircuitState.HALF_OPEN) {
+            permitted.permits.incrementAndGet();
+        }
+    }
+
+    private boolean isOverThreshold(long epoch) {
+        long calls = 0;
+        long failures = 0;
+        long slowCalls = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            final Bucket bucket = buckets.get(i);
+            if (bucket != null && epoch - bucket.epoch < BUCKETS) {
+                calls += bucket.calls.get();
+                failures += bucket.failures.get();
+                slowCalls += bucket.slowCalls.get();
+            }
+        }
+        return calls >= config.getMinimumCalls() && calls > 0
+                && (failures * 100.0 >= config.getFailureRateThreshold() * calls
+                || slowCalls * 100.0 >= config.getSlowCallRateThreshold() * calls);
+    }
+
+    private Bucket getBucket(long epoch) {
+        final int index = Math.floorMod(epoch, BUCKETS);
+        while (true) {
+            final Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.epoch == epoch) {
+                return bucket;
+            }
+            final Bucket next = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, next)) {
+                return next;
+            }
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        listener.onStateChange(name, from.circuitState, to.circuitState);
+        return true;
+    }
+
+    /**
+     * Immutable state of a circuit; the counters of the probe requests of a half-open circuit belong to it, so that
+     * they start over whenever the circuit turns half-open.
+     */
+    static final class State {
+        private final CircuitState circuitState;
+        private final long since;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private State(CircuitState circuitState, long since, int permits) {
+            this.circuitState = circuitState;
+            this.since = since;
+            this.permits = new AtomicInteger(permits);
+        }
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.simplehttp.core.client.executor;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thresholds of a circuit of a {@link CircuitBreakerRequestExecutor}. A closed circuit opens when, within the sliding
+ * window, at least <code>minimumCalls</code> requests completed and the rate of failed or of slow requests reached its
+ * threshold. An open circuit rejects requests until <code>openDuration</code> passed, then lets
+ * <code>halfOpenCalls</code> probe requests through: the circuit closes if all of them succeed and opens again
+ * otherwise.
+ */
+@Getter
+@Builder
+public class CircuitBreakerConfig {
+    /**
+     * Percentage of failed requests in the window at which the circuit opens. Network errors and 5xx responses are
+     * failures, other error responses are not.
+     */
+    @Builder.Default
+    private final double failureRateThreshold = 50;
+    /**
+     * Percentage of slow requests in the window at which the circuit opens; 100 only opens it when all requests are
+     * slow.
+     */
+    @Builder.Default
+    private final double slowCallRateThreshold = 100;
+    /**
+     * Duration from which a request counts as slow, whether it succeeded or not.
+     */
+    @Builder.Default
+    private final Duration slowCallDuration = Duration.ofSeconds(5);
+    /**
+     * Length of the sliding window whose requests are evaluated.
+     */
+    @Builder.Default
+    private final Duration window = Duration.ofSeconds(10);
+    /**
+     * Minimum number of requests in the window before the rates are evaluated.
+     */
+    @Builder.Default
+    private final int minimumCalls = 10;
+    /**
+     * Time an open circuit rejects requests before it lets probe requests through.
+     */
+    @Builder.Default
+    private final Duration openDuration = Duration.ofSeconds(30);
+    /**
+     * Number of probe requests of a half-open circuit.
+     */
+    @Builder.Default
+    private final int halfOpenCalls = 3;
+}
@@ -0,0 +1,30 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.client.model.Request;
+
+/**
+ * Observes the circuits of a {@link CircuitBreakerRequestExecutor}, e.g. to log state changes or to count rejected
+ * requests as metrics. Called on the thread which completed or rejected a request, so implementations should not
+ * block.
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Called when a circuit changes its state.
+     *
+     * @param circuit name of the circuit; the scheme and authority of a host, or the client method
+     * @param from previous state
+     * @param to new state
+     */
+    default void onStateChange(String circuit, CircuitState from, CircuitState to) {
+    }
+
+    /**
+     * Called when a request is rejected because its circuit is open.
+     *
+     * @param request rejected request
+     * @param circuit name of the circuit which rejected the request
+     */
+    default void onRejected(Request request, String circuit) {
+    }
+}
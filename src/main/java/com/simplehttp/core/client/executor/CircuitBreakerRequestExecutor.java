@@ -0,0 +1,321 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.CircuitBreakerOpenException;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A RequestExecutor that stops sending requests to a degraded server: every host and every client method has a
+ * circuit which opens when too many of its recent requests failed or were slow, see {@link CircuitBreakerConfig}.
+ * Requests whose host or method circuit is open are not sent, they fail right away with a
+ * {@link CircuitBreakerOpenException} which is passed to the error handlers, so that a fallback is returned without
+ * waiting for a timeout.
+ *
+ * Circuits count requests with atomic counters instead of locks, so that the executor does not serialize the requests
+ * of a client.
+ */
+public class CircuitBreakerRequestExecutor extends AbstractRequestExecutor {
+
+    private static final CircuitBreakerListener NO_LISTENER = new CircuitBreakerListener() { };
+
+    private final CircuitBreakerConfig hostConfig;
+    private final CircuitBreakerConfig defaultConfig;
+    private final Map<Method, CircuitBreakerConfig> methodConfigs;
+    private final CircuitBreakerListener listener;
+    /**
+     * Stage the requests are sent through; null to send them with the HTTP client.
+     */
+    private final AbstractRequestExecutor next;
+    private final Map<String, Circuit> hostCircuits = new ConcurrentHashMap<>();
+    private final Map<Method, Circuit> methodCircuits = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRequestExecutor() {
+        this(new Builder());
+    }
+
+    private CircuitBreakerRequestExecutor(Builder builder) {
+        this.hostConfig = builder.hostConfig;
+        this.defaultConfig = builder.defaultConfig;
+        this.methodConfigs = Map.copyOf(builder.methodConfigs);
+        this.listener = builder.listener;
+        this.next = builder.next;
+    }
+
+    /**
+     * @return builder of a configured executor
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param method client method
+     * @return state of the circuit of the method; closed if the method was not called yet
+     */
+    public CircuitState getState(Method method) {
+        return Optional.ofNullable(methodCircuits.get(method)).map(Circuit::getState).orElse(CircuitState.CLOSED);
+    }
+
+    /**
+     * @param host scheme and authority of a host, e.g. <code>https://api.example.com:8443</code>
+     * @return state of the circuit of the host; closed if the host was not called yet
+     */
+    public CircuitState getHostState(String host) {
+        return Optional.ofNullable(hostCircuits.get(host)).map(Circuit::getState).orElse(CircuitState.CLOSED);
+    }
+
+    @Override
+    public Response executeRequest(Request request, HttpClient httpClient, List<ErrorHandler> errorHandlers) {
+        final Permit permit = acquire(request);
+        if (permit.rejectedBy != null) {
+            return fail(request, reject(request, permit.rejectedBy), errorHandlers);
+        }
+        final Response response;
+        try {
+            response = send(request, httpClient, next);
+        } catch (Exception e) {
+            permit.complete(e);
+            return fail(request, e, errorHandlers);
+        }
+        permit.complete(null);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<Response> executeRequestAsync(Request request, HttpClient httpClient,
+                                                           List<ErrorHandler> errorHandlers) {
+        final Permit permit = acquire(request);
+        if (permit.rejectedBy != null) {
+            return failAsync(request, reject(request, permit.rejectedBy), errorHandlers);
+        }
+        return sendAsync(request, httpClient, next)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        permit.complete(null);
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    final Exception cause = toException(error);
+                    permit.complete(cause);
+                    return failAsync(request, cause, errorHandlers);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Acquires the permissions of the host and the method circuit of a request. The permission of the host is given
+     * back if the method circuit rejects the request.
+     */
+    private Permit acquire(Request request) {
+        final long now = System.nanoTime();
+        final Circuit hostCircuit = getHostCircuit(request);
+        final Circuit methodCircuit = getMethodCircuit(request);
+        final Circuit.State hostState = hostCircuit == null ? null : hostCircuit.tryAcquire(now);
+        if (hostCircuit != null && hostState == null) {
+            return new Permit(hostCircuit);
+        }
+        final Circuit.State methodState = methodCircuit == null ? null : methodCircuit.tryAcquire(now);
+        if (methodCircuit != null && methodState == null) {
+            if (hostCircuit != null) {
+                hostCircuit.onIgnored(hostState);
+            }
+            return new Permit(methodCircuit);
+        }
+        return new Permit(now, hostCircuit, hostState, methodCircuit, methodState);
+    }
+
+    private CircuitBreakerOpenException reject(Request request, Circuit circuit) {
+        listener.onRejected(request, circuit.getName());
+        return new CircuitBreakerOpenException(String.format("Circuit %s is open, request [%s] %s was not sent",
+                circuit.getName(), request.getHttpMethod(), request.getUrl()), request, circuit.getName());
+    }
+
+    private Circuit getHostCircuit(Request request) {
+        final String host = getHost(request.getUrl());
+        if (host == null) {
+            return null;
+        }
+        final Circuit circuit = hostCircuits.get(host);
+        return circuit != null ? circuit
+                : hostCircuits.computeIfAbsent(host, h -> new Circuit(h, hostConfig, listener));
+    }
+
+    private Circuit getMethodCircuit(Request request) {
+        final Method method = request.getMethod();
+        if (method == null) {
+            return null;
+        }
+        final Circuit circuit = methodCircuits.get(method);
+        return circuit != null ? circuit : methodCircuits.computeIfAbsent(method, m -> new Circuit(
+                m.getDeclaringClass().getSimpleName() + "#" + m.getName(),
+                methodConfigs.getOrDefault(m, defaultConfig), listener));
+    }
+
+    /**
+     * @param url request URL
+     * @return scheme and authority of the URL; null if it has none
+     */
+    static String getHost(String url) {
+        if (url == null) {
+            return null;
+        }
+        final int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0) {
+            return null;
+        }
+        int end = schemeEnd + 3;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        return url.substring(0, end);
+    }
+
+    /**
+     * Whether an error counts against the circuits: network errors and server errors do, client errors(4xx) do not.
+     *
+     * @return null if the error says nothing about the server, like a cancelled request
+     */
+    private static Boolean isFailure(Exception error) {
+        if (error instanceof CancellationException) {
+            return null;
+        }
+        final Integer statusCode = getStatusCode(error);
+        return statusCode == null || statusCode >= 500;
+    }
+
+    /**
+     * The permissions a request was sent with, or the circuit which rejected it.
+     */
+    private static final class Permit {
+        private final long start;
+        private final Circuit hostCircuit;
+        private final Circuit.State hostState;
+        private final Circuit methodCircuit;
+        private final Circuit.State methodState;
+        private final Circuit rejectedBy;
+
+        private Permit(Circuit rejectedBy) {
+            this(0, null, null, null, null, rejectedBy);
+        }
+
+        private Permit(long start, Circuit hostCircuit, Circuit.State hostState, Circuit methodCircuit,
+                       Circuit.State methodState) {
+            this(start, hostCircuit, hostState, methodCircuit, methodState, null);
+        }
+
+        private Permit(long start, Circuit hostCircuit, Circuit.State hostState, Circuit methodCircuit,
+                       Circuit.State methodState, Circuit rejectedBy) {
+            this.start = start;
+            this.hostCircuit = hostCircuit;
+            this.hostState = hostState;
+            this.methodCircuit = methodCircuit;
+            this.methodState = methodState;
+            this.rejectedBy = rejectedBy;
+        }
+
+        /**
+         * Records the outcome of the request in its circuits.
+         *
+         * @param error error of the request; null if it succeeded
+         */
+        void complete(Exception error) {
+            final Boolean failed = error == null ? Boolean.FALSE : isFailure(error);
+            final long now = System.nanoTime();
+            if (hostCircuit != null) {
+                record(hostCircuit, hostState, failed, now);
+            }
+            if (methodCircuit != null) {
+                record(methodCircuit, methodState, failed, now);
+            }
+        }
+
+        private void record(Circuit circuit, Circuit.State state, Boolean failed, long now) {
+            if (failed == null) {
+                circuit.onIgnored(state);
+            } else {
+                circuit.onResult(state, now - start, failed, now);
+            }
+        }
+    }
+
+    /**
+     * Configuration of a {@link CircuitBreakerRequestExecutor}.
+     */
+    public static class Builder {
+
+        private CircuitBreakerConfig hostConfig = CircuitBreakerConfig.builder().build();
+        private CircuitBreakerConfig defaultConfig = CircuitBreakerConfig.builder().build();
+        private final Map<Method, CircuitBreakerConfig> methodConfigs = new HashMap<>();
+        private CircuitBreakerListener listener = NO_LISTENER;
+        private AbstractRequestExecutor next;
+
+        /**
+         * @param hostConfig configuration of the circuits of the hosts
+         * @return Builder
+         */
+        public Builder withHostConfig(CircuitBreakerConfig hostConfig) {
+            this.hostConfig = Optional.ofNullable(hostConfig)
+                    .orElseThrow(() -> new IllegalArgumentException("Host circuit breaker config cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param defaultConfig configuration of the circuits of methods without a configuration of their own
+         * @return Builder
+         */
+        public Builder withDefaultConfig(CircuitBreakerConfig defaultConfig) {
+            this.defaultConfig = Optional.ofNullable(defaultConfig)
+                    .orElseThrow(() -> new IllegalArgumentException("Default circuit breaker config cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param method client method
+         * @param config configuration of the circuit of the method
+         * @return Builder
+         */
+        public Builder withConfig(Method method, CircuitBreakerConfig config) {
+            methodConfigs.put(Optional.ofNullable(method)
+                            .orElseThrow(() -> new IllegalArgumentException("Method cannot be null!")),
+                    Optional.ofNullable(config)
+                            .orElseThrow(() -> new IllegalArgumentException("Circuit breaker config cannot be null!")));
+            return this;
+        }
+
+        /**
+         * @param listener listener notified of state changes and rejected requests
+         * @return Builder
+         */
+        public Builder withListener(CircuitBreakerListener listener) {
+            this.listener = Optional.ofNullable(listener)
+                    .orElseThrow(() -> new IllegalArgumentException("Circuit breaker listener cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param next executor the requests are sent through instead of the HTTP client, e.g. a
+         *             {@link RetryingRequestExecutor}, so that a request is recorded once in its circuits however
+         *             often it was retried; only the interceptors and error handlers of the outermost executor run
+         * @return Builder
+         */
+        public Builder withNext(AbstractRequestExecutor next) {
+            this.next = Optional.ofNullable(next)
+                    .orElseThrow(() -> new IllegalArgumentException("Next executor cannot be null!"));
+            return this;
+        }
+
+        public CircuitBreakerRequestExecutor build() {
+            return new CircuitBreakerRequestExecutor(this);
+        }
+    }
+}
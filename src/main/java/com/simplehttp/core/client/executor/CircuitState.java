@@ -0,0 +1,19 @@
+package com.simplehttp.core.client.executor;
+
+/**
+ * State of a circuit of a {@link CircuitBreakerRequestExecutor}.
+ */
+public enum CircuitState {
+    /**
+     * Requests are sent and their outcome is recorded.
+     */
+    CLOSED,
+    /**
+     * Requests are rejected without being sent.
+     */
+    OPEN,
+    /**
+     * A limited number of probe requests are sent to decide whether the circuit closes again.
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,62 @@
+package com.simplehttp.core.client.executor;
+
+import java.time.Duration;
+
+/**
+ * Algorithm deciding how many requests a {@link ConcurrencyLimitingRequestExecutor} sends at the same time. Adaptive
+ * limits adjust themselves to the round trip times of completed requests: when a server queues requests, their round
+ * trip times grow and the limit shrinks before the queue does.
+ *
+ * Implementations are called concurrently by the requests they limit and must be thread-safe.
+ */
+public interface ConcurrencyLimit {
+
+    /**
+     * @return current maximum number of requests in flight
+     */
+    int getLimit();
+
+    /**
+     * Adjusts the limit to a completed request.
+     *
+     * @param rttNanos round trip time of the request
+     * @param inFlight number of requests in flight when the request completed, including itself
+     * @param dropped whether the request failed in a way that signals overload, like a network error, a timeout or a
+     *                429 or 503 response
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+
+    /**
+     * @param limit maximum number of requests in flight
+     * @return limit which does not change
+     */
+    static ConcurrencyLimit fixed(int limit) {
+        return new FixedLimit(limit);
+    }
+
+    /**
+     * Additive increase, multiplicative decrease: the limit grows by one for a request which completed in time while
+     * at least half of the limit was in use, and shrinks by 10% for a dropped request or one slower than the timeout.
+     *
+     * @param initialLimit limit before the first request
+     * @param maxLimit upper bound of the limit
+     * @param timeout round trip time from which a request counts as dropped
+     * @return AIMD limit
+     */
+    static ConcurrencyLimit aimd(int initialLimit, int maxLimit, Duration timeout) {
+        return new AimdLimit(initialLimit, maxLimit, timeout.toNanos());
+    }
+
+    /**
+     * Gradient limit: the limit follows the ratio of the long-term average round trip time to the round trip time of
+     * the latest request. It shrinks as soon as requests take longer than usual and grows while they do not, plus a
+     * small queue allowance so that it can find out whether more requests complete just as fast.
+     *
+     * @param initialLimit limit before the first request
+     * @param maxLimit upper bound of the limit
+     * @return gradient limit
+     */
+    static ConcurrencyLimit gradient(int initialLimit, int maxLimit) {
+        return new GradientLimit(initialLimit, maxLimit);
+    }
+}
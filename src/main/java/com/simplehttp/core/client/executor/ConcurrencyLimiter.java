@@ -0,0 +1,53 @@
+package com.simplehttp.core.client.executor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the requests in flight of a client or a client method against a {@link ConcurrencyLimit}. Requests acquire
+ * a slot by compare-and-set, so that requests over the limit are shed without waiting for a lock.
+ */
+final class ConcurrencyLimiter {
+
+    private final ConcurrencyLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    ConcurrencyLimiter(ConcurrencyLimit limit) {
+        this.limit = limit;
+    }
+
+    int getLimit() {
+        return limit.getLimit();
+    }
+
+    /**
+     * @return true if the request may be sent; false if the limit is used up
+     */
+    boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases the slot of a completed request and adjusts the limit to it.
+     *
+     * @param rttNanos round trip time of the request
+     * @param dropped whether the request failed in a way that signals overload
+     */
+    void release(long rttNanos, boolean dropped) {
+        limit.onSample(rttNanos, inFlight.getAndDecrement(), dropped);
+    }
+
+    /**
+     * Releases the slot of a request whose round trip time says nothing about the server, e.g. a cancelled request.
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+}
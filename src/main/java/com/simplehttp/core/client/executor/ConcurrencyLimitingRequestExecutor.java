@@ -0,0 +1,239 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.ConcurrencyLimitExceededException;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A RequestExecutor that limits the number of requests in flight of every client, and optionally of every client
+ * method, with a {@link ConcurrencyLimit}. Requests over the limit are not queued: they fail right away with a
+ * {@link ConcurrencyLimitExceededException} which is passed to the error handlers, so that a traffic spike is shed
+ * instead of growing a queue in front of a server which is already at capacity.
+ *
+ * The default limit is a {@link ConcurrencyLimit#gradient(int, int) gradient limit}, which adapts to the round trip
+ * times of the requests. Clients are told apart by their interface.
+ */
+public class ConcurrencyLimitingRequestExecutor extends AbstractRequestExecutor {
+
+    private final Supplier<? extends ConcurrencyLimit> clientLimit;
+    private final Supplier<? extends ConcurrencyLimit> methodLimit;
+    /**
+     * Stage the requests are sent through; null to send them with the HTTP client.
+     */
+    private final AbstractRequestExecutor next;
+    private final Map<Class<?>, ConcurrencyLimiter> clientLimiters = new ConcurrentHashMap<>();
+    private final Map<Method, ConcurrencyLimiter> methodLimiters = new ConcurrentHashMap<>();
+    /**
+     * Limiter of requests which do not belong to a client method.
+     */
+    private final ConcurrencyLimiter defaultLimiter;
+
+    public ConcurrencyLimitingRequestExecutor() {
+        this(new Builder());
+    }
+
+    private ConcurrencyLimitingRequestExecutor(Builder builder) {
+        this.clientLimit = builder.clientLimit;
+        this.methodLimit = builder.methodLimit;
+        this.next = builder.next;
+        this.defaultLimiter = new ConcurrencyLimiter(clientLimit.get());
+    }
+
+    /**
+     * @return builder of a configured executor
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param clientType client interface
+     * @return current concurrency limit of the client; -1 if the client was not called yet
+     */
+    public int getLimit(Class<?> clientType) {
+        return Optional.ofNullable(clientLimiters.get(clientType)).map(ConcurrencyLimiter::getLimit).orElse(-1);
+    }
+
+    @Override
+    public Response executeRequest(Request request, HttpClient httpClient, List<ErrorHandler> errorHandlers) {
+        final Permit permit = acquire(request);
+        if (permit.rejectedBy != null) {
+            return fail(request, shed(request, permit.rejectedBy), errorHandlers);
+        }
+        final Response response;
+        try {
+            response = send(request, httpClient, next);
+        } catch (Exception e) {
+            permit.release(e);
+            return fail(request, e, errorHandlers);
+        }
+        permit.release(null);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<Response> executeRequestAsync(Request request, HttpClient httpClient,
+                                                           List<ErrorHandler> errorHandlers) {
+        final Permit permit = acquire(request);
+        if (permit.rejectedBy != null) {
+            return failAsync(request, shed(request, permit.rejectedBy), errorHandlers);
+        }
+        return sendAsync(request, httpClient, next)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        permit.release(null);
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    final Exception cause = toException(error);
+                    permit.release(cause);
+                    return failAsync(request, cause, errorHandlers);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Acquires a slot of the client limiter and, if methods are limited, of the method limiter of a request. The
+     * slot of the client is released if the method limiter sheds the request.
+     */
+    private Permit acquire(Request request) {
+        final Method method = request.getMethod();
+        final ConcurrencyLimiter clientLimiter = method == null ? defaultLimiter : clientLimiters
+                .computeIfAbsent(method.getDeclaringClass(), type -> new ConcurrencyLimiter(clientLimit.get()));
+        if (!clientLimiter.tryAcquire()) {
+            return new Permit(clientLimiter);
+        }
+        final ConcurrencyLimiter methodLimiter = method == null || methodLimit == null ? null : methodLimiters
+                .computeIfAbsent(method, m -> new ConcurrencyLimiter(methodLimit.get()));
+        if (methodLimiter != null && !methodLimiter.tryAcquire()) {
+            clientLimiter.release();
+            return new Permit(methodLimiter);
+        }
+        return new Permit(System.nanoTime(), clientLimiter, methodLimiter);
+    }
+
+    private ConcurrencyLimitExceededException shed(Request request, ConcurrencyLimiter limiter) {
+        final int limit = limiter.getLimit();
+        return new ConcurrencyLimitExceededException(String.format(
+                "Concurrency limit of %d requests is reached, request [%s] %s was not sent", limit,
+                request.getHttpMethod(), request.getUrl()), request, limit);
+    }
+
+    /**
+     * Whether an error signals an overloaded server: network errors and 429 and 503 responses do, other error
+     * responses are regular round trips.
+     *
+     * @return null if the error says nothing about the server, like a cancelled request
+     */
+    private static Boolean isDropped(Exception error) {
+        if (error instanceof CancellationException) {
+            return null;
+        }
+        final Integer statusCode = getStatusCode(error);
+        return statusCode == null || statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * The slots a request was sent with, or the limiter which shed it.
+     */
+    private static final class Permit {
+        private final long start;
+        private final ConcurrencyLimiter clientLimiter;
+        private final ConcurrencyLimiter methodLimiter;
+        private final ConcurrencyLimiter rejectedBy;
+
+        private Permit(ConcurrencyLimiter rejectedBy) {
+            this.start = 0;
+            this.clientLimiter = null;
+            this.methodLimiter = null;
+            this.rejectedBy = rejectedBy;
+        }
+
+        private Permit(long start, ConcurrencyLimiter clientLimiter, ConcurrencyLimiter methodLimiter) {
+            this.start = start;
+            this.clientLimiter = clientLimiter;
+            this.methodLimiter = methodLimiter;
+            this.rejectedBy = null;
+        }
+
+        /**
+         * Releases the slots of the request, adjusting the limits to its outcome.
+         *
+         * @param error error of the request; null if it succeeded
+         */
+        void release(Exception error) {
+            final Boolean dropped = error == null ? Boolean.FALSE : isDropped(error);
+            final long rttNanos = System.nanoTime() - start;
+            release(clientLimiter, rttNanos, dropped);
+            if (methodLimiter != null) {
+                release(methodLimiter, rttNanos, dropped);
+            }
+        }
+
+        private static void release(ConcurrencyLimiter limiter, long rttNanos, Boolean dropped) {
+            if (dropped == null) {
+                limiter.release();
+            } else {
+                limiter.release(rttNanos, dropped);
+            }
+        }
+    }
+
+    /**
+     * Configuration of a {@link ConcurrencyLimitingRequestExecutor}.
+     */
+    public static class Builder {
+
+        private Supplier<? extends ConcurrencyLimit> clientLimit = () -> ConcurrencyLimit.gradient(20, 200);
+        private Supplier<? extends ConcurrencyLimit> methodLimit;
+        private AbstractRequestExecutor next;
+
+        /**
+         * @param clientLimit creates the limit of each client, e.g. <code>() -&gt; ConcurrencyLimit.fixed(50)</code>;
+         *                    a gradient limit starting at 20 requests by default
+         * @return Builder
+         */
+        public Builder withLimit(Supplier<? extends ConcurrencyLimit> clientLimit) {
+            this.clientLimit = Optional.ofNullable(clientLimit)
+                    .orElseThrow(() -> new IllegalArgumentException("Concurrency limit cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param methodLimit creates the limit of each client method, which applies in addition to the limit of its
+         *                    client; methods are not limited by default
+         * @return Builder
+         */
+        public Builder withMethodLimit(Supplier<? extends ConcurrencyLimit> methodLimit) {
+            this.methodLimit = Optional.ofNullable(methodLimit)
+                    .orElseThrow(() -> new IllegalArgumentException("Method concurrency limit cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param next executor the requests are sent through once they got a slot, e.g. a
+         *             {@link CircuitBreakerRequestExecutor}; only the interceptors and error handlers of the outermost
+         *             executor run
+         * @return Builder
+         */
+        public Builder withNext(AbstractRequestExecutor next) {
+            this.next = Optional.ofNullable(next)
+                    .orElseThrow(() -> new IllegalArgumentException("Next executor cannot be null!"));
+            return this;
+        }
+
+        public ConcurrencyLimitingRequestExecutor build() {
+            return new ConcurrencyLimitingRequestExecutor(this);
+        }
+    }
+}
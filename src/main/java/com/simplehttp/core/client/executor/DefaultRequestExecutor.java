@@ -3,28 +3,93 @@ package com.simplehttp.core.client.executor;
 import com.simplehttp.core.client.HttpClient;
 import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
-import com.simplehttp.core.exception.SimpleHttpException;
-import com.simplehttp.utils.Utils;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * A basic RequestExecutor that executes a Request and handle errors.
+ *
+ * Asynchronous requests are executed with {@link HttpClient#executeAsync(Request)}. For HTTP clients which only
+ * implement the blocking {@link HttpClient#execute(Request)}, an executor for blocking calls can be provided(e.g.
+ * {@link com.simplehttp.utils.VirtualThreads#newExecutor()}), otherwise they block the calling thread.
  */
 public class DefaultRequestExecutor extends AbstractRequestExecutor {
 
+    /**
+     * Whether an HTTP client class implements non-blocking asynchronous execution.
+     */
+    private static final ClassValue<Boolean> SUPPORTS_ASYNC = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> httpClientType) {
+            try {
+                return httpClientType.getMethod("executeAsync", Request.class).getDeclaringClass() != HttpClient.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    private final Executor blockingExecutor;
+
+    public DefaultRequestExecutor() {
+        this(null);
+    }
+
+    /**
+     * @param blockingExecutor executor running the blocking calls of asynchronous requests for HTTP clients that do
+     *                         not implement {@link HttpClient#executeAsync(Request)}; null to block the calling thread
+     */
+    public DefaultRequestExecutor(Executor blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
     @Override
     public Response executeRequest(Request request, HttpClient httpClient, List<ErrorHandler> errorHandlers) {
         final Response response;
         try {
             response = httpClient.execute(request);
         } catch (Exception e) {
-            if (Utils.isEmpty(errorHandlers)) {
-                throw new SimpleHttpException(String.format("Error while executing request [%s] %s",
-                        request.getHttpMethod(), request.getUrl()), request, e);
-            }
-            return handleErrors(request, null, e, errorHandlers);
+            return fail(request, e, errorHandlers);
         }
         return response;
     }
+
+    @Override
+    public CompletableFuture<Response> executeRequestAsync(Request request, HttpClient httpClient,
+                                                           List<ErrorHandler> errorHandlers) {
+        return callAsync(() -> executeAsync(request, httpClient))
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    return failAsync(request, toException(error), errorHandlers);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * @param httpClient HTTP client
+     * @return true if the client overrides {@link HttpClient#executeAsync(Request)} with non-blocking execution
+     */
+    static boolean supportsAsync(HttpClient httpClient) {
+        return SUPPORTS_ASYNC.get(httpClient.getClass());
+    }
+
+    private CompletableFuture<Response> executeAsync(Request request, HttpClient httpClient) {
+        if (blockingExecutor == null || supportsAsync(httpClient)) {
+            return httpClient.executeAsync(request);
+        }
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        blockingExecutor.execute(() -> {
+            try {
+                response.complete(httpClient.execute(request));
+            } catch (Exception e) {
+                response.completeExceptionally(e);
+            }
+        });
+        return response;
+    }
 }
@@ -4,6 +4,8 @@ import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Implemented by a class that will handle errors that occur during request execution.
  */
@@ -20,4 +22,19 @@ public interface ErrorHandler {
      * @return fallback Response
      */
     Response handleError(Request request, @Nullable Response response, Exception exception);
+
+    /**
+     * Handles an error of an asynchronous client method. Handlers which need to wait(e.g. to call a fallback service)
+     * should override this method and return without blocking; the default calls
+     * {@link #handleError(Request, Response, Exception)}.
+     *
+     * @param request executed requested
+     * @param response response maybe nullable
+     * @param exception error that caused the request to fail
+     * @return future of the fallback Response, or a failed future
+     */
+    default CompletableFuture<Response> handleErrorAsync(Request request, @Nullable Response response,
+                                                         Exception exception) {
+        return CompletableFuture.completedFuture(handleError(request, response, exception));
+    }
 }
@@ -0,0 +1,25 @@
+package com.simplehttp.core.client.executor;
+
+/**
+ * A {@link ConcurrencyLimit} which does not adapt.
+ */
+final class FixedLimit implements ConcurrencyLimit {
+
+    private final int limit;
+
+    FixedLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be at least 1!");
+        }
+        this.limit = limit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inFlight, boolean dropped) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.simplehttp.core.client.executor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gradient {@link ConcurrencyLimit}, see {@link ConcurrencyLimit#gradient(int, int)}. The new limit is
+ * <code>limit * clamp(1.5 * longRtt / rtt, 0.5, 1) + sqrt(limit)</code>, of which 20% are blended into the current
+ * limit so that single outliers do not move it much.
+ */
+final class GradientLimit implements ConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    /**
+     * Weight of a sample in the long-term round trip time, an exponential moving average over about 600 samples.
+     */
+    private static final double LONG_RTT_WEIGHT = 2.0 / 601;
+
+    private final int maxLimit;
+    private final AtomicReference<State> state;
+
+    GradientLimit(int initialLimit, int maxLimit) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Initial limit must be at least 1 and at most the maximum limit!");
+        }
+        this.maxLimit = maxLimit;
+        this.state = new AtomicReference<>(new State(initialLimit, 0));
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) state.get().estimatedLimit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            state.updateAndGet(current -> new State(clamp(current.estimatedLimit * BACKOFF_RATIO),
+                    current.longRttNanos));
+            return;
+        }
+        if (rttNanos <= 0) {
+            return;
+        }
+        // the update may be repeated when samples race, so it only depends on the state it is given
+        state.updateAndGet(current -> {
+            double longRttNanos = current.longRttNanos == 0 ? rttNanos
+                    : current.longRttNanos + (rttNanos - current.longRttNanos) * LONG_RTT_WEIGHT;
+            // a long-term average far above the latest round trips is from a past overload and keeps the limit high
+            if (longRttNanos > rttNanos * 2) {
+                longRttNanos *= 0.95;
+            }
+            final double estimatedLimit = current.estimatedLimit;
+            if (inFlight * 2 < estimatedLimit) {
+                // the limit is not used up, so the round trip time says nothing about it
+                return new State(estimatedLimit, longRttNanos);
+            }
+            final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rttNanos));
+            final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            return new State(clamp(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING), longRttNanos);
+        });
+    }
+
+    private double clamp(double limit) {
+        return Math.max(1, Math.min(maxLimit, limit));
+    }
+
+    /**
+     * Estimated limit and long-term round trip time, replaced as a whole so that samples never see one updated
+     * without the other.
+     */
+    private static final class State {
+
+        private final double estimatedLimit;
+        private final double longRttNanos;
+
+        State(double estimatedLimit, double longRttNanos) {
+            this.estimatedLimit = estimatedLimit;
+            this.longRttNanos = longRttNanos;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.http.Hedge;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.httpclient.HttpMessageSupport;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A RequestExecutor that hedges slow requests to cut tail latency: when a request of a hedgeable method takes longer
+ * than a percentile of the recent latencies of the method, a duplicate request is sent. The first successful response
+ * is returned and the other request is cancelled. GET methods are hedgeable unless they are annotated with
+ * <code>@Hedge(false)</code>, other methods if they are annotated with {@link Hedge}.
+ *
+ * Duplicates draw from a {@link RetryBudget}, by default 5% of the hedgeable requests, so that hedging only adds a
+ * little load even when a server is slow for every request. Methods are not hedged until enough of their latencies
+ * were observed, nor are requests with a streamed request or response body.
+ *
+ * Requests are raced with {@link HttpClient#executeAsync(Request)}, the blocking calls of HTTP clients which do not
+ * implement it run on the blocking executor. A request which its HTTP client cannot cancel, like a blocking call,
+ * runs to completion and its response is discarded.
+ */
+public class HedgingRequestExecutor extends AbstractRequestExecutor {
+
+    private final double defaultPercentile;
+    private final RetryBudget hedgingBudget;
+    private final Executor blockingExecutor;
+    /**
+     * Stage the requests are sent through; null to send them with the HTTP client.
+     */
+    private final AbstractRequestExecutor next;
+    /**
+     * Latency trackers of the hedgeable methods; empty for methods which are not hedged.
+     */
+    private final Map<Method, Optional<LatencyTracker>> latencyTrackers = new ConcurrentHashMap<>();
+
+    public HedgingRequestExecutor() {
+        this(new Builder());
+    }
+
+    private HedgingRequestExecutor(Builder builder) {
+        this.defaultPercentile = builder.percentile;
+        this.hedgingBudget = builder.hedgingBudget;
+        this.blockingExecutor = Optional.ofNullable(builder.blockingExecutor)
+                .orElse(BlockingExecutorHolder.EXECUTOR);
+        this.next = builder.next;
+    }
+
+    /**
+     * @return builder of a configured executor
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return budget of the duplicate requests of all methods
+     */
+    public RetryBudget getHedgingBudget() {
+        return hedgingBudget;
+    }
+
+    @Override
+    public Response executeRequest(Request request, HttpClient httpClient, List<ErrorHandler> errorHandlers) {
+        final LatencyTracker tracker = getLatencyTracker(request);
+        if (tracker == null || tracker.getPercentileNanos() < 0) {
+            final long start = System.nanoTime();
+            final Response response;
+            try {
+                response = send(request, httpClient, next);
+            } catch (Exception e) {
+                return fail(request, e, errorHandlers);
+            }
+            if (tracker != null) {
+                tracker.record(System.nanoTime() - start);
+            }
+            return response;
+        }
+        final CompletableFuture<Response> response = race(request, httpClient, tracker);
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            return fail(request, toException(e), errorHandlers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.cancel(true);
+            return fail(request, e, errorHandlers);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> executeRequestAsync(Request request, HttpClient httpClient,
+                                                           List<ErrorHandler> errorHandlers) {
+        final LatencyTracker tracker = getLatencyTracker(request);
+        final CompletableFuture<Response> response;
+        if (tracker == null || tracker.getPercentileNanos() < 0) {
+            final long start = System.nanoTime();
+            response = attempt(request, httpClient);
+            if (tracker != null) {
+                response.thenRun(() -> tracker.record(System.nanoTime() - start));
+            }
+        } else {
+            response = race(request, httpClient, tracker);
+        }
+        return response
+                .handle((result, error) -> error == null ? CompletableFuture.completedFuture(result)
+                        : failAsync(request, toException(error), errorHandlers))
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Sends a request and a duplicate once the latency percentile of its method passed.
+     *
+     * Only the latency of the first request is recorded, so that the tracker keeps observing the latencies of the
+     * server rather than the shorter ones hedging achieves. When the duplicate wins, the first request is cancelled
+     * and the time it had taken until then is recorded; it took at least as long as the percentile, which keeps the
+     * slow requests in the tail instead of dropping them and letting the percentile drift down.
+     *
+     * @return future of the first successful response; failed once all requests which were sent failed
+     */
+    private CompletableFuture<Response> race(Request request, HttpClient httpClient, LatencyTracker tracker) {
+        hedgingBudget.onRequest();
+        final Race race = new Race();
+        final long start = System.nanoTime();
+        final CompletableFuture<Response> first = race.add(() -> attempt(request, httpClient));
+        first.whenComplete((response, error) -> {
+            // a request cancelled because the caller gave up tells nothing about the latency
+            if (error == null || (first.isCancelled() && race.result.isDone()
+                    && !race.result.isCompletedExceptionally())) {
+                tracker.record(System.nanoTime() - start);
+            }
+        });
+        CompletableFuture.delayedExecutor(tracker.getPercentileNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!race.result.isDone() && hedgingBudget.tryRetry()) {
+                race.add(() -> attempt(request, httpClient));
+            }
+        });
+        return race.result;
+    }
+
+    /**
+     * Sends a single request.
+     */
+    private CompletableFuture<Response> attempt(Request request, HttpClient httpClient) {
+        final CompletableFuture<Response> response;
+        if (DefaultRequestExecutor.supportsAsync(httpClient)) {
+            response = sendAsync(request, httpClient, next);
+        } else {
+            response = new CompletableFuture<>();
+            blockingExecutor.execute(() -> {
+                // a request cancelled before it started is not sent at all
+                if (!response.isDone()) {
+                    try {
+                        response.complete(send(request, httpClient, next));
+                    } catch (Exception e) {
+                        response.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+        return response;
+    }
+
+    private LatencyTracker getLatencyTracker(Request request) {
+        final Method method = request.getMethod();
+        if (method == null || HttpMessageSupport.isStreamingBody(request.getBody())
+                || HttpMessageSupport.isStreamingResponse(request)) {
+            return null;
+        }
+        return latencyTrackers.computeIfAbsent(method, m -> {
+            final Hedge hedge = m.getAnnotation(Hedge.class);
+            if (hedge != null) {
+                return hedge.value() ? Optional.of(new LatencyTracker(hedge.percentile())) : Optional.empty();
+            }
+            return request.getHttpMethod() == HttpMethod.GET ? Optional.of(new LatencyTracker(defaultPercentile))
+                    : Optional.empty();
+        }).orElse(null);
+    }
+
+    /**
+     * The requests racing for a single response. The first successful response completes the result and cancels the
+     * other request; the result fails with the first error once every request which was sent failed.
+     *
+     * The race holds no lock, completing the result decides the winner. The dependent stages of the caller run when the
+     * result is completed, so they never run while a monitor is held and pin the carrier of a virtual thread.
+     */
+    private static final class Race {
+
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+        private final Queue<CompletableFuture<Response>> attempts = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Race() {
+            // cancelling the result, e.g. when the caller is interrupted, cancels the requests
+            result.whenComplete((response, failure) -> {
+                if (result.isCancelled()) {
+                    cancelAttempts();
+                }
+            });
+        }
+
+        /**
+         * @param sender sends a request
+         * @return the request
+         */
+        CompletableFuture<Response> add(Supplier<CompletableFuture<Response>> sender) {
+            // counted before it is sent, so that a request failing meanwhile does not fail the race
+            pending.incrementAndGet();
+            final CompletableFuture<Response> attempt = sender.get();
+            attempts.add(attempt);
+            attempt.whenComplete(this::onComplete);
+            // the race may have been decided before the request was added, in which case it was not cancelled
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+            return attempt;
+        }
+
+        private void onComplete(Response response, Throwable failure) {
+            if (failure == null) {
+                // only the first response completes the result
+                if (result.complete(response)) {
+                    cancelAttempts();
+                }
+                return;
+            }
+            error.compareAndSet(null, failure);
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error.get());
+            }
+        }
+
+        private void cancelAttempts() {
+            // completed attempts are not affected
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    /**
+     * Configuration of a {@link HedgingRequestExecutor}.
+     */
+    public static class Builder {
+
+        private double percentile = 95;
+        private RetryBudget hedgingBudget = new RetryBudget(0.05, 5);
+        private Executor blockingExecutor;
+        private AbstractRequestExecutor next;
+
+        /**
+         * @param percentile latency percentile after which hedgeable methods without a {@link Hedge} annotation send
+         *                   a duplicate request; 95 by default
+         * @return Builder
+         */
+        public Builder withPercentile(double percentile) {
+            if (!(percentile > 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Percentile must be greater than 0 and at most 100!");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * @param hedgingBudget budget of the duplicate requests; 5% of the hedgeable requests with bursts of up to 5
+         *                      duplicates by default
+         * @return Builder
+         */
+        public Builder withHedgingBudget(RetryBudget hedgingBudget) {
+            this.hedgingBudget = Optional.ofNullable(hedgingBudget)
+                    .orElseThrow(() -> new IllegalArgumentException("Hedging budget cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param blockingExecutor executor running the requests of HTTP clients that do not implement
+         *                         {@link HttpClient#executeAsync(Request)}; a shared pool of daemon threads by default
+         * @return Builder
+         */
+        public Builder withBlockingExecutor(Executor blockingExecutor) {
+            this.blockingExecutor = blockingExecutor;
+            return this;
+        }
+
+        /**
+         * @param next executor the first request and its duplicate are sent through instead of the HTTP client;
+         *             only the interceptors and error handlers of the outermost executor run
+         * @return Builder
+         */
+        public Builder withNext(AbstractRequestExecutor next) {
+            this.next = Optional.ofNullable(next)
+                    .orElseThrow(() -> new IllegalArgumentException("Next executor cannot be null!"));
+            return this;
+        }
+
+        public HedgingRequestExecutor build() {
+            return new HedgingRequestExecutor(this);
+        }
+    }
+
+    private static final class BlockingExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "simplehttp-hedging");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
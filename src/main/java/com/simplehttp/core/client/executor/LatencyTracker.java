@@ -0,0 +1,57 @@
+package com.simplehttp.core.client.executor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks a latency percentile of the most recent requests of a client method. Latencies are recorded into a ring
+ * buffer without locking, the percentile is recomputed from a copy of the buffer every few samples instead of on every
+ * request.
+ */
+final class LatencyTracker {
+
+    private static final int SAMPLES = 256;
+    private static final int MIN_SAMPLES = 32;
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+    private final AtomicLong count = new AtomicLong();
+    private volatile long percentileNanos = -1;
+
+    /**
+     * @param percentile tracked percentile, between 0 and 100
+     */
+    LatencyTracker(double percentile) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be greater than 0 and at most 100, was " + percentile);
+        }
+        this.percentile = percentile;
+    }
+
+    void record(long latencyNanos) {
+        final long recorded = count.getAndIncrement() + 1;
+        samples.set((int) ((recorded - 1) % SAMPLES), latencyNanos);
+        if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_INTERVAL == 0) {
+            recompute((int) Math.min(recorded, SAMPLES));
+        }
+    }
+
+    /**
+     * @return latency percentile of the recent requests; -1 until enough requests were recorded
+     */
+    long getPercentileNanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(int size) {
+        final long[] latencies = new long[size];
+        for (int i = 0; i < size; i++) {
+            latencies[i] = samples.get(i);
+        }
+        Arrays.sort(latencies);
+        final int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        percentileNanos = latencies[Math.max(0, Math.min(size - 1, index))];
+    }
+}
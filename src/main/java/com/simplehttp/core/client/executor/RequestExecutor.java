@@ -5,6 +5,7 @@ import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.exception.SimpleHttpException;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implemented by a class that will execute the given request using the provided client and additional
@@ -31,4 +32,32 @@ public interface RequestExecutor {
                    List<RequestInterceptor> requestInterceptorList,
                    List<ResponseInterceptor> postRequestExecutorList,
                    List<ErrorHandler> errorHandlers) throws SimpleHttpException;
+
+    /**
+     * Executes the request of a client method returning a {@link CompletableFuture}. Implementations should not block
+     * the calling thread; the default calls {@link #execute(Request, HttpClient, List, List, List)} on the calling
+     * thread.
+     *
+     * @param request request to execute
+     * @param httpClient http client to execute the request with
+     * @param requestInterceptorList request interceptors that are guaranteed to run in the provided order BEFORE
+     *                               the request is executed
+     * @param postRequestExecutorList response interceptors that are guaranteed to run in the provided order AFTER
+     *                                the request is executed and some response is returned
+     * @param errorHandlers error handlers to run sequentially if an error occurs while attempting to execute request
+     * @return future of the final response object which maybe null; completed exceptionally with a
+     * {@link SimpleHttpException} if the request fails
+     */
+    default CompletableFuture<Object> executeAsync(Request request,
+                                                   HttpClient httpClient,
+                                                   List<RequestInterceptor> requestInterceptorList,
+                                                   List<ResponseInterceptor> postRequestExecutorList,
+                                                   List<ErrorHandler> errorHandlers) {
+        try {
+            return CompletableFuture.completedFuture(execute(request, httpClient, requestInterceptorList,
+                    postRequestExecutorList, errorHandlers));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
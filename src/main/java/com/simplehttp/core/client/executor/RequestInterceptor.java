@@ -3,6 +3,8 @@ package com.simplehttp.core.client.executor;
 import com.simplehttp.core.client.HttpClient;
 import com.simplehttp.core.client.model.Request;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Implemented by a class that will run some pre-processing on a Request before it's executed. Typical use cases
  * include logging, Request modification, etc.
@@ -18,4 +20,17 @@ public interface RequestInterceptor {
      * @return non-null processed request
      */
     Request process(Request request, HttpClient httpClient);
+
+    /**
+     * Process the supplied request of an asynchronous client method. Interceptors which need to wait(e.g. to fetch a
+     * token) should override this method and return without blocking; the default calls
+     * {@link #process(Request, HttpClient)}.
+     *
+     * @param request request
+     * @param httpClient the client that will execute the request
+     * @return future of the non-null processed request
+     */
+    default CompletableFuture<Request> processAsync(Request request, HttpClient httpClient) {
+        return CompletableFuture.completedFuture(process(request, httpClient));
+    }
 }
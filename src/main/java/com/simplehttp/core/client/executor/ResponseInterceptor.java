@@ -4,6 +4,8 @@ import com.simplehttp.core.client.HttpClient;
 import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Implemented by a class that will run some processing on a Response returned from a Request.
  */
@@ -19,4 +21,17 @@ public interface ResponseInterceptor {
      * @return non-null processed Response
      */
     Response process(Response response, Request request, HttpClient httpClient);
+
+    /**
+     * Process the supplied response of an asynchronous client method. Interceptors which need to wait should override
+     * this method and return without blocking; the default calls {@link #process(Response, Request, HttpClient)}.
+     *
+     * @param response response from the request execution
+     * @param request executed request
+     * @param httpClient client used to execute request
+     * @return future of the non-null processed Response
+     */
+    default CompletableFuture<Response> processAsync(Response response, Request request, HttpClient httpClient) {
+        return CompletableFuture.completedFuture(process(response, request, httpClient));
+    }
 }
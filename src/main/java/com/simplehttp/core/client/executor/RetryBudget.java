@@ -0,0 +1,66 @@
+package com.simplehttp.core.client.executor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the retries of a {@link RetryingRequestExecutor} to a ratio of its requests, so that a failing server does
+ * not receive a multiple of its regular load in retries. Every request deposits <code>retryRatio</code> tokens into a
+ * bucket holding up to <code>maxRetries</code> tokens, every retry withdraws a whole token. Retries which find the
+ * bucket empty are not sent.
+ *
+ * The bucket starts full, so that clients with little traffic can still retry.
+ */
+public class RetryBudget {
+
+    /**
+     * Tokens are counted in thousandths so that fractional deposits can be added atomically.
+     */
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    /**
+     * @param retryRatio retries allowed per request, e.g. 0.2 for a retry on every 5th request
+     * @param maxRetries maximum number of retries which can be saved up and sent in a burst
+     */
+    public RetryBudget(double retryRatio, int maxRetries) {
+        if (retryRatio < 0 || Double.isNaN(retryRatio) || maxRetries < 0) {
+            throw new IllegalArgumentException("Retry ratio and maximum retries cannot be negative!");
+        }
+        this.deposit = (long) Math.min(retryRatio * TOKEN, Long.MAX_VALUE / 2);
+        this.capacity = maxRetries * TOKEN;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * Deposits the retry ratio of a request.
+     */
+    void onRequest() {
+        balance.getAndUpdate(current -> Math.min(capacity, current + deposit));
+    }
+
+    /**
+     * Withdraws a token for a retry.
+     *
+     * @return false if the budget is exhausted and the retry must not be sent
+     */
+    boolean tryRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * @return number of retries which can currently be sent
+     */
+    public long getAvailableRetries() {
+        return balance.get() / TOKEN;
+    }
+}
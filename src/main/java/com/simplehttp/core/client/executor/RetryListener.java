@@ -0,0 +1,32 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.client.model.Request;
+
+import java.time.Duration;
+
+/**
+ * Observes the retries of a {@link RetryingRequestExecutor}, e.g. to log them or to count them as metrics. Called on
+ * the thread which received the failed attempt, so implementations should not block.
+ */
+public interface RetryListener {
+
+    /**
+     * Called before a failed request is retried.
+     *
+     * @param request request being retried
+     * @param attempt number of the upcoming attempt, starting at 2 for the first retry
+     * @param backoff delay before the attempt is sent
+     * @param error error of the previous attempt
+     */
+    default void onRetry(Request request, int attempt, Duration backoff, Exception error) {
+    }
+
+    /**
+     * Called when a retryable request is not retried because the {@link RetryBudget} is exhausted.
+     *
+     * @param request request which failed
+     * @param error error of the last attempt
+     */
+    default void onBudgetExhausted(Request request, Exception error) {
+    }
+}
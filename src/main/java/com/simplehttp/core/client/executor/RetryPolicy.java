@@ -0,0 +1,75 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.http.Retry;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Retry policy of the requests of a client method executed by a {@link RetryingRequestExecutor}. Retries are delayed
+ * with exponential backoff and full jitter: the delay before retry <code>n</code> is random between 0 and
+ * <code>min(maxBackoff, initialBackoff * 2^(n - 1))</code>, which spreads the retries of many clients instead of
+ * sending them in waves.
+ */
+@Getter
+@Builder
+public class RetryPolicy {
+    /**
+     * Maximum number of attempts including the first one; 1 disables retries.
+     */
+    @Builder.Default
+    private final int maxAttempts = 3;
+    /**
+     * Upper bound of the delay before the first retry, doubled for every further retry.
+     */
+    @Builder.Default
+    private final Duration initialBackoff = Duration.ofMillis(100);
+    /**
+     * Upper bound of the delay before any retry.
+     */
+    @Builder.Default
+    private final Duration maxBackoff = Duration.ofSeconds(5);
+    /**
+     * Error status codes which are retried. Other error responses fail right away.
+     */
+    @Builder.Default
+    private final Set<Integer> retryStatusCodes = Set.of(429, 502, 503, 504);
+    /**
+     * Whether POST and PATCH requests are retried after they may have reached the server. Requests whose connection
+     * could not be established are retried regardless of their method.
+     */
+    @Builder.Default
+    private final boolean retryNonIdempotent = false;
+
+    /**
+     * @param retry retry annotation of a client method
+     * @return policy declared by the annotation
+     */
+    public static RetryPolicy of(Retry retry) {
+        return RetryPolicy.builder()
+                .maxAttempts(retry.maxAttempts())
+                .initialBackoff(Duration.ofMillis(retry.initialBackoffMillis()))
+                .maxBackoff(Duration.ofMillis(retry.maxBackoffMillis()))
+                .retryStatusCodes(Arrays.stream(retry.retryStatusCodes()).boxed().collect(Collectors.toSet()))
+                .retryNonIdempotent(retry.retryNonIdempotent())
+                .build();
+    }
+
+    /**
+     * @param retry number of the retry, starting at 1
+     * @param random random value between 0(inclusive) and 1(exclusive)
+     * @return delay before the retry
+     */
+    Duration getBackoff(int retry, double random) {
+        final long maxMillis = Math.max(0, maxBackoff.toMillis());
+        long ceilingMillis = Math.max(0, initialBackoff.toMillis());
+        for (int i = 1; i < retry && ceilingMillis < maxMillis; i++) {
+            ceilingMillis *= 2;
+        }
+        return Duration.ofMillis((long) (Math.min(ceilingMillis, maxMillis) * random));
+    }
+}
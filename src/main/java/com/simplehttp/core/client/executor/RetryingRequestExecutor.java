@@ -0,0 +1,309 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.http.Retry;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.codec.BodyWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A RequestExecutor that retries failed requests according to the {@link RetryPolicy} of their client method: a
+ * policy set on the builder, else the policy of a {@link Retry} annotation, else the default policy.
+ *
+ * Network errors and the retryable error statuses of the policy are retried. GET, PUT and DELETE requests are
+ * idempotent and retried by default, POST and PATCH requests only if their connection could not be established,
+ * unless the policy allows retrying them. All retries count against a client-wide {@link RetryBudget}.
+ *
+ * A request body is serialized once before the first attempt and the bytes are sent again on retries. Bodies which
+ * can only be read once(<code>InputStream</code>, <code>Stream</code> and <code>Iterator</code>) are never retried.
+ * Errors of the last attempt are passed to the error handlers like in the {@link DefaultRequestExecutor}.
+ */
+public class RetryingRequestExecutor extends AbstractRequestExecutor {
+
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final RetryListener NO_LISTENER = new RetryListener() { };
+
+    private final RetryPolicy defaultPolicy;
+    private final Map<Method, RetryPolicy> methodPolicies;
+    private final RetryBudget retryBudget;
+    private final RetryListener retryListener;
+    /**
+     * Stage the requests are sent through; null to send them with the HTTP client.
+     */
+    private final AbstractRequestExecutor next;
+    private final Map<Method, RetryPolicy> resolvedPolicies = new ConcurrentHashMap<>();
+
+    public RetryingRequestExecutor() {
+        this(new Builder());
+    }
+
+    private RetryingRequestExecutor(Builder builder) {
+        this.defaultPolicy = builder.defaultPolicy;
+        this.methodPolicies = Map.copyOf(builder.methodPolicies);
+        this.retryBudget = builder.retryBudget;
+        this.retryListener = builder.retryListener;
+        this.next = builder.next;
+    }
+
+    /**
+     * @return builder of a configured executor
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return budget shared by the retries of all requests of the executor
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    @Override
+    public Response executeRequest(Request request, HttpClient httpClient, List<ErrorHandler> errorHandlers) {
+        final RetryPolicy policy = getPolicy(request);
+        final boolean replayable;
+        try {
+            replayable = prepareBody(request, httpClient);
+        } catch (IOException | RuntimeException e) {
+            return fail(request, e, errorHandlers);
+        }
+        retryBudget.onRequest();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return send(request, httpClient, next);
+            } catch (Exception e) {
+                final Duration backoff = replayable ? getRetryBackoff(request, policy, e, attempt) : null;
+                if (backoff == null) {
+                    return fail(request, e, errorHandlers);
+                }
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return fail(request, e, errorHandlers);
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> executeRequestAsync(Request request, HttpClient httpClient,
+                                                           List<ErrorHandler> errorHandlers) {
+        final RetryPolicy policy = getPolicy(request);
+        final boolean replayable;
+        try {
+            replayable = prepareBody(request, httpClient);
+        } catch (IOException | RuntimeException e) {
+            return failAsync(request, e, errorHandlers);
+        }
+        retryBudget.onRequest();
+        return executeAttemptAsync(request, httpClient, errorHandlers, policy, replayable, 1);
+    }
+
+    /**
+     * Sends an attempt without blocking; a retry is started by a delayed executor once its backoff passed.
+     */
+    private CompletableFuture<Response> executeAttemptAsync(Request request, HttpClient httpClient,
+                                                            List<ErrorHandler> errorHandlers, RetryPolicy policy,
+                                                            boolean replayable, int attempt) {
+        return sendAsync(request, httpClient, next)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    final Exception cause = toException(error);
+                    final Duration backoff = replayable ? getRetryBackoff(request, policy, cause, attempt) : null;
+                    if (backoff == null) {
+                        return failAsync(request, cause, errorHandlers);
+                    }
+                    return CompletableFuture.runAsync(() -> { },
+                                    CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> executeAttemptAsync(request, httpClient, errorHandlers, policy,
+                                    true, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Decides whether a failed attempt is retried.
+     *
+     * @return delay before the next attempt; null if the request is not retried
+     */
+    private Duration getRetryBackoff(Request request, RetryPolicy policy, Exception error, int attempt) {
+        if (attempt >= policy.getMaxAttempts() || !isRetryable(request, policy, error)) {
+            return null;
+        }
+        if (!retryBudget.tryRetry()) {
+            retryListener.onBudgetExhausted(request, error);
+            return null;
+        }
+        final Duration backoff = policy.getBackoff(attempt, ThreadLocalRandom.current().nextDouble());
+        retryListener.onRetry(request, attempt + 1, backoff, error);
+        return backoff;
+    }
+
+    private boolean isRetryable(Request request, RetryPolicy policy, Exception error) {
+        final boolean idempotent = isIdempotent(request.getHttpMethod()) || policy.isRetryNonIdempotent();
+        final Integer statusCode = getStatusCode(error);
+        if (statusCode != null) {
+            return idempotent && policy.getRetryStatusCodes().contains(statusCode);
+        }
+        // a request whose connection failed never reached the server
+        return hasCause(error, ConnectException.class) || (idempotent && hasCause(error, IOException.class));
+    }
+
+    private RetryPolicy getPolicy(Request request) {
+        final Method method = request.getMethod();
+        if (method == null) {
+            return defaultPolicy;
+        }
+        final RetryPolicy policy = resolvedPolicies.get(method);
+        return policy != null ? policy : resolvedPolicies.computeIfAbsent(method, m -> Optional
+                .ofNullable(methodPolicies.get(m))
+                .or(() -> Optional.ofNullable(m.getAnnotation(Retry.class)).map(RetryPolicy::of))
+                .orElse(defaultPolicy));
+    }
+
+    /**
+     * Serializes the body of a request once, so that retries send the same bytes instead of serializing it again.
+     * The content type of the writer is kept as a header.
+     *
+     * @return false if the body can only be sent once
+     * @throws IOException if the body cannot be serialized
+     */
+    private static boolean prepareBody(Request request, HttpClient httpClient) throws IOException {
+        final Object body = request.getBody();
+        if (body instanceof InputStream || body instanceof Stream || body instanceof Iterator) {
+            return false;
+        }
+        if (body == null || body instanceof byte[] || body instanceof String || body instanceof Path
+                || body instanceof ByteBuffer) {
+            return true;
+        }
+        final BodyWriter writer = Optional.ofNullable(request.getBodyWriter())
+                .or(() -> Optional.ofNullable(httpClient.getCodec()).map(codec -> codec.writer(body.getClass())))
+                .orElse(null);
+        if (writer == null) {
+            // the HTTP client serializes the body itself, on every attempt
+            return true;
+        }
+        request.setBody(writer.toBytes(body));
+        final String contentType = writer.getContentType();
+        if (contentType != null) {
+            if (request.getHeaders() == null) {
+                request.setHeaders(HttpMultiValueMap.caseInsensitive());
+            }
+            if (request.getHeaders().getFirst(CONTENT_TYPE) == null) {
+                request.getHeaders().add(CONTENT_TYPE, contentType);
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIdempotent(HttpMethod httpMethod) {
+        return httpMethod == HttpMethod.GET || httpMethod == HttpMethod.PUT || httpMethod == HttpMethod.DELETE;
+    }
+
+    /**
+     * Configuration of a {@link RetryingRequestExecutor}.
+     */
+    public static class Builder {
+
+        private RetryPolicy defaultPolicy = RetryPolicy.builder().build();
+        private final Map<Method, RetryPolicy> methodPolicies = new HashMap<>();
+        private RetryBudget retryBudget = new RetryBudget(0.2, 20);
+        private RetryListener retryListener = NO_LISTENER;
+        private AbstractRequestExecutor next;
+
+        /**
+         * @param defaultPolicy policy of methods without a policy of their own; 3 attempts by default
+         * @return Builder
+         */
+        public Builder withDefaultPolicy(RetryPolicy defaultPolicy) {
+            this.defaultPolicy = Optional.ofNullable(defaultPolicy)
+                    .orElseThrow(() -> new IllegalArgumentException("Default retry policy cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param method client method
+         * @param policy policy of the method; takes precedence over a {@link Retry} annotation
+         * @return Builder
+         */
+        public Builder withPolicy(Method method, RetryPolicy policy) {
+            methodPolicies.put(Optional.ofNullable(method)
+                            .orElseThrow(() -> new IllegalArgumentException("Method cannot be null!")),
+                    Optional.ofNullable(policy)
+                            .orElseThrow(() -> new IllegalArgumentException("Retry policy cannot be null!")));
+            return this;
+        }
+
+        /**
+         * @param retryBudget budget shared by all retries; 20% of the requests with bursts of up to 20 retries by
+         *                    default
+         * @return Builder
+         */
+        public Builder withRetryBudget(RetryBudget retryBudget) {
+            this.retryBudget = Optional.ofNullable(retryBudget)
+                    .orElseThrow(() -> new IllegalArgumentException("Retry budget cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param retryListener listener notified of retries and an exhausted retry budget
+         * @return Builder
+         */
+        public Builder withRetryListener(RetryListener retryListener) {
+            this.retryListener = Optional.ofNullable(retryListener)
+                    .orElseThrow(() -> new IllegalArgumentException("Retry listener cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param next executor every attempt is sent through instead of the HTTP client, e.g. a
+         *             {@link HedgingRequestExecutor}; only the interceptors and error handlers of the outermost
+         *             executor run
+         * @return Builder
+         */
+        public Builder withNext(AbstractRequestExecutor next) {
+            this.next = Optional.ofNullable(next)
+                    .orElseThrow(() -> new IllegalArgumentException("Next executor cannot be null!"));
+            return this;
+        }
+
+        public RetryingRequestExecutor build() {
+            return new RetryingRequestExecutor(this);
+        }
+    }
+}
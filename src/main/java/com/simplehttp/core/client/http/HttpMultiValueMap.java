@@ -1,46 +1,280 @@
 package com.simplehttp.core.client.http;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
+/**
+ * Ordered multi-value map of names(headers or query params) to values. Entries are stored as compact parallel name and
+ * value arrays in insertion order, so adding a value does not allocate a list or map entry. Header maps match names
+ * case-insensitively, as HTTP header names are case-insensitive; query param maps match names exactly.
+ *
+ * A map can be created as an overlay of an immutable base map, such as the static headers of a
+ * <code>@RequestAttribute</code> annotation. The base entries are shared rather than copied, only values added to the
+ * overlay are stored in it.
+ *
+ * The map owns its entries: the lists of {@link #getValues(String)} and the set of {@link #keySet()} are read-only
+ * snapshots which throw <code>UnsupportedOperationException</code> when modified, and a map created from a
+ * <code>Map</code> copies it. Change the values with {@link #add(String, String)} and {@link #put(String, List)}.
+ * Header maps are equal to maps with the same values under differently cased names.
+ */
 public class HttpMultiValueMap {
 
-    private final Map<String, List<String>> nameToValuesMap;
+    private static final String[] NO_ENTRIES = new String[0];
+    private static final int INITIAL_CAPACITY = 4;
 
+    private final boolean caseInsensitive;
+    private HttpMultiValueMap base;
+    private String[] names;
+    private String[] values;
+    private int size;
+    private boolean immutable;
+
+    /**
+     * Creates an empty map which matches names exactly.
+     */
     public HttpMultiValueMap() {
-        this(new LinkedHashMap<>());
+        this(false);
+    }
+
+    /**
+     * Creates a map which matches names exactly with the values of the given map. The values are copied, later
+     * changes to the given map are not reflected by this map.
+     *
+     * @param nameToValues name to values map to copy
+     */
+    public HttpMultiValueMap(Map<String, List<String>> nameToValues) {
+        this(false);
+        nameToValues.forEach(this::put);
+    }
+
+    /**
+     * Creates an overlay of a base map. The overlay matches names the same way as the base map and initially contains
+     * its values; changes to the overlay never change the base map.
+     *
+     * @param base values shared by the overlay; copied once if mutable
+     */
+    public HttpMultiValueMap(HttpMultiValueMap base) {
+        this(base.caseInsensitive);
+        final HttpMultiValueMap immutableBase = base.toImmutable();
+        this.base = immutableBase.isEmpty() ? null : immutableBase;
+    }
+
+    private HttpMultiValueMap(boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+        this.names = NO_ENTRIES;
+        this.values = NO_ENTRIES;
     }
 
-    public HttpMultiValueMap(Map<String, List<String>> headers) {
-        this.nameToValuesMap = headers;
+    /**
+     * Creates an empty map which matches names case-insensitively, as used for HTTP headers. The spelling of the
+     * first value added for a name is kept.
+     *
+     * @return empty case-insensitive map
+     */
+    public static HttpMultiValueMap caseInsensitive() {
+        return new HttpMultiValueMap(true);
     }
 
     public void add(String headerName, String value) {
-        final List<String> headerList = Optional.ofNullable(nameToValuesMap.get(headerName)).orElse(new LinkedList<>());
-        headerList.add(value);
-        put(headerName, headerList);
+        checkMutable();
+        if (size == names.length) {
+            final int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        names[size] = headerName;
+        values[size] = value;
+        size++;
     }
 
+    /**
+     * Replaces all values of a name.
+     */
     public void put(String headerName, List<String> values) {
-        this.nameToValuesMap.put(headerName, values);
+        checkMutable();
+        if (base != null && base.indexOf(headerName, 0) != -1) {
+            // rare - the base values of the name must be hidden, so the overlay can no longer share them
+            materializeBase();
+        }
+        removeAll(headerName);
+        if (values != null) {
+            values.forEach(value -> add(headerName, value));
+        }
     }
 
+    /**
+     * @return read-only snapshot of the values of a name in insertion order; null if the name has no values
+     */
     public List<String> getValues(String headerName) {
-        return nameToValuesMap.get(headerName);
+        List<String> matchingValues = null;
+        if (base != null) {
+            matchingValues = base.collectValues(headerName, null);
+        }
+        matchingValues = collectValues(headerName, matchingValues);
+        return matchingValues == null ? null : Collections.unmodifiableList(matchingValues);
+    }
+
+    /**
+     * @return first value of a name; null if the name has no values
+     */
+    public String getFirst(String headerName) {
+        if (base != null) {
+            final int index = base.indexOf(headerName, 0);
+            if (index != -1) {
+                return base.values[index];
+            }
+        }
+        final int index = indexOf(headerName, 0);
+        return index == -1 ? null : values[index];
     }
 
+    /**
+     * @return read-only snapshot of the distinct names in insertion order
+     */
     public Set<String> keySet() {
-        return nameToValuesMap.keySet();
+        final Set<String> keys = new LinkedHashSet<>();
+        forEach((name, value) -> {
+            if (!containsKey(keys, name)) {
+                keys.add(name);
+            }
+        });
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Calls the action for every name-value pair in insertion order. A name with multiple values is passed once per
+     * value. Preferred over {@link #keySet()} and {@link #getValues(String)}, as it does not allocate.
+     *
+     * @param action consumer of names and values
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        if (base != null) {
+            base.forEach(action);
+        }
+        for (int i = 0; i < size; i++) {
+            action.accept(names[i], values[i]);
+        }
+    }
+
+    /**
+     * @return number of name-value pairs
+     */
+    public int size() {
+        return size + (base == null ? 0 : base.size);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
     }
 
     public void addAll(final HttpMultiValueMap other) {
-        other.keySet().forEach(key -> {
-            final List<String> values = other.getValues(key);
-            if (values != null) {
-                values.forEach(value -> this.add(key, value));
-            } else {
-                this.add(key, null);
-            }
+        other.forEach(this::add);
+    }
+
+    /**
+     * Get an immutable version of this map, which can be shared as the base of overlays.
+     *
+     * @return this map if it is immutable, otherwise an immutable copy
+     */
+    public HttpMultiValueMap toImmutable() {
+        if (immutable) {
+            return this;
+        }
+        final HttpMultiValueMap copy = new HttpMultiValueMap(caseInsensitive);
+        final int totalSize = size();
+        copy.names = totalSize == 0 ? NO_ENTRIES : new String[totalSize];
+        copy.values = totalSize == 0 ? NO_ENTRIES : new String[totalSize];
+        forEach((name, value) -> {
+            copy.names[copy.size] = name;
+            copy.values[copy.size] = value;
+            copy.size++;
         });
+        copy.immutable = true;
+        return copy;
+    }
+
+    private List<String> collectValues(String name, List<String> matchingValues) {
+        for (int index = indexOf(name, 0); index != -1; index = indexOf(name, index + 1)) {
+            if (matchingValues == null) {
+                matchingValues = new ArrayList<>(2);
+            }
+            matchingValues.add(values[index]);
+        }
+        return matchingValues;
+    }
+
+    private int indexOf(String name, int fromIndex) {
+        for (int i = fromIndex; i < size; i++) {
+            if (matches(names[i], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean containsKey(Set<String> keys, String name) {
+        if (!caseInsensitive) {
+            return keys.contains(name);
+        }
+        for (String key : keys) {
+            if (matches(key, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(String storedName, String name) {
+        return caseInsensitive ? storedName == null ? name == null : storedName.equalsIgnoreCase(name) :
+                Objects.equals(storedName, name);
+    }
+
+    private void removeAll(String name) {
+        int retained = 0;
+        for (int i = 0; i < size; i++) {
+            if (!matches(names[i], name)) {
+                names[retained] = names[i];
+                values[retained] = values[i];
+                retained++;
+            }
+        }
+        Arrays.fill(names, retained, size, null);
+        Arrays.fill(values, retained, size, null);
+        size = retained;
+    }
+
+    private void materializeBase() {
+        final HttpMultiValueMap sharedBase = base;
+        final String[] ownNames = Arrays.copyOf(names, size);
+        final String[] ownValues = Arrays.copyOf(values, size);
+        base = null;
+        names = NO_ENTRIES;
+        values = NO_ENTRIES;
+        size = 0;
+        sharedBase.forEach(this::add);
+        for (int i = 0; i < ownNames.length; i++) {
+            add(ownNames[i], ownValues[i]);
+        }
+    }
+
+    private void checkMutable() {
+        if (immutable) {
+            throw new UnsupportedOperationException("Cannot modify an immutable HttpMultiValueMap");
+        }
+    }
+
+    /**
+     * Groups the values by name. Names are lower cased if either map is case-insensitive.
+     */
+    private Map<String, List<String>> toGroupedMap(boolean ignoreCase) {
+        final Map<String, List<String>> grouped = new HashMap<>();
+        forEach((name, value) -> grouped.computeIfAbsent(ignoreCase && name != null ? name.toLowerCase(Locale.ROOT) :
+                name, key -> new ArrayList<>(2)).add(value));
+        return grouped;
     }
 
     @Override
@@ -48,11 +282,23 @@ public class HttpMultiValueMap {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         HttpMultiValueMap that = (HttpMultiValueMap) o;
-        return Objects.equals(nameToValuesMap, that.nameToValuesMap);
+        final boolean ignoreCase = caseInsensitive || that.caseInsensitive;
+        return size() == that.size() && toGroupedMap(ignoreCase).equals(that.toGroupedMap(ignoreCase));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(nameToValuesMap);
+        // order independent sum over the case-insensitive pairs, as equal maps always have the same pairs
+        final int[] hash = new int[1];
+        forEach((name, value) -> hash[0] += 31 * (name == null ? 0 : name.toLowerCase(Locale.ROOT).hashCode()) +
+                Objects.hashCode(value));
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        final StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        forEach((name, value) -> joiner.add(name + "=" + value));
+        return joiner.toString();
     }
 }
@@ -0,0 +1,191 @@
+package com.simplehttp.core.client.http;
+
+import com.simplehttp.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A pre-parsed request URL with <code>{name}</code> path parameter placeholders. Templates are parsed once when the
+ * client metadata is extracted and then expanded for each request into a single pre-sized buffer, percent-encoding
+ * the path parameter values.
+ *
+ * A template is either relative to the client's host(the URL was a path fragment or empty) or absolute(a full URL).
+ * The host of a relative template is supplied when the template is expanded.
+ */
+public final class UrlTemplate {
+
+    private static final int EXPANDED_VALUE_SIZE_HINT = 16;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String source;
+    private final boolean relative;
+    private final String[] literals;
+    private final String[] placeholderNames;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private UrlTemplate(String source, boolean relative, List<String> literals, List<String> placeholderNames,
+                        List<String> placeholders) {
+        this.source = source;
+        this.relative = relative;
+        this.literals = literals.toArray(String[]::new);
+        this.placeholderNames = placeholderNames.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Parses a path fragment or full URL. Path fragments(and empty values) produce a template relative to the host.
+     *
+     * @param pathFragmentOrFullUrl path fragment such as <code>/people/{id}</code> or full URL
+     * @return parsed template
+     */
+    public static UrlTemplate parse(String pathFragmentOrFullUrl) {
+        if (Utils.isEmpty(pathFragmentOrFullUrl)) {
+            return parse("", true);
+        }
+        if (Utils.isPathFragment(pathFragmentOrFullUrl)) {
+            return parse(pathFragmentOrFullUrl.startsWith("/") ? pathFragmentOrFullUrl : "/" + pathFragmentOrFullUrl,
+                    true);
+        }
+        return parse(pathFragmentOrFullUrl, false);
+    }
+
+    private static UrlTemplate parse(String url, boolean relative) {
+        final List<String> literals = new ArrayList<>();
+        final List<String> placeholderNames = new ArrayList<>();
+        final List<String> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int open = url.indexOf('{');
+        while (open >= 0) {
+            final int close = url.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException(String.format("Unclosed path parameter placeholder in URL '%s'",
+                        url));
+            }
+            final String name = url.substring(open + 1, close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Unnamed path parameter placeholder in URL '%s'",
+                        url));
+            }
+            literals.add(url.substring(literalStart, open));
+            placeholderNames.add(name);
+            placeholders.add(url.substring(open, close + 1));
+            literalStart = close + 1;
+            open = url.indexOf('{', literalStart);
+        }
+        literals.add(url.substring(literalStart));
+        return new UrlTemplate(url, relative, literals, placeholderNames, placeholders);
+    }
+
+    /**
+     * @return true if the template is a path relative to the client's host
+     */
+    public boolean isRelative() {
+        return relative;
+    }
+
+    /**
+     * @return the placeholder names in the order they appear in the URL; may contain duplicates
+     */
+    public List<String> getPlaceholderNames() {
+        return List.of(placeholderNames);
+    }
+
+    /**
+     * Maps every placeholder of this template to the index of the value that should be substituted for it.
+     *
+     * @param nameToIndex path parameter name to value index
+     * @return value index per placeholder, <code>-1</code> for placeholders without a value
+     */
+    public int[] resolveIndexes(Map<String, Integer> nameToIndex) {
+        final int[] indexes = new int[placeholderNames.length];
+        for (int i = 0; i < placeholderNames.length; i++) {
+            indexes[i] = nameToIndex.getOrDefault(placeholderNames[i], -1);
+        }
+        return indexes;
+    }
+
+    /**
+     * Expands the template.
+     *
+     * @param host the host prepended to relative templates
+     * @param values values to substitute
+     * @param valueIndexes index into <code>values</code> for every placeholder as returned by
+     *                     {@link #resolveIndexes(Map)}. Placeholders with a negative index are left as is.
+     * @return expanded URL
+     */
+    public String expand(String host, Object[] values, int[] valueIndexes) {
+        final String base = relative && host != null ? host : "";
+        final StringBuilder url = new StringBuilder(base.length() + literalLength +
+                placeholderNames.length * EXPANDED_VALUE_SIZE_HINT);
+        url.append(base).append(literals[0]);
+        for (int i = 0; i < placeholderNames.length; i++) {
+            final int valueIndex = valueIndexes[i];
+            if (valueIndex < 0) {
+                url.append(placeholders[i]);
+            } else {
+                final String value = Utils.stringify(values[valueIndex]);
+                if (Utils.isEmpty(value)) {
+                    throw new IllegalArgumentException(String.format("The value for path parameter '%s' is empty",
+                            placeholderNames[i]));
+                }
+                appendEncoded(url, value);
+            }
+            url.append(literals[i + 1]);
+        }
+        return url.toString();
+    }
+
+    /**
+     * Percent-encodes a path segment value as defined by RFC 3986.
+     */
+    private static void appendEncoded(StringBuilder url, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (isPathSegmentChar(c)) {
+                url.append(c);
+            } else {
+                // slow path - encode the remainder as UTF-8
+                for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+                    final char encoded = (char) (b & 0xFF);
+                    if (isPathSegmentChar(encoded)) {
+                        url.append(encoded);
+                    } else {
+                        url.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean isPathSegmentChar(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return true;
+        }
+        return switch (c) {
+            case '-', '.', '_', '~', '!', '$', '&', '\'', '(', ')', '*', '+', ',', ';', '=', ':', '@' -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UrlTemplate that = (UrlTemplate) o;
+        return relative == that.relative && source.equals(that.source);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, relative);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,119 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * A consistent hash ring of endpoints with bounded loads. Every endpoint owns a number of points on the ring, derived
+ * from its URL only, and a key belongs to the owner of the first point at or after its hash. Adding or removing an
+ * endpoint therefore only moves the keys of the points it gains or loses, the other keys stay on their endpoint.
+ *
+ * The ring is a sorted array of points and an array of their owners, a key is located with a binary search and
+ * without allocations. Hashes are stable across processes, so that all clients of a server route a key alike.
+ */
+final class ConsistentHashRing {
+
+    /**
+     * Points of every endpoint; more points spread the keys more evenly across the endpoints.
+     */
+    static final int POINTS_PER_ENDPOINT = 128;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long[] points;
+    private final Endpoint[] owners;
+
+    ConsistentHashRing(Endpoint[] endpoints) {
+        final long[] unsorted = new long[endpoints.length * POINTS_PER_ENDPOINT];
+        for (int i = 0; i < endpoints.length; i++) {
+            final long urlHash = hash(endpoints[i].getUrl());
+            for (int point = 0; point < POINTS_PER_ENDPOINT; point++) {
+                unsorted[i * POINTS_PER_ENDPOINT + point] = mix(urlHash + (point + 1) * GOLDEN_GAMMA);
+            }
+        }
+        final int[] order = IntStream.range(0, unsorted.length).boxed()
+                .sorted(Comparator.comparingLong(index -> unsorted[index]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.points = new long[order.length];
+        this.owners = new Endpoint[order.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = unsorted[order[i]];
+            owners[i] = endpoints[order[i] / POINTS_PER_ENDPOINT];
+        }
+    }
+
+    /**
+     * Locates the endpoint of a key: the owner of the first point at or after the hash of the key, unless it is at
+     * capacity, in which case the key moves on to the next owner along the ring which is not.
+     *
+     * @param keyHash hash of the key, see {@link #hash(Object)}
+     * @param capacity requests in flight at which an endpoint is skipped
+     * @return endpoint of the key; the owner of its point if every endpoint is at capacity
+     */
+    Endpoint locate(long keyHash, int capacity) {
+        int start = Arrays.binarySearch(points, keyHash);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        if (start == points.length) {
+            start = 0;
+        }
+        for (int i = start; i < points.length; i++) {
+            if (owners[i].getOutstandingRequests() < capacity) {
+                return owners[i];
+            }
+        }
+        for (int i = 0; i < start; i++) {
+            if (owners[i].getOutstandingRequests() < capacity) {
+                return owners[i];
+            }
+        }
+        // concurrent requests may fill up every endpoint in between the capacity and the walk
+        return owners[start];
+    }
+
+    /**
+     * Hashes a routing key. Character sequences, integral numbers and UUIDs are hashed without allocations, other keys
+     * by their <code>toString()</code>.
+     *
+     * @param key routing key
+     * @return 64-bit hash of the key
+     */
+    static long hash(Object key) {
+        if (key instanceof CharSequence chars) {
+            return hash(chars);
+        }
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return mix(((Number) key).longValue());
+        }
+        if (key instanceof UUID uuid) {
+            return mix(uuid.getMostSignificantBits() ^ mix(uuid.getLeastSignificantBits()));
+        }
+        return hash(key.toString());
+    }
+
+    /**
+     * FNV-1a over the characters, which spreads poorly on its own and is mixed afterwards.
+     */
+    private static long hash(CharSequence chars) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < chars.length(); i++) {
+            hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, every bit of the input affects every bit of the output.
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
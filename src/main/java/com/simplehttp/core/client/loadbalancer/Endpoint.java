@@ -0,0 +1,38 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An endpoint of a load balanced client and the number of its requests in flight.
+ */
+public final class Endpoint {
+
+    private final String url;
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+
+    Endpoint(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return base URL of the endpoint
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return number of requests sent to the endpoint which did not complete yet
+     */
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    void acquire() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    void release() {
+        outstandingRequests.decrementAndGet();
+    }
+}
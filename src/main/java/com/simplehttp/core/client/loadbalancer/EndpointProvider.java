@@ -0,0 +1,29 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import java.util.List;
+
+/**
+ * Supplies the endpoints a client spreads its requests across, e.g. from a service registry. Called for every request,
+ * so implementations should return a cached list; a load balancer only rebuilds its state when it receives another
+ * list instance.
+ */
+@FunctionalInterface
+public interface EndpointProvider {
+
+    /**
+     * @return base URLs of the endpoints, each replacing the host of the client; must not be modified once returned
+     */
+    List<String> getEndpoints();
+
+    /**
+     * @param endpoints base URLs of the endpoints
+     * @return provider of endpoints which do not change
+     */
+    static EndpointProvider of(List<String> endpoints) {
+        final List<String> staticEndpoints = List.copyOf(endpoints);
+        if (staticEndpoints.isEmpty()) {
+            throw new IllegalArgumentException("Endpoints cannot be empty!");
+        }
+        return () -> staticEndpoints;
+    }
+}
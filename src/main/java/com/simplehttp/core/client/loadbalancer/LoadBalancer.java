@@ -0,0 +1,158 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import com.simplehttp.httpclient.nio.NioHttpClient;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the requests of a client across the endpoints of an {@link EndpointProvider}.
+ *
+ * Requests without a routing key are balanced with the power of two choices: two distinct endpoints are picked at
+ * random and the one with fewer requests in flight receives the request. Unlike always picking the least loaded
+ * endpoint, this needs no ordering of all endpoints and does not send a burst of requests from many clients to the
+ * same endpoint.
+ *
+ * Requests with a routing key are routed with a consistent hash ring with bounded loads: a key keeps going to the
+ * same endpoint, unless that endpoint has more than 1.25 times the average number of requests in flight, in which
+ * case the key moves on along the ring. A hot key thereby spills over to other endpoints instead of overloading its
+ * own.
+ *
+ * The outstanding requests of an endpoint are kept when the provider returns a new list which still contains it.
+ * Endpoints on unix domain sockets(<code>unix://</code>) are rejected unless the HTTP client can reach them.
+ */
+public final class LoadBalancer {
+
+    /**
+     * Requests in flight of an endpoint, relative to the average of all endpoints, at which routed requests skip it.
+     */
+    static final double LOAD_FACTOR = 1.25;
+
+    private final EndpointProvider endpointProvider;
+    private final boolean unixSocketEndpoints;
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    private volatile Endpoints endpoints;
+
+    /**
+     * @param endpointProvider provider of the endpoints
+     */
+    public LoadBalancer(EndpointProvider endpointProvider) {
+        this(endpointProvider, true);
+    }
+
+    /**
+     * @param endpointProvider    provider of the endpoints
+     * @param unixSocketEndpoints whether the HTTP client reaches endpoints on unix domain sockets, which only a
+     *                            {@link NioHttpClient} does
+     */
+    public LoadBalancer(EndpointProvider endpointProvider, boolean unixSocketEndpoints) {
+        this.endpointProvider = Optional.ofNullable(endpointProvider)
+                .orElseThrow(() -> new IllegalArgumentException("Endpoint provider cannot be null!"));
+        this.unixSocketEndpoints = unixSocketEndpoints;
+        this.endpoints = new Endpoints(List.of(), new Endpoint[0]);
+    }
+
+    /**
+     * Chooses the endpoint of a request with the power of two choices. The endpoint must be
+     * {@link #release(Endpoint) released} once the request completed.
+     *
+     * @return endpoint of the request
+     * @throws IllegalStateException if the provider has no endpoints, or an endpoint the HTTP client cannot reach
+     */
+    public Endpoint choose() {
+        final Endpoint[] candidates = getEndpoints().endpoints;
+        final Endpoint chosen;
+        if (candidates.length == 1) {
+            chosen = candidates[0];
+        } else {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int first = random.nextInt(candidates.length);
+            // the second pick skips the first, so that two distinct endpoints are compared
+            final int second = (first + 1 + random.nextInt(candidates.length - 1)) % candidates.length;
+            chosen = candidates[second].getOutstandingRequests() < candidates[first].getOutstandingRequests()
+                    ? candidates[second] : candidates[first];
+        }
+        return acquire(chosen);
+    }
+
+    /**
+     * Chooses the endpoint of a request by its routing key on the consistent hash ring. The endpoint must be
+     * {@link #release(Endpoint) released} once the request completed.
+     *
+     * @param routingKey key of the request, see {@link com.simplehttp.core.annotation.http.RoutingKey}
+     * @return endpoint of the request
+     * @throws IllegalStateException if the provider has no endpoints, or an endpoint the HTTP client cannot reach
+     */
+    public Endpoint choose(Object routingKey) {
+        final Endpoints current = getEndpoints();
+        if (current.endpoints.length == 1) {
+            return acquire(current.endpoints[0]);
+        }
+        // counting this request, so that an idle endpoint always has room for it
+        final int capacity = (int) Math.ceil(LOAD_FACTOR * (outstandingRequests.get() + 1)
+                / current.endpoints.length);
+        return acquire(current.ring.locate(ConsistentHashRing.hash(routingKey), capacity));
+    }
+
+    /**
+     * @param endpoint endpoint of a completed request
+     */
+    public void release(Endpoint endpoint) {
+        endpoint.release();
+        outstandingRequests.decrementAndGet();
+    }
+
+    private Endpoint acquire(Endpoint endpoint) {
+        endpoint.acquire();
+        outstandingRequests.incrementAndGet();
+        return endpoint;
+    }
+
+    private Endpoints getEndpoints() {
+        final List<String> urls = endpointProvider.getEndpoints();
+        // checked first, the endpoints before the first request have the shared empty list
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalStateException("No endpoints are available");
+        }
+        final Endpoints current = endpoints;
+        if (current.urls == urls) {
+            return current;
+        }
+        if (!unixSocketEndpoints) {
+            urls.stream().filter(NioHttpClient::isUnixSocketUrl).findFirst().ifPresent(url -> {
+                throw new IllegalStateException("Endpoint " + url
+                        + " is a unix domain socket, which only a NioHttpClient can reach");
+            });
+        }
+        // concurrent refreshes may each build the endpoints, the last one wins
+        final Map<String, Endpoint> previous = new HashMap<>();
+        for (Endpoint endpoint : current.endpoints) {
+            previous.put(endpoint.getUrl(), endpoint);
+        }
+        final Endpoint[] refreshed = urls.stream()
+                .map(url -> previous.getOrDefault(url, new Endpoint(url)))
+                .toArray(Endpoint[]::new);
+        final Endpoints next = new Endpoints(urls, refreshed);
+        endpoints = next;
+        return next;
+    }
+
+    /**
+     * The endpoints built from a list of the provider, and their hash ring.
+     */
+    private static final class Endpoints {
+        private final List<String> urls;
+        private final Endpoint[] endpoints;
+        private final ConsistentHashRing ring;
+
+        private Endpoints(List<String> urls, Endpoint[] endpoints) {
+            this.urls = urls;
+            this.endpoints = endpoints;
+            this.ring = new ConsistentHashRing(endpoints);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An {@link EndpointProvider} whose endpoints are replaced at runtime, e.g. by a listener of a service registry,
+ * without rebuilding the clients using it. Requests in flight complete on the endpoint they were sent to.
+ */
+public class RefreshableEndpointProvider implements EndpointProvider {
+
+    private volatile List<String> endpoints;
+
+    /**
+     * @param endpoints initial base URLs of the endpoints
+     */
+    public RefreshableEndpointProvider(Collection<String> endpoints) {
+        setEndpoints(endpoints);
+    }
+
+    @Override
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @param endpoints base URLs of the endpoints of the following requests
+     */
+    public void setEndpoints(Collection<String> endpoints) {
+        final List<String> newEndpoints = List.copyOf(endpoints);
+        if (newEndpoints.isEmpty()) {
+            throw new IllegalArgumentException("Endpoints cannot be empty!");
+        }
+        this.endpoints = newEndpoints;
+    }
+}
@@ -3,6 +3,8 @@ package com.simplehttp.core.client.model;
 import lombok.Builder;
 import lombok.Data;
 
+import java.lang.reflect.Method;
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -10,5 +12,16 @@ import java.util.Map;
 public class ClientMetadata {
     private String name;
     private String host;
+    /**
+     * Hosts of the replicas of the client's service which requests are spread across; empty to send all requests to
+     * {@link #host}.
+     */
+    @Builder.Default
+    private List<String> hosts = List.of();
+    /**
+     * Request templates keyed by method name. Overloaded methods share a name, so only the first overload is
+     * reachable from this map - prefer {@link #methodToRequestTemplate}.
+     */
     private Map<String, ClientMethodMetaData> methodNameToRequestTemplate;
+    private Map<Method, ClientMethodMetaData> methodToRequestTemplate;
 }
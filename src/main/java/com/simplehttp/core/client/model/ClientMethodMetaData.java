@@ -2,6 +2,7 @@ package com.simplehttp.core.client.model;
 
 import com.simplehttp.core.client.http.HttpMultiValueMap;
 import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.http.UrlTemplate;
 import lombok.Builder;
 import lombok.Data;
 
@@ -10,13 +11,19 @@ import java.lang.reflect.Type;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class ClientMethodMetaData {
     private Method method;
     private HttpMethod httpMethod;
     private String url;
+    private UrlTemplate urlTemplate;
     private HttpMultiValueMap headers;
     private HttpMultiValueMap queryParams;
     private List<ParameterMetaData> parameterMetaDataList;
     private Type responseType;
+    /**
+     * Minimum size of a request body which is sent compressed; -1 to never compress.
+     */
+    @Builder.Default
+    private int compressionThreshold = -1;
 }
@@ -9,7 +9,8 @@ import java.lang.reflect.Parameter;
 public class ParameterMetaData {
 
     public enum Type {
-        URL, PATH_PARAM, QUERY_PARAM, QUERY_PARAM_MAP, HTTP_HEADER, HTTP_HEADER_MAP, REQUEST_BODY, NONE
+        URL, PATH_PARAM, QUERY_PARAM, QUERY_PARAM_MAP, HTTP_HEADER, HTTP_HEADER_MAP, REQUEST_BODY, DOWNLOAD_TO,
+        ROUTING_KEY, NONE
     }
 
     private Type type;
@@ -2,11 +2,14 @@ package com.simplehttp.core.client.model;
 
 import com.simplehttp.core.client.http.HttpMultiValueMap;
 import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.codec.BodyReader;
+import com.simplehttp.core.codec.BodyWriter;
 import lombok.Builder;
 import lombok.Data;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.nio.file.Path;
 import java.util.List;
 
 @Data
@@ -18,6 +21,24 @@ public class Request {
     private HttpMultiValueMap queryParams;
     private Object body;
     private Type responseType;
+    /**
+     * File the response body is streamed to instead of being parsed; null to parse the body into the response type.
+     */
+    private Path downloadTo;
+    /**
+     * Reader of the response body resolved for the client method; null to let the HTTP client resolve one.
+     */
+    private BodyReader<?> bodyReader;
+    /**
+     * Writer of the request body(or its elements) resolved for the client method; null to let the HTTP client
+     * resolve one.
+     */
+    private BodyWriter bodyWriter;
+    /**
+     * Minimum size of the request body from which it is sent gzip-compressed; -1 to send it uncompressed.
+     */
+    @Builder.Default
+    private int compressionThreshold = -1;
 
     private Method method;
     private List<ParameterInfo> parameters;
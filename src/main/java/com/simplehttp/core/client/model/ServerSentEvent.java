@@ -0,0 +1,26 @@
+package com.simplehttp.core.client.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * An event of a <code>text/event-stream</code> response. Client methods returning a
+ * <code>Flow.Publisher&lt;ServerSentEvent&lt;T&gt;&gt;</code> receive the id and type of each event along with its
+ * data, methods returning a <code>Flow.Publisher&lt;T&gt;</code> only the data.
+ *
+ * @param <T> type the data of the event is deserialized into
+ */
+@Data
+@Builder
+public class ServerSentEvent<T> {
+    /**
+     * Id of the last event received on the stream, sent as <code>Last-Event-ID</code> when the stream reconnects;
+     * null if no event had an id.
+     */
+    private String id;
+    /**
+     * Type of the event; <code>message</code> unless the event has an <code>event</code> field.
+     */
+    private String event;
+    private T data;
+}
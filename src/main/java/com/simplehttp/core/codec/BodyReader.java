@@ -0,0 +1,39 @@
+package com.simplehttp.core.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Deserializes response bodies of a single type. Resolved by a {@link Codec} once per client method; must be
+ * thread-safe.
+ *
+ * @param <T> type of the deserialized body
+ */
+@FunctionalInterface
+public interface BodyReader<T> {
+
+    /**
+     * Reads a body directly from the network stream. The caller closes the stream, unless the body is read lazily into
+     * a <code>Stream</code> or <code>Iterator</code>, which then owns the stream.
+     *
+     * @param body response body
+     * @param charset charset of the response content type; UTF-8 by default
+     * @return deserialized body; null for empty bodies
+     * @throws IOException if the body cannot be read or deserialized
+     */
+    T read(InputStream body, Charset charset) throws IOException;
+
+    /**
+     * Reads a body which was already received completely.
+     *
+     * @param body response body bytes
+     * @param charset charset of the response content type; UTF-8 by default
+     * @return deserialized body; null for empty bodies
+     * @throws IOException if the body cannot be deserialized
+     */
+    default T read(byte[] body, Charset charset) throws IOException {
+        return read(new ByteArrayInputStream(body), charset);
+    }
+}
@@ -0,0 +1,40 @@
+package com.simplehttp.core.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serializes request bodies of a single type. Resolved by a {@link Codec} once per client method; must be
+ * thread-safe.
+ */
+@FunctionalInterface
+public interface BodyWriter {
+
+    /**
+     * Writes a body to the connection or a buffer. Does not close the stream.
+     *
+     * @param body request body, or an element of a <code>Stream</code> or <code>Iterator</code> body
+     * @param out stream to write to
+     * @throws IOException if the body cannot be serialized or written
+     */
+    void write(Object body, OutputStream out) throws IOException;
+
+    /**
+     * @param body request body
+     * @return serialized body
+     * @throws IOException if the body cannot be serialized
+     */
+    default byte[] toBytes(Object body) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(body, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return content type sent unless the request has a content type header; null for none
+     */
+    default String getContentType() {
+        return null;
+    }
+}
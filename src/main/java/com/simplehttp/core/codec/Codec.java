@@ -0,0 +1,27 @@
+package com.simplehttp.core.codec;
+
+import java.lang.reflect.Type;
+
+/**
+ * Serializes request bodies and deserializes response bodies. A reader and a writer are resolved once per client
+ * method, for its response type and the type of its <code>@RequestBody</code> parameter, when the client is built(or
+ * when a lazily extracted method is first invoked), so that no type resolution or converter lookup happens per request.
+ *
+ * Codecs are configured with {@link com.simplehttp.core.client.ClientBuilder#withCodec(Codec)}; by default the codec
+ * of the HTTP client is used.
+ */
+public interface Codec {
+
+    /**
+     * @param type response type of a client method; for asynchronous methods the type argument of the future
+     * @return reader of response bodies of the type
+     */
+    BodyReader<?> reader(Type type);
+
+    /**
+     * @param type declared type of a request body; for <code>Stream</code> and <code>Iterator</code> bodies the type
+     *             of their elements
+     * @return writer of request bodies of the type
+     */
+    BodyWriter writer(Type type);
+}
@@ -0,0 +1,173 @@
+package com.simplehttp.core.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.simplehttp.httpclient.HttpMessageSupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A JSON codec with a pre-built Jackson {@link ObjectReader} or {@link ObjectWriter} per type, so that the root
+ * (de)serializer is looked up once instead of on every request. Strings and byte arrays are passed through as-is.
+ * <code>Stream</code> and <code>Iterator</code> response types are decoded incrementally from a JSON array or NDJSON
+ * body while they are consumed.
+ */
+public class JacksonCodec implements Codec {
+
+    private static final BodyReader<Object> DISCARDING_READER = (body, charset) -> null;
+    private static final BodyReader<byte[]> BYTES_READER = new BodyReader<>() {
+        @Override
+        public byte[] read(InputStream body, Charset charset) throws IOException {
+            return body.readAllBytes();
+        }
+
+        @Override
+        public byte[] read(byte[] body, Charset charset) {
+            return body;
+        }
+    };
+    private static final BodyReader<String> STRING_READER = new BodyReader<>() {
+        @Override
+        public String read(InputStream body, Charset charset) throws IOException {
+            return new String(body.readAllBytes(), charset);
+        }
+
+        @Override
+        public String read(byte[] body, Charset charset) {
+            return new String(body, charset);
+        }
+    };
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Creates a codec which ignores unknown properties, like Spring's JSON message converter.
+     */
+    public JacksonCodec() {
+        this(HttpMessageSupport.newObjectMapper());
+    }
+
+    /**
+     * @param objectMapper mapper the readers and writers are built from
+     */
+    public JacksonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = Optional.ofNullable(objectMapper)
+                .orElseThrow(() -> new IllegalArgumentException("Object mapper cannot be null!"));
+    }
+
+    @Override
+    public BodyReader<?> reader(Type type) {
+        if (type == null || type == void.class || type == Void.class) {
+            return DISCARDING_READER;
+        }
+        if (type == byte[].class) {
+            return BYTES_READER;
+        }
+        if (type == String.class) {
+            return STRING_READER;
+        }
+        final JavaType javaType = objectMapper.getTypeFactory().constructType(type);
+        if (javaType.getRawClass() == Stream.class || javaType.getRawClass() == Iterator.class) {
+            // the body is closed by the iterator, once it was read to its end
+            return new ElementsReader(objectMapper.readerFor(javaType.containedTypeOrUnknown(0))
+                    .without(JsonParser.Feature.AUTO_CLOSE_SOURCE), javaType.getRawClass() == Stream.class);
+        }
+        return new JsonReader(objectMapper.readerFor(javaType));
+    }
+
+    @Override
+    public BodyWriter writer(Type type) {
+        final JavaType javaType = objectMapper.getTypeFactory().constructType(type == null ? Object.class : type);
+        // a writer for a non-final class would serialize subclasses as the declared class, those are serialized by
+        // their runtime type instead
+        final boolean staticType = type instanceof ParameterizedType || javaType.isArrayType()
+                || Modifier.isFinal(javaType.getRawClass().getModifiers());
+        final ObjectWriter objectWriter = staticType ? objectMapper.writerFor(javaType) : objectMapper.writer();
+        return new JsonWriter(objectWriter.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+    }
+
+    private static final class JsonReader implements BodyReader<Object> {
+
+        private final ObjectReader objectReader;
+
+        JsonReader(ObjectReader objectReader) {
+            this.objectReader = objectReader;
+        }
+
+        @Override
+        public Object read(InputStream body, Charset charset) throws IOException {
+            // an empty body is null instead of a parse error, which needs a look at the first byte
+            final PushbackInputStream pushback = new PushbackInputStream(body, 1);
+            final int first = pushback.read();
+            if (first == -1) {
+                return null;
+            }
+            pushback.unread(first);
+            return objectReader.readValue(pushback);
+        }
+
+        @Override
+        public Object read(byte[] body, Charset charset) throws IOException {
+            return body.length == 0 ? null : objectReader.readValue(body);
+        }
+    }
+
+    /**
+     * Reads <code>Stream</code> and <code>Iterator</code> response types lazily, an element at a time. The returned
+     * stream or iterator owns the body and closes it.
+     */
+    private static final class ElementsReader implements BodyReader<Object> {
+
+        private final ObjectReader elementReader;
+        private final boolean stream;
+
+        ElementsReader(ObjectReader elementReader, boolean stream) {
+            this.elementReader = elementReader;
+            this.stream = stream;
+        }
+
+        @Override
+        public Object read(InputStream body, Charset charset) throws IOException {
+            final JsonElementIterator elements = new JsonElementIterator(elementReader.readValues(body), body);
+            return stream ? elements.stream() : elements;
+        }
+    }
+
+    private static final class JsonWriter implements BodyWriter {
+
+        private final ObjectWriter objectWriter;
+
+        JsonWriter(ObjectWriter objectWriter) {
+            this.objectWriter = objectWriter;
+        }
+
+        @Override
+        public void write(Object body, OutputStream out) throws IOException {
+            objectWriter.writeValue(out, body);
+        }
+
+        @Override
+        public byte[] toBytes(Object body) throws IOException {
+            return objectWriter.writeValueAsBytes(body);
+        }
+
+        @Override
+        public String getContentType() {
+            return HttpMessageSupport.JSON_CONTENT_TYPE;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.simplehttp.core.codec;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Decodes the elements of a JSON array, or of a sequence of root-level JSON values like NDJSON, from a response body
+ * while they are iterated. Only the element being decoded is held in memory. The body, and with it the connection of
+ * the response, is released once the last element was read, or when the iterator is closed before that.
+ */
+final class JsonElementIterator implements Iterator<Object>, Closeable {
+
+    private final MappingIterator<Object> values;
+    private final InputStream body;
+    private boolean closed;
+
+    /**
+     * @param values values read from the body
+     * @param body response body; closed with the iterator
+     */
+    JsonElementIterator(MappingIterator<Object> values, InputStream body) {
+        this.values = values;
+        this.body = body;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (values.hasNextValue()) {
+                return true;
+            }
+            // the rest of the body, e.g. a trailing line break, is read so that the connection can be reused
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return values.nextValue();
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Releases the body. A body which was not read to its end closes its connection instead of returning it to the
+     * pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (body) {
+            values.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return sequential stream of the elements, which closes the iterator when it is closed
+     */
+    Stream<Object> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (UncheckedIOException ignored) {
+            // the error which failed the iteration is reported instead
+        }
+    }
+}
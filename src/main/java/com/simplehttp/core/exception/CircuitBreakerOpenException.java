@@ -0,0 +1,19 @@
+package com.simplehttp.core.exception;
+
+import com.simplehttp.core.client.model.Request;
+import lombok.Getter;
+
+/**
+ * Passed to the error handlers when a request is rejected without being sent because the circuit of its host or of
+ * its client method is open.
+ */
+@Getter
+public class CircuitBreakerOpenException extends SimpleHttpException {
+
+    private final String circuit;
+
+    public CircuitBreakerOpenException(String message, Request request, String circuit) {
+        super(message, request);
+        this.circuit = circuit;
+    }
+}
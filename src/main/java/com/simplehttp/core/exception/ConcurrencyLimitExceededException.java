@@ -0,0 +1,19 @@
+package com.simplehttp.core.exception;
+
+import com.simplehttp.core.client.model.Request;
+import lombok.Getter;
+
+/**
+ * Passed to the error handlers when a request is shed without being sent because its client or client method already
+ * has as many requests in flight as its concurrency limit allows.
+ */
+@Getter
+public class ConcurrencyLimitExceededException extends SimpleHttpException {
+
+    private final int limit;
+
+    public ConcurrencyLimitExceededException(String message, Request request, int limit) {
+        super(message, request);
+        this.limit = limit;
+    }
+}
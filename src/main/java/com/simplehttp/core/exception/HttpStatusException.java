@@ -0,0 +1,27 @@
+package com.simplehttp.core.exception;
+
+import com.simplehttp.core.client.model.Request;
+import lombok.Getter;
+
+/**
+ * Thrown by HTTP clients when a request completes with an error(4xx or 5xx) status code.
+ */
+@Getter
+public class HttpStatusException extends SimpleHttpException {
+
+    private final int statusCode;
+    private final String responseBody;
+
+    public HttpStatusException(String message, Request request, int statusCode, String responseBody) {
+        super(message, request);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public HttpStatusException(String message, Request request, int statusCode, String responseBody,
+                               Exception exception) {
+        super(message, request, exception);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+}
@@ -0,0 +1,114 @@
+package com.simplehttp.httpclient;
+
+import com.simplehttp.core.codec.BodyWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Serializes the elements of a request body as a JSON array or NDJSON while it is read. Only the element being sent is
+ * held in memory, so bodies of any number of elements are sent with constant memory.
+ */
+final class ElementsInputStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Iterator<?> elements;
+    private final AutoCloseable source;
+    private final boolean ndjson;
+    private final BodyWriter elementWriter;
+
+    private byte[] pending = EMPTY;
+    private int position;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * @param elements elements to serialize
+     * @param source closed with the stream; may be null
+     * @param ndjson true to write one JSON element per line instead of a JSON array
+     */
+    ElementsInputStream(Iterator<?> elements, AutoCloseable source, boolean ndjson, BodyWriter elementWriter) {
+        this.elements = elements;
+        this.source = source;
+        this.ndjson = ndjson;
+        this.elementWriter = elementWriter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < length) {
+            if (position == pending.length && !next()) {
+                break;
+            }
+            final int count = Math.min(length - read, pending.length - position);
+            System.arraycopy(pending, position, buffer, offset + read, count);
+            position += count;
+            read += count;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * Serializes the next element with its delimiters.
+     *
+     * @return false at the end of the body
+     */
+    private boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        position = 0;
+        final Object next;
+        try {
+            if (!elements.hasNext()) {
+                finished = true;
+                pending = ndjson ? EMPTY : started ? new byte[]{']'} : new byte[]{'[', ']'};
+                return pending.length > 0;
+            }
+            next = elements.next();
+        } catch (RuntimeException e) {
+            // readers of an input stream, e.g. HTTP clients sending the body, only expect IO errors
+            throw new IOException("Unable to read the next element of the request body", e);
+        }
+        final byte[] element = elementWriter.toBytes(next);
+        final byte[] delimited = new byte[element.length + 1];
+        if (ndjson) {
+            System.arraycopy(element, 0, delimited, 0, element.length);
+            delimited[element.length] = '\n';
+        } else {
+            delimited[0] = (byte) (started ? ',' : '[');
+            System.arraycopy(element, 0, delimited, 1, element.length);
+        }
+        started = true;
+        pending = delimited;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        pending = EMPTY;
+        position = 0;
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
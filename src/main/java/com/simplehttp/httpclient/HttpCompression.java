@@ -0,0 +1,483 @@
+package com.simplehttp.httpclient;
+
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.model.Request;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Content codings shared by the HTTP client implementations. Responses are requested with
+ * <code>Accept-Encoding: gzip, deflate</code> and decompressed while they are read. Request bodies of methods with a
+ * {@link Request#getCompressionThreshold() compression threshold} are sent gzip-compressed.
+ *
+ * {@link Inflater}s and {@link Deflater}s hold native memory which is only freed by <code>end()</code> or by the
+ * garbage collector, so they are pooled instead of being created per message like <code>GZIPInputStream</code> does.
+ */
+public final class HttpCompression {
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final int MAX_IDLE = 64;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final Pool<Inflater> RAW_INFLATERS = new Pool<>(() -> new Inflater(true), Inflater::reset,
+            Inflater::end);
+    private static final Pool<Inflater> ZLIB_INFLATERS = new Pool<>(Inflater::new, Inflater::reset, Inflater::end);
+    private static final Pool<Deflater> DEFLATERS = new Pool<>(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true),
+            Deflater::reset, Deflater::end);
+
+    private HttpCompression() {}
+
+    /**
+     * @param headers request headers; may be null
+     * @return true unless the request asks for specific encodings itself
+     */
+    public static boolean isAcceptEncodingMissing(HttpMultiValueMap headers) {
+        return headers == null || headers.getFirst(ACCEPT_ENCODING) == null;
+    }
+
+    /**
+     * @param request request to execute
+     * @param contentLength length of the serialized body; -1 if the length of a streamed body is unknown
+     * @return true if the body is sent gzip-compressed: the method has a compression threshold which the body
+     *         reaches, or whose length is unknown, and the request has no content encoding of its own
+     */
+    public static boolean isCompressed(Request request, long contentLength) {
+        final int threshold = request.getCompressionThreshold();
+        return threshold >= 0 && request.getBody() != null && (contentLength < 0 || contentLength >= threshold)
+                && (request.getHeaders() == null || request.getHeaders().getFirst(CONTENT_ENCODING) == null);
+    }
+
+    /**
+     * Wraps a response body to be decompressed while it is read. Closing the returned stream closes the body.
+     *
+     * @param body response body
+     * @param contentEncoding content encoding header of the response; may be null
+     * @return decompressing stream; the body itself if it is not compressed with gzip or deflate
+     */
+    public static InputStream decode(InputStream body, String contentEncoding) {
+        if (contentEncoding == null) {
+            return body;
+        }
+        final String encoding = contentEncoding.trim();
+        if (encoding.equalsIgnoreCase(GZIP) || encoding.equalsIgnoreCase("x-gzip")) {
+            return new InflatingInputStream(body, true);
+        }
+        if (encoding.equalsIgnoreCase(DEFLATE)) {
+            return new InflatingInputStream(body, false);
+        }
+        return body;
+    }
+
+    /**
+     * @param body response body, possibly wrapped by {@link #decode(InputStream, String)}
+     * @return stream the body is decompressed from; the body itself if it is not decompressed. Closing it aborts a
+     *         read of the body which is blocked on the network without touching the decompression state.
+     */
+    public static InputStream getSource(InputStream body) {
+        return body instanceof InflatingInputStream inflating ? inflating.source : body;
+    }
+
+    /**
+     * @param body response body which was received completely
+     * @param contentEncoding content encoding header of the response; may be null
+     * @return decompressed body
+     * @throws IOException if the body is not valid gzip or deflate data
+     */
+    public static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        final InputStream decoded = decode(new ByteArrayInputStream(body), contentEncoding);
+        if (decoded instanceof ByteArrayInputStream) {
+            return body;
+        }
+        try (decoded) {
+            return decoded.readAllBytes();
+        }
+    }
+
+    /**
+     * @param body request body bytes
+     * @return body compressed in the gzip format
+     * @throws IOException never for an in-memory body
+     */
+    public static byte[] gzip(byte[] body) throws IOException {
+        try (InputStream compressed = gzip(new ByteArrayInputStream(body))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+            compressed.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Compresses a streamed request body in the gzip format while it is read. Closing the returned stream closes the
+     * body.
+     *
+     * @param body request body stream
+     * @return stream of the compressed body
+     */
+    public static InputStream gzip(InputStream body) {
+        return new DeflatingInputStream(body);
+    }
+
+    /**
+     * Inflates a gzip or deflate body with a pooled inflater, which is returned to its pool once the stream is
+     * closed. The gzip header is read lazily, so wrapping an empty body does not fail.
+     *
+     * The stream may be closed by another thread while a read is blocked, e.g. to cancel an event stream. Closing only
+     * closes the source then, and the inflater is returned to its pool by the reading thread once the read ended, so
+     * that it is never handed to another response while it is still in use.
+     */
+    private static final class InflatingInputStream extends InputStream {
+
+        private static final int READING = 1;
+        private static final int CLOSED = 2;
+
+        private final InputStream source;
+        private final PushbackInputStream in;
+        private final AtomicInteger state = new AtomicInteger();
+        private final boolean gzip;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final CRC32 crc = new CRC32();
+        private Pool<Inflater> pool;
+        private Inflater inflater;
+        private int inputLength;
+        private boolean started;
+        private boolean finished;
+
+        InflatingInputStream(InputStream in, boolean gzip) {
+            this.source = in;
+            this.in = new PushbackInputStream(in, BUFFER_SIZE);
+            this.gzip = gzip;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!state.compareAndSet(0, READING)) {
+                throw new IOException((state.get() & CLOSED) != 0 ? "Stream closed"
+                        : "Compressed body is read by another thread");
+            }
+            try {
+                return inflate(b, off, len);
+            } finally {
+                // a close while reading left the inflater to this thread
+                if ((state.getAndUpdate(current -> current & ~READING) & CLOSED) != 0) {
+                    release();
+                }
+            }
+        }
+
+        private int inflate(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!started && !start()) {
+                return -1;
+            }
+            if (finished) {
+                return -1;
+            }
+            try {
+                int inflated;
+                while ((inflated = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished()) {
+                        finish();
+                        return -1;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("Deflate dictionaries are not supported");
+                    }
+                    final int read = in.read(buffer, 0, buffer.length);
+                    if (read == -1) {
+                        throw new EOFException("Unexpected end of compressed body");
+                    }
+                    inflater.setInput(buffer, 0, read);
+                    inputLength = read;
+                }
+                if (gzip) {
+                    crc.update(b, off, inflated);
+                }
+                return inflated;
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid compressed body: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Reads the gzip header, or detects a zlib header for deflate, which some servers leave out.
+         *
+         * @return false if the body is empty
+         */
+        private boolean start() throws IOException {
+            started = true;
+            final int first = in.read();
+            if (first == -1) {
+                finished = true;
+                return false;
+            }
+            in.unread(first);
+            if (gzip) {
+                readGzipHeader();
+                pool = RAW_INFLATERS;
+            } else {
+                final int cmf = in.read();
+                final int flg = in.read();
+                if (flg != -1) {
+                    in.unread(flg);
+                }
+                in.unread(cmf);
+                final boolean zlib = flg != -1 && (cmf & 0x0f) == Deflater.DEFLATED && ((cmf << 8) | flg) % 31 == 0;
+                pool = zlib ? ZLIB_INFLATERS : RAW_INFLATERS;
+            }
+            inflater = pool.acquire();
+            return true;
+        }
+
+        private void readGzipHeader() throws IOException {
+            if (readUnsignedShort() != GZIP_MAGIC) {
+                throw new ZipException("Not in gzip format");
+            }
+            if (readUnsignedByte() != Deflater.DEFLATED) {
+                throw new ZipException("Unsupported gzip compression method");
+            }
+            final int flags = readUnsignedByte();
+            // modification time, extra flags and operating system
+            skipFully(6);
+            if ((flags & FEXTRA) != 0) {
+                skipFully(readUnsignedShort());
+            }
+            if ((flags & FNAME) != 0) {
+                skipString();
+            }
+            if ((flags & FCOMMENT) != 0) {
+                skipString();
+            }
+            if ((flags & FHCRC) != 0) {
+                skipFully(2);
+            }
+        }
+
+        /**
+         * Hands the input the inflater did not consume back to the stream and checks the gzip trailer.
+         */
+        private void finish() throws IOException {
+            finished = true;
+            final int remaining = inflater.getRemaining();
+            if (remaining > 0) {
+                in.unread(buffer, inputLength - remaining, remaining);
+            }
+            if (gzip) {
+                final long expectedCrc = readUnsignedInt();
+                final long expectedSize = readUnsignedInt();
+                if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+                    throw new ZipException("Corrupt gzip trailer");
+                }
+            }
+            release();
+        }
+
+        private int readUnsignedByte() throws IOException {
+            final int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Unexpected end of compressed body");
+            }
+            return b;
+        }
+
+        private int readUnsignedShort() throws IOException {
+            return readUnsignedByte() | (readUnsignedByte() << 8);
+        }
+
+        private long readUnsignedInt() throws IOException {
+            return ((long) readUnsignedShort()) | ((long) readUnsignedShort() << 16);
+        }
+
+        private void skipFully(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                readUnsignedByte();
+            }
+        }
+
+        private void skipString() throws IOException {
+            while (readUnsignedByte() != 0) {
+                // zero-terminated
+            }
+        }
+
+        private void release() {
+            if (inflater != null) {
+                pool.release(inflater);
+                inflater = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            final int previous = state.getAndUpdate(current -> current | CLOSED);
+            if ((previous & CLOSED) != 0) {
+                return;
+            }
+            if ((previous & READING) == 0) {
+                release();
+            }
+            source.close();
+        }
+    }
+
+    /**
+     * Compresses a stream in the gzip format with a pooled deflater, which is returned to its pool once the stream
+     * is closed.
+     */
+    private static final class DeflatingInputStream extends InputStream {
+
+        private final InputStream in;
+        private final byte[] input = new byte[BUFFER_SIZE];
+        private final CRC32 crc = new CRC32();
+        private Deflater deflater = DEFLATERS.acquire();
+        private byte[] pending = GZIP_HEADER;
+        private int position;
+        private boolean finished;
+        private boolean closed;
+
+        DeflatingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            // the header and trailer are copied from the pending bytes, the data is deflated directly into b
+            if (pending != null) {
+                final int count = Math.min(len, pending.length - position);
+                System.arraycopy(pending, position, b, off, count);
+                position += count;
+                if (position == pending.length) {
+                    pending = null;
+                    position = 0;
+                }
+                return count;
+            }
+            if (finished) {
+                return -1;
+            }
+            int deflated;
+            while ((deflated = deflater.deflate(b, off, len)) == 0) {
+                if (deflater.finished()) {
+                    finished = true;
+                    pending = trailer();
+                    DEFLATERS.release(deflater);
+                    deflater = null;
+                    return read(b, off, len);
+                }
+                if (deflater.needsInput()) {
+                    final int read = in.read(input, 0, input.length);
+                    if (read == -1) {
+                        deflater.finish();
+                    } else {
+                        crc.update(input, 0, read);
+                        deflater.setInput(input, 0, read);
+                    }
+                }
+            }
+            return deflated;
+        }
+
+        private byte[] trailer() {
+            final long value = crc.getValue();
+            final long size = deflater.getBytesRead();
+            return new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)};
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (deflater != null) {
+                DEFLATERS.release(deflater);
+                deflater = null;
+            }
+            in.close();
+        }
+    }
+
+    /**
+     * A bounded pool of idle native (de)compressors. Instances are reset when they are returned, those beyond the
+     * bound are ended instead.
+     */
+    private static final class Pool<T> {
+
+        private final Supplier<T> factory;
+        private final Consumer<T> reset;
+        private final Consumer<T> end;
+        private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        Pool(Supplier<T> factory, Consumer<T> reset, Consumer<T> end) {
+            this.factory = factory;
+            this.reset = reset;
+            this.end = end;
+        }
+
+        T acquire() {
+            final T instance = idle.poll();
+            if (instance == null) {
+                return factory.get();
+            }
+            idleCount.decrementAndGet();
+            return instance;
+        }
+
+        void release(T instance) {
+            reset.accept(instance);
+            if (idleCount.incrementAndGet() <= MAX_IDLE) {
+                idle.offer(instance);
+            } else {
+                idleCount.decrementAndGet();
+                end.accept(instance);
+            }
+        }
+    }
+}
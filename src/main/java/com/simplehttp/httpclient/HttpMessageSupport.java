@@ -0,0 +1,323 @@
+package com.simplehttp.httpclient;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.codec.BodyReader;
+import com.simplehttp.core.codec.BodyWriter;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.utils.Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Encoding and decoding shared by the HTTP client implementations. Bodies are written and read by the
+ * {@link BodyReader readers} and {@link BodyWriter writers} of a {@link Codec}, string and byte array request bodies
+ * are passed through.
+ *
+ * Responses of requests with an <code>InputStream</code>, <code>ReadableByteChannel</code>, <code>Stream</code> or
+ * <code>Iterator</code> response type, or a {@link Request#getDownloadTo() download target}, are streamed instead of
+ * being read into memory. So are request bodies of type <code>Path</code>, <code>InputStream</code>,
+ * <code>ByteBuffer</code>, <code>Stream</code> and <code>Iterator</code>, whose elements are serialized one at a time
+ * as a JSON array, or as NDJSON if the request has an NDJSON content type.
+ */
+public final class HttpMessageSupport {
+
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    public static final String OCTET_STREAM_CONTENT_TYPE = "application/octet-stream";
+
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+
+    private HttpMessageSupport() {}
+
+    /**
+     * @return object mapper configured like Spring's JSON message converter, which ignores unknown properties
+     */
+    public static ObjectMapper newObjectMapper() {
+        return new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Appends the percent-encoded query params to a URL.
+     *
+     * @param url request URL, which may already have a query
+     * @param queryParams query params of the request; may be null
+     * @return URL with query
+     */
+    public static String buildUrl(String url, HttpMultiValueMap queryParams) {
+        if (queryParams == null || queryParams.isEmpty()) {
+            return url;
+        }
+        final StringBuilder urlBuilder = new StringBuilder(url.length() + queryParams.size() * 16).append(url);
+        final boolean[] hasQuery = {url.indexOf('?') != -1};
+        queryParams.forEach((name, value) -> {
+            urlBuilder.append(hasQuery[0] ? '&' : '?').append(encodeQueryComponent(name));
+            if (value != null) {
+                urlBuilder.append('=').append(encodeQueryComponent(value));
+            }
+            hasQuery[0] = true;
+        });
+        return urlBuilder.toString();
+    }
+
+    /**
+     * @param request request to execute
+     * @param codec codec of the HTTP client
+     * @return reader resolved for the client method of the request; resolved from the codec if the request has none
+     */
+    public static BodyReader<?> getBodyReader(Request request, Codec codec) {
+        return request.getBodyReader() != null ? request.getBodyReader() : codec.reader(request.getResponseType());
+    }
+
+    /**
+     * @param request request to execute
+     * @param codec codec of the HTTP client
+     * @return writer resolved for the client method of the request; resolved from the codec if the request has none
+     */
+    public static BodyWriter getBodyWriter(Request request, Codec codec) {
+        if (request.getBodyWriter() != null) {
+            return request.getBodyWriter();
+        }
+        final Object body = request.getBody();
+        return codec.writer(body == null || body instanceof Stream || body instanceof Iterator ? Object.class
+                : body.getClass());
+    }
+
+    /**
+     * Serializes a request body.
+     *
+     * @param body request body; may be null
+     * @param writer writer of the body
+     * @return body bytes; null if there is no body
+     * @throws IOException if the body cannot be serialized
+     */
+    public static byte[] serializeBody(Object body, BodyWriter writer) throws IOException {
+        if (body == null) {
+            return null;
+        }
+        if (body instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (body instanceof String string) {
+            return string.getBytes(StandardCharsets.UTF_8);
+        }
+        return writer.toBytes(body);
+    }
+
+    /**
+     * Serializes a request body directly to a stream.
+     *
+     * @param body request body
+     * @param writer writer of the body
+     * @param out stream to write to; not closed
+     * @throws IOException if the body cannot be serialized or written
+     */
+    public static void writeBody(Object body, BodyWriter writer, OutputStream out) throws IOException {
+        if (body instanceof byte[] bytes) {
+            out.write(bytes);
+        } else if (body instanceof String string) {
+            out.write(string.getBytes(StandardCharsets.UTF_8));
+        } else {
+            writer.write(body, out);
+        }
+    }
+
+    /**
+     * @param body request body; may be null
+     * @return true if the body is streamed instead of being serialized into memory
+     */
+    public static boolean isStreamingBody(Object body) {
+        return isRawStreamingBody(body) || body instanceof Stream || body instanceof Iterator;
+    }
+
+    private static boolean isRawStreamingBody(Object body) {
+        return body instanceof Path || body instanceof InputStream || body instanceof ByteBuffer;
+    }
+
+    /**
+     * @param body request body; may be null
+     * @param writer writer of the body, or of the elements of a <code>Stream</code> or <code>Iterator</code> body
+     * @return content type sent unless the request has a content type header; null for strings and byte arrays
+     */
+    public static String getDefaultContentType(Object body, BodyWriter writer) {
+        if (body == null || body instanceof byte[] || body instanceof String) {
+            return null;
+        }
+        if (isRawStreamingBody(body)) {
+            return OCTET_STREAM_CONTENT_TYPE;
+        }
+        return writer.getContentType();
+    }
+
+    /**
+     * @param body {@link #isStreamingBody(Object) streamed} request body
+     * @return length of a file or buffer body; -1 if the length is unknown and the body is sent with chunked transfer
+     *         encoding
+     * @throws IOException if the size of a file cannot be read
+     */
+    public static long getContentLength(Object body) throws IOException {
+        if (body instanceof Path path) {
+            return Files.size(path);
+        }
+        return body instanceof ByteBuffer buffer ? buffer.remaining() : -1;
+    }
+
+    /**
+     * Opens a {@link #isStreamingBody(Object) streamed} request body for reading. Elements of <code>Stream</code> and
+     * <code>Iterator</code> bodies are serialized while the stream is read, the stream is closed with the body.
+     *
+     * @param body streamed request body
+     * @param contentType content type header of the request; may be null
+     * @param elementWriter writer of the elements of the body
+     * @return stream of the body bytes
+     * @throws IOException if a file body cannot be opened
+     */
+    public static InputStream openBody(Object body, String contentType, BodyWriter elementWriter) throws IOException {
+        if (body instanceof Path path) {
+            return Files.newInputStream(path);
+        }
+        if (body instanceof InputStream inputStream) {
+            return inputStream;
+        }
+        if (body instanceof ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining());
+            }
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        final boolean ndjson = contentType != null
+                && contentType.regionMatches(true, 0, NDJSON_CONTENT_TYPE, 0, NDJSON_CONTENT_TYPE.length());
+        if (body instanceof Stream<?> stream) {
+            return new ElementsInputStream(stream.iterator(), stream, ndjson, elementWriter);
+        }
+        return new ElementsInputStream((Iterator<?>) body, null, ndjson, elementWriter);
+    }
+
+    /**
+     * Deserializes a response body which was received completely.
+     *
+     * @param body response body bytes
+     * @param contentType content type header of the response; may be null
+     * @param reader reader of the response type
+     * @return deserialized body; null for empty bodies
+     * @throws IOException if the body cannot be deserialized
+     */
+    public static Object deserializeBody(byte[] body, String contentType, BodyReader<?> reader) throws IOException {
+        return reader.read(body, getCharset(contentType));
+    }
+
+    /**
+     * @param request request to execute
+     * @return true if the response body of the request is streamed to the caller or a file instead of being parsed
+     */
+    public static boolean isStreamingResponse(Request request) {
+        final Type responseType = request.getResponseType();
+        return request.getDownloadTo() != null || responseType == InputStream.class
+                || responseType == ReadableByteChannel.class || isElementsResponse(responseType);
+    }
+
+    private static boolean isElementsResponse(Type responseType) {
+        final Type rawType = responseType instanceof ParameterizedType parameterizedType
+                ? parameterizedType.getRawType() : responseType;
+        return rawType == Stream.class || rawType == Iterator.class;
+    }
+
+    /**
+     * Hands a streamed response body to the caller. The connection of the response must be released when the body
+     * is closed. <code>Stream</code> and <code>Iterator</code> bodies are decoded by the reader of the request an
+     * element at a time, and close the body once they are closed or consumed.
+     *
+     * @param body response body stream
+     * @param contentType content type header of the response; may be null
+     * @param request request of a {@link #isStreamingResponse(Request) streaming response}
+     * @param codec codec of the HTTP client
+     * @return body as the response type of the request, or the download target once the body was written to it
+     * @throws IOException if the body cannot be written to the download target or decoded
+     */
+    public static Object toStreamingResponse(InputStream body, String contentType, Request request, Codec codec)
+            throws IOException {
+        if (request.getDownloadTo() != null) {
+            return download(body, request.getDownloadTo());
+        }
+        if (isElementsResponse(request.getResponseType())) {
+            try {
+                return getBodyReader(request, codec).read(body, getCharset(contentType));
+            } catch (IOException | RuntimeException e) {
+                body.close();
+                throw e;
+            }
+        }
+        return request.getResponseType() == ReadableByteChannel.class ? Channels.newChannel(body) : body;
+    }
+
+    /**
+     * Writes a response body to a file with {@link FileChannel#transferFrom}, without buffering the body in memory.
+     * Closes the body.
+     *
+     * @param body response body stream
+     * @param target file to create or replace
+     * @return target
+     * @throws IOException if the body cannot be read or written
+     */
+    public static Path download(InputStream body, Path target) throws IOException {
+        try (body; ReadableByteChannel source = Channels.newChannel(body);
+             FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            // a blocking source channel only transfers nothing at the end of the stream
+            while ((transferred = file.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+                position += transferred;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @param contentType content type header; may be null
+     * @return charset of the content type; UTF-8 by default
+     */
+    public static Charset getCharset(String contentType) {
+        if (Utils.isNotEmpty(contentType)) {
+            for (String parameter : contentType.split(";")) {
+                final String trimmed = parameter.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(trimmed.substring(8).replace("\"", ""));
+                    } catch (IllegalArgumentException e) {
+                        return StandardCharsets.UTF_8;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String encodeQueryComponent(String component) {
+        // form encoding uses '+' for spaces, which is not decoded as a space in a query by all servers
+        return URLEncoder.encode(component, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,320 @@
+package com.simplehttp.httpclient.jdk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.codec.BodyWriter;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.core.codec.JacksonCodec;
+import com.simplehttp.core.exception.HttpStatusException;
+import com.simplehttp.httpclient.HttpCompression;
+import com.simplehttp.httpclient.HttpMessageSupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * An HttpClient implementation using the JDK's {@link java.net.http.HttpClient}. Uses HTTP/2 by default - requests
+ * to the same host are multiplexed over a single connection, plain HTTP hosts are upgraded with h2c, and hosts which
+ * do not support HTTP/2 fall back to HTTP/1.1. Asynchronous client methods are executed without blocking a thread.
+ *
+ * Request and response bodies are JSON by default(a {@link JacksonCodec}), strings and byte arrays are passed through
+ * as-is. Responses of synchronous requests are decoded directly from the network stream. Streamed response
+ * bodies(<code>InputStream</code>, <code>ReadableByteChannel</code>, <code>Stream</code>, <code>Iterator</code> and
+ * downloads) are not read into memory, neither are streamed request bodies(<code>Path</code>,
+ * <code>InputStream</code>, <code>ByteBuffer</code>, <code>Stream</code> and <code>Iterator</code>).
+ *
+ * Responses are requested gzip or deflate compressed and decompressed while they are read, request bodies of methods
+ * with a compression threshold are sent gzip-compressed(see {@link HttpCompression}).
+ */
+public class JavaNetHttpClient implements HttpClient {
+
+    private final java.net.http.HttpClient httpClient;
+    private final Codec codec;
+    private final Duration requestTimeout;
+
+    public JavaNetHttpClient() {
+        this(new Builder());
+    }
+
+    /**
+     * @param httpClient preconfigured JDK client
+     */
+    public JavaNetHttpClient(java.net.http.HttpClient httpClient) {
+        this(httpClient, HttpMessageSupport.newObjectMapper(), null);
+    }
+
+    private JavaNetHttpClient(Builder builder) {
+        this(builder.buildHttpClient(), builder.objectMapper, builder.requestTimeout);
+    }
+
+    private JavaNetHttpClient(java.net.http.HttpClient httpClient, ObjectMapper objectMapper, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.codec = new JacksonCodec(objectMapper);
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * @return builder of a configured client
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response execute(Request request) throws Exception {
+        if (HttpMessageSupport.isStreamingResponse(request)) {
+            return toStreamingResponse(request, httpClient.send(toHttpRequest(request),
+                    HttpResponse.BodyHandlers.ofInputStream()));
+        }
+        final HttpResponse<InputStream> response = httpClient.send(toHttpRequest(request),
+                HttpResponse.BodyHandlers.ofInputStream());
+        final String contentType = response.headers().firstValue(HttpMessageSupport.CONTENT_TYPE).orElse(null);
+        try (InputStream body = HttpCompression.decode(response.body(), contentEncoding(response))) {
+            if (response.statusCode() >= 400) {
+                throw statusException(request, response.statusCode(), body.readAllBytes(), contentType);
+            }
+            return Response.builder()
+                    .parsedResponse(HttpMessageSupport.getBodyReader(request, codec)
+                            .read(body, HttpMessageSupport.getCharset(contentType)))
+                    .build();
+        }
+    }
+
+    @Override
+    public Codec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public CompletableFuture<Response> executeAsync(Request request) {
+        final HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (HttpMessageSupport.isStreamingResponse(request)) {
+            return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream())
+                    .thenApply(response -> {
+                        try {
+                            return toStreamingResponse(request, response);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+        final CompletableFuture<HttpResponse<byte[]>> sent = httpClient.sendAsync(httpRequest,
+                HttpResponse.BodyHandlers.ofByteArray());
+        final CompletableFuture<Response> response = sent.thenApply(httpResponse -> {
+            try {
+                return toResponse(request, httpResponse);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        // cancelling a dependent stage does not reach the exchange, which is only aborted by cancelling its own future
+        response.whenComplete((result, error) -> {
+            if (response.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    private HttpRequest toHttpRequest(Request request) throws IOException {
+        final URI uri = URI.create(HttpMessageSupport.buildUrl(request.getUrl(), request.getQueryParams()));
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        if (request.getHeaders() != null) {
+            request.getHeaders().forEach((name, value) -> {
+                if (value != null) {
+                    builder.header(name, value);
+                }
+            });
+        }
+        if (HttpCompression.isAcceptEncodingMissing(request.getHeaders())) {
+            builder.header(HttpCompression.ACCEPT_ENCODING, HttpCompression.ACCEPTED_ENCODINGS);
+        }
+        final Object body = request.getBody();
+        final BodyWriter writer = body == null ? null : HttpMessageSupport.getBodyWriter(request, codec);
+        final String contentType = request.getHeaders() == null ? null
+                : request.getHeaders().getFirst(HttpMessageSupport.CONTENT_TYPE);
+        final String defaultContentType = HttpMessageSupport.getDefaultContentType(body, writer);
+        if (defaultContentType != null && contentType == null) {
+            builder.header(HttpMessageSupport.CONTENT_TYPE, defaultContentType);
+        }
+        if (HttpMessageSupport.isStreamingBody(body)) {
+            if ("http".equalsIgnoreCase(uri.getScheme())) {
+                // an h2c upgrade request has to be sent in its entirety before switching protocols, which a streamed
+                // body would hold up
+                builder.version(java.net.http.HttpClient.Version.HTTP_1_1);
+            }
+            if (HttpCompression.isCompressed(request, HttpMessageSupport.getContentLength(body))) {
+                builder.header(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+                final InputStream stream = HttpCompression.gzip(HttpMessageSupport.openBody(body, contentType, writer));
+                return builder.method(request.getHttpMethod().name(),
+                        HttpRequest.BodyPublishers.ofInputStream(() -> stream)).build();
+            }
+            return builder.method(request.getHttpMethod().name(), streamingBodyPublisher(body, contentType, writer))
+                    .build();
+        }
+        byte[] bodyBytes = HttpMessageSupport.serializeBody(body, writer);
+        if (bodyBytes != null && HttpCompression.isCompressed(request, bodyBytes.length)) {
+            builder.header(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+            bodyBytes = HttpCompression.gzip(bodyBytes);
+        }
+        return builder.method(request.getHttpMethod().name(), bodyBytes == null ?
+                HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(bodyBytes)).build();
+    }
+
+    /**
+     * Files are sent with their length, other streamed bodies are read while they are sent with chunked transfer
+     * encoding(or as HTTP/2 data frames).
+     */
+    private HttpRequest.BodyPublisher streamingBodyPublisher(Object body, String contentType, BodyWriter writer)
+            throws IOException {
+        if (body instanceof Path path) {
+            return HttpRequest.BodyPublishers.ofFile(path);
+        }
+        if (body instanceof ByteBuffer buffer && buffer.hasArray()) {
+            return HttpRequest.BodyPublishers.ofByteArray(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining());
+        }
+        final InputStream stream = HttpMessageSupport.openBody(body, contentType, writer);
+        return HttpRequest.BodyPublishers.ofInputStream(() -> stream);
+    }
+
+    private Response toResponse(Request request, HttpResponse<byte[]> response) throws IOException {
+        final String contentType = response.headers().firstValue(HttpMessageSupport.CONTENT_TYPE).orElse(null);
+        final byte[] body = HttpCompression.decode(response.body(), contentEncoding(response));
+        if (response.statusCode() >= 400) {
+            throw statusException(request, response.statusCode(), body, contentType);
+        }
+        return Response.builder()
+                .parsedResponse(HttpMessageSupport.deserializeBody(body, contentType,
+                        HttpMessageSupport.getBodyReader(request, codec)))
+                .build();
+    }
+
+    /**
+     * Streams the body of a response. Closing the stream releases the connection, error responses are read and
+     * closed immediately.
+     */
+    private Response toStreamingResponse(Request request, HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() >= 400) {
+            final byte[] body;
+            try (InputStream stream = HttpCompression.decode(response.body(), contentEncoding(response))) {
+                body = stream.readAllBytes();
+            }
+            throw statusException(request, response.statusCode(), body,
+                    response.headers().firstValue(HttpMessageSupport.CONTENT_TYPE).orElse(null));
+        }
+        return Response.builder()
+                .parsedResponse(HttpMessageSupport.toStreamingResponse(
+                        HttpCompression.decode(response.body(), contentEncoding(response)),
+                        response.headers().firstValue(HttpMessageSupport.CONTENT_TYPE).orElse(null), request, codec))
+                .build();
+    }
+
+    private static String contentEncoding(HttpResponse<?> response) {
+        return response.headers().firstValue(HttpCompression.CONTENT_ENCODING).orElse(null);
+    }
+
+    private static HttpStatusException statusException(Request request, int statusCode, byte[] body,
+                                                       String contentType) {
+        return new HttpStatusException(String.format("Request [%s] %s failed with status %d",
+                request.getHttpMethod(), request.getUrl(), statusCode), request, statusCode,
+                new String(body, HttpMessageSupport.getCharset(contentType)));
+    }
+
+    /**
+     * Configuration of a {@link JavaNetHttpClient}.
+     */
+    public static class Builder {
+
+        private java.net.http.HttpClient.Version version = java.net.http.HttpClient.Version.HTTP_2;
+        private Duration connectTimeout;
+        private Duration requestTimeout;
+        private Executor executor;
+        private ObjectMapper objectMapper = HttpMessageSupport.newObjectMapper();
+
+        /**
+         * @param version preferred HTTP version; defaults to HTTP/2
+         * @return Builder
+         */
+        public Builder withVersion(java.net.http.HttpClient.Version version) {
+            this.version = Optional.ofNullable(version)
+                    .orElseThrow(() -> new IllegalArgumentException("HTTP version cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param connectTimeout timeout for establishing connections; no timeout by default
+         * @return Builder
+         */
+        public Builder withConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param requestTimeout timeout for receiving the response headers of a request; no timeout by default
+         * @return Builder
+         */
+        public Builder withRequestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * @param executor executor for asynchronous tasks and dependent stages of the JDK client; a cached thread
+         *                 pool of the JDK client by default
+         * @return Builder
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param objectMapper mapper for JSON request and response bodies
+         * @return Builder
+         */
+        public Builder withObjectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = Optional.ofNullable(objectMapper)
+                    .orElseThrow(() -> new IllegalArgumentException("Object mapper cannot be null!"));
+            return this;
+        }
+
+        public JavaNetHttpClient build() {
+            return new JavaNetHttpClient(this);
+        }
+
+        private java.net.http.HttpClient buildHttpClient() {
+            final java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                    .version(version)
+                    .followRedirects(java.net.http.HttpClient.Redirect.NORMAL);
+            if (connectTimeout != null) {
+                builder.connectTimeout(connectTimeout);
+            }
+            if (executor != null) {
+                builder.executor(executor);
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.simplehttp.httpclient.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of equally sized direct buffers. Direct buffers are written to and read from sockets without an intermediate
+ * copy, but are expensive to allocate and are only freed by the garbage collector, so they are reused. Buffers are
+ * acquired by caller threads(request encoding) and the event loop, so the pool is thread-safe.
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final AtomicInteger pooledBuffers;
+
+    BufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooledBuffers = new AtomicInteger();
+    }
+
+    /**
+     * @return a cleared buffer, allocated if the pool is empty
+     */
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers which were not acquired from a pool of this size, or which exceed the pool
+     * capacity, are left to the garbage collector.
+     *
+     * @param buffer buffer which must no longer be used by the caller; may be null
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooledBuffers.incrementAndGet() <= maxPooledBuffers) {
+            buffers.offer(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
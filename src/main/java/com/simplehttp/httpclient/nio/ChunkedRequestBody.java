@@ -0,0 +1,237 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A request body of unknown length, sent with chunked transfer encoding while it is produced. The calling thread
+ * writes the body and the event loop sends the chunks. Once the queued chunks hold more than
+ * <code>maxQueuedBytes</code> of buffers, the writer blocks until the event loop has sent half of them, so memory stays
+ * bounded no matter how large the body is.
+ * Like {@link ResponseBodyStream}, the writer waits on a {@link ReentrantLock}, which does not pin the carrier thread
+ * of a virtual thread.
+ *
+ * Every chunk is framed in a pooled direct buffer: the body is written right after room for the size line, which is
+ * filled in once the chunk is complete, so the chunk is sent without any copy or allocation. The event loop returns
+ * the buffer to the pool once the chunk was sent.
+ */
+final class ChunkedRequestBody extends OutputStream implements StreamedRequestBody {
+
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final BufferPool bufferPool;
+    private final int maxQueuedBytes;
+    private final Runnable resumeWriting;
+    /**
+     * Room for the size line before the body of a chunk: the hex digits of the largest chunk and CRLF.
+     */
+    private final int sizeLineLength;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private ByteBuffer chunk;
+    private final Deque<ByteBuffer> chunks = new ArrayDeque<>();
+    private int queuedBytes;
+    private boolean finished;
+    private boolean written;
+    private boolean awaitingData;
+    private boolean released;
+
+    /**
+     * @param bufferPool pool of the buffers the chunks are framed in
+     * @param maxQueuedBytes bytes of buffers queued ahead of the event loop before the writer blocks
+     * @param resumeWriting resumes writing to the connection once more of the body was produced; called by the writer
+     */
+    ChunkedRequestBody(BufferPool bufferPool, int maxQueuedBytes, Runnable resumeWriting) {
+        this.bufferPool = bufferPool;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.resumeWriting = resumeWriting;
+        this.sizeLineLength = Integer.toHexString(bufferPool.getBufferSize()).length() + 2;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        currentChunk().put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            final ByteBuffer current = currentChunk();
+            final int count = Math.min(length, current.remaining());
+            current.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * @return buffer of the chunk being written, with room for at least one more byte; queues a full chunk first
+     */
+    private ByteBuffer currentChunk() throws IOException {
+        if (chunk != null && !chunk.hasRemaining()) {
+            flush();
+        }
+        if (chunk == null) {
+            // the trailing CRLF of the chunk is written after its body
+            chunk = bufferPool.acquire();
+            chunk.position(sizeLineLength).limit(chunk.capacity() - 2);
+        }
+        return chunk;
+    }
+
+    /**
+     * Queues the bytes written so far as a chunk. Blocks while too many bytes are queued.
+     *
+     * @throws IOException if the exchange is done and the body is no longer sent
+     */
+    @Override
+    public void flush() throws IOException {
+        if (chunk == null || chunk.position() == sizeLineLength) {
+            return;
+        }
+        final ByteBuffer framed = chunk;
+        chunk = null;
+        final int end = framed.position();
+        framed.limit(end + 2);
+        framed.put((byte) '\r').put((byte) '\n');
+        // the size line ends right before the body, so its start depends on the number of digits
+        int start = sizeLineLength;
+        framed.put(--start, (byte) '\n').put(--start, (byte) '\r');
+        int size = end - sizeLineLength;
+        do {
+            framed.put(--start, HEX_DIGITS[size & 0xf]);
+            size >>>= 4;
+        } while (size != 0);
+        framed.position(start);
+        enqueue(framed, false);
+    }
+
+    /**
+     * Queues the rest of the body and the last chunk. The body is not complete unless it is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            flush();
+            // an unused buffer of an empty chunk
+            bufferPool.release(chunk);
+            chunk = null;
+            enqueue(ByteBuffer.wrap(LAST_CHUNK), true);
+        }
+    }
+
+    private void enqueue(ByteBuffer framed, boolean last) throws IOException {
+        final boolean resume;
+        lock.lock();
+        try {
+            while (queuedBytes > maxQueuedBytes && !released) {
+                try {
+                    drained.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while sending the request body");
+                }
+            }
+            if (released) {
+                bufferPool.release(framed);
+                throw new IOException("Request is done, its body is no longer sent");
+            }
+            // a chunk holds its whole buffer until it was sent, however small it is
+            chunks.add(framed);
+            queuedBytes += framed.capacity();
+            finished = last;
+            resume = awaitingData;
+            awaitingData = false;
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeWriting.run();
+        }
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        lock.lock();
+        try {
+            while (!chunks.isEmpty()) {
+                final ByteBuffer head = chunks.peek();
+                channel.write(head);
+                if (head.hasRemaining()) {
+                    return false;
+                }
+                queuedBytes -= head.capacity();
+                bufferPool.release(chunks.poll());
+            }
+            written = finished;
+            awaitingData = !finished;
+            return written;
+        } finally {
+            if (queuedBytes <= maxQueuedBytes / 2) {
+                drained.signalAll();
+            }
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isWritten() {
+        lock.lock();
+        try {
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isAwaitingData() {
+        lock.lock();
+        try {
+            return awaitingData;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the exchange is done; the body is no longer sent
+     */
+    boolean isReleased() {
+        lock.lock();
+        try {
+            return released;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void rewind() {
+        // only resent before any chunk was written, the queued chunks are kept
+    }
+
+    @Override
+    public void release() {
+        lock.lock();
+        try {
+            released = true;
+            chunks.forEach(bufferPool::release);
+            chunks.clear();
+            queuedBytes = 0;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URLDecoder;
+import java.net.UnknownHostException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A server that connections are pooled for, identified by the authority(host and port) of request URLs, or by the
+ * path of a unix domain socket.
+ */
+final class Endpoint {
+
+    private static final int DEFAULT_PORT = 80;
+    private static final String UNIX_SOCKET_HOST_HEADER = "localhost";
+
+    private final String host;
+    private final int port;
+    private final String socketPath;
+    private final String hostHeader;
+
+    private Endpoint(String host, int port, String socketPath, String hostHeader) {
+        this.host = host;
+        this.port = port;
+        this.socketPath = socketPath;
+        this.hostHeader = hostHeader;
+    }
+
+    /**
+     * @param authority authority of an http URL, e.g. <code>localhost:8080</code> or <code>[::1]:8080</code>
+     * @return endpoint of the authority
+     * @throws IllegalArgumentException if the authority is invalid
+     */
+    static Endpoint ofAuthority(String authority) {
+        if (authority.isEmpty()) {
+            throw new IllegalArgumentException("URL has no host");
+        }
+        final int userInfoEnd = authority.lastIndexOf('@');
+        final String hostAndPort = userInfoEnd == -1 ? authority : authority.substring(userInfoEnd + 1);
+        final int portSeparator = hostAndPort.lastIndexOf(':');
+        if (portSeparator == -1 || hostAndPort.indexOf(']', portSeparator) != -1) {
+            return new Endpoint(stripBrackets(hostAndPort), DEFAULT_PORT, null, hostAndPort);
+        }
+        final int port;
+        try {
+            port = Integer.parseInt(hostAndPort.substring(portSeparator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid port in '%s'", authority));
+        }
+        return new Endpoint(stripBrackets(hostAndPort.substring(0, portSeparator)), port, null, hostAndPort);
+    }
+
+    /**
+     * @param encodedSocketPath percent-encoded path of a unix domain socket, e.g. <code>%2Fvar%2Frun%2Fagent.sock</code>
+     * @return endpoint of the socket
+     * @throws IllegalArgumentException if the path is empty
+     */
+    static Endpoint ofUnixSocket(String encodedSocketPath) {
+        final String socketPath = URLDecoder.decode(encodedSocketPath, StandardCharsets.UTF_8);
+        if (socketPath.isEmpty()) {
+            throw new IllegalArgumentException("URL has no socket path");
+        }
+        return new Endpoint(null, 0, socketPath, UNIX_SOCKET_HOST_HEADER);
+    }
+
+    private static String stripBrackets(String host) {
+        return host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+    }
+
+    /**
+     * Resolves the host, which blocks on DNS unless it is cached by the JVM's DNS cache. Called on the thread submitting
+     * a request, so that a slow lookup does not stall the event loop.
+     *
+     * @return address to connect to
+     * @throws UnknownHostException if the host cannot be resolved
+     */
+    SocketAddress resolve() throws UnknownHostException {
+        if (isUnixSocket()) {
+            return UnixDomainSocketAddress.of(socketPath);
+        }
+        final InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            throw new UnknownHostException(host);
+        }
+        return address;
+    }
+
+    /**
+     * Opens a non-blocking channel and starts connecting to the endpoint.
+     *
+     * @param address {@link #resolve() resolved} address of the endpoint
+     * @return channel which may still be connecting
+     * @throws IOException if the channel cannot be opened
+     */
+    SocketChannel connect(SocketAddress address) throws IOException {
+        final SocketChannel channel = isUnixSocket() ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(address);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the endpoint is a unix domain socket, which has no TCP options
+     */
+    boolean isUnixSocket() {
+        return socketPath != null;
+    }
+
+    /**
+     * @return value of the Host header of requests to the endpoint
+     */
+    String getHostHeader() {
+        return hostHeader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Endpoint endpoint = (Endpoint) o;
+        return port == endpoint.port && Objects.equals(host, endpoint.host)
+                && Objects.equals(socketPath, endpoint.socketPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port, socketPath);
+    }
+
+    @Override
+    public String toString() {
+        return isUnixSocket() ? "unix:" + socketPath : hostHeader;
+    }
+}
@@ -0,0 +1,238 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single request-response exchange: the encoded request, its connection state and the future of the raw response.
+ * Only touched by the event loop once submitted.
+ *
+ * The future of a streamed response completes as soon as the headers are received, its body is passed to the
+ * {@link ResponseBodyStream} as it arrives.
+ */
+final class Exchange implements ResponseParser.BodyListener {
+
+    /**
+     * Attempts of an exchange whose connection was closed before the response was received, e.g. a reused connection
+     * closed by the server or a pipelined request behind a <code>Connection: close</code> response.
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final Endpoint endpoint;
+    private final SocketAddress address;
+    private final ByteBuffer[] requestBuffers;
+    private final int pooledBufferCount;
+    private final boolean idempotent;
+    private long deadlineNanos;
+    private final CompletableFuture<RawResponse> future;
+    private StreamedRequestBody requestBody;
+    private boolean chunkedRequestBody;
+    private boolean compressedRequestBody;
+    private ResponseBodyStream bodyStream;
+    private HttpConnection connection;
+    private int attempts;
+    private boolean released;
+
+    /**
+     * @param address resolved address of the endpoint, which a new connection for the exchange connects to
+     * @param requestBuffers encoded request; the first <code>pooledBufferCount</code> buffers are pooled
+     * @param deadlineNanos {@link System#nanoTime()} at which the exchange times out; 0 for no timeout
+     */
+    Exchange(Endpoint endpoint, SocketAddress address, ByteBuffer[] requestBuffers, int pooledBufferCount,
+             boolean idempotent, long deadlineNanos) {
+        this.endpoint = endpoint;
+        this.address = address;
+        this.requestBuffers = requestBuffers;
+        this.pooledBufferCount = pooledBufferCount;
+        this.idempotent = idempotent;
+        this.deadlineNanos = deadlineNanos;
+        this.future = new CompletableFuture<>();
+    }
+
+    Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    SocketAddress getAddress() {
+        return address;
+    }
+
+    ByteBuffer[] getRequestBuffers() {
+        return requestBuffers;
+    }
+
+    /**
+     * @return true if the request was written completely
+     */
+    boolean isWritten() {
+        return isHeadWritten() && (requestBody == null || requestBody.isWritten());
+    }
+
+    /**
+     * @return true if the encoded request buffers were written; a streamed request body may follow
+     */
+    boolean isHeadWritten() {
+        return !requestBuffers[requestBuffers.length - 1].hasRemaining();
+    }
+
+    /**
+     * Rewinds the request so that it can be sent again on another connection. Only valid before the buffers are
+     * released.
+     */
+    void rewind() {
+        for (ByteBuffer buffer : requestBuffers) {
+            buffer.rewind();
+        }
+        if (requestBody != null) {
+            requestBody.rewind();
+        }
+    }
+
+    /**
+     * Counts an attempt to send the exchange on a connection.
+     */
+    void startAttempt() {
+        attempts++;
+    }
+
+    /**
+     * @return true if the exchange can be sent again after its connection was closed without a response; only safe
+     *         for idempotent requests or requests which were not sent at all. A streamed request body may not be
+     *         produced again, so such requests are only resent if they were not sent at all. Cancelled requests are
+     *         never resent.
+     */
+    boolean canRetry() {
+        return attempts < MAX_ATTEMPTS && !future.isDone()
+                && ((idempotent && requestBody == null) || requestBuffers[0].position() == 0);
+    }
+
+    boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return true if the request can be pipelined: idempotent and neither body is streamed, which would hold up the
+     *         requests behind it until the caller produced or consumed the body
+     */
+    boolean isPipelinable() {
+        return idempotent && requestBody == null && bodyStream == null;
+    }
+
+    /**
+     * Sends a request body after the encoded request buffers. Must be set before the exchange is submitted.
+     */
+    void setRequestBody(StreamedRequestBody requestBody) {
+        this.requestBody = requestBody;
+    }
+
+    /**
+     * Marks the request body to be produced by the caller with chunked transfer encoding.
+     *
+     * @param chunked true if the body is produced by the caller
+     * @param compressed true if the body is gzip-compressed while it is produced
+     */
+    void setChunkedRequestBody(boolean chunked, boolean compressed) {
+        this.chunkedRequestBody = chunked;
+        this.compressedRequestBody = compressed;
+    }
+
+    /**
+     * @return true if the request body is produced by the caller with chunked transfer encoding
+     */
+    boolean isChunkedRequestBody() {
+        return chunkedRequestBody;
+    }
+
+    /**
+     * @return true if the chunked request body is gzip-compressed while it is produced
+     */
+    boolean isCompressedRequestBody() {
+        return compressedRequestBody;
+    }
+
+    /**
+     * @return request body sent after the encoded request buffers; null if the body was encoded into the buffers
+     */
+    StreamedRequestBody getRequestBody() {
+        return requestBody;
+    }
+
+    /**
+     * Streams the response body instead of reading it into memory. Must be set before the exchange is submitted.
+     */
+    void setBodyStream(ResponseBodyStream bodyStream) {
+        this.bodyStream = bodyStream;
+    }
+
+    /**
+     * @return stream of the response body; null if the body is read into memory
+     */
+    ResponseBodyStream getBodyStream() {
+        return bodyStream;
+    }
+
+    /**
+     * @return connection the exchange was last sent on; null if it was not sent yet
+     */
+    HttpConnection getConnection() {
+        return connection;
+    }
+
+    void setConnection(HttpConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void onHeaders(int statusCode, String contentType, String contentEncoding) {
+        // the timeout covers the response headers, the body is read at the pace of the caller
+        deadlineNanos = 0;
+        future.complete(new RawResponse(statusCode, contentType, contentEncoding, null, bodyStream));
+    }
+
+    @Override
+    public boolean onBody(ByteBuffer data, int length) {
+        return bodyStream.append(data, length);
+    }
+
+    boolean isExpired(long nowNanos) {
+        return deadlineNanos != 0 && nowNanos - deadlineNanos >= 0;
+    }
+
+    CompletableFuture<RawResponse> getFuture() {
+        return future;
+    }
+
+    /**
+     * Returns the pooled request buffers and releases a streamed request body once the exchange is done. Idempotent
+     * exchanges may be resent until then.
+     */
+    void releaseBuffers(BufferPool bufferPool) {
+        if (!released) {
+            released = true;
+            for (int i = 0; i < pooledBufferCount; i++) {
+                bufferPool.release(requestBuffers[i]);
+            }
+            if (requestBody != null) {
+                requestBody.release();
+            }
+        }
+    }
+
+    void complete(RawResponse response, BufferPool bufferPool) {
+        releaseBuffers(bufferPool);
+        future.complete(response);
+        if (bodyStream != null) {
+            bodyStream.complete();
+        }
+    }
+
+    void fail(Throwable error, BufferPool bufferPool) {
+        releaseBuffers(bufferPool);
+        future.completeExceptionally(error);
+        if (bodyStream != null) {
+            bodyStream.fail(error instanceof IOException ioException ? ioException : new IOException(error));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file request body, transferred from the file to the socket with {@link FileChannel#transferTo}, which lets the
+ * kernel copy the file without passing it through user space buffers.
+ */
+final class FileRequestBody implements StreamedRequestBody {
+
+    private final FileChannel file;
+    private final long length;
+    private long position;
+
+    /**
+     * Opens a file body. Called by the calling thread, so that a missing file fails the request before it is sent.
+     */
+    FileRequestBody(Path path) throws IOException {
+        this.file = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.length = file.size();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return length of the file, sent as Content-Length
+     */
+    long getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        while (position < length) {
+            final long transferred = file.transferTo(position, length - position, channel);
+            if (transferred == 0) {
+                // the socket buffer is full, or the file was truncated while it was sent
+                if (position >= file.size()) {
+                    throw new IOException("Request body file was truncated while it was sent");
+                }
+                return false;
+            }
+            position += transferred;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isWritten() {
+        return position == length;
+    }
+
+    @Override
+    public boolean isAwaitingData() {
+        return false;
+    }
+
+    @Override
+    public void rewind() {
+        position = 0;
+    }
+
+    @Override
+    public void release() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // the file was only read
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A keep-alive connection to an endpoint. Requests are written in order and responses are matched to them in the same
+ * order, so that several requests can be in flight on a connection when pipelining is enabled. Only used by the event
+ * loop.
+ */
+final class HttpConnection {
+
+    private final Endpoint endpoint;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final long connectDeadlineNanos;
+    private final ResponseParser parser;
+    private final Deque<Exchange> inFlight;
+    private final Deque<Exchange> writeQueue;
+    private int nonPipelinableInFlight;
+    private boolean connected;
+    private boolean closing;
+
+    /**
+     * Starts connecting to an endpoint.
+     *
+     * @param address resolved address of the endpoint
+     * @param connectDeadlineNanos {@link System#nanoTime()} at which connecting times out; 0 for no timeout
+     */
+    HttpConnection(Endpoint endpoint, SocketAddress address, Selector selector, long connectDeadlineNanos)
+            throws IOException {
+        this.endpoint = endpoint;
+        this.channel = endpoint.connect(address);
+        this.connectDeadlineNanos = connectDeadlineNanos;
+        this.parser = new ResponseParser();
+        this.inFlight = new ArrayDeque<>();
+        this.writeQueue = new ArrayDeque<>();
+        try {
+            if (!endpoint.isUnixSocket()) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            // local connections, like unix domain sockets, may be established immediately
+            this.connected = channel.isConnected();
+            this.key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Queues a request on the connection and writes as much of it as the socket accepts.
+     */
+    void send(Exchange exchange) throws IOException {
+        exchange.startAttempt();
+        exchange.setConnection(this);
+        inFlight.add(exchange);
+        writeQueue.add(exchange);
+        if (!exchange.isPipelinable()) {
+            nonPipelinableInFlight++;
+        }
+        if (connected) {
+            write();
+        }
+    }
+
+    /**
+     * @return true if a connection is established; false if still connecting
+     */
+    boolean finishConnect() throws IOException {
+        if (!channel.finishConnect()) {
+            return false;
+        }
+        connected = true;
+        write();
+        return true;
+    }
+
+    /**
+     * Writes queued requests until the socket buffer is full. Pipelined requests are written with a single gathering
+     * write.
+     */
+    void write() throws IOException {
+        while (!writeQueue.isEmpty()) {
+            if (writeQueue.peek().getRequestBody() != null) {
+                // streamed bodies are never pipelined, so they are written on their own
+                if (!writeStreamed(writeQueue.peek())) {
+                    break;
+                }
+                writeQueue.poll();
+                continue;
+            }
+            if (writeQueue.size() == 1) {
+                channel.write(writeQueue.peek().getRequestBuffers());
+            } else {
+                channel.write(gatherQueuedBuffers());
+            }
+            boolean written = false;
+            while (!writeQueue.isEmpty() && writeQueue.peek().isWritten()) {
+                writeQueue.poll();
+                written = true;
+            }
+            if (!written) {
+                break;
+            }
+        }
+        updateInterestOps();
+    }
+
+    /**
+     * Writes the request head and as much of the streamed body as the socket accepts.
+     *
+     * @return true once the request was written completely
+     */
+    private boolean writeStreamed(Exchange exchange) throws IOException {
+        if (!exchange.isHeadWritten()) {
+            channel.write(exchange.getRequestBuffers());
+            if (!exchange.isHeadWritten()) {
+                return false;
+            }
+        }
+        return exchange.getRequestBody().writeTo(channel);
+    }
+
+    private void updateInterestOps() {
+        key.interestOps((parser.isReadPaused() ? 0 : SelectionKey.OP_READ)
+                | (writeQueue.isEmpty() || isAwaitingRequestBody() ? 0 : SelectionKey.OP_WRITE));
+    }
+
+    /**
+     * Writes to the socket again once more of a streamed request body was produced.
+     */
+    void resumeWriting() throws IOException {
+        if (key.isValid() && connected) {
+            write();
+        }
+    }
+
+    /**
+     * @return true if writing waits until more of a streamed request body is produced
+     */
+    private boolean isAwaitingRequestBody() {
+        final Exchange exchange = writeQueue.peek();
+        return exchange.getRequestBody() != null && exchange.isHeadWritten()
+                && exchange.getRequestBody().isAwaitingData();
+    }
+
+    private ByteBuffer[] gatherQueuedBuffers() {
+        int count = 0;
+        for (Exchange exchange : writeQueue) {
+            count += exchange.getRequestBuffers().length;
+        }
+        final ByteBuffer[] buffers = new ByteBuffer[count];
+        int index = 0;
+        for (Exchange exchange : writeQueue) {
+            for (ByteBuffer buffer : exchange.getRequestBuffers()) {
+                buffers[index++] = buffer;
+            }
+        }
+        return buffers;
+    }
+
+    /**
+     * Parses a complete response of the oldest request in flight.
+     *
+     * @param buffer bytes read from the connection
+     * @return complete response; null if more bytes are needed
+     * @throws IOException if the response is malformed or not requested
+     */
+    RawResponse readResponse(ByteBuffer buffer) throws IOException {
+        if (inFlight.isEmpty()) {
+            throw new IOException("Received unexpected data from " + endpoint);
+        }
+        final Exchange exchange = inFlight.peek();
+        final RawResponse response = parser.parse(buffer, exchange.getBodyStream() == null ? null : exchange);
+        if (response != null && !parser.isKeepAlive()) {
+            closing = true;
+        }
+        return response;
+    }
+
+    /**
+     * @return response delimited by the server closing the connection; null if no response was started
+     */
+    RawResponse readEndOfStream() throws IOException {
+        return inFlight.isEmpty() ? null : parser.endOfStream();
+    }
+
+    /**
+     * Removes the oldest request in flight once its response was received.
+     */
+    Exchange pollCompleted() {
+        final Exchange exchange = inFlight.poll();
+        if (exchange != null && !exchange.isPipelinable()) {
+            nonPipelinableInFlight--;
+        }
+        return exchange;
+    }
+
+    /**
+     * @return true if the caller has not yet consumed enough of a streamed body to read more of it
+     */
+    boolean isReadPaused() {
+        return parser.isReadPaused();
+    }
+
+    /**
+     * Stops reading from the socket while reading is paused. The server is held back by TCP flow control.
+     */
+    void pauseReading() {
+        if (key.isValid()) {
+            updateInterestOps();
+        }
+    }
+
+    /**
+     * Reads from the socket again once the caller consumed a streamed body.
+     */
+    void resumeReading() {
+        parser.resumeReading();
+        if (key.isValid() && connected) {
+            updateInterestOps();
+        }
+    }
+
+    /**
+     * @return requests in flight, oldest first
+     */
+    Deque<Exchange> getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return true if the response of the oldest request in flight was partially received
+     */
+    boolean isResponseStarted() {
+        return !parser.isIdle();
+    }
+
+    /**
+     * @return true if no requests are in flight and the connection can be reused
+     */
+    boolean isIdle() {
+        return inFlight.isEmpty() && !closing && channel.isOpen();
+    }
+
+    /**
+     * @param maxDepth maximum requests in flight on the connection
+     * @return true if a pipelinable request can be sent behind the requests in flight
+     */
+    boolean canPipeline(int maxDepth) {
+        return !closing && channel.isOpen() && nonPipelinableInFlight == 0 && inFlight.size() < maxDepth;
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return true if the server requested to close the connection after the last response
+     */
+    boolean isClosing() {
+        return closing;
+    }
+
+    boolean isConnectExpired(long nowNanos) {
+        return !connected && connectDeadlineNanos != 0 && nowNanos - connectDeadlineNanos >= 0;
+    }
+
+    int read(ByteBuffer buffer) throws IOException {
+        return channel.read(buffer);
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the connection is discarded either way
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package com.simplehttp.httpclient.nio;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.core.codec.JacksonCodec;
+import com.simplehttp.core.exception.HttpStatusException;
+import com.simplehttp.httpclient.HttpCompression;
+import com.simplehttp.httpclient.HttpMessageSupport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An HTTP/1.1 client on non-blocking sockets, for plain HTTP calls between services. A single event loop thread
+ * multiplexes all connections with a selector, so asynchronous client methods do not hold a thread per request.
+ *
+ * Connections are kept alive in a pool per host. Requests are encoded on the calling thread directly into pooled
+ * direct buffers, which are written to the socket without further copies. With {@link Builder#withPipelining(boolean)
+ * pipelining} idempotent requests(GET, PUT, DELETE) are sent behind each other on busy connections once the pool of a
+ * host is exhausted, instead of waiting for a free connection.
+ *
+ * Unix domain sockets, e.g. of a sidecar proxy on the same host, are addressed with a <code>unix://</code> or
+ * <code>http+unix://</code> URL whose authority is the percent-encoded socket path:
+ * <code>unix://%2Fvar%2Frun%2Fagent.sock/people</code>. They are pooled like TCP connections.
+ *
+ * Request and response bodies are JSON by default(a {@link JacksonCodec}), strings and byte arrays are passed through
+ * as-is. Streamed response bodies(<code>InputStream</code>, <code>ReadableByteChannel</code>, <code>Stream</code>,
+ * <code>Iterator</code> and downloads) are handed out while they are received, and reading from the connection pauses
+ * while the caller falls behind. A streamed body holds its connection until it is read completely or closed. File
+ * request bodies are sent with {@link java.nio.channels.FileChannel#transferTo transferTo} and <code>ByteBuffer</code>
+ * bodies without copying them. <code>InputStream</code>, <code>Stream</code> and <code>Iterator</code> bodies are sent
+ * with chunked transfer encoding while they are produced on the calling thread, or on the callback executor for
+ * asynchronous requests. HTTPS is not supported.
+ *
+ * Responses are requested gzip or deflate compressed and decompressed while they are read. Request bodies of methods
+ * with a compression threshold are sent gzip-compressed, streamed ones with chunked transfer encoding.
+ */
+public class NioHttpClient implements HttpClient, Closeable {
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final int maxConnectionsPerHost;
+    private final boolean pipelining;
+    private final int maxPipelineDepth;
+    private final long connectTimeoutNanos;
+    private final long requestTimeoutNanos;
+    private final Executor callbackExecutor;
+    private final Codec codec;
+    private final BufferPool bufferPool;
+    private final RequestEncoder requestEncoder;
+
+    private final Selector selector;
+    private final Thread eventLoop;
+    private final Queue<Exchange> submissions = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Map<Endpoint, HostPool> hostPools = new HashMap<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private volatile boolean closed;
+
+    public NioHttpClient() {
+        this(new Builder());
+    }
+
+    private NioHttpClient(Builder builder) {
+        this.maxConnectionsPerHost = builder.maxConnectionsPerHost;
+        this.pipelining = builder.pipelining;
+        this.maxPipelineDepth = builder.maxPipelineDepth;
+        this.connectTimeoutNanos = builder.connectTimeout == null ? 0 : builder.connectTimeout.toNanos();
+        this.requestTimeoutNanos = builder.requestTimeout == null ? 0 : builder.requestTimeout.toNanos();
+        this.callbackExecutor = builder.callbackExecutor;
+        this.codec = new JacksonCodec(builder.objectMapper);
+        this.bufferPool = new BufferPool(builder.bufferSize, builder.maxPooledBuffers);
+        this.requestEncoder = new RequestEncoder(bufferPool, codec);
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open selector", e);
+        }
+        this.eventLoop = new Thread(this::runEventLoop, "simplehttp-nio-" + Integer.toHexString(hashCode()));
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    /**
+     * @return builder of a configured client
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response execute(Request request) throws Exception {
+        final RawResponse response;
+        try {
+            final Exchange exchange = submit(request);
+            if (exchange.isChunkedRequestBody()) {
+                writeRequestBody(exchange, request);
+            }
+            response = exchange.getFuture().get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return toResponse(request, response);
+    }
+
+    @Override
+    public CompletableFuture<Response> executeAsync(Request request) {
+        final Exchange exchange;
+        try {
+            exchange = submit(request);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (exchange.isChunkedRequestBody()) {
+            callbackExecutor.execute(() -> writeRequestBody(exchange, request));
+        }
+        // responses are converted off the event loop, so that deserialization does not delay other connections
+        final CompletableFuture<Response> response = exchange.getFuture().thenApplyAsync(rawResponse -> {
+            try {
+                return toResponse(request, rawResponse);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, callbackExecutor);
+        // a cancelled request is not waited for, its connection is discarded unless the response was received
+        response.whenComplete((result, error) -> {
+            if (response.isCancelled()) {
+                runOnEventLoop(() -> {
+                    exchange.getFuture().cancel(false);
+                    abort(exchange, new IOException("Request was cancelled"));
+                });
+            }
+        });
+        return response;
+    }
+
+    @Override
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @param url request URL or client host
+     * @return true if the URL addresses a unix domain socket
+     */
+    public static boolean isUnixSocketUrl(String url) {
+        return RequestEncoder.isUnixSocketUrl(url);
+    }
+
+    /**
+     * @return number of open connections to all hosts
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Closes all connections and stops the event loop. Requests in flight fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        if (Thread.currentThread() != eventLoop) {
+            try {
+                eventLoop.join(SELECT_TIMEOUT_MILLIS * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Exchange submit(Request request) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Client is closed");
+        }
+        final long deadline = requestTimeoutNanos == 0 ? 0 : System.nanoTime() + requestTimeoutNanos;
+        final Exchange exchange = requestEncoder.encode(request, deadline);
+        if (exchange.isChunkedRequestBody()) {
+            exchange.setRequestBody(new ChunkedRequestBody(bufferPool, bufferPool.getBufferSize() * 4,
+                    () -> runOnEventLoop(() -> resumeWriting(exchange))));
+        }
+        if (HttpMessageSupport.isStreamingResponse(request)) {
+            exchange.setBodyStream(new ResponseBodyStream(bufferPool.getBufferSize() * 4,
+                    () -> runOnEventLoop(() -> resumeReading(exchange)),
+                    () -> runOnEventLoop(() -> abort(exchange))));
+        }
+        submissions.add(exchange);
+        if (closed) {
+            // the event loop may have stopped before the exchange was queued
+            failSubmissions();
+        } else {
+            selector.wakeup();
+        }
+        return exchange;
+    }
+
+    /**
+     * Produces a chunked request body on the calling thread. Blocks while the event loop falls behind sending it.
+     */
+    private void writeRequestBody(Exchange exchange, Request request) {
+        final ChunkedRequestBody requestBody = (ChunkedRequestBody) exchange.getRequestBody();
+        final String contentType = request.getHeaders() == null ? null
+                : request.getHeaders().getFirst(HttpMessageSupport.CONTENT_TYPE);
+        try (InputStream body = openRequestBody(exchange, request, contentType)) {
+            body.transferTo(requestBody);
+            // the body is only completed by closing it, a failed body is never terminated
+            requestBody.close();
+        } catch (IOException | RuntimeException e) {
+            // a released body is no longer sent, e.g. the server responded early
+            if (!requestBody.isReleased()) {
+                final IOException cause = e instanceof IOException ioException ? ioException
+                        : new IOException("Unable to produce the request body", e);
+                runOnEventLoop(() -> abort(exchange, cause));
+            }
+        }
+    }
+
+    private InputStream openRequestBody(Exchange exchange, Request request, String contentType) throws IOException {
+        final InputStream body = HttpMessageSupport.openBody(request.getBody(), contentType,
+                HttpMessageSupport.getBodyWriter(request, codec));
+        return exchange.isCompressedRequestBody() ? HttpCompression.gzip(body) : body;
+    }
+
+    private Response toResponse(Request request, RawResponse response) throws IOException {
+        if (response.getBodyStream() != null) {
+            return Response.builder()
+                    .parsedResponse(HttpMessageSupport.toStreamingResponse(
+                            HttpCompression.decode(response.getBodyStream(), response.getContentEncoding()),
+                            response.getContentType(), request, codec))
+                    .build();
+        }
+        final byte[] responseBody = HttpCompression.decode(response.getBody(), response.getContentEncoding());
+        if (response.getStatusCode() >= 400) {
+            final String body = new String(responseBody, HttpMessageSupport.getCharset(response.getContentType()));
+            throw new HttpStatusException(String.format("Request [%s] %s failed with status %d",
+                    request.getHttpMethod(), request.getUrl(), response.getStatusCode()), request,
+                    response.getStatusCode(), body);
+        }
+        return Response.builder()
+                .parsedResponse(HttpMessageSupport.deserializeBody(responseBody, response.getContentType(),
+                        HttpMessageSupport.getBodyReader(request, codec)))
+                .build();
+    }
+
+    private void runEventLoop() {
+        final ByteBuffer readBuffer = bufferPool.acquire();
+        try {
+            while (!closed) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Exchange exchange;
+                while ((exchange = submissions.poll()) != null) {
+                    hostPools.computeIfAbsent(exchange.getEndpoint(), HostPool::new).dispatch(exchange);
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key, readBuffer);
+                }
+                if (connectTimeoutNanos != 0 || requestTimeoutNanos != 0) {
+                    checkTimeouts(System.nanoTime());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            closed = true;
+        } finally {
+            final IOException cause = new IOException("Client is closed");
+            for (HostPool hostPool : hostPools.values()) {
+                hostPool.closeAll(cause);
+            }
+            failSubmissions();
+            bufferPool.release(readBuffer);
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // nothing left to clean up
+            }
+        }
+    }
+
+    private void runOnEventLoop(Runnable task) {
+        if (!closed) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+    }
+
+    private void resumeReading(Exchange exchange) {
+        final HttpConnection connection = exchange.getConnection();
+        if (connection != null && connection.getInFlight().peek() == exchange) {
+            connection.resumeReading();
+        }
+    }
+
+    private void resumeWriting(Exchange exchange) {
+        final HttpConnection connection = exchange.getConnection();
+        if (connection != null && connection.getInFlight().contains(exchange)) {
+            try {
+                connection.resumeWriting();
+            } catch (IOException e) {
+                hostPools.get(connection.getEndpoint()).close(connection, e);
+            }
+        }
+    }
+
+    /**
+     * Discards the connection of a streamed body which was closed before it was received completely.
+     */
+    private void abort(Exchange exchange) {
+        abort(exchange, new IOException("Response body was closed before it was received completely"));
+    }
+
+    /**
+     * Fails an exchange and discards its connection, e.g. when its request body could not be produced.
+     */
+    private void abort(Exchange exchange, IOException cause) {
+        final HttpConnection connection = exchange.getConnection();
+        if (connection != null && connection.getInFlight().contains(exchange)) {
+            hostPools.get(connection.getEndpoint()).close(connection, cause);
+        } else if (connection == null) {
+            // still waiting for a connection
+            Optional.ofNullable(hostPools.get(exchange.getEndpoint()))
+                    .ifPresent(hostPool -> hostPool.pending.remove(exchange));
+            exchange.fail(cause, bufferPool);
+        }
+    }
+
+    private void failSubmissions() {
+        Exchange exchange;
+        while ((exchange = submissions.poll()) != null) {
+            exchange.fail(new IOException("Client is closed"), bufferPool);
+        }
+    }
+
+    private void handle(SelectionKey key, ByteBuffer readBuffer) {
+        final HttpConnection connection = (HttpConnection) key.attachment();
+        final HostPool hostPool = hostPools.get(connection.getEndpoint());
+        try {
+            if (key.isConnectable() && !connection.finishConnect()) {
+                return;
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.write();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(hostPool, connection, readBuffer);
+            }
+        } catch (IOException e) {
+            hostPool.close(connection, e);
+        } catch (RuntimeException e) {
+            hostPool.close(connection, new IOException("Unexpected error on connection to " + connection.getEndpoint(), e));
+        }
+    }
+
+    private void read(HostPool hostPool, HttpConnection connection, ByteBuffer readBuffer) throws IOException {
+        while (true) {
+            readBuffer.clear();
+            final int read = connection.read(readBuffer);
+            if (read == -1) {
+                final RawResponse response = connection.readEndOfStream();
+                if (response != null) {
+                    connection.pollCompleted().complete(response, bufferPool);
+                }
+                hostPool.close(connection, new IOException("Connection closed by " + connection.getEndpoint()));
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                final RawResponse response = connection.readResponse(readBuffer);
+                if (response == null) {
+                    break;
+                }
+                final Exchange exchange = connection.pollCompleted();
+                // checked before the request buffers go back to the pool, where the next request may reuse them
+                final boolean written = exchange.isWritten();
+                exchange.complete(response, bufferPool);
+                if (!written) {
+                    // the server responded before the request body was sent, the rest of it cannot be skipped
+                    hostPool.close(connection, new IOException("Response received before the request was sent"));
+                    return;
+                }
+                if (connection.isClosing()) {
+                    hostPool.close(connection, new IOException("Connection closed by " + connection.getEndpoint()));
+                    return;
+                }
+            }
+            if (connection.isReadPaused()) {
+                // the caller resumes reading once it consumed the streamed body
+                connection.pauseReading();
+                return;
+            }
+            if (read < readBuffer.capacity()) {
+                break;
+            }
+        }
+        hostPool.release(connection);
+    }
+
+    private void checkTimeouts(long now) {
+        for (HostPool hostPool : hostPools.values()) {
+            hostPool.checkTimeouts(now);
+        }
+    }
+
+    /**
+     * Connections and queued requests of an endpoint. Only used by the event loop.
+     */
+    private final class HostPool {
+
+        private final Endpoint endpoint;
+        private final List<HttpConnection> connections = new ArrayList<>();
+        private final Deque<HttpConnection> idleConnections = new ArrayDeque<>();
+        private final Deque<Exchange> pending = new ArrayDeque<>();
+
+        HostPool(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Sends a request on an idle connection, a new connection if the pool is not full, pipelined on the least busy
+         * connection, or queues it until a connection is released.
+         */
+        void dispatch(Exchange exchange) {
+            if (closed) {
+                exchange.fail(new IOException("Client is closed"), bufferPool);
+                return;
+            }
+            // most recently used connections first, which are least likely to be closed by the server
+            final HttpConnection idle = idleConnections.pollFirst();
+            if (idle != null) {
+                send(idle, exchange);
+            } else if (connections.size() < maxConnectionsPerHost) {
+                final HttpConnection connection;
+                try {
+                    connection = new HttpConnection(endpoint, exchange.getAddress(), selector,
+                            connectTimeoutNanos == 0 ? 0 : System.nanoTime() + connectTimeoutNanos);
+                } catch (IOException | RuntimeException e) {
+                    exchange.fail(e, bufferPool);
+                    return;
+                }
+                connections.add(connection);
+                openConnections.incrementAndGet();
+                send(connection, exchange);
+            } else {
+                final HttpConnection pipelined = pipelining && exchange.isPipelinable() ? leastBusyPipeline() : null;
+                if (pipelined != null) {
+                    send(pipelined, exchange);
+                } else {
+                    pending.add(exchange);
+                }
+            }
+        }
+
+        private HttpConnection leastBusyPipeline() {
+            HttpConnection leastBusy = null;
+            for (HttpConnection connection : connections) {
+                if (connection.canPipeline(maxPipelineDepth) && (leastBusy == null
+                        || connection.getInFlightCount() < leastBusy.getInFlightCount())) {
+                    leastBusy = connection;
+                }
+            }
+            return leastBusy;
+        }
+
+        private void send(HttpConnection connection, Exchange exchange) {
+            try {
+                connection.send(exchange);
+            } catch (IOException e) {
+                close(connection, e);
+            }
+        }
+
+        /**
+         * Sends queued requests on a connection after a response was received, or returns it to the idle connections.
+         */
+        void release(HttpConnection connection) {
+            while (!pending.isEmpty() && (connection.isIdle() || (pipelining && pending.peek().isPipelinable()
+                    && connection.getInFlightCount() > 0 && connection.canPipeline(maxPipelineDepth)))) {
+                send(connection, pending.poll());
+            }
+            if (connection.isIdle()) {
+                idleConnections.addFirst(connection);
+            }
+        }
+
+        /**
+         * Closes a connection. Requests in flight which are safe to send again are dispatched to another connection,
+         * the others fail.
+         */
+        void close(HttpConnection connection, IOException cause) {
+            if (!connections.remove(connection)) {
+                return;
+            }
+            idleConnections.remove(connection);
+            openConnections.decrementAndGet();
+            connection.close();
+
+            final long now = System.nanoTime();
+            final boolean responseStarted = connection.isResponseStarted();
+            final List<Exchange> retries = new ArrayList<>();
+            Exchange exchange;
+            boolean first = true;
+            while ((exchange = connection.pollCompleted()) != null) {
+                if (exchange.isExpired(now)) {
+                    exchange.fail(new HttpTimeoutException("Request timed out"), bufferPool);
+                } else if (!closed && !(first && responseStarted) && exchange.canRetry()) {
+                    exchange.rewind();
+                    retries.add(exchange);
+                } else {
+                    exchange.fail(cause, bufferPool);
+                }
+                first = false;
+            }
+            retries.forEach(this::dispatch);
+            // requests waiting for a connection get a new one
+            while (!pending.isEmpty() && connections.size() < maxConnectionsPerHost && !closed) {
+                dispatch(pending.poll());
+            }
+        }
+
+        void checkTimeouts(long now) {
+            pending.removeIf(exchange -> {
+                if (exchange.isExpired(now)) {
+                    exchange.fail(new HttpTimeoutException("Request timed out"), bufferPool);
+                    return true;
+                }
+                return false;
+            });
+            for (HttpConnection connection : new ArrayList<>(connections)) {
+                if (connection.isConnectExpired(now)) {
+                    close(connection, new HttpConnectTimeoutException("Connect to " + endpoint + " timed out"));
+                } else if (connection.getInFlight().stream().anyMatch(exchange -> exchange.isExpired(now))) {
+                    // a response cannot be skipped, so the connection of a timed out request is discarded
+                    close(connection, new IOException("Connection closed after a request timed out"));
+                }
+            }
+        }
+
+        void closeAll(IOException cause) {
+            for (HttpConnection connection : new ArrayList<>(connections)) {
+                close(connection, cause);
+            }
+            pending.forEach(exchange -> exchange.fail(cause, bufferPool));
+            pending.clear();
+        }
+    }
+
+    /**
+     * Configuration of a {@link NioHttpClient}.
+     */
+    public static class Builder {
+
+        private int maxConnectionsPerHost = 8;
+        private boolean pipelining;
+        private int maxPipelineDepth = 8;
+        private int bufferSize = 16 * 1024;
+        private int maxPooledBuffers = 256;
+        private Duration connectTimeout;
+        private Duration requestTimeout;
+        private Executor callbackExecutor = ForkJoinPool.commonPool();
+        private ObjectMapper objectMapper = HttpMessageSupport.newObjectMapper();
+
+        /**
+         * @param maxConnectionsPerHost maximum open connections to a host; 8 by default
+         * @return Builder
+         */
+        public Builder withMaxConnectionsPerHost(int maxConnectionsPerHost) {
+            if (maxConnectionsPerHost <= 0) {
+                throw new IllegalArgumentException("Max connections per host must be positive!");
+            }
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * @param pipelining true to pipeline idempotent requests on busy connections when all connections to a host
+         *                   are open; disabled by default, as some servers and proxies do not support pipelining
+         * @return Builder
+         */
+        public Builder withPipelining(boolean pipelining) {
+            this.pipelining = pipelining;
+            return this;
+        }
+
+        /**
+         * @param maxPipelineDepth maximum requests in flight on a pipelined connection; 8 by default
+         * @return Builder
+         */
+        public Builder withMaxPipelineDepth(int maxPipelineDepth) {
+            if (maxPipelineDepth <= 0) {
+                throw new IllegalArgumentException("Max pipeline depth must be positive!");
+            }
+            this.maxPipelineDepth = maxPipelineDepth;
+            return this;
+        }
+
+        /**
+         * @param bufferSize size of the pooled direct buffers requests are encoded into and responses are read into;
+         *                   16KB by default
+         * @return Builder
+         */
+        public Builder withBufferSize(int bufferSize) {
+            if (bufferSize < 256) {
+                throw new IllegalArgumentException("Buffer size must be at least 256 bytes!");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param maxPooledBuffers maximum buffers kept for reuse; 256 by default
+         * @return Builder
+         */
+        public Builder withMaxPooledBuffers(int maxPooledBuffers) {
+            if (maxPooledBuffers < 0) {
+                throw new IllegalArgumentException("Max pooled buffers cannot be negative!");
+            }
+            this.maxPooledBuffers = maxPooledBuffers;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout timeout for establishing connections; no timeout by default
+         * @return Builder
+         */
+        public Builder withConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param requestTimeout timeout for receiving the complete response of a request, including the time waiting
+         *                       for a connection; no timeout by default
+         * @return Builder
+         */
+        public Builder withRequestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * @param callbackExecutor executor converting responses and completing the futures of asynchronous requests;
+         *                         the common fork join pool by default
+         * @return Builder
+         */
+        public Builder withCallbackExecutor(Executor callbackExecutor) {
+            this.callbackExecutor = Optional.ofNullable(callbackExecutor)
+                    .orElseThrow(() -> new IllegalArgumentException("Callback executor cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param objectMapper mapper for JSON request and response bodies
+         * @return Builder
+         */
+        public Builder withObjectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = Optional.ofNullable(objectMapper)
+                    .orElseThrow(() -> new IllegalArgumentException("Object mapper cannot be null!"));
+            return this;
+        }
+
+        public NioHttpClient build() {
+            return new NioHttpClient(this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.InputStream;
+
+/**
+ * Status, content type, content encoding and body of a parsed HTTP response. The body of a streamed response is
+ * received after the response is handed out.
+ */
+final class RawResponse {
+
+    private final int statusCode;
+    private final String contentType;
+    private final String contentEncoding;
+    private final byte[] body;
+    private final InputStream bodyStream;
+
+    RawResponse(int statusCode, String contentType, String contentEncoding, byte[] body, InputStream bodyStream) {
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+        this.body = body;
+        this.bodyStream = bodyStream;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return content encoding header of the response; null if the body is not encoded
+     */
+    String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * @return body of a response which is not streamed
+     */
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return body of a streamed response; null if the body was read into {@link #getBody()}
+     */
+    InputStream getBodyStream() {
+        return bodyStream;
+    }
+}
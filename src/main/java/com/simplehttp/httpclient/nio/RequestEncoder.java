@@ -0,0 +1,326 @@
+package com.simplehttp.httpclient.nio;
+
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.codec.BodyWriter;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.httpclient.HttpCompression;
+import com.simplehttp.httpclient.HttpMessageSupport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes a Request as HTTP/1.1 directly into pooled direct buffers: request line, headers and the body. The URL is
+ * not parsed into an intermediate URI, path and query are percent-encoded while they are written. Runs on the calling
+ * thread so that encoding and serialization do not load the event loop.
+ */
+final class RequestEncoder {
+
+    private static final String HTTP_SCHEME = "http://";
+    /**
+     * Schemes of unix domain socket URLs, whose authority is the percent-encoded socket path.
+     */
+    private static final String UNIX_SCHEME = "unix://";
+    private static final String HTTP_UNIX_SCHEME = "http+unix://";
+    private static final String[] SCHEMES = {HTTP_SCHEME, UNIX_SCHEME, HTTP_UNIX_SCHEME};
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final String HOST = "Host";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String TRANSFER_ENCODING = "Transfer-Encoding";
+
+    private final BufferPool bufferPool;
+    private final Codec codec;
+
+    RequestEncoder(BufferPool bufferPool, Codec codec) {
+        this.bufferPool = bufferPool;
+        this.codec = codec;
+    }
+
+    /**
+     * @param request request to encode
+     * @param deadlineNanos {@link System#nanoTime()} at which the request times out; 0 for no timeout
+     * @return exchange of the encoded request
+     * @throws IllegalArgumentException if the URL is not an absolute http or unix socket URL, or a header contains line
+     *                                  breaks
+     * @throws IOException if the host cannot be resolved or the body cannot be serialized
+     */
+    Exchange encode(Request request, long deadlineNanos) throws IOException {
+        final String url = request.getUrl();
+        final String scheme = schemeOf(url);
+        if (scheme == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Unsupported URL '%s', only http and unix socket URLs are supported", url));
+        }
+        final int authorityStart = scheme.length();
+        int pathStart = authorityStart;
+        while (pathStart < url.length() && "/?#".indexOf(url.charAt(pathStart)) == -1) {
+            pathStart++;
+        }
+        final String authority = url.substring(authorityStart, pathStart);
+        final Endpoint endpoint = scheme.equals(HTTP_SCHEME) ? Endpoint.ofAuthority(authority)
+                : Endpoint.ofUnixSocket(authority);
+        final SocketAddress address = endpoint.resolve();
+        final int fragmentStart = url.indexOf('#', pathStart);
+        final int pathEnd = fragmentStart == -1 ? url.length() : fragmentStart;
+
+        final Object requestBody = request.getBody();
+        final boolean streamingBody = HttpMessageSupport.isStreamingBody(requestBody);
+        final BodyWriter bodyWriter = requestBody == null ? null : HttpMessageSupport.getBodyWriter(request, codec);
+        final byte[] serialized = streamingBody ? null : HttpMessageSupport.serializeBody(requestBody, bodyWriter);
+        final boolean compressed = HttpCompression.isCompressed(request, streamingBody
+                ? HttpMessageSupport.getContentLength(requestBody) : serialized == null ? 0 : serialized.length);
+        final byte[] body = compressed && serialized != null ? HttpCompression.gzip(serialized) : serialized;
+        // a compressed file or buffer body is sent chunked like other streamed bodies, its length is not known upfront
+        final boolean chunked = isChunkedBody(requestBody, compressed);
+        final FileRequestBody fileBody = requestBody instanceof Path path && !chunked
+                ? new FileRequestBody(path) : null;
+        final HttpMethod httpMethod = request.getHttpMethod();
+        final BufferWriter writer = new BufferWriter();
+        try {
+            writer.writeAscii(httpMethod.name()).write(' ');
+            if (pathStart == pathEnd || url.charAt(pathStart) != '/') {
+                writer.write('/');
+            }
+            writer.writeUri(url, pathStart, pathEnd);
+            writeQueryParams(writer, request.getQueryParams(), url.lastIndexOf('?', pathEnd - 1) >= pathStart);
+            writer.writeAscii(" HTTP/1.1\r\n");
+            writer.writeHeader(HOST, endpoint.getHostHeader());
+
+            final HttpMultiValueMap headers = request.getHeaders();
+            if (headers != null) {
+                headers.forEach((name, value) -> {
+                    if (value != null && !HOST.equalsIgnoreCase(name) && !CONTENT_LENGTH.equalsIgnoreCase(name)
+                            && !TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                        writer.writeHeader(name, value);
+                    }
+                });
+            }
+            if (HttpCompression.isAcceptEncodingMissing(headers)) {
+                writer.writeHeader(HttpCompression.ACCEPT_ENCODING, HttpCompression.ACCEPTED_ENCODINGS);
+            }
+            if (compressed) {
+                writer.writeHeader(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+            }
+            final String defaultContentType = HttpMessageSupport.getDefaultContentType(requestBody, bodyWriter);
+            if (defaultContentType != null
+                    && (headers == null || headers.getFirst(HttpMessageSupport.CONTENT_TYPE) == null)) {
+                writer.writeHeader(HttpMessageSupport.CONTENT_TYPE, defaultContentType);
+            }
+            if (body != null) {
+                writer.writeHeader(CONTENT_LENGTH, Integer.toString(body.length));
+            } else if (chunked) {
+                writer.writeHeader(TRANSFER_ENCODING, "chunked");
+            } else if (fileBody != null) {
+                writer.writeHeader(CONTENT_LENGTH, Long.toString(fileBody.getLength()));
+            } else if (requestBody instanceof ByteBuffer buffer) {
+                writer.writeHeader(CONTENT_LENGTH, Integer.toString(buffer.remaining()));
+            } else if (httpMethod == HttpMethod.POST || httpMethod == HttpMethod.PUT
+                    || httpMethod == HttpMethod.PATCH) {
+                writer.writeHeader(CONTENT_LENGTH, "0");
+            }
+            writer.writeAscii("\r\n");
+        } catch (RuntimeException e) {
+            writer.release();
+            if (fileBody != null) {
+                fileBody.release();
+            }
+            throw e;
+        }
+        // a buffer body is sliced, so that it is sent from its position even when the request is rewound
+        final ByteBuffer[] buffers = requestBody instanceof ByteBuffer buffer && !chunked
+                ? writer.finish(buffer.slice()) : writer.finish(body);
+        final Exchange exchange = new Exchange(endpoint, address, buffers, writer.getPooledBufferCount(),
+                isIdempotent(httpMethod), deadlineNanos);
+        exchange.setRequestBody(fileBody);
+        exchange.setChunkedRequestBody(chunked, compressed);
+        return exchange;
+    }
+
+    /**
+     * @param body request body; may be null
+     * @param compressed true if the body is sent compressed
+     * @return true if the body is produced while it is sent with chunked transfer encoding
+     */
+    private static boolean isChunkedBody(Object body, boolean compressed) {
+        return HttpMessageSupport.isStreamingBody(body)
+                && (compressed || (!(body instanceof Path) && !(body instanceof ByteBuffer)));
+    }
+
+    /**
+     * @param url request URL
+     * @return true if the URL addresses a unix domain socket
+     */
+    static boolean isUnixSocketUrl(String url) {
+        final String scheme = schemeOf(url);
+        return scheme != null && !scheme.equals(HTTP_SCHEME);
+    }
+
+    /**
+     * @return supported scheme of a URL including <code>://</code>; null for other URLs
+     */
+    private static String schemeOf(String url) {
+        if (url != null) {
+            for (String scheme : SCHEMES) {
+                if (url.regionMatches(true, 0, scheme, 0, scheme.length())) {
+                    return scheme;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void writeQueryParams(BufferWriter writer, HttpMultiValueMap queryParams, boolean hasQuery) {
+        if (queryParams == null || queryParams.isEmpty()) {
+            return;
+        }
+        final boolean[] first = {!hasQuery};
+        queryParams.forEach((name, value) -> {
+            writer.write(first[0] ? '?' : '&');
+            writer.writeQueryComponent(name);
+            if (value != null) {
+                writer.write('=');
+                writer.writeQueryComponent(value);
+            }
+            first[0] = false;
+        });
+    }
+
+    private static boolean isIdempotent(HttpMethod httpMethod) {
+        return httpMethod == HttpMethod.GET || httpMethod == HttpMethod.PUT || httpMethod == HttpMethod.DELETE;
+    }
+
+    /**
+     * Writes bytes to a list of pooled buffers, acquiring a new buffer when the current one is full.
+     */
+    private final class BufferWriter {
+
+        private final List<ByteBuffer> buffers = new ArrayList<>(2);
+        private ByteBuffer current;
+
+        BufferWriter write(int b) {
+            if (current == null || !current.hasRemaining()) {
+                current = bufferPool.acquire();
+                buffers.add(current);
+            }
+            current.put((byte) b);
+            return this;
+        }
+
+        BufferWriter writeAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                write(value.charAt(i));
+            }
+            return this;
+        }
+
+        void writeHeader(String name, String value) {
+            writeLatin1(name);
+            write(':').write(' ');
+            writeLatin1(value);
+            write('\r').write('\n');
+        }
+
+        private void writeLatin1(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == '\r' || c == '\n') {
+                    throw new IllegalArgumentException(String.format("Invalid line break in header '%s'", value));
+                }
+                write(c <= 0xFF ? c : '?');
+            }
+        }
+
+        /**
+         * Writes a path and query, percent-encoding characters which are not allowed in a request target. Existing
+         * percent-encoding is preserved.
+         */
+        void writeUri(String uri, int start, int end) {
+            for (int i = start; i < end; i++) {
+                final char c = uri.charAt(i);
+                if (c > ' ' && c < 0x7F && c != '"' && c != '<' && c != '>' && c != '\\' && c != '^' && c != '`'
+                        && c != '{' && c != '|' && c != '}') {
+                    write(c);
+                } else {
+                    i = writePercentEncoded(uri, i);
+                }
+            }
+        }
+
+        /**
+         * Writes a query param name or value, percent-encoding all characters except unreserved ones.
+         */
+        void writeQueryComponent(String component) {
+            for (int i = 0; i < component.length(); i++) {
+                final char c = component.charAt(i);
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                        || c == '-' || c == '.' || c == '_' || c == '~') {
+                    write(c);
+                } else {
+                    i = writePercentEncoded(component, i);
+                }
+            }
+        }
+
+        /**
+         * Writes the UTF-8 bytes of the code point at an index percent-encoded.
+         *
+         * @return index of the last char of the code point
+         */
+        private int writePercentEncoded(String value, int index) {
+            final int codePoint = value.codePointAt(index);
+            if (codePoint < 0x80) {
+                writeEscaped(codePoint);
+            } else {
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    writeEscaped(b & 0xFF);
+                }
+            }
+            return index + Character.charCount(codePoint) - 1;
+        }
+
+        private void writeEscaped(int b) {
+            write('%').write(HEX_DIGITS[b >> 4]).write(HEX_DIGITS[b & 0xF]);
+        }
+
+        int getPooledBufferCount() {
+            return buffers.size();
+        }
+
+        /**
+         * Flips the written buffers and appends the body. Small bodies are copied into the last buffer, larger ones
+         * are wrapped to be written with the same gathering write.
+         *
+         * @return buffers ready to be written
+         */
+        ByteBuffer[] finish(byte[] body) {
+            return finish(body == null ? null : ByteBuffer.wrap(body));
+        }
+
+        ByteBuffer[] finish(ByteBuffer body) {
+            final boolean copyBody = body != null && body.remaining() <= current.remaining();
+            if (copyBody) {
+                current.put(body.duplicate());
+            }
+            final boolean appendBody = body != null && !copyBody && body.hasRemaining();
+            final ByteBuffer[] result = new ByteBuffer[buffers.size() + (appendBody ? 1 : 0)];
+            for (int i = 0; i < buffers.size(); i++) {
+                result[i] = buffers.get(i).flip();
+            }
+            if (appendBody) {
+                result[result.length - 1] = body;
+            }
+            return result;
+        }
+
+        void release() {
+            buffers.forEach(bufferPool::release);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A response body handed to the caller while it is still being received. The event loop appends the chunks it reads
+ * and the caller reads them on its own thread. Once more than <code>maxQueuedBytes</code> are queued, the event loop
+ * stops reading from the connection until the caller has consumed half of them, so memory stays bounded no matter how
+ * large the body is.
+ *
+ * The caller waits on a {@link ReentrantLock} rather than a monitor, so that a virtual thread waiting for the body
+ * does not pin its carrier thread.
+ */
+final class ResponseBodyStream extends InputStream {
+
+    private final int maxQueuedBytes;
+    private final Runnable resumeReading;
+    private final Runnable abort;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+    private byte[] current;
+    private int position;
+    private int queuedBytes;
+    private boolean paused;
+    private boolean complete;
+    private IOException error;
+    private boolean closed;
+
+    /**
+     * @param maxQueuedBytes bytes received ahead of the caller before reading is paused
+     * @param resumeReading resumes reading from the connection; called by the caller's thread
+     * @param abort discards the connection of a body which was closed before its end; called by the caller's thread
+     */
+    ResponseBodyStream(int maxQueuedBytes, Runnable resumeReading, Runnable abort) {
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.resumeReading = resumeReading;
+        this.abort = abort;
+    }
+
+    /**
+     * Appends received bytes. Called by the event loop.
+     *
+     * @param data buffer to copy the bytes from
+     * @param length number of bytes to copy
+     * @return false if reading should be paused until {@link #resumeReading} is called
+     */
+    boolean append(ByteBuffer data, int length) {
+        lock.lock();
+        try {
+            if (closed) {
+                data.position(data.position() + length);
+                return true;
+            }
+            final byte[] chunk = new byte[length];
+            data.get(chunk);
+            chunks.add(chunk);
+            queuedBytes += length;
+            changed.signalAll();
+            paused = queuedBytes > maxQueuedBytes;
+            return !paused;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the end of the body. Called by the event loop.
+     */
+    void complete() {
+        lock.lock();
+        try {
+            complete = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails the body if it was not received completely. Called by the event loop.
+     */
+    void fail(IOException cause) {
+        lock.lock();
+        try {
+            if (!complete && error == null) {
+                error = cause;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        final boolean resume;
+        final int read;
+        lock.lock();
+        try {
+            while (current == null || position == current.length) {
+                // a caller waiting for the body is woken up when another thread closes it
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                current = chunks.poll();
+                position = 0;
+                if (current != null) {
+                    continue;
+                }
+                if (error != null) {
+                    throw new IOException(error.getMessage(), error);
+                }
+                if (complete) {
+                    return -1;
+                }
+                try {
+                    changed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the response body");
+                }
+            }
+            read = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, read);
+            position += read;
+            queuedBytes -= read;
+            resume = paused && queuedBytes <= maxQueuedBytes / 2;
+            if (resume) {
+                paused = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeReading.run();
+        }
+        return read;
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the body. If it was not received completely, its connection is closed instead of being reused.
+     */
+    @Override
+    public void close() {
+        final boolean incomplete;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            incomplete = !complete && error == null;
+            chunks.clear();
+            current = null;
+            queuedBytes = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (incomplete) {
+            abort.run();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Incremental parser of HTTP/1.1 responses. Bytes are fed as they are read from a connection, which may contain parts
+ * of a response or several pipelined responses. Only the headers needed for framing, keep-alive and decoding are
+ * parsed.
+ *
+ * Successful responses can be streamed to a {@link BodyListener} instead of being collected. Error responses are
+ * always collected, so that their body can be reported.
+ */
+final class ResponseParser {
+
+    /**
+     * Receives a streamed response as it is parsed.
+     */
+    interface BodyListener {
+        /**
+         * Called once the headers of a successful response were parsed.
+         */
+        void onHeaders(int statusCode, String contentType, String contentEncoding);
+
+        /**
+         * Consumes body bytes.
+         *
+         * @param data buffer positioned at the bytes
+         * @param length number of bytes to consume
+         * @return false if reading from the connection should be paused
+         */
+        boolean onBody(ByteBuffer data, int length);
+    }
+
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private enum State {
+        STATUS_LINE, HEADERS, BODY_FIXED, CHUNK_SIZE, CHUNK_DATA, CHUNK_DATA_END, TRAILERS, BODY_UNTIL_CLOSE
+    }
+
+    private State state = State.STATUS_LINE;
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    private int statusCode;
+    private boolean http10;
+    private String contentType;
+    private String contentEncoding;
+    private long contentLength;
+    private boolean chunked;
+    private boolean connectionClose;
+    private boolean connectionKeepAlive;
+
+    private byte[] body;
+    private int bodyLength;
+    private long remaining;
+    private boolean keepAlive;
+    private BodyListener bodyListener;
+    private boolean readPaused;
+
+    /**
+     * Parses bytes of a response until it is complete or the buffer is consumed. Bytes after a complete response are
+     * left in the buffer.
+     *
+     * @param buffer bytes read from a connection, in read mode
+     * @param streamTo listener to stream a successful response to; null to collect the body
+     * @return complete response; null if more bytes are needed
+     * @throws IOException if the response is malformed
+     */
+    RawResponse parse(ByteBuffer buffer, BodyListener streamTo) throws IOException {
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case STATUS_LINE:
+                    if (readLine(buffer) && lineLength > 0) {
+                        parseStatusLine();
+                        state = State.HEADERS;
+                    }
+                    break;
+                case HEADERS:
+                    if (readLine(buffer)) {
+                        if (lineLength > 0) {
+                            parseHeader();
+                        } else {
+                            final RawResponse response = startBody(streamTo);
+                            if (response != null) {
+                                return response;
+                            }
+                        }
+                    }
+                    break;
+                case BODY_FIXED:
+                    readBody(buffer);
+                    if (remaining == 0) {
+                        return complete();
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    if (readLine(buffer)) {
+                        remaining = parseChunkSize();
+                        state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+                    }
+                    break;
+                case CHUNK_DATA:
+                    readBody(buffer);
+                    if (remaining == 0) {
+                        state = State.CHUNK_DATA_END;
+                    }
+                    break;
+                case CHUNK_DATA_END:
+                    if (readLine(buffer)) {
+                        lineLength = 0;
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+                case TRAILERS:
+                    if (readLine(buffer)) {
+                        if (lineLength == 0) {
+                            return complete();
+                        }
+                        lineLength = 0;
+                    }
+                    break;
+                case BODY_UNTIL_CLOSE:
+                    remaining = buffer.remaining();
+                    readBody(buffer);
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called when the connection was closed by the server.
+     *
+     * @return response delimited by the end of the connection; null if no response was started
+     * @throws EOFException if a response was started and is incomplete
+     */
+    RawResponse endOfStream() throws EOFException {
+        if (state == State.BODY_UNTIL_CLOSE) {
+            return complete();
+        }
+        if (!isIdle()) {
+            throw new EOFException("Connection closed before the response was complete");
+        }
+        return null;
+    }
+
+    /**
+     * @return true if no bytes of the next response were parsed
+     */
+    boolean isIdle() {
+        return state == State.STATUS_LINE && lineLength == 0;
+    }
+
+    /**
+     * @return true if a body listener asked to pause reading from the connection
+     */
+    boolean isReadPaused() {
+        return readPaused;
+    }
+
+    void resumeReading() {
+        readPaused = false;
+    }
+
+    /**
+     * @return true if the connection can be reused after the last complete response
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            final byte b = buffer.get();
+            if (b == '\n') {
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (lineLength == line.length) {
+                if (lineLength >= MAX_LINE_LENGTH) {
+                    throw new IOException("Response line exceeds " + MAX_LINE_LENGTH + " bytes");
+                }
+                line = Arrays.copyOf(line, lineLength * 2);
+            }
+            line[lineLength++] = b;
+        }
+        return false;
+    }
+
+    private void parseStatusLine() throws IOException {
+        // HTTP/1.1 200 OK
+        if (lineLength < 12 || !startsWith("HTTP/1.") || line[8] != ' ') {
+            throw new IOException("Invalid status line: " + lineString(0));
+        }
+        http10 = line[7] == '0';
+        statusCode = 0;
+        for (int i = 9; i < 12; i++) {
+            final int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid status line: " + lineString(0));
+            }
+            statusCode = statusCode * 10 + digit;
+        }
+        contentType = null;
+        contentEncoding = null;
+        contentLength = -1;
+        chunked = false;
+        connectionClose = false;
+        connectionKeepAlive = false;
+        lineLength = 0;
+    }
+
+    private void parseHeader() throws IOException {
+        int colon = 0;
+        while (colon < lineLength && line[colon] != ':') {
+            colon++;
+        }
+        if (colon == lineLength) {
+            throw new IOException("Invalid header: " + lineString(0));
+        }
+        if (isHeader("content-length", colon)) {
+            try {
+                contentLength = Long.parseLong(headerValue(colon));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + headerValue(colon));
+            }
+        } else if (isHeader("transfer-encoding", colon)) {
+            chunked = headerValue(colon).toLowerCase().endsWith("chunked");
+        } else if (isHeader("content-type", colon)) {
+            contentType = headerValue(colon);
+        } else if (isHeader("content-encoding", colon)) {
+            contentEncoding = headerValue(colon);
+        } else if (isHeader("connection", colon)) {
+            final String connection = headerValue(colon).toLowerCase();
+            connectionClose = connection.contains("close");
+            connectionKeepAlive = connection.contains("keep-alive");
+        }
+        lineLength = 0;
+    }
+
+    private RawResponse startBody(BodyListener streamTo) throws IOException {
+        lineLength = 0;
+        if (statusCode < 200) {
+            // informational responses like 100 Continue precede the final response
+            state = State.STATUS_LINE;
+            return null;
+        }
+        bodyLength = 0;
+        if (streamTo != null && statusCode < 400) {
+            bodyListener = streamTo;
+            bodyListener.onHeaders(statusCode, contentType, contentEncoding);
+        }
+        // streamed bodies are not collected
+        final boolean collect = bodyListener == null;
+        if (statusCode == 204 || statusCode == 304) {
+            body = EMPTY_BODY;
+            return complete();
+        }
+        if (chunked) {
+            body = collect ? new byte[256] : EMPTY_BODY;
+            state = State.CHUNK_SIZE;
+        } else if (contentLength >= 0) {
+            if (collect && contentLength > Integer.MAX_VALUE - 8) {
+                throw new IOException("Response body too large: " + contentLength + " bytes");
+            }
+            if (contentLength == 0) {
+                body = EMPTY_BODY;
+                return complete();
+            }
+            body = collect ? new byte[(int) contentLength] : EMPTY_BODY;
+            remaining = contentLength;
+            state = State.BODY_FIXED;
+        } else {
+            body = collect ? new byte[256] : EMPTY_BODY;
+            connectionClose = true;
+            state = State.BODY_UNTIL_CLOSE;
+        }
+        return null;
+    }
+
+    private long parseChunkSize() throws IOException {
+        long size = 0;
+        int i = 0;
+        for (; i < lineLength && line[i] != ';' && line[i] != ' '; i++) {
+            final int digit = Character.digit(line[i], 16);
+            if (digit == -1 || size > (Integer.MAX_VALUE >> 4)) {
+                throw new IOException("Invalid chunk size: " + lineString(0));
+            }
+            size = (size << 4) + digit;
+        }
+        if (i == 0) {
+            throw new IOException("Invalid chunk size: " + lineString(0));
+        }
+        lineLength = 0;
+        return size;
+    }
+
+    private void readBody(ByteBuffer buffer) throws IOException {
+        final int length = (int) Math.min(remaining, buffer.remaining());
+        if (bodyListener != null) {
+            if (!bodyListener.onBody(buffer, length)) {
+                readPaused = true;
+            }
+            remaining -= length;
+            return;
+        }
+        if (bodyLength + length > body.length) {
+            if (bodyLength + (long) length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Response body too large");
+            }
+            body = Arrays.copyOf(body, Math.max(bodyLength + length, (int) Math.min(body.length * 2L,
+                    Integer.MAX_VALUE - 8)));
+        }
+        buffer.get(body, bodyLength, length);
+        bodyLength += length;
+        remaining -= length;
+    }
+
+    private RawResponse complete() {
+        final byte[] responseBody = bodyListener != null ? EMPTY_BODY
+                : bodyLength == body.length ? body : Arrays.copyOf(body, bodyLength);
+        bodyListener = null;
+        // the listener received the whole body, the next response is read right away
+        readPaused = false;
+        keepAlive = !connectionClose && (!http10 || connectionKeepAlive);
+        final RawResponse response = new RawResponse(statusCode, contentType, contentEncoding, responseBody, null);
+        state = State.STATUS_LINE;
+        lineLength = 0;
+        body = null;
+        return response;
+    }
+
+    private boolean startsWith(String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name lower case header name
+     */
+    private boolean isHeader(String name, int colon) {
+        if (colon != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < colon; i++) {
+            if ((line[i] | 0x20) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String headerValue(int colon) {
+        return lineString(colon + 1).trim();
+    }
+
+    private String lineString(int start) {
+        return new String(line, start, lineLength - start, StandardCharsets.ISO_8859_1);
+    }
+}
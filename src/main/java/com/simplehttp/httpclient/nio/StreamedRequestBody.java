@@ -0,0 +1,39 @@
+package com.simplehttp.httpclient.nio;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A request body which is written to the connection after the encoded request head, instead of being encoded into
+ * buffers upfront. Only written by the event loop.
+ */
+interface StreamedRequestBody {
+
+    /**
+     * Writes as much of the body as the channel accepts.
+     *
+     * @return true once the body was written completely
+     */
+    boolean writeTo(WritableByteChannel channel) throws IOException;
+
+    /**
+     * @return true if the body was written completely
+     */
+    boolean isWritten();
+
+    /**
+     * @return true if nothing can be written until more of the body is produced
+     */
+    boolean isAwaitingData();
+
+    /**
+     * Rewinds the body so that it can be sent again on another connection. Only called if no part of the body was
+     * written yet.
+     */
+    void rewind();
+
+    /**
+     * Releases the body once the exchange is done, whether it was written completely or not.
+     */
+    void release();
+}
@@ -0,0 +1,52 @@
+package com.simplehttp.httpclient.spring;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the pooled keep-alive connection manager of a {@link RestTemplateHttpClient}.
+ */
+@Getter
+@Builder
+public class ConnectionPoolConfig {
+    /**
+     * Maximum number of open connections across all hosts.
+     */
+    @Builder.Default
+    private final int maxTotal = 200;
+    /**
+     * Maximum number of open connections to a single host(route).
+     */
+    @Builder.Default
+    private final int maxPerRoute = 20;
+    /**
+     * How long an idle connection is kept alive for reuse, unless the server's Keep-Alive header asks for less.
+     */
+    @Builder.Default
+    private final Duration keepAlive = Duration.ofSeconds(30);
+    /**
+     * Connections idle for longer than this are closed by a background reaper. Expired connections are reaped as well.
+     */
+    @Builder.Default
+    private final Duration maxIdleTime = Duration.ofSeconds(60);
+    /**
+     * Pooled connections idle for longer than this are validated before they are reused, so that connections closed
+     * by the server are not handed out.
+     */
+    @Builder.Default
+    private final Duration validateAfterInactivity = Duration.ofSeconds(2);
+    /**
+     * Timeout for establishing a connection; null for the system default.
+     */
+    private final Duration connectTimeout;
+    /**
+     * Timeout for waiting on data of an established connection; null for the system default.
+     */
+    private final Duration socketTimeout;
+    /**
+     * Timeout for leasing a connection from an exhausted pool; null to wait indefinitely.
+     */
+    private final Duration connectionRequestTimeout;
+}
@@ -1,37 +1,171 @@
 package com.simplehttp.httpclient.spring;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.simplehttp.core.client.http.HttpMultiValueMap;
 import com.simplehttp.core.client.HttpClient;
 import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.codec.BodyWriter;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.core.codec.JacksonCodec;
+import com.simplehttp.core.exception.HttpStatusException;
+import com.simplehttp.httpclient.HttpCompression;
+import com.simplehttp.httpclient.HttpMessageSupport;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionReleaseTrigger;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
-import org.springframework.util.CollectionUtils;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.List;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
- * An HttpClient implementation using the Spring's RestTemplate.
+ * An HttpClient implementation using the Spring's RestTemplate. By default the RestTemplate opens a JDK
+ * <code>HttpURLConnection</code> per request; with a {@link ConnectionPoolConfig} it uses an Apache HttpClient with a
+ * pooled keep-alive connection manager instead.
+ *
+ * Requests of client methods are sent on the request factory directly, their bodies are written and decoded from the
+ * network stream by the readers and writers resolved for the method, instead of negotiating message converters per
+ * request. Streamed response bodies(<code>InputStream</code>, <code>ReadableByteChannel</code>, <code>Stream</code>,
+ * <code>Iterator</code> and downloads) hold their connection until they are closed. Streamed request
+ * bodies(<code>Path</code>, <code>InputStream</code>, <code>ByteBuffer</code>, <code>Stream</code> and
+ * <code>Iterator</code>) are written to the connection while they are read.
+ *
+ * These requests ask for gzip or deflate compressed responses, which are decompressed while they are read, and send
+ * the bodies of methods with a compression threshold gzip-compressed(see {@link HttpCompression}).
+ *
+ * Error responses are thrown as {@link HttpStatusException}, like by the other HTTP clients.
  */
-public class RestTemplateHttpClient implements HttpClient {
+public class RestTemplateHttpClient implements HttpClient, Closeable {
 
     private final RestTemplate restTemplate;
+    /**
+     * Request factory which writes request bodies directly to the connection instead of buffering them.
+     */
+    private final ClientHttpRequestFactory streamingRequestFactory;
+    /**
+     * JSON codec with the object mapper of the JSON message converter.
+     */
+    private final Codec codec;
+    private final CloseableHttpClient pooledHttpClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
 
     public RestTemplateHttpClient() {
         this.restTemplate = new RestTemplate();
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        this.streamingRequestFactory = requestFactory;
+        this.codec = new JacksonCodec(jsonObjectMapper(restTemplate));
+        this.pooledHttpClient = null;
+        this.connectionManager = null;
     }
 
+    /**
+     * Creates a client with a pooled connection manager. Idle and expired connections are reaped by a background
+     * thread until the client is {@link #close() closed}.
+     *
+     * @param connectionPoolConfig configuration of the connection pool
+     */
+    public RestTemplateHttpClient(ConnectionPoolConfig connectionPoolConfig) {
+        final ConnectionPoolConfig config = Optional.ofNullable(connectionPoolConfig)
+                .orElseThrow(() -> new IllegalArgumentException("Connection pool config cannot be null!"));
+        if (config.getMaxTotal() <= 0 || config.getMaxPerRoute() <= 0) {
+            throw new IllegalArgumentException("Connection pool sizes must be positive!");
+        }
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity((int) config.getValidateAfterInactivity().toMillis());
+
+        final RequestConfig.Builder requestConfig = RequestConfig.custom();
+        Optional.ofNullable(config.getConnectTimeout())
+                .ifPresent(timeout -> requestConfig.setConnectTimeout((int) timeout.toMillis()));
+        Optional.ofNullable(config.getSocketTimeout())
+                .ifPresent(timeout -> requestConfig.setSocketTimeout((int) timeout.toMillis()));
+        Optional.ofNullable(config.getConnectionRequestTimeout())
+                .ifPresent(timeout -> requestConfig.setConnectionRequestTimeout((int) timeout.toMillis()));
+
+        final long keepAliveMillis = config.getKeepAlive().toMillis();
+        this.pooledHttpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig.build())
+                // honor a shorter Keep-Alive timeout of the server, but never keep connections forever
+                .setKeepAliveStrategy((response, context) -> {
+                    final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                // responses are decompressed with pooled inflaters instead, which also keeps the connection of a
+                // streamed body abortable
+                .disableContentCompression()
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pooledHttpClient));
+        final HttpComponentsClientHttpRequestFactory requestFactory =
+                new HttpComponentsClientHttpRequestFactory(pooledHttpClient);
+        requestFactory.setBufferRequestBody(false);
+        this.streamingRequestFactory = requestFactory;
+        this.codec = new JacksonCodec(jsonObjectMapper(restTemplate));
+    }
+
+    private static ObjectMapper jsonObjectMapper(RestTemplate restTemplate) {
+        return restTemplate.getMessageConverters().stream()
+                .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+                .map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+                .findFirst()
+                .orElseGet(HttpMessageSupport::newObjectMapper);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws HttpStatusException if the response has an error status code, caused by the exception of the error
+     *                             handler of the RestTemplate
+     */
     @Override
-    public Response execute(Request request) {
+    public Response execute(Request request) throws IOException {
+        try {
+            return send(request);
+        } catch (RestClientResponseException e) {
+            throw new HttpStatusException(String.format("Request [%s] %s failed with status %d",
+                    request.getHttpMethod(), request.getUrl(), e.getRawStatusCode()), request, e.getRawStatusCode(),
+                    e.getResponseBodyAsString(), e);
+        }
+    }
+
+    private Response send(Request request) throws IOException {
         final String url = getUrl(request.getUrl(), request.getQueryParams());
         final HttpMethod method = Optional.ofNullable(HttpMethod.resolve(request.getHttpMethod().name()))
                 .orElse(HttpMethod.GET);
         final HttpHeaders headers = getHeaders(request.getHeaders());
         final Object body = request.getBody();
 
+        if (request.getBodyReader() != null || request.getBodyWriter() != null
+                || HttpMessageSupport.isStreamingResponse(request) || HttpMessageSupport.isStreamingBody(body)) {
+            return executeDirectly(url, method, headers, body, request);
+        }
+        // requests without a resolved reader and writer negotiate the message converters per request
         HttpEntity<Object> entity = new HttpEntity<>(body, headers);
         ResponseEntity<?> response = restTemplate.exchange(url, method, entity,
                 ParameterizedTypeReference.forType(request.getResponseType()));
@@ -41,24 +175,228 @@ public class RestTemplateHttpClient implements HttpClient {
                 .build();
     }
 
+    @Override
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Executes a request on the request factory of the RestTemplate, reading and writing the bodies with the codec.
+     * {@link RestTemplate#exchange} would look up message converters for every request, buffer streamed request
+     * bodies and close the response once it was extracted, so that its body could not be streamed.
+     */
+    private Response executeDirectly(String url, HttpMethod method, HttpHeaders headers, Object body,
+                                     Request request) throws IOException {
+        final URI uri = restTemplate.getUriTemplateHandler().expand(url);
+        final BodyWriter writer = body == null ? null : HttpMessageSupport.getBodyWriter(request, codec);
+        if (headers.getFirst(HttpCompression.ACCEPT_ENCODING) == null) {
+            headers.set(HttpCompression.ACCEPT_ENCODING, HttpCompression.ACCEPTED_ENCODINGS);
+        }
+        final DecodingResponse response = new DecodingResponse(HttpMessageSupport.isStreamingBody(body)
+                ? sendStreaming(uri, method, headers, body, writer, request)
+                : send(uri, method, headers, body, writer, request));
+        try {
+            if (restTemplate.getErrorHandler().hasError(response)) {
+                restTemplate.getErrorHandler().handleError(uri, method, response);
+            }
+            if (!HttpMessageSupport.isStreamingResponse(request)) {
+                try (response) {
+                    // decoded directly from the network stream
+                    return Response.builder()
+                            .parsedResponse(HttpMessageSupport.getBodyReader(request, codec).read(response.getBody(),
+                                    HttpMessageSupport.getCharset(response.getHeaders()
+                                            .getFirst(HttpMessageSupport.CONTENT_TYPE))))
+                            .build();
+                }
+            }
+            // the response is closed and its connection released once the body is closed
+            final InputStream rawBody = response.getRawBody();
+            final InputStream responseBody = new FilterInputStream(response.getBody()) {
+                @Override
+                public void close() {
+                    // closing the response reads the rest of the body to keep the connection, which would never end
+                    // for an endless event stream; an abandoned body discards its connection instead
+                    try {
+                        if (rawBody instanceof ConnectionReleaseTrigger releaseTrigger) {
+                            releaseTrigger.abortConnection();
+                        }
+                        in.close();
+                    } catch (IOException ignored) {
+                        // the response is closed anyway
+                    }
+                    response.close();
+                }
+            };
+            return Response.builder()
+                    .parsedResponse(HttpMessageSupport.toStreamingResponse(responseBody,
+                            response.getHeaders().getFirst(HttpMessageSupport.CONTENT_TYPE), request, codec))
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+    }
+
+    private ClientHttpResponse send(URI uri, HttpMethod method, HttpHeaders headers, Object body, BodyWriter writer,
+                                    Request request) throws IOException {
+        final ClientHttpRequest httpRequest = restTemplate.getRequestFactory().createRequest(uri, method);
+        httpRequest.getHeaders().putAll(headers);
+        if (body != null) {
+            setDefaultContentType(httpRequest, body, writer);
+            if (request.getCompressionThreshold() < 0) {
+                HttpMessageSupport.writeBody(body, writer, httpRequest.getBody());
+            } else {
+                // the size of the body decides whether it is compressed
+                final byte[] bytes = HttpMessageSupport.serializeBody(body, writer);
+                if (HttpCompression.isCompressed(request, bytes.length)) {
+                    httpRequest.getHeaders().set(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+                    httpRequest.getBody().write(HttpCompression.gzip(bytes));
+                } else {
+                    httpRequest.getBody().write(bytes);
+                }
+            }
+        }
+        return httpRequest.execute();
+    }
+
+    /**
+     * Sends a streamed request body without buffering it: files and buffers with a Content-Length, other bodies and
+     * compressed bodies with chunked transfer encoding.
+     */
+    private ClientHttpResponse sendStreaming(URI uri, HttpMethod method, HttpHeaders headers, Object body,
+                                             BodyWriter elementWriter, Request request) throws IOException {
+        final ClientHttpRequest httpRequest = streamingRequestFactory.createRequest(uri, method);
+        httpRequest.getHeaders().putAll(headers);
+        setDefaultContentType(httpRequest, body, elementWriter);
+        final long contentLength = HttpMessageSupport.getContentLength(body);
+        final boolean compressed = HttpCompression.isCompressed(request, contentLength);
+        if (compressed) {
+            httpRequest.getHeaders().set(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+        } else if (contentLength >= 0) {
+            httpRequest.getHeaders().setContentLength(contentLength);
+        }
+        final String contentType = headers.getFirst(HttpMessageSupport.CONTENT_TYPE);
+        if (httpRequest instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(out -> writeStreamingBody(body, contentType, elementWriter, compressed, out));
+        } else {
+            writeStreamingBody(body, contentType, elementWriter, compressed, httpRequest.getBody());
+        }
+        return httpRequest.execute();
+    }
+
+    private static void setDefaultContentType(ClientHttpRequest httpRequest, Object body, BodyWriter writer) {
+        final String defaultContentType = HttpMessageSupport.getDefaultContentType(body, writer);
+        if (defaultContentType != null && httpRequest.getHeaders().getFirst(HttpMessageSupport.CONTENT_TYPE) == null) {
+            httpRequest.getHeaders().set(HttpMessageSupport.CONTENT_TYPE, defaultContentType);
+        }
+    }
+
+    private static void writeStreamingBody(Object body, String contentType, BodyWriter elementWriter,
+                                           boolean compressed, OutputStream out) throws IOException {
+        final InputStream opened = HttpMessageSupport.openBody(body, contentType, elementWriter);
+        try (InputStream in = compressed ? HttpCompression.gzip(opened) : opened) {
+            in.transferTo(out);
+        }
+    }
+
     private HttpHeaders getHeaders(HttpMultiValueMap headers) {
         final HttpHeaders springHeaders = new HttpHeaders();
-        for (String key: headers.keySet()) {
-            final List<String> headerValues = headers.getValues(key);
-            if (!CollectionUtils.isEmpty(headerValues)) {
-                springHeaders.put(key, headerValues);
+        headers.forEach((name, value) -> {
+            if (value != null) {
+                springHeaders.add(name, value);
             }
-        }
+        });
         return springHeaders;
     }
 
     private String getUrl(String url, HttpMultiValueMap queryParams) {
         final UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(url);
-        for (String key: queryParams.keySet()) {
-            for (String value: queryParams.getValues(key)) {
-                builder.queryParam(key, value);
+        queryParams.forEach(builder::queryParam);
+        return builder.toUriString();
+    }
+
+    /**
+     * A response whose body is decompressed according to its content encoding, for the error handler as well as the
+     * readers.
+     */
+    private static final class DecodingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private InputStream rawBody;
+        private InputStream body;
+
+        DecodingResponse(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        /**
+         * @return body as received from the connection
+         */
+        InputStream getRawBody() throws IOException {
+            if (rawBody == null) {
+                rawBody = response.getBody();
             }
+            return rawBody;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = HttpCompression.decode(getRawBody(),
+                        response.getHeaders().getFirst(HttpCompression.CONTENT_ENCODING));
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            if (body != null && body != rawBody) {
+                try {
+                    // returns the inflater to its pool, the connection is released by the response
+                    body.close();
+                } catch (IOException ignored) {
+                    // the response is closed anyway
+                }
+            }
+            response.close();
+        }
+    }
+
+    /**
+     * @return statistics of the connection pool(leased, available and pending connections); empty if the client is
+     * not pooled
+     */
+    public Optional<PoolStats> getConnectionPoolStats() {
+        return Optional.ofNullable(connectionManager).map(PoolingHttpClientConnectionManager::getTotalStats);
+    }
+
+    /**
+     * Closes the pooled connections and stops reaping idle connections. Does nothing if the client is not pooled.
+     */
+    @Override
+    public void close() throws IOException {
+        if (pooledHttpClient != null) {
+            pooledHttpClient.close();
         }
-        return builder.toUriString();
     }
 }
@@ -8,7 +8,27 @@ import java.util.Optional;
 
 public class Utils {
     public static boolean isPathFragment(final String url) {
-        return isNotEmpty(url) && !url.startsWith("http") && !url.startsWith("https");
+        return isNotEmpty(url) && !hasScheme(url);
+    }
+
+    /**
+     * @param url URL or path fragment
+     * @return true if the URL starts with a scheme and <code>://</code>, e.g. <code>https://</code> or
+     * <code>unix://</code>
+     */
+    public static boolean hasScheme(final String url) {
+        final int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            return false;
+        }
+        for (int i = 0; i < schemeEnd; i++) {
+            final char c = url.charAt(i);
+            final boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (!letter && (i == 0 || ((c < '0' || c > '9') && c != '+' && c != '-' && c != '.'))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static boolean isEmpty(String str) {
@@ -4,22 +4,47 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.simplehttp.core.annotation.client.SimpleHttpClient;
 import com.simplehttp.core.annotation.http.PathParam;
+import com.simplehttp.core.annotation.http.QueryParam;
 import com.simplehttp.core.annotation.http.RequestAttribute;
 import com.simplehttp.core.annotation.http.RequestBody;
 import com.simplehttp.core.client.http.HttpMethod;
 import com.simplehttp.core.client.model.Person;
+import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.HttpStatusException;
 import com.simplehttp.core.exception.SimpleHttpException;
+import com.simplehttp.httpclient.jdk.JavaNetHttpClient;
+import com.simplehttp.httpclient.nio.NioHttpClient;
+import com.simplehttp.httpclient.spring.ConnectionPoolConfig;
 import com.simplehttp.httpclient.spring.RestTemplateHttpClient;
+import com.simplehttp.utils.Utils;
 import lombok.Data;
+import org.apache.http.pool.PoolStats;
 import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.client.HttpClientErrorException;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -92,6 +117,293 @@ public class ClientInvocationHandlerTest {
         assertThat(personList).isNotNull();
     }
 
+    @Test
+    public void pooledRestTemplateTest() throws Exception {
+        stubFor(get("/people").willReturn(okJson("[{\"name\": \"Anton\"}]")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            List<Person> list();
+        }
+
+        try (RestTemplateHttpClient pooledHttpClient = new RestTemplateHttpClient(ConnectionPoolConfig.builder()
+                .build())) {
+            PeopleClient client = new ClientBuilder().withHttpClient(pooledHttpClient).buildClient(PeopleClient.class);
+            for (int i = 0; i < 5; i++) {
+                assertThat(client.list()).extracting(Person::getName).containsExactly("Anton");
+            }
+            // sequential requests reuse a single kept-alive connection
+            PoolStats stats = pooledHttpClient.getConnectionPoolStats().orElseThrow();
+            assertThat(stats.getLeased()).isZero();
+            assertThat(stats.getAvailable()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void connectionPoolConfigTest() throws Exception {
+        try (RestTemplateHttpClient pooledHttpClient = new RestTemplateHttpClient(ConnectionPoolConfig.builder()
+                .maxTotal(10)
+                .maxPerRoute(2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .socketTimeout(Duration.ofSeconds(5))
+                .build())) {
+            assertThat(pooledHttpClient.getConnectionPoolStats()).hasValueSatisfying(stats ->
+                    assertThat(stats.getMax()).isEqualTo(10));
+        }
+    }
+
+    @Test
+    public void unpooledRestTemplateTest() {
+        assertThat(new RestTemplateHttpClient().getConnectionPoolStats()).isEmpty();
+    }
+
+    @Test
+    public void javaNetHttpClientTest() throws Exception {
+        stubFor(get("/people?city=San%20Francisco").willReturn(okJson("[{\"name\": \"Anton\", \"age\": 30}]")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            List<Person> list(@QueryParam("city") String city);
+
+            @RequestAttribute
+            CompletableFuture<List<Person>> listAsync(@QueryParam("city") String city);
+        }
+
+        PeopleClient client = new ClientBuilder()
+                .withHttpClient(JavaNetHttpClient.builder()
+                        .withConnectTimeout(Duration.ofSeconds(5))
+                        .withRequestTimeout(Duration.ofSeconds(5))
+                        .build())
+                .buildClient(PeopleClient.class);
+
+        assertThat(client.list("San Francisco")).extracting(Person::getName).containsExactly("Anton");
+        assertThat(client.listAsync("San Francisco").get(5, TimeUnit.SECONDS))
+                .extracting(Person::getAge).containsExactly(30);
+    }
+
+    @Test
+    public void javaNetHttpClientBodyTest() {
+        stubFor(post("/people").withHeader("Content-Type", equalTo("application/json"))
+                .withRequestBody(equalToJson("{\"name\": \"Reeka\", \"age\": 25}", true, true))
+                .willReturn(okJson("{\"name\": \"Reeka\", \"age\": 25, \"unknown\": true}")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            Person create(@RequestBody Person person);
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(new JavaNetHttpClient())
+                .buildClient(PeopleClient.class);
+
+        // unknown properties of the response are ignored
+        Person person = new Person();
+        person.setName("Reeka");
+        person.setAge(25);
+        assertThat(client.create(person)).isEqualTo(person);
+    }
+
+    @Test
+    public void nioHttpClientTest() {
+        stubFor(get("/people?city=San%20Francisco").willReturn(okJson("[{\"name\": \"Anton\", \"age\": 30}]")));
+        stubFor(post("/people").withHeader("Content-Type", equalTo("application/json"))
+                .withRequestBody(equalToJson("{\"name\": \"Reeka\", \"age\": 25}", true, true))
+                .willReturn(okJson("{\"name\": \"Reeka\", \"age\": 25, \"unknown\": true}")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            List<Person> list(@QueryParam("city") String city);
+
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            Person create(@RequestBody Person person);
+        }
+
+        try (NioHttpClient httpClient = NioHttpClient.builder()
+                .withConnectTimeout(Duration.ofSeconds(5))
+                .withRequestTimeout(Duration.ofSeconds(5))
+                .build()) {
+            PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+
+            assertThat(client.list("San Francisco")).extracting(Person::getName).containsExactly("Anton");
+            Person person = new Person();
+            person.setName("Reeka");
+            person.setAge(25);
+            assertThat(client.create(person)).isEqualTo(person);
+            // both requests were sent on the same kept-alive connection
+            assertThat(httpClient.getOpenConnections()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void nioPipeliningTest() throws Exception {
+        stubFor(get(urlPathMatching("/people/[0-9]+"))
+                .willReturn(aResponse().withHeader("Content-Type", "application/json")
+                        .withBody("{\"name\": \"Anton\", \"age\": 30}").withFixedDelay(20)));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/{id}")
+            CompletableFuture<Person> getAsync(@PathParam("id") String id);
+        }
+
+        try (NioHttpClient httpClient = NioHttpClient.builder()
+                .withMaxConnectionsPerHost(2)
+                .withPipelining(true)
+                .build()) {
+            PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+
+            // more concurrent requests than connections are pipelined
+            List<CompletableFuture<Person>> people = IntStream.range(0, 20)
+                    .mapToObj(id -> client.getAsync(String.valueOf(id)))
+                    .collect(Collectors.toList());
+            CompletableFuture.allOf(people.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            assertThat(people).allSatisfy(future -> assertThat(future.join().getName()).isEqualTo("Anton"));
+            assertThat(httpClient.getOpenConnections()).isBetween(1, 2);
+        }
+    }
+
+    @Test
+    public void unixSocketTest() throws Exception {
+        @SimpleHttpClient(host = "unix://%2Ftmp%2Fsimplehttp-sidecar.sock/people")
+        interface SidecarClient {
+            @RequestAttribute("/{id}")
+            Person get(@PathParam("id") String id);
+
+            @RequestAttribute("/{id}")
+            CompletableFuture<Person> getAsync(@PathParam("id") String id);
+
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            Person create(@RequestBody Person person);
+        }
+
+        Path socketPath = Path.of("/tmp/simplehttp-sidecar.sock");
+        AtomicInteger connections = new AtomicInteger();
+        try (ServerSocketChannel ignored = openSidecar(socketPath, connections)) {
+            // the default HTTP client is replaced for unix socket hosts
+            SidecarClient client = new ClientBuilder().buildClient(SidecarClient.class);
+
+            assertThat(client.get("Anton").getName()).isEqualTo("Anton");
+            assertThat(client.getAsync("Reeka").get(5, TimeUnit.SECONDS).getName()).isEqualTo("Reeka");
+            Person person = new Person();
+            person.setName("Nick");
+            person.setAge(41);
+            assertThat(client.create(person)).isEqualTo(person);
+            // a single pooled connection served all requests
+            assertThat(connections.get()).isEqualTo(1);
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    @Test
+    public void unixSocketEndpointsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/{id}")
+            Person get(@PathParam("id") String id);
+        }
+
+        Path socketPath = Path.of("/tmp/simplehttp-endpoints.sock");
+        try (ServerSocketChannel ignored = openSidecar(socketPath, new AtomicInteger())) {
+            // as it is for clients whose endpoints are unix sockets
+            PeopleClient client = new ClientBuilder()
+                    .withEndpoints("unix://%2Ftmp%2Fsimplehttp-endpoints.sock/people")
+                    .buildClient(PeopleClient.class);
+            assertThat(client.get("Nick").getName()).isEqualTo("Nick");
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    @Test
+    public void unixSocketUrlTest() {
+        assertThat(NioHttpClient.isUnixSocketUrl("unix://%2Fvar%2Frun%2Fagent.sock")).isTrue();
+        assertThat(NioHttpClient.isUnixSocketUrl("http+unix://%2Fvar%2Frun%2Fagent.sock")).isTrue();
+        assertThat(NioHttpClient.isUnixSocketUrl("http://localhost:3003")).isFalse();
+        // the socket path of a host is not a path fragment of the request
+        assertThat(Utils.isPathFragment("unix://%2Fvar%2Frun%2Fagent.sock/people")).isFalse();
+    }
+
+    /**
+     * Starts a stand-in sidecar on a unix domain socket.
+     *
+     * @param socketPath path the sidecar listens on
+     * @param connections counts the connections the sidecar accepted
+     * @return server socket of the sidecar, which stops accepting connections once it is closed
+     */
+    private static ServerSocketChannel openSidecar(Path socketPath, AtomicInteger connections) throws IOException {
+        Files.deleteIfExists(socketPath);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        Thread acceptor = new Thread(() -> serveSidecar(server, connections));
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    /**
+     * A stand-in sidecar on a unix domain socket: answers <code>GET /people/{name}</code> with a person of that name
+     * and echoes the body of other requests, keeping connections alive.
+     */
+    private static void serveSidecar(ServerSocketChannel server, AtomicInteger connections) {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                connections.incrementAndGet();
+                Thread handler = new Thread(() -> {
+                    try (channel) {
+                        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                                Channels.newInputStream(channel)));
+                        OutputStream out = Channels.newOutputStream(channel);
+                        String requestLine;
+                        while ((requestLine = readLine(in)) != null) {
+                            int contentLength = 0;
+                            for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+                                if (header.toLowerCase().startsWith("content-length:")) {
+                                    contentLength = Integer.parseInt(header.substring(15).trim());
+                                }
+                            }
+                            byte[] body = new byte[contentLength];
+                            in.readFully(body);
+                            if (requestLine.startsWith("GET /people/")) {
+                                String name = requestLine.substring(12, requestLine.indexOf(' ', 12));
+                                body = String.format("{\"name\": \"%s\", \"age\": 30}", name)
+                                        .getBytes(StandardCharsets.UTF_8);
+                            }
+                            out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+                                    + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                            out.write(body);
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        // connection closed by the client
+                    }
+                });
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                return null;
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
     @Test
     @Ignore
     public void crudTest() {
@@ -124,9 +436,9 @@ public class ClientInvocationHandlerTest {
                     return response;
                 })
                 .withErrorHandler((request, response, exception) -> {
-                    if (exception instanceof HttpClientErrorException) {
-                        HttpClientErrorException errorException = (HttpClientErrorException) exception;
-                        if (HttpStatus.NOT_FOUND.equals(errorException.getStatusCode())) {
+                    if (exception instanceof HttpStatusException) {
+                        HttpStatusException errorException = (HttpStatusException) exception;
+                        if (errorException.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
                             return Response.builder().build();
                         }
                     }
@@ -162,4 +474,4 @@ public class ClientInvocationHandlerTest {
         Person deleted = peopleRepository.get(fetched.get_id());
         assertThat(deleted).isNull();
     }
-}
\ No newline at end of file
+}
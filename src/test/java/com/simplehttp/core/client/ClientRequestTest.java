@@ -1,20 +1,40 @@
 package com.simplehttp.core.client;
 
 import com.simplehttp.core.client.http.HttpMultiValueMap;
+import com.simplehttp.core.annotation.AnnotationProcessor;
+import com.simplehttp.core.annotation.SimpleHttpDefaultAnnotationProcessor;
 import com.simplehttp.core.annotation.client.SimpleHttpClient;
 import com.simplehttp.core.annotation.http.*;
+import com.simplehttp.core.client.executor.DefaultRequestExecutor;
+import com.simplehttp.core.client.executor.ErrorHandler;
+import com.simplehttp.core.client.executor.RequestExecutor;
+import com.simplehttp.core.client.executor.RequestInterceptor;
 import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.model.ClientMetadata;
+import com.simplehttp.core.client.model.ClientMethodMetaData;
+import com.simplehttp.core.client.model.Request;
 import com.simplehttp.core.client.model.Response;
 import com.simplehttp.core.exception.RequestInterceptorException;
 import com.simplehttp.core.exception.ResponseInterceptorException;
 import com.simplehttp.core.exception.SimpleHttpException;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -133,6 +153,267 @@ public class ClientRequestTest {
         testClient.getEntity("employee", 12);
     }
 
+    @Test
+    public void overloadedMethodTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/entities")
+            void getEntities();
+
+            @RequestAttribute("/entities/{type}")
+            void getEntities(@PathParam("type") String type);
+        }
+
+        AtomicReference<String> url = new AtomicReference<>();
+        HttpClient recordingHttpClient = request -> {
+            url.set(request.getUrl());
+            return Response.builder().build();
+        };
+        TestClient testClient = new ClientBuilder().withHttpClient(recordingHttpClient).buildClient(TestClient.class);
+        testClient.getEntities();
+        assertThat(url.get()).isEqualTo("https://www.example.com/entities");
+        testClient.getEntities("employee");
+        assertThat(url.get()).isEqualTo("https://www.example.com/entities/employee");
+    }
+
+    @Test
+    public void pathParamValueEncodingTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/{entityType}/{name}/{entityType}")
+            void getEntity(@PathParam("entityType") String type, @PathParam("name") String name);
+        }
+
+        HttpClient assertionHttpClient = request -> {
+            assertThat(request.getUrl()).isEqualTo("https://www.example.com/employee/J%C3%BCrgen%20B%2FC/employee");
+            return Response.builder().build();
+        };
+        TestClient testClient = new ClientBuilder().withHttpClient(assertionHttpClient).buildClient(TestClient.class);
+        testClient.getEntity("employee", "J\u00fcrgen B/C");
+    }
+
+    @Test
+    public void pathParamInUrlArgumentTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/default")
+            void getEntity(@Url String url, @PathParam("id") String id);
+        }
+
+        HttpClient assertionHttpClient = request -> {
+            assertThat(request.getUrl()).isEqualTo("https://www.example.com/entities/42/{other}");
+            return Response.builder().build();
+        };
+        TestClient testClient = new ClientBuilder().withHttpClient(assertionHttpClient).buildClient(TestClient.class);
+        testClient.getEntity("/entities/{id}/{other}", "42");
+    }
+
+    @Test
+    public void unmatchedPathParamPlaceholderTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/{entityType}/{entityId}")
+            void getEntity(@PathParam("entityType") String type);
+        }
+        assertThatThrownBy(() -> new ClientBuilder().buildClient(TestClient.class))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("No @PathParam found for placeholder 'entityId' at method getEntity");
+    }
+
+    @Test
+    public void generatedClientClassTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute(value = "/{id}/{flag}", headers = {"Accept=application/json"})
+            long getEntity(@PathParam("id") long id, @PathParam("flag") boolean flag,
+                           @HttpHeader("X-Ratio") double ratio);
+
+            @RequestAttribute(httpMethod = HttpMethod.DELETE, value = "/{id}")
+            void deleteEntity(@PathParam("id") int id);
+
+            void nonHttpMethod();
+
+            default String describe() {
+                return "test client";
+            }
+        }
+
+        AtomicReference<Request> executed = new AtomicReference<>();
+        HttpClient recordingHttpClient = request -> {
+            executed.set(request);
+            return Response.builder().parsedResponse(request.getHttpMethod() == HttpMethod.GET ? 7L : null).build();
+        };
+        TestClient testClient = new ClientBuilder()
+                .withClientClassGeneration(true)
+                .withHttpClient(recordingHttpClient)
+                .buildClient(TestClient.class);
+        assertThat(Proxy.isProxyClass(testClient.getClass())).isFalse();
+        assertThat(testClient.getClass().isHidden()).isTrue();
+
+        assertThat(testClient.getEntity(12L, true, 0.5)).isEqualTo(7L);
+        assertThat(executed.get().getUrl()).isEqualTo("https://www.example.com/12/true");
+        assertThat(executed.get().getHeaders().getValues("X-Ratio")).containsExactly("0.5");
+        assertThat(executed.get().getMethod().getName()).isEqualTo("getEntity");
+
+        testClient.deleteEntity(3);
+        assertThat(executed.get().getUrl()).isEqualTo("https://www.example.com/3");
+        assertThat(testClient.describe()).isEqualTo("test client");
+        assertThatThrownBy(testClient::nonHttpMethod)
+                .isInstanceOf(UnsupportedOperationException.class)
+                .hasMessage("The method 'nonHttpMethod' is not decorated for Simple HTTP client request");
+    }
+
+    @Test
+    public void lazyMetadataTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/entities/{id}")
+            String getEntity(@PathParam("id") String id);
+
+            @RequestAttribute("/entities/{id}")
+            void deleteEntity(@PathParam("entityId") String id);
+        }
+
+        AtomicReference<String> url = new AtomicReference<>();
+        HttpClient recordingHttpClient = request -> {
+            url.set(request.getUrl());
+            return Response.builder().build();
+        };
+        // the invalid method only fails once it is invoked
+        TestClient testClient = new ClientBuilder()
+                .withLazyMetadata(true)
+                .withHttpClient(recordingHttpClient)
+                .buildClient(TestClient.class);
+        testClient.getEntity("12");
+        assertThat(url.get()).isEqualTo("https://www.example.com/entities/12");
+        assertThatThrownBy(() -> testClient.deleteEntity("12"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("No @PathParam found for placeholder 'id' at method deleteEntity");
+    }
+
+    @Test
+    public void sharedMetadataCacheTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/entities/{id}")
+            String getEntity(@PathParam("id") String id);
+        }
+        AtomicInteger extractions = new AtomicInteger();
+        AnnotationProcessor countingProcessor = new SimpleHttpDefaultAnnotationProcessor() {
+            @Override
+            public ClientMetadata extractClientMetadata(Class<?> target) {
+                extractions.incrementAndGet();
+                return super.extractClientMetadata(target);
+            }
+        };
+
+        AtomicReference<String> url = new AtomicReference<>();
+        HttpClient recordingHttpClient = request -> {
+            url.set(request.getUrl());
+            return Response.builder().build();
+        };
+        for (int i = 0; i < 3; i++) {
+            TestClient testClient = new ClientBuilder()
+                    .withAnnotationProcessor(countingProcessor)
+                    .withHttpClient(recordingHttpClient)
+                    .buildClient(TestClient.class);
+            testClient.getEntity(String.valueOf(i));
+            assertThat(url.get()).isEqualTo("https://www.example.com/entities/" + i);
+        }
+        assertThat(extractions.get()).isEqualTo(1);
+        assertThat(CompiledClient.get(TestClient.class, countingProcessor, false))
+                .isSameAs(CompiledClient.get(TestClient.class, countingProcessor, false));
+    }
+
+    @Test
+    public void generatedClientClassExceptionsTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/declared")
+            String declared() throws IOException;
+
+            @RequestAttribute("/undeclared")
+            String undeclared();
+        }
+        RequestExecutor failingExecutor = (request, httpClient, requestInterceptors, responseInterceptors,
+                                           errorHandlers) -> sneakyThrow(new IOException("offline"));
+
+        // generated classes throw like proxies do
+        for (boolean generateClientClass : List.of(false, true)) {
+            TestClient testClient = new ClientBuilder()
+                    .withClientClassGeneration(generateClientClass)
+                    .withExecutionHandler(failingExecutor)
+                    .buildClient(TestClient.class);
+            assertThat(Proxy.isProxyClass(testClient.getClass())).isNotEqualTo(generateClientClass);
+            assertThatThrownBy(testClient::declared).isInstanceOf(IOException.class).hasMessage("offline");
+            assertThatThrownBy(testClient::undeclared).isInstanceOf(UndeclaredThrowableException.class)
+                    .hasCauseInstanceOf(IOException.class);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> Object sneakyThrow(Throwable throwable) throws T {
+        throw (T) throwable;
+    }
+
+    @Test
+    public void multiValueMapSnapshotsTest() {
+        Map<String, List<String>> nameToValues = new HashMap<>();
+        nameToValues.put("page", new ArrayList<>(List.of("1")));
+        HttpMultiValueMap queryParams = new HttpMultiValueMap(nameToValues);
+        nameToValues.get("page").add("2");
+        assertThat(queryParams.getValues("page")).containsExactly("1");
+
+        // views of the map are read-only, changes go through add and put
+        assertThatThrownBy(() -> queryParams.getValues("page").add("2"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> queryParams.keySet().remove("page"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        queryParams.add("page", "2");
+        assertThat(queryParams.getValues("page")).containsExactly("1", "2");
+    }
+
+    @Test
+    public void methodNameKeyedMetadataTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/entities/{id}")
+            String getEntity(@PathParam("id") String id);
+
+            @RequestAttribute("/entities/{id}")
+            CompletableFuture<String> getEntityAsync(@PathParam("id") String id);
+        }
+        // a processor which only fills the request templates keyed by method name
+        AnnotationProcessor methodNameProcessor = target -> {
+            ClientMetadata clientMetadata = new SimpleHttpDefaultAnnotationProcessor().extractClientMetadata(target);
+            Map<String, ClientMethodMetaData> methodNameToRequestTemplate = new HashMap<>();
+            clientMetadata.getMethodToRequestTemplate().forEach((method, requestTemplate) ->
+                    methodNameToRequestTemplate.put(method.getName(), requestTemplate.toBuilder().method(null).build()));
+            clientMetadata.setMethodNameToRequestTemplate(methodNameToRequestTemplate);
+            clientMetadata.setMethodToRequestTemplate(null);
+            return clientMetadata;
+        };
+
+        HttpClient echoHttpClient = request -> Response.builder().parsedResponse(request.getUrl()).build();
+        for (boolean generateClientClass : List.of(false, true)) {
+            for (boolean lazyMetadata : List.of(false, true)) {
+                TestClient testClient = new ClientBuilder()
+                        .withAnnotationProcessor(methodNameProcessor)
+                        .withHttpClient(echoHttpClient)
+                        .withClientClassGeneration(generateClientClass)
+                        .withLazyMetadata(lazyMetadata)
+                        .buildClient(TestClient.class);
+                assertThat(testClient.getEntity("1")).isEqualTo("https://www.example.com/entities/1");
+                assertThat(testClient.getEntityAsync("2").join()).isEqualTo("https://www.example.com/entities/2");
+            }
+        }
+        ClientInvocationHandler handler = new ClientInvocationHandler(echoHttpClient, new DefaultRequestExecutor(),
+                methodNameProcessor.extractClientMetadata(TestClient.class), List.of(), List.of(), List.of());
+        TestClient proxyClient = (TestClient) Proxy.newProxyInstance(TestClient.class.getClassLoader(),
+                new Class<?>[]{TestClient.class}, handler);
+        assertThat(proxyClient.getEntity("3")).isEqualTo("https://www.example.com/entities/3");
+    }
+
     @Test
     public void missingPathParamValueTest() {
         @SimpleHttpClient(host = "https://www.example.com")
@@ -208,6 +489,35 @@ public class ClientRequestTest {
                 Map.of("X-Auth-Type", List.of("bearer", "basic", "oauth"), "Test", List.of("test2", "test3")));
     }
 
+    @Test
+    public void caseInsensitiveHeadersTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute(headers = {"Accept=application/json"}, queryParams = {"page=1"})
+            String getEntity(@HttpHeader("accept") String accept, @QueryParam("Page") String page);
+        }
+        AtomicReference<Request> executed = new AtomicReference<>();
+        HttpClient recordingHttpClient = request -> {
+            executed.set(request);
+            return Response.builder().build();
+        };
+        TestClient testClient = new ClientBuilder().withHttpClient(recordingHttpClient).buildClient(TestClient.class);
+
+        testClient.getEntity("application/cbor", "2");
+        assertThat(executed.get().getHeaders().getValues("ACCEPT"))
+                .containsExactly("application/json", "application/cbor");
+        assertThat(executed.get().getHeaders().keySet()).containsExactly("Accept");
+        // query param names are case sensitive
+        assertThat(executed.get().getQueryParams().getValues("page")).containsExactly("1");
+        assertThat(executed.get().getQueryParams().getValues("Page")).containsExactly("2");
+
+        // values of an invocation do not leak into the shared static values
+        executed.get().getHeaders().add("X-Added", "interceptor");
+        testClient.getEntity(null, null);
+        assertThat(executed.get().getHeaders().getValues("accept")).containsExactly("application/json");
+        assertThat(executed.get().getHeaders().getValues("X-Added")).isNull();
+    }
+
     @Test
     public void queryParamsTest() {
         @SimpleHttpClient(host = "https://www.example.com")
@@ -443,5 +753,127 @@ public class ClientRequestTest {
                 .hasMessage("Error while executing request [GET] https://www.example.com");
     }
 
+    @Test
+    public void asyncMethodTest() throws Exception {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute("/entities/{id}")
+            CompletableFuture<List<String>> getEntityAsync(@PathParam("id") String id);
 
+            @RequestAttribute("/entities/{id}")
+            List<String> getEntity(@PathParam("id") String id);
+        }
+        CompletableFuture<Response> pendingResponse = new CompletableFuture<>();
+        AtomicReference<Request> executed = new AtomicReference<>();
+        HttpClient asyncHttpClient = new HttpClient() {
+            @Override
+            public Response execute(Request request) {
+                executed.set(request);
+                return Response.builder().parsedResponse(List.of("sync")).build();
+            }
+
+            @Override
+            public CompletableFuture<Response> executeAsync(Request request) {
+                executed.set(request);
+                return pendingResponse;
+            }
+        };
+        TestClient testClient = new ClientBuilder()
+                .withHttpClient(asyncHttpClient)
+                .withRequestInterceptor(new RequestInterceptor() {
+                    @Override
+                    public Request process(Request request, HttpClient httpClient) {
+                        throw new UnsupportedOperationException("Only called for synchronous methods");
+                    }
+
+                    @Override
+                    public CompletableFuture<Request> processAsync(Request request, HttpClient httpClient) {
+                        request.getHeaders().add("Authorization", "token");
+                        return CompletableFuture.completedFuture(request);
+                    }
+                })
+                .buildClient(TestClient.class);
+
+        // the future is returned before the response arrives
+        CompletableFuture<List<String>> entity = testClient.getEntityAsync("12");
+        assertThat(entity).isNotDone();
+        assertThat(executed.get().getUrl()).isEqualTo("https://www.example.com/entities/12");
+        assertThat(executed.get().getHeaders().getValues("Authorization")).containsExactly("token");
+        assertThat(executed.get().getResponseType().getTypeName()).isEqualTo("java.util.List<java.lang.String>");
+        pendingResponse.complete(Response.builder().parsedResponse(List.of("async")).build());
+        assertThat(entity.get(1, TimeUnit.SECONDS)).containsExactly("async");
+
+        // synchronous methods of the same client are unchanged
+        assertThatThrownBy(() -> testClient.getEntity("12")).isInstanceOf(RequestInterceptorException.class);
+    }
+
+    @Test
+    public void asyncErrorHandlerTest() {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getEntity();
+
+            @RequestAttribute("/entities/{id}")
+            CompletableFuture<String> getEntity(@PathParam("id") String id);
+        }
+        HttpClient failingHttpClient = request -> { throw new HttpTimeoutException("Request timed out!"); };
+        TestClient testClient = new ClientBuilder()
+                .withErrorHandler(new ErrorHandler() {
+                    @Override
+                    public Response handleError(Request request, Response response, Exception exception) {
+                        throw new UnsupportedOperationException("Only called for synchronous methods");
+                    }
+
+                    @Override
+                    public CompletableFuture<Response> handleErrorAsync(Request request, Response response,
+                                                                        Exception exception) {
+                        return CompletableFuture.supplyAsync(() -> Response.builder()
+                                .parsedResponse("fallback: " + exception.getMessage()).build());
+                    }
+                })
+                .withHttpClient(failingHttpClient)
+                .buildClient(TestClient.class);
+        assertThat(testClient.getEntity().join()).isEqualTo("fallback: Request timed out!");
+
+        // invalid requests fail the future instead of being thrown
+        assertThatThrownBy(() -> testClient.getEntity("").join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+
+        TestClient noErrorHandlerClient = new ClientBuilder()
+                .withHttpClient(failingHttpClient)
+                .buildClient(TestClient.class);
+        assertThatThrownBy(() -> noErrorHandlerClient.getEntity().join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(SimpleHttpException.class)
+                .hasRootCauseInstanceOf(HttpTimeoutException.class);
+    }
+
+    @Test
+    public void blockingExecutorTest() throws Exception {
+        @SimpleHttpClient(host = "https://www.example.com")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getEntityAsync();
+
+            @RequestAttribute
+            String getEntity();
+        }
+        HttpClient blockingHttpClient = request -> Response.builder()
+                .parsedResponse(Thread.currentThread().getName())
+                .build();
+        ExecutorService blockingExecutor = Executors.newSingleThreadExecutor(runnable ->
+                new Thread(runnable, "blocking-call"));
+        try {
+            TestClient testClient = new ClientBuilder()
+                    .withExecutionHandler(new DefaultRequestExecutor(blockingExecutor))
+                    .withHttpClient(blockingHttpClient)
+                    .buildClient(TestClient.class);
+            assertThat(testClient.getEntityAsync().get(1, TimeUnit.SECONDS)).isEqualTo("blocking-call");
+            assertThat(testClient.getEntity()).isEqualTo(Thread.currentThread().getName());
+        } finally {
+            blockingExecutor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.CircuitBreakerOpenException;
+import com.simplehttp.core.exception.HttpStatusException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AbstractRequestExecutorTest {
+
+    @Test
+    public void retriedRequestCountsOnceTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list();
+        }
+
+        // fails once, then recovers
+        AtomicInteger calls = new AtomicInteger();
+        HttpClient httpClient = request -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new HttpStatusException("Service unavailable", request, 503, "");
+            }
+            return Response.builder().parsedResponse("ok").build();
+        };
+        CircuitBreakerRequestExecutor circuitBreaker = circuitBreaker();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(httpClient)
+                .withExecutionHandler(limiter(circuitBreaker))
+                .buildClient(TestClient.class);
+
+        // a request which succeeds on a retry counts as a single success in the circuits
+        assertThat(client.list()).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+        assertThat(circuitBreaker.getState(TestClient.class.getMethod("list"))).isEqualTo(CircuitState.CLOSED);
+        assertThat(circuitBreaker.getHostState("http://localhost")).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    public void innerErrorsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/broken")
+            String broken();
+
+            @RequestAttribute("/broken")
+            CompletableFuture<String> brokenAsync();
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(broken(calls))
+                .withExecutionHandler(limiter(circuitBreaker()))
+                .withErrorHandler((request, response, exception) -> {
+                    errors.add(exception);
+                    return Response.builder().parsedResponse("fallback").build();
+                })
+                .buildClient(TestClient.class);
+
+        // the error of the last attempt reaches the error handlers of the outermost executor as it is
+        assertThat(client.broken()).isEqualTo("fallback");
+        assertThat(client.brokenAsync().get(5, TimeUnit.SECONDS)).isEqualTo("fallback");
+        assertThat(calls).hasValue(6);
+        assertThat(errors).hasSize(2).allMatch(HttpStatusException.class::isInstance);
+    }
+
+    @Test
+    public void openCircuitTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/broken")
+            String broken();
+
+            @RequestAttribute("/broken")
+            CompletableFuture<String> brokenAsync();
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        CircuitBreakerRequestExecutor circuitBreaker = circuitBreaker();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(broken(calls))
+                .withExecutionHandler(limiter(circuitBreaker))
+                .withErrorHandler((request, response, exception) -> {
+                    errors.add(exception);
+                    return Response.builder().parsedResponse("fallback").build();
+                })
+                .buildClient(TestClient.class);
+        for (int i = 0; i < 2; i++) {
+            client.broken();
+            client.brokenAsync().get(5, TimeUnit.SECONDS);
+        }
+        assertThat(circuitBreaker.getState(TestClient.class.getMethod("broken"))).isEqualTo(CircuitState.OPEN);
+        assertThat(circuitBreaker.getState(TestClient.class.getMethod("brokenAsync"))).isEqualTo(CircuitState.OPEN);
+        errors.clear();
+
+        // the open circuit rejects the requests before they are retried, and the slot of the limiter is released
+        assertThat(client.broken()).isEqualTo("fallback");
+        assertThat(client.brokenAsync().get(5, TimeUnit.SECONDS)).isEqualTo("fallback");
+        assertThat(calls).hasValue(12);
+        // a slot which was not released would shed the second request
+        assertThat(errors).hasSize(2).allMatch(CircuitBreakerOpenException.class::isInstance);
+    }
+
+    /**
+     * @return limiter -> circuit breaker -> retries
+     */
+    private static ConcurrencyLimitingRequestExecutor limiter(CircuitBreakerRequestExecutor circuitBreaker) {
+        return ConcurrencyLimitingRequestExecutor.builder()
+                .withLimit(() -> ConcurrencyLimit.fixed(1))
+                .withNext(circuitBreaker)
+                .build();
+    }
+
+    private static CircuitBreakerRequestExecutor circuitBreaker() {
+        return CircuitBreakerRequestExecutor.builder()
+                .withDefaultConfig(CircuitBreakerConfig.builder().minimumCalls(2).build())
+                .withNext(RetryingRequestExecutor.builder()
+                        .withDefaultPolicy(RetryPolicy.builder().initialBackoff(Duration.ofMillis(1)).build())
+                        .build())
+                .build();
+    }
+
+    /**
+     * @return HTTP client failing every request with a 503 response
+     */
+    private static HttpClient broken(AtomicInteger calls) {
+        return request -> {
+            calls.incrementAndGet();
+            throw new HttpStatusException("Service unavailable", request, 503, "");
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.CircuitBreakerOpenException;
+import com.simplehttp.core.exception.HttpStatusException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerRequestExecutorTest {
+
+    private static final CircuitBreakerConfig CONFIG = CircuitBreakerConfig.builder()
+            .minimumCalls(4)
+            .openDuration(Duration.ofMillis(50))
+            .halfOpenCalls(1)
+            .build();
+
+    @Test
+    public void failuresOpenCircuitsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/broken")
+            String broken();
+        }
+
+        List<String> opened = new CopyOnWriteArrayList<>();
+        CircuitBreakerRequestExecutor executor = executor()
+                .withListener(new CircuitBreakerListener() {
+                    @Override
+                    public void onStateChange(String circuit, CircuitState from, CircuitState to) {
+                        if (to == CircuitState.OPEN) {
+                            opened.add(circuit);
+                        }
+                    }
+                })
+                .build();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(new AtomicInteger(), 503))
+                .withExecutionHandler(executor)
+                .withErrorHandler((request, response, exception) -> Response.builder().build())
+                .buildClient(TestClient.class);
+
+        for (int i = 0; i < 3; i++) {
+            client.broken();
+        }
+        assertThat(executor.getState(TestClient.class.getMethod("broken"))).isEqualTo(CircuitState.CLOSED);
+        client.broken();
+
+        // the method and the host circuit open
+        assertThat(executor.getState(TestClient.class.getMethod("broken"))).isEqualTo(CircuitState.OPEN);
+        assertThat(executor.getHostState("http://localhost")).isEqualTo(CircuitState.OPEN);
+        assertThat(opened).containsExactlyInAnyOrder("http://localhost", "TestClient#broken");
+    }
+
+    @Test
+    public void openCircuitRejectsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/broken")
+            String broken();
+
+            @RequestAttribute("/broken")
+            CompletableFuture<String> brokenAsync();
+
+            @RequestAttribute
+            String list();
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 503))
+                .withExecutionHandler(executor()
+                        .withListener(new CircuitBreakerListener() {
+                            @Override
+                            public void onRejected(Request request, String circuit) {
+                                rejected.add(circuit);
+                            }
+                        })
+                        .build())
+                .withErrorHandler((request, response, exception) -> {
+                    errors.add(exception);
+                    return Response.builder().parsedResponse("fallback").build();
+                })
+                .buildClient(TestClient.class);
+        for (int i = 0; i < 4; i++) {
+            client.broken();
+        }
+        errors.clear();
+
+        // the open host circuit falls back without sending requests, for other methods of the host as well
+        assertThat(client.broken()).isEqualTo("fallback");
+        assertThat(client.brokenAsync().get(5, TimeUnit.SECONDS)).isEqualTo("fallback");
+        assertThat(client.list()).isEqualTo("fallback");
+        assertThat(errors).hasSize(3).allMatch(CircuitBreakerOpenException.class::isInstance);
+        assertThat(rejected).containsOnly("http://localhost");
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    public void clientErrorsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/missing")
+            String missing();
+        }
+
+        // a client error says nothing about the health of the server
+        AtomicInteger calls = new AtomicInteger();
+        CircuitBreakerRequestExecutor executor = executor().build();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 404))
+                .withExecutionHandler(executor)
+                .withErrorHandler((request, response, exception) -> Response.builder().build())
+                .buildClient(TestClient.class);
+
+        for (int i = 0; i < 10; i++) {
+            client.missing();
+        }
+        assertThat(executor.getState(TestClient.class.getMethod("missing"))).isEqualTo(CircuitState.CLOSED);
+        assertThat(executor.getHostState("http://localhost")).isEqualTo(CircuitState.CLOSED);
+        assertThat(calls).hasValue(10);
+    }
+
+    @Test
+    public void slowCallsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/slow")
+            String slow();
+        }
+
+        CircuitBreakerRequestExecutor executor = CircuitBreakerRequestExecutor.builder()
+                .withDefaultConfig(CircuitBreakerConfig.builder()
+                        .minimumCalls(4)
+                        .slowCallDuration(Duration.ofMillis(1))
+                        .slowCallRateThreshold(50)
+                        .build())
+                .build();
+        HttpClient httpClient = request -> {
+            Thread.sleep(5);
+            return Response.builder().parsedResponse("slow").build();
+        };
+        TestClient client = new ClientBuilder().withHttpClient(httpClient).withExecutionHandler(executor)
+                .buildClient(TestClient.class);
+
+        // successful, but slow requests open the circuit as well
+        for (int i = 0; i < 4; i++) {
+            assertThat(client.slow()).isEqualTo("slow");
+        }
+        assertThat(executor.getState(TestClient.class.getMethod("slow"))).isEqualTo(CircuitState.OPEN);
+    }
+
+    @Test
+    public void halfOpenProbeTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/broken")
+            String broken();
+
+            @RequestAttribute
+            String list();
+        }
+
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        CircuitBreakerRequestExecutor executor = executor()
+                .withListener(new CircuitBreakerListener() {
+                    @Override
+                    public void onRejected(Request request, String circuit) {
+                        rejected.add(circuit);
+                    }
+                })
+                .build();
+        HttpClient httpClient = request -> {
+            if (request.getUrl().endsWith("/broken")) {
+                throw new HttpStatusException("Service unavailable", request, 503, "");
+            }
+            return Response.builder().parsedResponse("ok").build();
+        };
+        TestClient client = new ClientBuilder().withHttpClient(httpClient).withExecutionHandler(executor)
+                .withErrorHandler((request, response, exception) -> Response.builder().build())
+                .buildClient(TestClient.class);
+        for (int i = 0; i < 4; i++) {
+            client.broken();
+        }
+
+        // once the open duration passed, a successful probe closes the host circuit
+        Thread.sleep(CONFIG.getOpenDuration().toMillis() * 2);
+        assertThat(client.list()).isEqualTo("ok");
+        assertThat(executor.getHostState("http://localhost")).isEqualTo(CircuitState.CLOSED);
+
+        // and a failed one opens the method circuit again
+        client.broken();
+        assertThat(executor.getState(TestClient.class.getMethod("broken"))).isEqualTo(CircuitState.OPEN);
+        client.broken();
+        assertThat(rejected).endsWith("TestClient#broken");
+    }
+
+    private static CircuitBreakerRequestExecutor.Builder executor() {
+        return CircuitBreakerRequestExecutor.builder()
+                .withHostConfig(CONFIG)
+                .withDefaultConfig(CONFIG);
+    }
+
+    /**
+     * @return HTTP client failing every request with a status code
+     */
+    private static HttpClient failingWith(AtomicInteger calls, int statusCode) {
+        return request -> {
+            calls.incrementAndGet();
+            throw new HttpStatusException("Request failed with status " + statusCode, request, statusCode, "");
+        };
+    }
+}
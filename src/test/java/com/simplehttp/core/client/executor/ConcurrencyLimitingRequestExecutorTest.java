@@ -0,0 +1,176 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.ConcurrencyLimitExceededException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitingRequestExecutorTest {
+
+    @Test
+    public void shedRequestsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute("/slow")
+            String slow();
+
+            @RequestAttribute
+            String list();
+
+            @RequestAttribute
+            CompletableFuture<String> listAsync();
+        }
+
+        // slow requests wait until the test releases them
+        Semaphore sent = new Semaphore(0);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        HttpClient httpClient = request -> {
+            calls.incrementAndGet();
+            if (request.getUrl().endsWith("/slow")) {
+                sent.release();
+                assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            return Response.builder().parsedResponse("ok").build();
+        };
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(httpClient)
+                .withExecutionHandler(ConcurrencyLimitingRequestExecutor.builder()
+                        .withLimit(() -> ConcurrencyLimit.fixed(2))
+                        .build())
+                .withErrorHandler((request, response, exception) -> {
+                    errors.add(exception);
+                    return Response.builder().parsedResponse("shed").build();
+                })
+                .buildClient(TestClient.class);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(client::slow);
+            Future<String> second = callers.submit(client::slow);
+            assertThat(sent.tryAcquire(2, 5, TimeUnit.SECONDS)).isTrue();
+
+            // requests over the limit of the client are shed without being sent
+            assertThat(client.list()).isEqualTo("shed");
+            assertThat(client.listAsync().get(5, TimeUnit.SECONDS)).isEqualTo("shed");
+            assertThat(errors).hasSize(2).allMatch(ConcurrencyLimitExceededException.class::isInstance);
+            assertThat(calls).hasValue(2);
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+            assertThat(client.list()).isEqualTo("ok");
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    public void adaptiveLimitTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list();
+
+            @RequestAttribute
+            CompletableFuture<String> listAsync();
+        }
+
+        HttpClient httpClient = request -> {
+            Thread.sleep(5);
+            return Response.builder().parsedResponse("ok").build();
+        };
+        ConcurrencyLimitingRequestExecutor executor = ConcurrencyLimitingRequestExecutor.builder()
+                .withLimit(() -> ConcurrencyLimit.aimd(10, 20, Duration.ofMillis(1)))
+                .build();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient).withExecutionHandler(executor)
+                .buildClient(TestClient.class);
+
+        // the limit of a client is created by its first request
+        assertThat(executor.getLimit(TestClient.class)).isEqualTo(-1);
+        // requests slower than the timeout shrink the limit by 10% each
+        client.list();
+        client.listAsync().get(5, TimeUnit.SECONDS);
+        assertThat(executor.getLimit(TestClient.class)).isEqualTo(8);
+    }
+
+    @Test
+    public void aimdLimitTest() {
+        ConcurrencyLimit limit = ConcurrencyLimit.aimd(10, 11, Duration.ofMillis(100));
+
+        // a limit which is not used up does not grow
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 1, false);
+        assertThat(limit.getLimit()).isEqualTo(10);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 5, false);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 5, false);
+        assertThat(limit.getLimit()).isEqualTo(11);
+
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 5, true);
+        assertThat(limit.getLimit()).isEqualTo(9);
+    }
+
+    @Test
+    public void gradientLimitTest() {
+        ConcurrencyLimit limit = ConcurrencyLimit.gradient(10, 100);
+
+        // grows while the round trips take as long as usual
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 100, false);
+        }
+        int grown = limit.getLimit();
+        assertThat(grown).isGreaterThan(10);
+
+        // shrinks once they take longer
+        for (int i = 0; i < 5; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 100, false);
+        }
+        int shrunk = limit.getLimit();
+        assertThat(shrunk).isLessThan(grown);
+
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 100, true);
+        assertThat(limit.getLimit()).isLessThan(shrunk);
+    }
+
+    @Test
+    public void concurrentGradientSamplesTest() throws Exception {
+        ConcurrencyLimit limit = ConcurrencyLimit.gradient(10, 50);
+
+        // samples race without a lock, the limit stays within its bounds
+        ExecutorService samplers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new CopyOnWriteArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final long rttNanos = TimeUnit.MILLISECONDS.toNanos(1 + thread);
+                results.add(samplers.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        limit.onSample(rttNanos, 50, i % 100 == 0);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            samplers.shutdown();
+        }
+        assertThat(limit.getLimit()).isBetween(1, 50);
+    }
+}
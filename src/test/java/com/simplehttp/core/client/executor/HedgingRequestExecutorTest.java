@@ -0,0 +1,254 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.Hedge;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.annotation.http.RequestBody;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.exception.SimpleHttpException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HedgingRequestExecutorTest {
+
+    @Test
+    public void duplicateWinsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getAsync();
+        }
+
+        PendingHttpClient httpClient = new PendingHttpClient();
+        HedgingRequestExecutor executor = new HedgingRequestExecutor();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient).withExecutionHandler(executor)
+                .buildClient(TestClient.class);
+        warmUp(() -> client.getAsync().join());
+        long budget = executor.getHedgingBudget().getAvailableRetries();
+
+        httpClient.pending = true;
+        CompletableFuture<String> response = client.getAsync();
+        CompletableFuture<Response> first = httpClient.take();
+        CompletableFuture<Response> duplicate = httpClient.take();
+        duplicate.complete(Response.builder().parsedResponse("duplicate").build());
+
+        assertThat(response.get(5, TimeUnit.SECONDS)).isEqualTo("duplicate");
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(CancellationException.class);
+        assertThat(executor.getHedgingBudget().getAvailableRetries()).isEqualTo(budget - 1);
+    }
+
+    @Test
+    public void blockingMethodTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String get();
+        }
+
+        PendingHttpClient httpClient = new PendingHttpClient();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient)
+                .withExecutionHandler(new HedgingRequestExecutor())
+                .buildClient(TestClient.class);
+        warmUp(client::get);
+
+        httpClient.pending = true;
+        CompletableFuture<String> response = CompletableFuture.supplyAsync(client::get);
+        CompletableFuture<Response> first = httpClient.take();
+        httpClient.take().complete(Response.builder().parsedResponse("duplicate").build());
+
+        assertThat(response.get(5, TimeUnit.SECONDS)).isEqualTo("duplicate");
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    public void firstResponseWinsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getAsync();
+        }
+
+        PendingHttpClient httpClient = new PendingHttpClient();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient)
+                .withExecutionHandler(new HedgingRequestExecutor())
+                .buildClient(TestClient.class);
+        warmUp(() -> client.getAsync().join());
+
+        httpClient.pending = true;
+        CompletableFuture<String> response = client.getAsync();
+        CompletableFuture<Response> first = httpClient.take();
+        CompletableFuture<Response> duplicate = httpClient.take();
+        first.complete(Response.builder().parsedResponse("first").build());
+
+        assertThat(response.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS)).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    public void failedAttemptTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getAsync();
+        }
+
+        PendingHttpClient httpClient = new PendingHttpClient();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient)
+                .withExecutionHandler(new HedgingRequestExecutor())
+                .buildClient(TestClient.class);
+        warmUp(() -> client.getAsync().join());
+
+        // a failed request waits for the other one
+        httpClient.pending = true;
+        CompletableFuture<String> response = client.getAsync();
+        CompletableFuture<Response> first = httpClient.take();
+        CompletableFuture<Response> duplicate = httpClient.take();
+        first.completeExceptionally(new IOException("Connection reset"));
+        assertThat(response).isNotDone();
+        duplicate.complete(Response.builder().parsedResponse("duplicate").build());
+
+        assertThat(response.get(5, TimeUnit.SECONDS)).isEqualTo("duplicate");
+    }
+
+    @Test
+    public void allAttemptsFailedTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getAsync();
+        }
+
+        PendingHttpClient httpClient = new PendingHttpClient();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient)
+                .withExecutionHandler(new HedgingRequestExecutor())
+                .buildClient(TestClient.class);
+        warmUp(() -> client.getAsync().join());
+
+        httpClient.pending = true;
+        CompletableFuture<String> response = client.getAsync();
+        CompletableFuture<Response> first = httpClient.take();
+        CompletableFuture<Response> duplicate = httpClient.take();
+        first.completeExceptionally(new IOException("Connection reset"));
+        duplicate.completeExceptionally(new IOException("Connection refused"));
+
+        // the first error is reported
+        assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(SimpleHttpException.class)
+                .hasRootCauseMessage("Connection reset");
+    }
+
+    @Test
+    public void warmUpTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> getAsync();
+        }
+
+        // no latencies were observed yet
+        PendingHttpClient httpClient = new PendingHttpClient();
+        httpClient.pending = true;
+        TestClient client = new ClientBuilder().withHttpClient(httpClient)
+                .withExecutionHandler(new HedgingRequestExecutor())
+                .buildClient(TestClient.class);
+
+        CompletableFuture<String> response = client.getAsync();
+        httpClient.take().complete(Response.builder().parsedResponse("first").build());
+
+        assertThat(response.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(httpClient.attempts.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void hedgeableMethodsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            String create(@RequestBody String person);
+
+            @Hedge
+            @RequestAttribute(httpMethod = HttpMethod.PUT)
+            String update(@RequestBody String person);
+
+            @Hedge(false)
+            @RequestAttribute
+            String get();
+        }
+
+        PendingHttpClient httpClient = new PendingHttpClient();
+        TestClient client = new ClientBuilder().withHttpClient(httpClient)
+                .withExecutionHandler(new HedgingRequestExecutor())
+                .buildClient(TestClient.class);
+        warmUp(() -> client.create("Reeka"));
+        warmUp(() -> client.update("Reeka"));
+        warmUp(client::get);
+
+        httpClient.pending = true;
+        // the requests would be hedged right away after the latencies of the warm up
+        CompletableFuture<String> created = CompletableFuture.supplyAsync(() -> client.create("Reeka"));
+        httpClient.take().complete(Response.builder().parsedResponse("created").build());
+        assertThat(created.get(5, TimeUnit.SECONDS)).isEqualTo("created");
+        CompletableFuture<String> fetched = CompletableFuture.supplyAsync(client::get);
+        httpClient.take().complete(Response.builder().parsedResponse("fetched").build());
+        assertThat(fetched.get(5, TimeUnit.SECONDS)).isEqualTo("fetched");
+        assertThat(httpClient.attempts.poll(100, TimeUnit.MILLISECONDS)).isNull();
+
+        // idempotent methods are hedged when they are annotated
+        CompletableFuture<String> updated = CompletableFuture.supplyAsync(() -> client.update("Reeka"));
+        httpClient.take();
+        httpClient.take().complete(Response.builder().parsedResponse("updated").build());
+        assertThat(updated.get(5, TimeUnit.SECONDS)).isEqualTo("updated");
+    }
+
+    /**
+     * Observes enough latencies of a method for its requests to be hedged.
+     */
+    private static void warmUp(Runnable call) {
+        for (int i = 0; i < 32; i++) {
+            call.run();
+        }
+    }
+
+    /**
+     * Non-blocking HTTP client which responds right away, or once the test completes the requests it took.
+     */
+    private static final class PendingHttpClient implements HttpClient {
+
+        private final BlockingQueue<CompletableFuture<Response>> attempts = new LinkedBlockingQueue<>();
+        private volatile boolean pending;
+
+        @Override
+        public Response execute(Request request) {
+            return executeAsync(request).join();
+        }
+
+        @Override
+        public CompletableFuture<Response> executeAsync(Request request) {
+            if (!pending) {
+                return CompletableFuture.completedFuture(Response.builder().parsedResponse("ok").build());
+            }
+            final CompletableFuture<Response> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            return attempt;
+        }
+
+        CompletableFuture<Response> take() throws InterruptedException {
+            final CompletableFuture<Response> attempt = attempts.poll(5, TimeUnit.SECONDS);
+            assertThat(attempt).as("request").isNotNull();
+            return attempt;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.simplehttp.core.client.executor;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.annotation.http.RequestBody;
+import com.simplehttp.core.annotation.http.Retry;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.model.Person;
+import com.simplehttp.core.client.model.Request;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.core.codec.JacksonCodec;
+import com.simplehttp.core.exception.HttpStatusException;
+import com.simplehttp.core.exception.SimpleHttpException;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RetryingRequestExecutorTest {
+
+    @Test
+    public void retryableStatusTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list();
+        }
+
+        HttpClient httpClient = failingWith(503, 502);
+        List<Integer> attempts = new CopyOnWriteArrayList<>();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(httpClient)
+                .withExecutionHandler(executor()
+                        .withRetryListener(new RetryListener() {
+                            @Override
+                            public void onRetry(Request request, int attempt, Duration backoff, Exception error) {
+                                assertThat(backoff).isLessThanOrEqualTo(Duration.ofMillis(2));
+                                attempts.add(attempt);
+                            }
+                        })
+                        .build())
+                .buildClient(TestClient.class);
+
+        assertThat(client.list()).isEqualTo("ok");
+        assertThat(attempts).containsExactly(2, 3);
+    }
+
+    @Test
+    public void asyncRetryTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            CompletableFuture<String> list();
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 503, 503))
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        assertThat(client.list().get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    public void maxAttemptsTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list();
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 503, 503, 503))
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        assertThatThrownBy(client::list)
+                .isInstanceOf(SimpleHttpException.class)
+                .hasCauseInstanceOf(HttpStatusException.class);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    public void nonRetryableStatusTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute(httpMethod = HttpMethod.DELETE)
+            void delete();
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 400))
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        assertThatThrownBy(client::delete).isInstanceOf(SimpleHttpException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void nonIdempotentRequestTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            String create(@RequestBody String person);
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 503))
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        assertThatThrownBy(() -> client.create("Reeka")).isInstanceOf(SimpleHttpException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void retryNonIdempotentTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @Retry(retryNonIdempotent = true, initialBackoffMillis = 1)
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            String create(@RequestBody String person);
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 503))
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        assertThat(client.create("Reeka")).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    public void connectionErrorTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            String create(@RequestBody String person);
+        }
+
+        // a request whose connection failed never reached the server, so that it is retried regardless of its method
+        AtomicInteger calls = new AtomicInteger();
+        HttpClient httpClient = request -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ConnectException("Connection refused");
+            }
+            return Response.builder().parsedResponse("ok").build();
+        };
+        TestClient client = new ClientBuilder()
+                .withHttpClient(httpClient)
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        assertThat(client.create("Reeka")).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    public void replayedBodyTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @Retry(retryNonIdempotent = true, initialBackoffMillis = 1)
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            String create(@RequestBody Person person);
+        }
+
+        // the body is serialized once and every attempt sends the same bytes
+        List<Object> bodies = new CopyOnWriteArrayList<>();
+        HttpClient httpClient = new HttpClient() {
+            private final Codec codec = new JacksonCodec();
+
+            @Override
+            public Response execute(Request request) {
+                bodies.add(request.getBody());
+                assertThat(request.getHeaders().getFirst("Content-Type")).contains("application/json");
+                if (bodies.size() == 1) {
+                    throw statusException(request, 503);
+                }
+                return Response.builder().parsedResponse("ok").build();
+            }
+
+            @Override
+            public Codec getCodec() {
+                return codec;
+            }
+        };
+        TestClient client = new ClientBuilder()
+                .withHttpClient(httpClient)
+                .withExecutionHandler(executor().build())
+                .buildClient(TestClient.class);
+
+        Person person = new Person();
+        person.setName("Reeka");
+        person.setAge(25);
+        assertThat(client.create(person)).isEqualTo("ok");
+        assertThat(bodies).hasSize(2);
+        assertThat(bodies.get(1)).isSameAs(bodies.get(0));
+        assertThat(new String((byte[]) bodies.get(0), StandardCharsets.UTF_8))
+                .contains("\"name\":\"Reeka\"", "\"age\":25");
+    }
+
+    @Test
+    public void retryBudgetTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @Retry(maxAttempts = 10, initialBackoffMillis = 1)
+            @RequestAttribute(httpMethod = HttpMethod.PUT)
+            void update(@RequestBody String person);
+        }
+
+        // one retry is left, the budget stops retrying before the policy would
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger exhausted = new AtomicInteger();
+        RetryingRequestExecutor executor = executor()
+                .withRetryBudget(new RetryBudget(0, 1))
+                .withRetryListener(new RetryListener() {
+                    @Override
+                    public void onBudgetExhausted(Request request, Exception error) {
+                        exhausted.incrementAndGet();
+                    }
+                })
+                .build();
+        TestClient client = new ClientBuilder()
+                .withHttpClient(failingWith(calls, 503, 503, 503))
+                .withExecutionHandler(executor)
+                .buildClient(TestClient.class);
+
+        assertThatThrownBy(() -> client.update("Reeka")).isInstanceOf(SimpleHttpException.class);
+        assertThat(calls).hasValue(2);
+        assertThat(exhausted).hasValue(1);
+        assertThat(executor.getRetryBudget().getAvailableRetries()).isZero();
+    }
+
+    private static RetryingRequestExecutor.Builder executor() {
+        return RetryingRequestExecutor.builder()
+                .withDefaultPolicy(RetryPolicy.builder().initialBackoff(Duration.ofMillis(1)).build());
+    }
+
+    private static HttpClient failingWith(int... statusCodes) {
+        return failingWith(new AtomicInteger(), statusCodes);
+    }
+
+    /**
+     * @return HTTP client failing with the status codes in turn, then responding with "ok"
+     */
+    private static HttpClient failingWith(AtomicInteger calls, int... statusCodes) {
+        return request -> {
+            final int call = calls.getAndIncrement();
+            if (call < statusCodes.length) {
+                throw statusException(request, statusCodes[call]);
+            }
+            return Response.builder().parsedResponse("ok").build();
+        };
+    }
+
+    private static HttpStatusException statusException(Request request, int statusCode) {
+        return new HttpStatusException("Request failed with status " + statusCode, request, statusCode, "");
+    }
+}
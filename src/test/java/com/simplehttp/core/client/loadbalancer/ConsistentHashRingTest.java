@@ -0,0 +1,194 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.HttpHeader;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.annotation.http.RoutingKey;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Response;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static final List<String> REPLICAS = List.of("http://replica-1/people", "http://replica-2/people",
+            "http://replica-3/people");
+    private static final List<String> USERS = IntStream.range(0, 30).mapToObj(i -> "user-" + i)
+            .collect(Collectors.toList());
+
+    @Test
+    public void routingKeyTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list(@HttpHeader("X-User") String user, @RoutingKey String routingKey);
+
+            @RequestAttribute
+            CompletableFuture<String> listAsync(@HttpHeader("X-User") String user, @RoutingKey String routingKey);
+        }
+
+        Map<String, Set<String>> urlsOfUser = new ConcurrentHashMap<>();
+        TestClient client = new ClientBuilder().withHttpClient(recording(urlsOfUser))
+                .withEndpointProvider(new RefreshableEndpointProvider(REPLICAS))
+                .buildClient(TestClient.class);
+
+        // the requests of a key are sent to the same replica, the keys are spread across the replicas
+        for (String user : USERS) {
+            for (int i = 0; i < 3; i++) {
+                client.list(user, user);
+                client.listAsync(user, user).get(5, TimeUnit.SECONDS);
+            }
+        }
+        assertThat(urlsOfUser).hasSize(USERS.size()).allSatisfy((user, urls) -> assertThat(urls).hasSize(1));
+        assertThat(urlsOfUser.values().stream().flatMap(Set::stream).collect(Collectors.toSet()))
+                .containsExactlyInAnyOrderElementsOf(REPLICAS);
+    }
+
+    @Test
+    public void removedEndpointTest() {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list(@HttpHeader("X-User") String user, @RoutingKey String routingKey);
+        }
+
+        Map<String, Set<String>> urlsOfUser = new ConcurrentHashMap<>();
+        RefreshableEndpointProvider endpoints = new RefreshableEndpointProvider(REPLICAS);
+        TestClient client = new ClientBuilder().withHttpClient(recording(urlsOfUser))
+                .withEndpointProvider(endpoints)
+                .buildClient(TestClient.class);
+        USERS.forEach(user -> client.list(user, user));
+        Map<String, String> replicaOfUser = new HashMap<>();
+        urlsOfUser.forEach((user, urls) -> replicaOfUser.put(user, urls.iterator().next()));
+
+        // removing a replica only moves the keys it served
+        endpoints.setEndpoints(REPLICAS.subList(0, 2));
+        urlsOfUser.clear();
+        USERS.forEach(user -> client.list(user, user));
+        urlsOfUser.forEach((user, urls) -> {
+            assertThat(urls).doesNotContain(REPLICAS.get(2));
+            if (!replicaOfUser.get(user).equals(REPLICAS.get(2))) {
+                assertThat(urls).containsExactly(replicaOfUser.get(user));
+            }
+        });
+    }
+
+    @Test
+    public void hotKeyTest() throws Exception {
+        @SimpleHttpClient(hosts = {"http://replica-1/people", "http://replica-2/people"})
+        interface TestClient {
+            @RequestAttribute
+            String list(@RoutingKey long routingKey);
+        }
+
+        // requests wait until the test releases them
+        Set<String> urls = ConcurrentHashMap.newKeySet();
+        Semaphore sent = new Semaphore(0);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpClient httpClient = request -> {
+            urls.add(request.getUrl());
+            sent.release();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return Response.builder().parsedResponse("ok").build();
+        };
+        TestClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(TestClient.class);
+
+        // a hot key spills over to the other replica once its own one has more than its share of the requests
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                calls.add(callers.submit(() -> client.list(42L)));
+                assertThat(sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+            }
+            release.countDown();
+            for (Future<String> call : calls) {
+                assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+            }
+        } finally {
+            callers.shutdown();
+        }
+        assertThat(urls).containsExactlyInAnyOrder("http://replica-1/people", "http://replica-2/people");
+    }
+
+    @Test
+    public void locateTest() {
+        Endpoint[] endpoints = IntStream.range(0, 3).mapToObj(i -> new Endpoint("http://replica-" + i))
+                .toArray(Endpoint[]::new);
+        ConsistentHashRing ring = new ConsistentHashRing(endpoints);
+        ConsistentHashRing reordered = new ConsistentHashRing(new Endpoint[]{endpoints[2], endpoints[0], endpoints[1]});
+        ConsistentHashRing shrunk = new ConsistentHashRing(new Endpoint[]{endpoints[0], endpoints[1]});
+
+        Map<Endpoint, Integer> keysOfEndpoint = new HashMap<>();
+        for (int key = 0; key < 3000; key++) {
+            long hash = ConsistentHashRing.hash("user-" + key);
+            Endpoint endpoint = ring.locate(hash, 1);
+            keysOfEndpoint.merge(endpoint, 1, Integer::sum);
+            // the ring only depends on the URLs of the endpoints, not on their order
+            assertThat(reordered.locate(hash, 1)).isSameAs(endpoint);
+            // removing an endpoint only moves the keys it owned
+            if (endpoint != endpoints[2]) {
+                assertThat(shrunk.locate(hash, 1)).isSameAs(endpoint);
+            }
+        }
+        assertThat(keysOfEndpoint.values()).allSatisfy(keys -> assertThat(keys).isBetween(700, 1300));
+
+        // keys of equal value hash alike, whatever their type
+        assertThat(ConsistentHashRing.hash(42L)).isEqualTo(ConsistentHashRing.hash(42));
+        assertThat(ConsistentHashRing.hash(new StringBuilder("user-1"))).isEqualTo(ConsistentHashRing.hash("user-1"));
+    }
+
+    @Test
+    public void boundedLoadTest() {
+        Endpoint[] endpoints = IntStream.range(0, 3).mapToObj(i -> new Endpoint("http://replica-" + i))
+                .toArray(Endpoint[]::new);
+        ConsistentHashRing ring = new ConsistentHashRing(endpoints);
+        long hash = ConsistentHashRing.hash("hot-key");
+        Endpoint owner = ring.locate(hash, 1);
+
+        // a key moves on along the ring while its owner is at capacity
+        owner.acquire();
+        Endpoint spillOver = ring.locate(hash, 1);
+        assertThat(spillOver).isNotSameAs(owner);
+        assertThat(ring.locate(hash, 2)).isSameAs(owner);
+
+        // the owner keeps the key once every endpoint is at capacity
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint != owner) {
+                endpoint.acquire();
+            }
+        }
+        assertThat(ring.locate(hash, 1)).isSameAs(owner);
+        owner.release();
+        assertThat(ring.locate(hash, 1)).isSameAs(owner);
+    }
+
+    /**
+     * @return HTTP client recording the URLs of the requests of each user
+     */
+    private static HttpClient recording(Map<String, Set<String>> urlsOfUser) {
+        return request -> {
+            urlsOfUser.computeIfAbsent(request.getHeaders().getFirst("X-User"), user -> ConcurrentHashMap.newKeySet())
+                    .add(request.getUrl());
+            return Response.builder().parsedResponse("ok").build();
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package com.simplehttp.core.client.loadbalancer;
+
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.PathParam;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.model.Response;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LoadBalancerTest {
+
+    @Test
+    public void clientHostsTest() throws Exception {
+        @SimpleHttpClient(hosts = {"http://replica-1/people", "http://replica-2/people"})
+        interface TestClient {
+            @RequestAttribute("/{id}")
+            String get(@PathParam("id") String id);
+
+            @RequestAttribute
+            CompletableFuture<String> listAsync();
+        }
+
+        List<String> urls = new CopyOnWriteArrayList<>();
+        TestClient client = new ClientBuilder().withHttpClient(recording(urls)).buildClient(TestClient.class);
+
+        // requests are spread across the hosts of the client
+        for (int i = 0; i < 20; i++) {
+            client.get("1");
+            client.listAsync().get(5, TimeUnit.SECONDS);
+        }
+        assertThat(urls).contains("http://replica-1/people/1", "http://replica-2/people/1", "http://replica-1/people",
+                "http://replica-2/people");
+    }
+
+    @Test
+    public void leastLoadedEndpointTest() {
+        LoadBalancer loadBalancer = new LoadBalancer(EndpointProvider.of(List.of("http://replica-1",
+                "http://replica-2")));
+
+        // out of two endpoints, the one with fewer requests in flight is chosen
+        Endpoint busy = loadBalancer.choose();
+        for (int i = 0; i < 10; i++) {
+            Endpoint endpoint = loadBalancer.choose();
+            assertThat(endpoint).isNotSameAs(busy);
+            loadBalancer.release(endpoint);
+        }
+        loadBalancer.release(busy);
+        assertThat(busy.getOutstandingRequests()).isZero();
+    }
+
+    @Test
+    public void streamedBodyTest() throws Exception {
+        @SimpleHttpClient(hosts = {"http://replica-1/people", "http://replica-2/people"})
+        interface TestClient {
+            @RequestAttribute
+            String list();
+
+            @RequestAttribute("/export")
+            InputStream export();
+        }
+
+        List<String> urls = new CopyOnWriteArrayList<>();
+        HttpClient httpClient = request -> {
+            urls.add(request.getUrl());
+            return Response.builder().parsedResponse(request.getUrl().endsWith("/export")
+                    ? new ByteArrayInputStream("Anton,30\n".getBytes(StandardCharsets.UTF_8)) : "ok").build();
+        };
+        TestClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(TestClient.class);
+
+        // a streamed body keeps its host busy until it is closed
+        String busyHost;
+        try (InputStream export = client.export()) {
+            busyHost = urls.get(0).replace("/export", "");
+            urls.clear();
+            for (int i = 0; i < 10; i++) {
+                client.list();
+            }
+            assertThat(urls).hasSize(10).doesNotContain(busyHost);
+            assertThat(export.readAllBytes()).isEqualTo("Anton,30\n".getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < 20; i++) {
+            client.list();
+        }
+        assertThat(urls).contains(busyHost);
+    }
+
+    @Test
+    public void refreshedEndpointsTest() throws Exception {
+        @SimpleHttpClient(host = "http://localhost/people")
+        interface TestClient {
+            @RequestAttribute
+            String list();
+
+            @RequestAttribute
+            CompletableFuture<String> listAsync();
+        }
+
+        List<String> urls = new CopyOnWriteArrayList<>();
+        RefreshableEndpointProvider endpoints = new RefreshableEndpointProvider(List.of("http://replica-1/people"));
+        TestClient client = new ClientBuilder().withHttpClient(recording(urls)).withEndpointProvider(endpoints)
+                .buildClient(TestClient.class);
+
+        // the endpoints of a provider can change without rebuilding the client
+        client.list();
+        endpoints.setEndpoints(List.of("http://replica-2/people"));
+        client.list();
+        client.listAsync().get(5, TimeUnit.SECONDS);
+        assertThat(urls).containsExactly("http://replica-1/people", "http://replica-2/people",
+                "http://replica-2/people");
+    }
+
+    @Test
+    public void keptEndpointTest() {
+        AtomicReference<List<String>> urls = new AtomicReference<>(List.of("http://replica-1"));
+        LoadBalancer loadBalancer = new LoadBalancer(urls::get);
+        Endpoint busy = loadBalancer.choose();
+
+        // an endpoint which is still provided keeps its requests in flight
+        urls.set(List.of("http://replica-1", "http://replica-2"));
+        Endpoint endpoint = loadBalancer.choose();
+        assertThat(endpoint.getUrl()).isEqualTo("http://replica-2");
+        loadBalancer.release(endpoint);
+        loadBalancer.release(busy);
+        assertThat(busy.getOutstandingRequests()).isZero();
+    }
+
+    @Test
+    public void noEndpointsTest() {
+        LoadBalancer loadBalancer = new LoadBalancer(List::of);
+
+        assertThatThrownBy(loadBalancer::choose)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("No endpoints are available");
+    }
+
+    @Test
+    public void unixSocketEndpointTest() {
+        AtomicReference<List<String>> urls = new AtomicReference<>(List.of("http://localhost:3003/people"));
+        LoadBalancer loadBalancer = new LoadBalancer(urls::get, false);
+        loadBalancer.release(loadBalancer.choose());
+
+        // a provider may only return a unix domain socket after the client was built
+        urls.set(List.of("http://localhost:3003/people", "unix://%2Fvar%2Frun%2Fagent.sock/people"));
+        assertThatThrownBy(loadBalancer::choose)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unix://%2Fvar%2Frun%2Fagent.sock/people");
+
+        Endpoint endpoint = new LoadBalancer(urls::get, true).choose("key");
+        assertThat(endpoint.getUrl()).isIn(urls.get());
+    }
+
+    /**
+     * @return HTTP client recording the URLs of the requests
+     */
+    private static HttpClient recording(List<String> urls) {
+        return request -> {
+            urls.add(request.getUrl());
+            return Response.builder().parsedResponse("ok").build();
+        };
+    }
+}
@@ -0,0 +1,846 @@
+package com.simplehttp.httpclient;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.simplehttp.core.annotation.client.SimpleHttpClient;
+import com.simplehttp.core.annotation.http.DownloadTo;
+import com.simplehttp.core.annotation.http.PathParam;
+import com.simplehttp.core.annotation.http.RequestAttribute;
+import com.simplehttp.core.annotation.http.RequestBody;
+import com.simplehttp.core.client.ClientBuilder;
+import com.simplehttp.core.client.HttpClient;
+import com.simplehttp.core.client.http.HttpMethod;
+import com.simplehttp.core.client.model.Person;
+import com.simplehttp.core.client.model.Response;
+import com.simplehttp.core.client.model.ServerSentEvent;
+import com.simplehttp.core.codec.BodyReader;
+import com.simplehttp.core.codec.BodyWriter;
+import com.simplehttp.core.codec.Codec;
+import com.simplehttp.core.codec.JacksonCodec;
+import com.simplehttp.core.exception.HttpStatusException;
+import com.simplehttp.core.exception.SimpleHttpException;
+import com.simplehttp.httpclient.jdk.JavaNetHttpClient;
+import com.simplehttp.httpclient.nio.NioHttpClient;
+import com.simplehttp.httpclient.spring.ConnectionPoolConfig;
+import com.simplehttp.httpclient.spring.RestTemplateHttpClient;
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Behaviour each HTTP client implements on its own, run against every one of them: <code>RestTemplate</code> without
+ * and with a connection pool, the JDK client and the NIO client. The pooled clients keep a single connection per
+ * host, so a body which does not release its connection blocks the next request.
+ */
+@RunWith(Parameterized.class)
+public class HttpTransportTest {
+
+    // a single server for all tests, connections kept alive by one test would fail in the next one otherwise
+    @ClassRule
+    public static WireMockClassRule server = new WireMockClassRule(wireMockConfig().port(3003));
+
+    @Rule
+    public WireMockClassRule wm = server;
+
+    private final HttpClient httpClient;
+
+    public HttpTransportTest(String transport, Supplier<HttpClient> httpClient) {
+        this.httpClient = httpClient.get();
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> transports() {
+        Supplier<HttpClient> restTemplate = RestTemplateHttpClient::new;
+        Supplier<HttpClient> pooledRestTemplate = () -> new RestTemplateHttpClient(ConnectionPoolConfig.builder()
+                .maxPerRoute(1)
+                .connectionRequestTimeout(Duration.ofSeconds(5))
+                .build());
+        Supplier<HttpClient> javaNet = JavaNetHttpClient::new;
+        Supplier<HttpClient> nio = () -> NioHttpClient.builder()
+                .withMaxConnectionsPerHost(1)
+                .withBufferSize(1024) // reading and writing pause every few KB until the other side caught up
+                .build();
+        return List.of(new Object[]{"RestTemplateHttpClient", restTemplate},
+                new Object[]{"pooled RestTemplateHttpClient", pooledRestTemplate},
+                new Object[]{"JavaNetHttpClient", javaNet},
+                new Object[]{"NioHttpClient", nio});
+    }
+
+    @After
+    public void closeHttpClient() throws Exception {
+        if (httpClient instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    public void inputStreamResponseTest() throws Exception {
+        byte[] export = stubExport();
+
+        @SimpleHttpClient(host = "http://localhost:3003/export")
+        interface ExportClient {
+            @RequestAttribute
+            InputStream stream();
+
+            @RequestAttribute
+            CompletableFuture<InputStream> streamAsync();
+        }
+
+        ExportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ExportClient.class);
+        for (int i = 0; i < 2; i++) {
+            try (InputStream stream = client.stream()) {
+                assertThat(stream.readAllBytes()).isEqualTo(export);
+            }
+            try (InputStream stream = client.streamAsync().get(5, TimeUnit.SECONDS)) {
+                assertThat(stream.readAllBytes()).isEqualTo(export);
+            }
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void channelResponseTest() throws Exception {
+        byte[] export = stubExport();
+
+        @SimpleHttpClient(host = "http://localhost:3003/export")
+        interface ExportClient {
+            @RequestAttribute
+            ReadableByteChannel channel();
+        }
+
+        ExportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ExportClient.class);
+        for (int i = 0; i < 2; i++) {
+            try (ReadableByteChannel channel = client.channel()) {
+                ByteBuffer buffer = ByteBuffer.allocate(export.length + 1);
+                while (channel.read(buffer) != -1) {
+                    assertThat(buffer.hasRemaining()).isTrue();
+                }
+                assertThat(Arrays.copyOf(buffer.array(), buffer.position())).isEqualTo(export);
+            }
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void downloadTest() throws Exception {
+        byte[] export = stubExport();
+
+        @SimpleHttpClient(host = "http://localhost:3003/export")
+        interface ExportClient {
+            @RequestAttribute
+            Path download(@DownloadTo Path target);
+        }
+
+        ExportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ExportClient.class);
+        Path target = Files.createTempFile("export", ".bin");
+        try {
+            assertThat(client.download(target)).isEqualTo(target);
+            assertThat(Files.readAllBytes(target)).isEqualTo(export);
+        } finally {
+            Files.deleteIfExists(target);
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void partiallyReadResponseTest() throws Exception {
+        byte[] export = stubExport();
+
+        @SimpleHttpClient(host = "http://localhost:3003/export")
+        interface ExportClient {
+            @RequestAttribute
+            InputStream stream();
+        }
+
+        ExportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ExportClient.class);
+
+        // closing a partially read body releases its connection
+        for (int i = 0; i < 3; i++) {
+            try (InputStream stream = client.stream()) {
+                assertThat(stream.readNBytes(100)).isEqualTo(Arrays.copyOf(export, 100));
+            }
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void missingStreamTest() throws Exception {
+        stubFor(get("/export/missing").willReturn(notFound().withBody("no such export")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/export")
+        interface ExportClient {
+            @RequestAttribute("/missing")
+            InputStream missing();
+        }
+
+        ExportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ExportClient.class);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(client::missing).isInstanceOf(SimpleHttpException.class);
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void jsonArrayRequestTest() throws Exception {
+        stubFor(post("/import/people").willReturn(ok("imported")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/import")
+        interface ImportClient {
+            @RequestAttribute(value = "/people", httpMethod = HttpMethod.POST)
+            String people(@RequestBody Stream<Person> people);
+        }
+
+        ImportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ImportClient.class);
+        List<Person> people = people();
+
+        // a stream is written as a JSON array while its elements are produced
+        assertThat(client.people(people.stream())).isEqualTo("imported");
+        LoggedRequest request = findAll(postRequestedFor(urlEqualTo("/import/people"))).get(0);
+        assertThat(request.getHeader("Content-Type")).isEqualTo("application/json");
+        assertThat(request.getBodyAsString()).isEqualTo(new ObjectMapper().writeValueAsString(people));
+    }
+
+    @Test
+    public void ndjsonRequestTest() throws Exception {
+        stubFor(post("/import/people").willReturn(ok("imported")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/import")
+        interface ImportClient {
+            @RequestAttribute(value = "/people", httpMethod = HttpMethod.POST,
+                    headers = "Content-Type=application/x-ndjson")
+            String people(@RequestBody Iterator<Person> people);
+        }
+
+        ImportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ImportClient.class);
+        List<Person> people = people();
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringBuilder ndjson = new StringBuilder();
+        for (Person person : people) {
+            ndjson.append(objectMapper.writeValueAsString(person)).append('\n');
+        }
+
+        assertThat(client.people(people.iterator())).isEqualTo("imported");
+        LoggedRequest request = findAll(postRequestedFor(urlEqualTo("/import/people"))).get(0);
+        assertThat(request.getHeader("Content-Type")).isEqualTo("application/x-ndjson");
+        assertThat(request.getBodyAsString()).isEqualTo(ndjson.toString());
+    }
+
+    @Test
+    public void fileRequestTest() throws Exception {
+        stubFor(put("/import/file").willReturn(ok("imported")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/import")
+        interface ImportClient {
+            @RequestAttribute(value = "/file", httpMethod = HttpMethod.PUT)
+            String file(@RequestBody Path file);
+        }
+
+        ImportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ImportClient.class);
+        byte[] content = content();
+        Path file = Files.write(Files.createTempFile("import", ".bin"), content);
+        try {
+            assertThat(client.file(file)).isEqualTo("imported");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        LoggedRequest request = findAll(putRequestedFor(urlEqualTo("/import/file"))).get(0);
+        assertThat(request.getHeader("Content-Type")).isEqualTo("application/octet-stream");
+        assertThat(request.getBody()).isEqualTo(content);
+    }
+
+    @Test
+    public void inputStreamRequestTest() throws Exception {
+        stubFor(put("/import/file").willReturn(ok("imported")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/import")
+        interface ImportClient {
+            @RequestAttribute(value = "/file", httpMethod = HttpMethod.PUT)
+            CompletableFuture<String> stream(@RequestBody InputStream stream);
+        }
+
+        ImportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ImportClient.class);
+        byte[] content = content();
+
+        assertThat(client.stream(new ByteArrayInputStream(content)).get(5, TimeUnit.SECONDS)).isEqualTo("imported");
+        assertThat(findAll(putRequestedFor(urlEqualTo("/import/file"))).get(0).getBody()).isEqualTo(content);
+    }
+
+    @Test
+    public void byteBufferRequestTest() throws Exception {
+        stubFor(put("/import/file").willReturn(ok("imported")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/import")
+        interface ImportClient {
+            @RequestAttribute(value = "/file", httpMethod = HttpMethod.PUT)
+            String buffer(@RequestBody ByteBuffer buffer);
+        }
+
+        ImportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ImportClient.class);
+        byte[] content = content();
+
+        // only the remaining bytes of a buffer are sent
+        assertThat(client.buffer(ByteBuffer.wrap(content, 1, content.length - 1))).isEqualTo("imported");
+        assertThat(findAll(putRequestedFor(urlEqualTo("/import/file"))).get(0).getBody())
+                .isEqualTo(Arrays.copyOfRange(content, 1, content.length));
+    }
+
+    @Test
+    public void failingRequestBodyTest() throws Exception {
+        stubFor(post("/import/people").willReturn(ok("imported")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/import")
+        interface ImportClient {
+            @RequestAttribute(value = "/people", httpMethod = HttpMethod.POST,
+                    headers = "Content-Type=application/x-ndjson")
+            String people(@RequestBody Iterator<Person> people);
+        }
+
+        ImportClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(ImportClient.class);
+        List<Person> people = people();
+        Iterator<Person> failing = IntStream.range(0, 10_000).mapToObj(id -> {
+            if (id == 5_000) {
+                throw new IllegalStateException("cursor closed");
+            }
+            return people.get(id);
+        }).iterator();
+
+        // a body which fails while it is produced is never completed
+        assertThatThrownBy(() -> client.people(failing)).isInstanceOf(SimpleHttpException.class);
+        assertThat(findAll(postRequestedFor(urlEqualTo("/import/people")))).isEmpty();
+        assertThat(client.people(people.iterator())).isEqualTo("imported");
+    }
+
+    @Test
+    public void codecTest() throws Exception {
+        stubFor(get("/people").willReturn(okJson("[{\"Name\": \"Anton\", \"Age\": 30}]")));
+        stubFor(post("/people").withHeader("Content-Type", equalTo("application/json"))
+                .withRequestBody(equalToJson("{\"Name\": \"Reeka\", \"Age\": 25}", true, true))
+                .willReturn(okJson("{\"Name\": \"Reeka\", \"Age\": 25}")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            List<Person> list();
+
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            Person create(@RequestBody Person person);
+        }
+
+        // bodies are read and written with the codec of the client
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).withCodec(upperCamelCase())
+                .buildClient(PeopleClient.class);
+        assertThat(client.list()).extracting(Person::getName).containsExactly("Anton");
+        Person person = new Person();
+        person.setName("Reeka");
+        person.setAge(25);
+        assertThat(client.create(person)).isEqualTo(person);
+    }
+
+    @Test
+    public void codecResolvedOnceTest() throws Exception {
+        stubFor(get("/people").willReturn(okJson("[{\"Name\": \"Anton\", \"Age\": 30}]")));
+        stubFor(post("/people").willReturn(okJson("{\"Name\": \"Reeka\", \"Age\": 25}")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            List<Person> list();
+
+            @RequestAttribute(httpMethod = HttpMethod.POST)
+            Person create(@RequestBody Person person);
+        }
+
+        AtomicInteger readers = new AtomicInteger();
+        AtomicInteger writers = new AtomicInteger();
+        Codec jackson = upperCamelCase();
+        Codec codec = new Codec() {
+            @Override
+            public BodyReader<?> reader(Type type) {
+                readers.incrementAndGet();
+                return jackson.reader(type);
+            }
+
+            @Override
+            public BodyWriter writer(Type type) {
+                writers.incrementAndGet();
+                return jackson.writer(type);
+            }
+        };
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).withCodec(codec)
+                .buildClient(PeopleClient.class);
+        for (int i = 0; i < 3; i++) {
+            client.list();
+            client.create(new Person());
+        }
+
+        // readers and writers are resolved once per method instead of on every request
+        assertThat(readers).hasValue(2);
+        assertThat(writers).hasValue(1);
+    }
+
+    @Test
+    public void streamedElementsTest() throws Exception {
+        stubPeopleArray();
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            Stream<Person> stream();
+
+            @RequestAttribute
+            CompletableFuture<Stream<Person>> streamAsync();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+        try (Stream<Person> people = client.stream()) {
+            assertThat(people.mapToInt(Person::getAge).sum()).isEqualTo(200 * 4950);
+        }
+        try (Stream<Person> people = client.streamAsync().get(5, TimeUnit.SECONDS)) {
+            assertThat(people.count()).isEqualTo(20_000);
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void iteratedElementsTest() throws Exception {
+        stubPeopleArray();
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            Iterator<Person> iterator();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+
+        // a consumed iterator releases its connection without being closed
+        for (int i = 0; i < 2; i++) {
+            Iterator<Person> iterator = client.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                assertThat(iterator.next().getName()).isEqualTo("person" + count++);
+            }
+            assertThat(count).isEqualTo(20_000);
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void ndjsonElementsTest() throws Exception {
+        stubFor(get("/people/ndjson").willReturn(aResponse().withHeader("Content-Type", "application/x-ndjson")
+                .withBody("{\"name\": \"Anton\"}\n{\"name\": \"Reeka\"}\n")));
+        stubFor(get("/people/empty").willReturn(okJson("[]")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/ndjson")
+            Stream<Person> ndjson();
+
+            @RequestAttribute("/empty")
+            Stream<Person> empty();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+        assertThat(client.ndjson().map(Person::getName)).containsExactly("Anton", "Reeka");
+        assertThat(client.empty()).isEmpty();
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void partiallyConsumedElementsTest() throws Exception {
+        stubPeopleArray();
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute
+            Stream<Person> stream();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+
+        // closing a partially consumed stream releases its connection
+        for (int i = 0; i < 3; i++) {
+            try (Stream<Person> people = client.stream()) {
+                assertThat(people.limit(3).map(Person::getName)).containsExactly("person0", "person1", "person2");
+            }
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void serverSentEventsTest() throws Exception {
+        stubFor(get("/events").atPriority(2).willReturn(aResponse().withHeader("Content-Type", "text/event-stream")
+                .withBody("retry: 10\n\n: connected\n\nid: 1\ndata: {\"name\": \"Anton\"}\n\n"
+                        + "id: 2\nevent: update\ndata: {\"name\":\ndata: \"Reeka\"}\n\n")));
+        stubFor(get("/events").atPriority(1).withHeader("Last-Event-ID", equalTo("2"))
+                .willReturn(aResponse().withHeader("Content-Type", "text/event-stream")
+                        .withBody("id: 3\ndata: {\"name\": \"Zed\"}\n\n")));
+        stubFor(get("/events").atPriority(1).withHeader("Last-Event-ID", equalTo("3"))
+                .willReturn(aResponse().withHeader("Content-Type", "text/event-stream").withBody("retry: 60000\n\n")));
+
+        @SimpleHttpClient(host = "http://localhost:3003")
+        interface EventClient {
+            @RequestAttribute("/events")
+            Flow.Publisher<ServerSentEvent<Person>> events();
+        }
+
+        EventClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(EventClient.class);
+        CollectingSubscriber<ServerSentEvent<Person>> events = new CollectingSubscriber<>(1, true);
+        client.events().subscribe(events);
+        assertThat(events.take()).extracting(ServerSentEvent::getId, ServerSentEvent::getEvent,
+                event -> event.getData().getName()).containsExactly("1", "message", "Anton");
+        assertThat(events.take()).extracting(ServerSentEvent::getId, ServerSentEvent::getEvent,
+                event -> event.getData().getName()).containsExactly("2", "update", "Reeka");
+
+        // the stream resumes after the last event it received
+        assertThat(events.take()).extracting(ServerSentEvent::getId, event -> event.getData().getName())
+                .containsExactly("3", "Zed");
+        events.subscription.cancel();
+        verify(getRequestedFor(urlEqualTo("/events")).withHeader("Last-Event-ID", equalTo("2"))
+                .withHeader("Accept", containing("text/event-stream")));
+    }
+
+    @Test
+    public void eventDataTest() throws Exception {
+        stubFor(get("/events").willReturn(aResponse().withHeader("Content-Type", "text/event-stream")
+                .withBody("retry: 60000\n\nid: 1\ndata: {\"name\": \"Anton\"}\n\n"
+                        + "id: 2\nevent: update\ndata: {\"name\": \"Reeka\"}\n\n")));
+
+        @SimpleHttpClient(host = "http://localhost:3003")
+        interface EventClient {
+            @RequestAttribute("/events")
+            Flow.Publisher<Person> eventData();
+        }
+
+        // a publisher of the data type receives the data of the events
+        EventClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(EventClient.class);
+        CollectingSubscriber<Person> eventData = new CollectingSubscriber<>(2, false);
+        client.eventData().subscribe(eventData);
+        assertThat(List.of(eventData.take(), eventData.take())).extracting(Person::getName)
+                .containsExactly("Anton", "Reeka");
+        eventData.subscription.cancel();
+    }
+
+    @Test
+    public void ndjsonEventsTest() throws Exception {
+        stubFor(get("/changes").willReturn(aResponse().withHeader("Content-Type", "application/x-ndjson")
+                .withBody(IntStream.range(0, 1000)
+                        .mapToObj(id -> "{\"name\": \"person" + id + "\"}\n")
+                        .collect(Collectors.joining()))));
+
+        @SimpleHttpClient(host = "http://localhost:3003")
+        interface EventClient {
+            @RequestAttribute("/changes")
+            Flow.Publisher<Person> changes();
+        }
+
+        EventClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(EventClient.class);
+        CollectingSubscriber<Person> changes = new CollectingSubscriber<>(10, false);
+        client.changes().subscribe(changes);
+        for (int i = 0; i < 10; i++) {
+            assertThat(changes.take().getName()).isEqualTo("person" + i);
+        }
+
+        // no more events are read than requested
+        assertThat(changes.items.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(changes.completion).isNotDone();
+        changes.subscription.request(Long.MAX_VALUE);
+        changes.completion.get(5, TimeUnit.SECONDS);
+        assertThat(changes.items).hasSize(990);
+    }
+
+    @Test
+    public void missingEventStreamTest() {
+        stubFor(get("/events/missing").willReturn(notFound()));
+
+        @SimpleHttpClient(host = "http://localhost:3003")
+        interface EventClient {
+            @RequestAttribute("/events/missing")
+            Flow.Publisher<Person> missing();
+        }
+
+        EventClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(EventClient.class);
+        CollectingSubscriber<Person> missing = new CollectingSubscriber<>(1, false);
+        client.missing().subscribe(missing);
+        assertThatThrownBy(() -> missing.completion.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(SimpleHttpException.class);
+    }
+
+    @Test
+    public void gzipResponseTest() throws Exception {
+        List<Person> people = people().subList(0, 1000);
+        byte[] json = new ObjectMapper().writeValueAsBytes(people);
+        stubFor(get("/people/gzip").willReturn(aResponse().withHeader("Content-Type", "application/json")
+                .withHeader("Content-Encoding", "gzip").withBody(compress(json, true))));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/gzip")
+            List<Person> gzip();
+
+            @RequestAttribute("/gzip")
+            InputStream gzipStream();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+        assertThat(client.gzip()).isEqualTo(people);
+        try (InputStream body = client.gzipStream()) {
+            assertThat(body.readAllBytes()).isEqualTo(json);
+        }
+        verify(getRequestedFor(urlEqualTo("/people/gzip")).withHeader("Accept-Encoding", equalTo("gzip, deflate")));
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void deflateResponseTest() throws Exception {
+        List<Person> people = people().subList(0, 1000);
+        stubFor(get("/people/deflate").willReturn(aResponse().withHeader("Content-Type", "application/json")
+                .withHeader("Content-Encoding", "deflate")
+                .withBody(compress(new ObjectMapper().writeValueAsBytes(people), false))));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/deflate")
+            List<Person> deflate();
+
+            @RequestAttribute("/deflate")
+            CompletableFuture<List<Person>> deflateAsync();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+        assertThat(client.deflate()).isEqualTo(people);
+        assertThat(client.deflateAsync().get(5, TimeUnit.SECONDS)).isEqualTo(people);
+    }
+
+    @Test
+    public void closedCompressedResponseTest() throws Exception {
+        stubFor(get("/people/gzip").willReturn(aResponse().withHeader("Content-Type", "application/json")
+                .withHeader("Content-Encoding", "gzip")
+                .withBody(compress(new ObjectMapper().writeValueAsBytes(people().subList(0, 1000)), true))));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/gzip")
+            InputStream gzipStream();
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+
+        // a stream closed before it is read releases its inflater and connection
+        for (int i = 0; i < 3; i++) {
+            client.gzipStream().close();
+        }
+        assertConnectionsReleased();
+    }
+
+    @Test
+    public void compressedRequestTest() throws Exception {
+        List<Person> people = people().subList(0, 1000);
+        stubFor(post("/people").withHeader("Content-Encoding", equalTo("gzip"))
+                .withRequestBody(equalToJson(new ObjectMapper().writeValueAsString(people)))
+                .willReturn(ok()));
+        stubFor(post("/people").withHeader("Content-Encoding", absent())
+                .withRequestBody(matchingJsonPath("$[0].name", equalTo("person-0")))
+                .withRequestBody(matchingJsonPath("$.length()", equalTo("1")))
+                .willReturn(ok()));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute(httpMethod = HttpMethod.POST, compressionThreshold = 1024)
+            void create(@RequestBody List<Person> people);
+        }
+
+        // only bodies over the threshold are compressed
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+        client.create(people);
+        client.create(people.subList(0, 1));
+    }
+
+    @Test
+    public void compressedStreamedRequestTest() throws Exception {
+        byte[] json = new ObjectMapper().writeValueAsBytes(people().subList(0, 1000));
+        stubFor(post("/people/upload").withHeader("Content-Encoding", equalTo("gzip"))
+                .withRequestBody(binaryEqualTo(json))
+                .willReturn(ok()));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute(httpMethod = HttpMethod.POST, value = "/upload", compressionThreshold = 0)
+            void upload(@RequestBody InputStream body);
+        }
+
+        PeopleClient client = new ClientBuilder().withHttpClient(httpClient).buildClient(PeopleClient.class);
+        client.upload(new ByteArrayInputStream(json));
+    }
+
+    @Test
+    public void errorStatusTest() throws Exception {
+        stubFor(get("/people/missing").willReturn(notFound().withBody("no such person")));
+
+        @SimpleHttpClient(host = "http://localhost:3003/people")
+        interface PeopleClient {
+            @RequestAttribute("/{id}")
+            Person get(@PathParam("id") String id);
+        }
+
+        AtomicReference<Exception> error = new AtomicReference<>();
+        PeopleClient client = new ClientBuilder()
+                .withHttpClient(httpClient)
+                .withErrorHandler((request, response, exception) -> {
+                    error.set(exception);
+                    return Response.builder().build();
+                })
+                .buildClient(PeopleClient.class);
+
+        assertThat(client.get("missing")).isNull();
+        // the error handlers see the same exception from every HTTP client
+        assertThat(error.get()).isInstanceOfSatisfying(HttpStatusException.class, e -> {
+            assertThat(e.getStatusCode()).isEqualTo(404);
+            assertThat(e.getResponseBody()).isEqualTo("no such person");
+        });
+    }
+
+    /**
+     * @return random body of an export served at <code>/export</code>, large enough to be read in many chunks
+     */
+    private static byte[] stubExport() {
+        byte[] export = new byte[1024 * 1024];
+        new Random(7).nextBytes(export);
+        stubFor(get("/export").willReturn(aResponse().withHeader("Content-Type", "application/octet-stream")
+                .withBody(export)));
+        return export;
+    }
+
+    /**
+     * Serves a JSON array of people at <code>/people</code>, large enough to be read in many chunks.
+     */
+    private static void stubPeopleArray() {
+        String array = IntStream.range(0, 20_000)
+                .mapToObj(id -> "{\"name\": \"person" + id + "\", \"age\": " + id % 100 + "}")
+                .collect(Collectors.joining(",", "[", "]\n"));
+        stubFor(get("/people").willReturn(okJson(array)));
+    }
+
+    /**
+     * @return people to import, enough to be written in many chunks
+     */
+    private static List<Person> people() {
+        return IntStream.range(0, 20_000).mapToObj(id -> {
+            Person person = new Person();
+            person.setName("person-" + id);
+            person.setAge(id % 100);
+            return person;
+        }).collect(Collectors.toList());
+    }
+
+    private static byte[] content() {
+        byte[] content = new byte[512 * 1024];
+        new Random(11).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] compress(byte[] body, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressed = gzip ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+            compressed.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static Codec upperCamelCase() {
+        return new JacksonCodec(new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+    }
+
+    private void assertConnectionsReleased() {
+        if (httpClient instanceof RestTemplateHttpClient restTemplateHttpClient) {
+            restTemplateHttpClient.getConnectionPoolStats().ifPresent(stats ->
+                    assertThat(stats.getLeased()).isZero());
+        }
+    }
+
+    private static final class CollectingSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final long initialDemand;
+        private final boolean requestEach;
+        private final BlockingQueue<T> items = new LinkedBlockingQueue<>();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        CollectingSubscriber(long initialDemand, boolean requestEach) {
+            this.initialDemand = initialDemand;
+            this.requestEach = requestEach;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+            if (requestEach) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+
+        T take() throws InterruptedException {
+            return Optional.ofNullable(items.poll(5, TimeUnit.SECONDS))
+                    .orElseThrow(() -> new AssertionError("No event was received"));
+        }
+    }
+}